@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helger.asic.AsicUtils;
+import com.helger.asic.EMessageDigestAlgorithm;
+import com.helger.asic.ESignatureMethod;
+import com.helger.asic.SignatureHelper;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayInputStream;
+import com.helger.base.io.stream.NullOutputStream;
+
+/**
+ * Benchmark for combining two signed ASiC containers into one.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.SECONDS)
+@Warmup (iterations = 3, time = 2)
+@Measurement (iterations = 5, time = 2)
+@Fork (1)
+@State (Scope.Benchmark)
+public class AsicCombineBenchmark
+{
+  @Param ({ "SHA256", "SHA512" })
+  public EMessageDigestAlgorithm mdAlgo;
+
+  @Param ({ "1", "10", "100" })
+  public int entryCount;
+
+  @Param ({ "1024", "65536", "1048576" })
+  public int entrySize;
+
+  private byte [] m_aContainer1;
+  private byte [] m_aContainer2;
+  private Path m_aFile1;
+  private Path m_aFile2;
+
+  @Setup (Level.Trial)
+  public void setup () throws IOException
+  {
+    final SignatureHelper aSH = BenchmarkHelper.createSignatureHelper ();
+    // Entry names must be unique in the combined container
+    m_aContainer1 = BenchmarkHelper.createContainer (ESignatureMethod.CAdES, mdAlgo, entryCount, entrySize, aSH, "a");
+    m_aContainer2 = BenchmarkHelper.createContainer (ESignatureMethod.CAdES, mdAlgo, entryCount, entrySize, aSH, "b");
+
+    // The raw combination needs random access to the sources
+    m_aFile1 = Files.createTempFile ("asic-combine-1", ".asice");
+    Files.write (m_aFile1, m_aContainer1);
+    m_aFile2 = Files.createTempFile ("asic-combine-2", ".asice");
+    Files.write (m_aFile2, m_aContainer2);
+  }
+
+  @TearDown (Level.Trial)
+  public void tearDown () throws IOException
+  {
+    Files.deleteIfExists (m_aFile1);
+    Files.deleteIfExists (m_aFile2);
+  }
+
+  @Benchmark
+  public void combine () throws IOException
+  {
+    AsicUtils.combine (new NullOutputStream (),
+                       new NonBlockingByteArrayInputStream (m_aContainer1),
+                       new NonBlockingByteArrayInputStream (m_aContainer2));
+  }
+
+  @Benchmark
+  public void combineRaw () throws IOException
+  {
+    AsicUtils.combineRaw (new NullOutputStream (), m_aFile1, m_aFile2);
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helger.asic.AsicReaderFactory;
+import com.helger.asic.EMessageDigestAlgorithm;
+import com.helger.asic.ESignatureMethod;
+import com.helger.asic.IAsicReader;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayInputStream;
+import com.helger.base.io.stream.NullOutputStream;
+
+/**
+ * Benchmark for reading all entries of a CAdES signed ASiC container, including the verification of
+ * all digests and signatures.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.SECONDS)
+@Warmup (iterations = 3, time = 2)
+@Measurement (iterations = 5, time = 2)
+@Fork (1)
+@State (Scope.Benchmark)
+public class AsicReaderBenchmark
+{
+  @Param ({ "SHA256", "SHA512" })
+  public EMessageDigestAlgorithm mdAlgo;
+
+  @Param ({ "1", "10", "100" })
+  public int entryCount;
+
+  @Param ({ "1024", "65536", "1048576" })
+  public int entrySize;
+
+  private byte [] m_aContainer;
+  private AsicReaderFactory m_aFactory;
+
+  @Setup (Level.Trial)
+  public void setup () throws IOException
+  {
+    m_aContainer = BenchmarkHelper.createContainer (ESignatureMethod.CAdES,
+                                                    mdAlgo,
+                                                    entryCount,
+                                                    entrySize,
+                                                    BenchmarkHelper.createSignatureHelper ());
+    m_aFactory = AsicReaderFactory.newFactory (mdAlgo);
+  }
+
+  @Benchmark
+  public int readAll () throws IOException
+  {
+    int ret = 0;
+    try (final IAsicReader aReader = m_aFactory.open (new NonBlockingByteArrayInputStream (m_aContainer)))
+    {
+      while (aReader.getNextFile () != null)
+      {
+        aReader.writeFile (new NullOutputStream ());
+        ret++;
+      }
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStoreException;
+import java.security.cert.X509Certificate;
+import java.util.Random;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.asic.AsicWriterFactory;
+import com.helger.asic.EMessageDigestAlgorithm;
+import com.helger.asic.ESignatureMethod;
+import com.helger.asic.IAsicWriter;
+import com.helger.asic.SignatureHelper;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayInputStream;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
+import com.helger.mime.CMimeType;
+import com.helger.security.keystore.EKeyStoreType;
+import com.helger.security.keystore.KeyStoreHelper;
+import com.helger.security.keystore.LoadedKeyStore;
+import com.helger.text.util.TextHelper;
+
+/**
+ * Shared helper methods for all benchmarks.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class BenchmarkHelper
+{
+  public static final String KEY_STORE_PATH = "external/asic/keystore.jks";
+  public static final String KEY_STORE_PASSWORD = "changeit";
+  public static final String KEY_ALIAS = "selfsigned2026";
+  public static final String KEY_PASSWORD = "changeit";
+
+  private static final String [] WORDS = { "<Invoice>",
+                                           "</Invoice>",
+                                           "<cbc:ID>",
+                                           "</cbc:ID>",
+                                           "<cac:InvoiceLine>",
+                                           "</cac:InvoiceLine>",
+                                           "Lorem",
+                                           "ipsum",
+                                           "dolor",
+                                           "sit",
+                                           "amet",
+                                           "4711",
+                                           "2026-01-01",
+                                           "EUR",
+                                           "\n" };
+
+  private BenchmarkHelper ()
+  {}
+
+  @NonNull
+  public static SignatureHelper createSignatureHelper ()
+  {
+    return new SignatureHelper (EKeyStoreType.JKS,
+                                KEY_STORE_PATH,
+                                KEY_STORE_PASSWORD.toCharArray (),
+                                KEY_ALIAS,
+                                KEY_PASSWORD.toCharArray ());
+  }
+
+  /**
+   * @return The certificate of the benchmark key pair, e.g. for encryption. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  public static X509Certificate getCertificate ()
+  {
+    final LoadedKeyStore aLKS = KeyStoreHelper.loadKeyStore (EKeyStoreType.JKS,
+                                                             KEY_STORE_PATH,
+                                                             KEY_STORE_PASSWORD.toCharArray ());
+    if (aLKS.isFailure ())
+      throw new IllegalStateException (aLKS.getErrorText (TextHelper.EN));
+    try
+    {
+      return (X509Certificate) aLKS.getKeyStore ().getCertificate (KEY_ALIAS);
+    }
+    catch (final KeyStoreException ex)
+    {
+      throw new IllegalStateException ("Failed to read certificate '" + KEY_ALIAS + "'", ex);
+    }
+  }
+
+  /**
+   * Create reproducible, XML like content, that compresses similar to real world payloads.
+   *
+   * @param nSize
+   *        The number of bytes to create.
+   * @param nSeed
+   *        The random seed to use.
+   * @return The created content. Never <code>null</code>.
+   */
+  @NonNull
+  public static byte [] createContent (final int nSize, final long nSeed)
+  {
+    final Random aRandom = new Random (nSeed);
+    final StringBuilder aSB = new StringBuilder (nSize + 32);
+    while (aSB.length () < nSize)
+    {
+      aSB.append (WORDS[aRandom.nextInt (WORDS.length)]);
+      if (aRandom.nextInt (8) == 0)
+        aSB.append (aRandom.nextInt ());
+    }
+    aSB.setLength (nSize);
+    return aSB.toString ().getBytes (StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+   * Create a signed ASiC container in memory.
+   *
+   * @param eSignatureMethod
+   *        Signature method to use. May not be <code>null</code>.
+   * @param eMDAlgo
+   *        Message digest algorithm to use. May not be <code>null</code>.
+   * @param nEntryCount
+   *        The number of payload entries.
+   * @param nEntrySize
+   *        The size of each payload entry in bytes.
+   * @param aSH
+   *        The signature helper to use. May not be <code>null</code>.
+   * @return The serialized container. Never <code>null</code>.
+   * @throws IOException
+   *         on error
+   */
+  @NonNull
+  public static byte [] createContainer (@NonNull final ESignatureMethod eSignatureMethod,
+                                         @NonNull final EMessageDigestAlgorithm eMDAlgo,
+                                         final int nEntryCount,
+                                         final int nEntrySize,
+                                         @NonNull final SignatureHelper aSH) throws IOException
+  {
+    return createContainer (eSignatureMethod, eMDAlgo, nEntryCount, nEntrySize, aSH, "entry");
+  }
+
+  /**
+   * Create a signed ASiC container in memory.
+   *
+   * @param eSignatureMethod
+   *        Signature method to use. May not be <code>null</code>.
+   * @param eMDAlgo
+   *        Message digest algorithm to use. May not be <code>null</code>.
+   * @param nEntryCount
+   *        The number of payload entries.
+   * @param nEntrySize
+   *        The size of each payload entry in bytes.
+   * @param aSH
+   *        The signature helper to use. May not be <code>null</code>.
+   * @param sEntryPrefix
+   *        The prefix of the payload entry names. May not be <code>null</code>.
+   * @return The serialized container. Never <code>null</code>.
+   * @throws IOException
+   *         on error
+   */
+  @NonNull
+  public static byte [] createContainer (@NonNull final ESignatureMethod eSignatureMethod,
+                                         @NonNull final EMessageDigestAlgorithm eMDAlgo,
+                                         final int nEntryCount,
+                                         final int nEntrySize,
+                                         @NonNull final SignatureHelper aSH,
+                                         @NonNull final String sEntryPrefix) throws IOException
+  {
+    try (final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ())
+    {
+      final IAsicWriter aWriter = AsicWriterFactory.newFactory (eSignatureMethod)
+                                                   .setMDAlgo (eMDAlgo)
+                                                   .newContainer (aBAOS);
+      for (int i = 0; i < nEntryCount; ++i)
+        aWriter.add (new NonBlockingByteArrayInputStream (createContent (nEntrySize, i)),
+                     sEntryPrefix + i + ".xml",
+                     CMimeType.APPLICATION_XML);
+      aWriter.sign (aSH);
+      return aBAOS.toByteArray ();
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic.benchmark;
+
+import java.io.IOException;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helger.asic.AsicWriterFactory;
+import com.helger.asic.EMessageDigestAlgorithm;
+import com.helger.asic.ESignatureMethod;
+import com.helger.asic.SignatureHelper;
+import com.helger.asic.extras.CmsEncryptedAsicWriter;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayInputStream;
+import com.helger.base.io.stream.NullOutputStream;
+import com.helger.mime.CMimeType;
+
+/**
+ * Benchmark for creating and signing ASiC containers with CMS encrypted entries.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.SECONDS)
+@Warmup (iterations = 3, time = 2)
+@Measurement (iterations = 5, time = 2)
+@Fork (1)
+@State (Scope.Benchmark)
+public class CmsEncryptedAsicWriterBenchmark
+{
+  @Param ({ "SHA256", "SHA512" })
+  public EMessageDigestAlgorithm mdAlgo;
+
+  @Param ({ "1", "10", "100" })
+  public int entryCount;
+
+  @Param ({ "1024", "65536", "1048576" })
+  public int entrySize;
+
+  private byte [] [] m_aContents;
+  private SignatureHelper m_aSH;
+  private X509Certificate m_aCertificate;
+  private AsicWriterFactory m_aFactory;
+
+  @Setup (Level.Trial)
+  public void setup ()
+  {
+    m_aContents = new byte [entryCount] [];
+    for (int i = 0; i < entryCount; ++i)
+      m_aContents[i] = BenchmarkHelper.createContent (entrySize, i);
+    m_aSH = BenchmarkHelper.createSignatureHelper ();
+    m_aCertificate = BenchmarkHelper.getCertificate ();
+    m_aFactory = AsicWriterFactory.newFactory (ESignatureMethod.CAdES).setMDAlgo (mdAlgo);
+  }
+
+  @Benchmark
+  public void addEncryptedAndSign () throws IOException
+  {
+    final CmsEncryptedAsicWriter aWriter = new CmsEncryptedAsicWriter (m_aFactory.newContainer (new NullOutputStream ()),
+                                                                       m_aCertificate);
+    for (int i = 0; i < entryCount; ++i)
+      aWriter.addEncrypted (new NonBlockingByteArrayInputStream (m_aContents[i]),
+                            "entry" + i + ".xml",
+                            CMimeType.APPLICATION_XML);
+    aWriter.sign (m_aSH);
+  }
+}
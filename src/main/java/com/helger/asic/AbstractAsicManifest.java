@@ -12,33 +12,33 @@
 package com.helger.asic;
 
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 import org.jspecify.annotations.NonNull;
 
 import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.collection.commons.CommonsLinkedHashSet;
+import com.helger.collection.commons.ICommonsOrderedMap;
+import com.helger.collection.commons.ICommonsOrderedSet;
 import com.helger.mime.IMimeType;
 
 @NotThreadSafe
 public abstract class AbstractAsicManifest
 {
   private final EMessageDigestAlgorithm m_eMDAlgo;
-  private MessageDigest m_aMD;
+  // The primary algorithm is always the first one
+  private final ICommonsOrderedSet <EMessageDigestAlgorithm> m_aMDAlgos = new CommonsLinkedHashSet <> ();
+  private AsicMultiDigest m_aMultiDigest;
 
   public AbstractAsicManifest (@NonNull final EMessageDigestAlgorithm eMDAlgo)
   {
+    ValueEnforcer.notNull (eMDAlgo, "MDAlgo");
     m_eMDAlgo = eMDAlgo;
+    m_aMDAlgos.add (eMDAlgo);
 
     // Create message digest
-    try
-    {
-      m_aMD = MessageDigest.getInstance (eMDAlgo.getMessageDigestAlgorithm ());
-      m_aMD.reset ();
-    }
-    catch (final NoSuchAlgorithmException ex)
-    {
-      throw new IllegalStateException ("Algorithm " + eMDAlgo.getMessageDigestAlgorithm () + " not supported", ex);
-    }
+    m_aMultiDigest = new AsicMultiDigest (m_aMDAlgos);
   }
 
   @NonNull
@@ -47,17 +47,70 @@ public abstract class AbstractAsicManifest
     return m_eMDAlgo;
   }
 
+  /**
+   * @return A copy of all message digest algorithms with the primary one first. Never
+   *         <code>null</code> nor empty.
+   * @since 4.1.1
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public final ICommonsOrderedSet <EMessageDigestAlgorithm> getAllMessageDigestAlgorithms ()
+  {
+    return m_aMDAlgos.getClone ();
+  }
+
+  /**
+   * Add an additional message digest algorithm. The digests of all algorithms are calculated in a
+   * single pass and all of them are contained in the signed manifest, so that verifiers supporting
+   * either algorithm can verify the container. This must be called before the first file is added.
+   *
+   * @param eMDAlgo
+   *        The algorithm to add. May not be <code>null</code>.
+   * @since 4.1.1
+   */
+  public final void addAdditionalMessageDigestAlgorithm (@NonNull final EMessageDigestAlgorithm eMDAlgo)
+  {
+    ValueEnforcer.notNull (eMDAlgo, "MDAlgo");
+    if (m_aMDAlgos.add (eMDAlgo))
+      m_aMultiDigest = new AsicMultiDigest (m_aMDAlgos);
+  }
+
   @NonNull
   protected final MessageDigest internalGetMessageDigest ()
   {
-    return m_aMD;
+    return m_aMultiDigest.getMessageDigest (m_eMDAlgo);
+  }
+
+  /**
+   * Complete the digest calculation of the current file for all algorithms.
+   *
+   * @return The digests of all algorithms with the primary one first. Never <code>null</code>.
+   * @since 4.1.1
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  protected final ICommonsOrderedMap <EMessageDigestAlgorithm, byte []> internalGetAllDigests ()
+  {
+    return m_aMultiDigest.digest ();
   }
 
   @NonNull
   public MessageDigest getNewMessageDigest ()
   {
-    m_aMD.reset ();
-    return m_aMD;
+    m_aMultiDigest.reset ();
+    return internalGetMessageDigest ();
+  }
+
+  /**
+   * @return The reset message digests of all algorithms, that must be updated with the content of
+   *         the next file before it is added. Never <code>null</code>.
+   * @since 4.1.1
+   */
+  @NonNull
+  public AsicMultiDigest getNewMultiDigest ()
+  {
+    m_aMultiDigest.reset ();
+    return m_aMultiDigest;
   }
 
   public abstract void add (String sFilename, IMimeType aMimeType);
@@ -14,20 +14,28 @@ package com.helger.asic;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
-import java.security.DigestInputStream;
-import java.security.DigestOutputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.zip.ZipEntry;
 
+import javax.xml.transform.stream.StreamSource;
+
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.helger.annotation.Nonnegative;
 import com.helger.annotation.WillCloseWhenClosed;
+import com.helger.annotation.WillNotClose;
+import com.helger.annotation.style.ReturnsMutableCopy;
 import com.helger.asic.jaxb.OasisManifestMarshaller;
 import com.helger.asic.jaxb.asic.AsicManifest;
 import com.helger.asic.jaxb.asic.Certificate;
@@ -36,8 +44,13 @@ import com.helger.base.codec.base64.Base64;
 import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
 import com.helger.base.io.stream.NullOutputStream;
 import com.helger.base.io.stream.StreamHelper;
+import com.helger.collection.commons.CommonsArrayList;
 import com.helger.collection.commons.CommonsHashMap;
+import com.helger.collection.commons.CommonsLinkedHashSet;
+import com.helger.collection.commons.ICommonsList;
 import com.helger.collection.commons.ICommonsMap;
+import com.helger.collection.commons.ICommonsOrderedMap;
+import com.helger.collection.commons.ICommonsOrderedSet;
 
 /**
  * Skeleton implementation of ASiC archive reader.
@@ -49,16 +62,23 @@ public abstract class AbstractAsicReader implements Closeable
   private static final String PREFIX_META_INF = "META-INF/";
   private static final Logger LOG = LoggerFactory.getLogger (AbstractAsicReader.class);
 
-  private MessageDigest m_aMD;
+  private final ICommonsOrderedSet <EMessageDigestAlgorithm> m_aMDAlgos;
+  // The digests of the current entry
+  private AsicMultiDigest m_aMultiDigest;
 
-  private AsicInputStream m_aZipInputStream;
+  private IAsicEntrySource m_aEntrySource;
   private ZipEntry m_aCurrentZipEntry;
+  // Only used if the entry source provides the metadata first
+  private boolean m_bCurrentEntryVerified = false;
 
   private final ManifestVerifier m_aManifestVerifier;
   private Manifest m_aManifest;
 
   // Initiated with 'true' as the first file should not do anything.
   private boolean m_bContentIsConsumed = true;
+  // Set when all entries were read and verified
+  private boolean m_bVerified = false;
+  private final AsicTimings m_aTimings = new AsicTimings ();
 
   /**
    * Used to hold signature or manifest for CAdES as they are not in the same file.
@@ -68,26 +88,106 @@ public abstract class AbstractAsicReader implements Closeable
   protected AbstractAsicReader (@NonNull final EMessageDigestAlgorithm eMDAlgo,
                                 @NonNull @WillCloseWhenClosed final InputStream aIS)
   {
-    m_aManifestVerifier = new ManifestVerifier (eMDAlgo);
+    // Comment in ZIP is stored in Central Directory in the end of the file.
+    this (eMDAlgo, new AsicInputStream (aIS));
+  }
 
-    try
-    {
-      m_aMD = MessageDigest.getInstance (eMDAlgo.getMessageDigestAlgorithm ());
-      m_aMD.reset ();
-    }
-    catch (final NoSuchAlgorithmException ex)
+  /**
+   * Constructor
+   *
+   * @param eMDAlgo
+   *        Message Digest Algorithm to use. May not be <code>null</code>.
+   * @param aEntrySource
+   *        The source of the ZIP entries. May not be <code>null</code>.
+   * @since 4.1.1
+   */
+  protected AbstractAsicReader (@NonNull final EMessageDigestAlgorithm eMDAlgo,
+                                @NonNull @WillCloseWhenClosed final IAsicEntrySource aEntrySource)
+  {
+    this (eMDAlgo, null, aEntrySource);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param eMDAlgo
+   *        Primary Message Digest Algorithm to use. May not be <code>null</code>.
+   * @param aAdditionalMDAlgos
+   *        Additional Message Digest Algorithms that are accepted in manifests. The content of each
+   *        entry is digested with all algorithms in a single pass. May be <code>null</code>.
+   * @param aEntrySource
+   *        The source of the ZIP entries. May not be <code>null</code>.
+   * @since 4.1.1
+   */
+  protected AbstractAsicReader (@NonNull final EMessageDigestAlgorithm eMDAlgo,
+                                @Nullable final Iterable <EMessageDigestAlgorithm> aAdditionalMDAlgos,
+                                @NonNull @WillCloseWhenClosed final IAsicEntrySource aEntrySource)
+  {
+    m_aManifestVerifier = new ManifestVerifier (eMDAlgo, aAdditionalMDAlgos);
+    m_aMDAlgos = m_aManifestVerifier.getAllAllowedMDs ();
+    m_aMultiDigest = internalCreateMultiDigest ();
+    m_aEntrySource = aEntrySource;
+  }
+
+  /**
+   * @return A new {@link AsicMultiDigest} for all algorithms of this reader. Never
+   *         <code>null</code>.
+   * @since 4.1.1
+   */
+  @NonNull
+  protected final AsicMultiDigest internalCreateMultiDigest ()
+  {
+    return new AsicMultiDigest (m_aMDAlgos);
+  }
+
+  /**
+   * Create the digests for a single payload entry. If the entry source provides the metadata first,
+   * only the algorithms declared for this entry in the manifests are used. Otherwise the manifests
+   * are not yet known, and all algorithms of this reader are used.
+   *
+   * @param sFilename
+   *        The name of the payload entry. May not be <code>null</code>.
+   * @return A new {@link AsicMultiDigest}. Never <code>null</code>.
+   * @since 4.1.1
+   */
+  @NonNull
+  protected final AsicMultiDigest internalCreateMultiDigest (@NonNull final String sFilename)
+  {
+    if (m_aEntrySource != null && m_aEntrySource.isMetadataFirst ())
     {
-      throw new IllegalStateException ("Message Digest Algorithm '" +
-                                       eMDAlgo.getMessageDigestAlgorithm () +
-                                       "' is not supported",
-                                       ex);
+      final ICommonsOrderedSet <EMessageDigestAlgorithm> aDeclaredMDAlgos = m_aManifestVerifier.getAllDigestAlgorithms (sFilename);
+      if (aDeclaredMDAlgos.isNotEmpty ())
+        return new AsicMultiDigest (aDeclaredMDAlgos);
     }
+    return internalCreateMultiDigest ();
+  }
 
-    m_aZipInputStream = new AsicInputStream (aIS);
-    // Comment in ZIP is stored in Central Directory in the end of the file.
+  /**
+   * Get the algorithms to accept, if any algorithm declared in a manifest should be accepted
+   * instead of only the configured ones. SHA-1 is only accepted if configured explicitly.
+   *
+   * @param aAdditionalMDAlgos
+   *        The explicitly configured additional algorithms. May be <code>null</code>.
+   * @return A new ordered set with the provided algorithms first. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  static ICommonsOrderedSet <EMessageDigestAlgorithm> getAllMDAlgosAcceptingAny (@Nullable final Iterable <EMessageDigestAlgorithm> aAdditionalMDAlgos)
+  {
+    final ICommonsOrderedSet <EMessageDigestAlgorithm> ret = new CommonsLinkedHashSet <> ();
+    if (aAdditionalMDAlgos != null)
+      for (final EMessageDigestAlgorithm eMDAlgo : aAdditionalMDAlgos)
+        ret.add (eMDAlgo);
+    for (final EMessageDigestAlgorithm eMDAlgo : EMessageDigestAlgorithm.values ())
+      if (!eMDAlgo.isSHA1 ())
+        ret.add (eMDAlgo);
+    return ret;
   }
 
-  private void _handleCadesSigning (final String sSigReference, final byte [] aObj, final boolean bIsSignature)
+  private void _handleCadesSigning (final String sSigReference,
+                                    final byte [] aObj,
+                                    final boolean bIsSignature,
+                                    final String sEntryName)
   {
     if (!m_aSigningContent.containsKey (sSigReference))
       m_aSigningContent.put (sSigReference, aObj);
@@ -97,8 +197,10 @@ public abstract class AbstractAsicReader implements Closeable
       final byte [] aSignature = bIsSignature ? aObj : m_aSigningContent.get (sSigReference);
 
       // throws IllegalStateException if null
+      final long nStart = System.nanoTime ();
       final Certificate aCertificate = SignatureVerifier.validate (aData, aSignature);
-      aCertificate.setCert (m_aCurrentZipEntry.getName ());
+      m_aTimings.addSignature (System.nanoTime () - nStart);
+      aCertificate.setCert (sEntryName);
       m_aManifestVerifier.addCertificate (aCertificate);
 
       m_aSigningContent.remove (sSigReference);
@@ -107,47 +209,60 @@ public abstract class AbstractAsicReader implements Closeable
 
   /**
    * Handles zip entries in the META-INF/ directory.
+   *
+   * @param sPathAndFilename
+   *        The name of the ZIP entry. May not be <code>null</code>.
+   * @param aIS
+   *        The content of the ZIP entry. May not be <code>null</code>.
+   * @throws IOException
+   *         in case reading fails
+   * @since 4.1.1
    */
-  private void _handleMetadataEntry ()
+  protected final void internalHandleMetadataEntry (@NonNull final String sPathAndFilename,
+                                                    @NonNull @WillNotClose final InputStream aIS) throws IOException
   {
-    final String sPathAndFilename = m_aCurrentZipEntry.getName ();
+    if (AsicUtils.PATTERN_XADES_SIGNATURES.matcher (sPathAndFilename).matches ())
+    {
+      // Handling manifest in ASiC XAdES. The content is not needed afterwards,
+      // so it is parsed while streaming.
+      final long nStart = System.nanoTime ();
+      XadesAsicManifest.extractAndVerify (aIS, m_aManifestVerifier);
+      _recordManifestParsed (System.nanoTime () - nStart);
+      return;
+    }
 
     // Read content in file
     try (final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ())
     {
-      AsicUtils.copyStream (m_aZipInputStream, aBAOS);
+      AsicUtils.copyStream (aIS, aBAOS);
 
       if (AsicUtils.PATTERN_CADES_MANIFEST.matcher (sPathAndFilename).matches ())
       {
         // Handling manifest in ASiC CAdES.
-        final byte [] aContent = aBAOS.toByteArray ();
-        final String sContent = new String (aContent, StandardCharsets.ISO_8859_1);
-        final String sSigReference = CadesAsicManifest.extractAndVerify (sContent, m_aManifestVerifier);
-        _handleCadesSigning (sSigReference, aContent, false);
+        final long nStart = System.nanoTime ();
+        final String sSigReference = CadesAsicManifest.extractAndVerify (aBAOS.getAsInputStream (),
+                                                                         m_aManifestVerifier);
+        _recordManifestParsed (System.nanoTime () - nStart);
+        _handleCadesSigning (sSigReference, aBAOS.toByteArray (), false, sPathAndFilename);
       }
       else
         if (AsicUtils.PATTERN_CADES_SIGNATURE.matcher (sPathAndFilename).matches ())
         {
           // Handling signature in ASiC CAdES.
-          _handleCadesSigning (sPathAndFilename, aBAOS.toByteArray (), true);
+          _handleCadesSigning (sPathAndFilename, aBAOS.toByteArray (), true, sPathAndFilename);
         }
         else
-          if (AsicUtils.PATTERN_XADES_SIGNATURES.matcher (sPathAndFilename).matches ())
+          if (AsicUtils.PATTERN_OASIS_MANIFEST.matcher (sPathAndFilename).matches ())
           {
-            // Handling manifest in ASiC XAdES.
-            final String sContent = aBAOS.getAsString (StandardCharsets.ISO_8859_1);
-            XadesAsicManifest.extractAndVerify (sContent, m_aManifestVerifier);
+            // Read manifest.
+            final long nStart = System.nanoTime ();
+            m_aManifest = OasisManifestMarshaller.POOL.read (new StreamSource (aBAOS.getAsInputStream ()));
+            _recordManifestParsed (System.nanoTime () - nStart);
           }
           else
-            if (AsicUtils.PATTERN_OASIS_MANIFEST.matcher (sPathAndFilename).matches ())
-            {
-              // Read manifest.
-              m_aManifest = new OasisManifestMarshaller ().read (aBAOS.getAsInputStream ());
-            }
-            else
-            {
-              throw new IllegalStateException ("ASiC contains unknown metadata file '" + sPathAndFilename + "'");
-            }
+          {
+            throw new IllegalStateException ("ASiC contains unknown metadata file '" + sPathAndFilename + "'");
+          }
     }
   }
 
@@ -159,15 +274,18 @@ public abstract class AbstractAsicReader implements Closeable
       internalWriteFile (new NullOutputStream ());
 
     // Write digest to manifest
-    if (m_aCurrentZipEntry != null)
+    if (m_aCurrentZipEntry != null && !m_bCurrentEntryVerified)
     {
-      final byte [] aDigest = m_aMD.digest ();
-      if (LOG.isDebugEnabled ())
-        LOG.debug ("Digest: " + Base64.encodeBytes (aDigest));
-      m_aManifestVerifier.update (m_aCurrentZipEntry.getName (), aDigest, null);
+      final ICommonsOrderedMap <EMessageDigestAlgorithm, byte []> aDigests = m_aMultiDigest.digest ();
+      _logDigests (m_aCurrentZipEntry.getName (), aDigests);
+      if (m_aEntrySource.isMetadataFirst ())
+        internalVerifyEntryDigest (m_aCurrentZipEntry.getName (), aDigests);
+      else
+        _updateManifestVerifier (m_aCurrentZipEntry.getName (), aDigests);
     }
+    m_bCurrentEntryVerified = false;
 
-    while ((m_aCurrentZipEntry = m_aZipInputStream.getNextEntry ()) != null)
+    while ((m_aCurrentZipEntry = _getNextEntry ()) != null)
     {
       if (LOG.isDebugEnabled ())
         LOG.debug ("Found file: " + m_aCurrentZipEntry.getName ());
@@ -175,10 +293,21 @@ public abstract class AbstractAsicReader implements Closeable
       // Files used for validation are not exposed
       if (m_aCurrentZipEntry.getName ().startsWith (PREFIX_META_INF))
       {
-        _handleMetadataEntry ();
+        internalHandleMetadataEntry (m_aCurrentZipEntry.getName (), m_aEntrySource.getEntryInputStream ());
       }
       else
       {
+        if (m_aEntrySource.isMetadataFirst ())
+        {
+          // All manifests and signatures are known - fail before any content
+          // is handed out
+          internalVerifyAllSignaturesUsed ();
+          internalVerifyEntryListed (m_aCurrentZipEntry.getName ());
+
+          // Only digest with the declared algorithms
+          m_aMultiDigest = internalCreateMultiDigest (m_aCurrentZipEntry.getName ());
+        }
+
         m_bContentIsConsumed = false;
         return m_aCurrentZipEntry.getName ();
       }
@@ -186,16 +315,307 @@ public abstract class AbstractAsicReader implements Closeable
 
     // Making sure signatures are used and all files are signed after reading
     // all content.
+    internalVerifyComplete ();
 
+    // Return null when container is out of content to read.
+    return null;
+  }
+
+  /**
+   * Ensure that all files are signed by at least one manifest/signature and that all CAdES
+   * signatures and manifests were matched. Must be called after all entries were read.
+   *
+   * @throws IllegalStateException
+   *         if the verification failed
+   * @since 4.1.1
+   */
+  protected final void internalVerifyComplete ()
+  {
     // All files must be signed by minimum one manifest/signature.
     m_aManifestVerifier.verifyAllVerified ();
 
     // All CAdES signatures and manifest must be verified.
+    internalVerifyAllSignaturesUsed ();
+
+    m_bVerified = true;
+  }
+
+  /**
+   * Inflate and digest all payload entries of the provided source concurrently and verify the
+   * results against the manifests, in the order of the central directory. All META-INF entries must
+   * have been handled before.
+   *
+   * @param aSource
+   *        The random access entry source. May not be <code>null</code>.
+   * @param aExecutor
+   *        The executor to run the digest calculation on. May not be <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error or if the current thread is interrupted
+   */
+  final void internalVerifyAllEntriesParallel (@NonNull final AsicZipFileEntrySource aSource,
+                                               @NonNull final ExecutorService aExecutor) throws IOException
+  {
+    final ICommonsList <ZipEntry> aEntries = aSource.getAllPayloadEntries ();
+    final ICommonsList <Future <ICommonsOrderedMap <EMessageDigestAlgorithm, byte []>>> aFutures = new CommonsArrayList <> (aEntries.size ());
+    final ICommonsList <AsicMultiDigest> aMultiDigests = new CommonsArrayList <> (aEntries.size ());
+    // Written by the tasks, read after the respective future completed
+    final long [] aEntryNanos = new long [aEntries.size ()];
+    try
+    {
+      for (int i = 0; i < aEntries.size (); ++i)
+      {
+        final int nIndex = i;
+        final ZipEntry aEntry = aEntries.get (i);
+        // Determine the declared algorithms before the verification starts
+        final AsicMultiDigest aMultiDigest = internalCreateMultiDigest (aEntry.getName ());
+        aMultiDigests.add (aMultiDigest);
+        aFutures.add (aExecutor.submit ( () -> {
+          final long nStart = System.nanoTime ();
+          final ICommonsOrderedMap <EMessageDigestAlgorithm, byte []> ret = aSource.digestPayloadEntry (aEntry,
+                                                                                                       aMultiDigest);
+          aEntryNanos[nIndex] = System.nanoTime () - nStart;
+          return ret;
+        }));
+      }
+
+      for (int i = 0; i < aEntries.size (); ++i)
+      {
+        final ICommonsOrderedMap <EMessageDigestAlgorithm, byte []> aDigests = aFutures.get (i).get ();
+        _recordEntryRead (aEntries.get (i).getName (), aMultiDigests.get (i), aEntryNanos[i]);
+        _logDigests (aEntries.get (i).getName (), aDigests);
+        internalVerifyEntryDigest (aEntries.get (i).getName (), aDigests);
+      }
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      throw new InterruptedIOException ("Interrupted while verifying the entry digests");
+    }
+    catch (final ExecutionException ex)
+    {
+      final Throwable aCause = ex.getCause ();
+      if (aCause instanceof IOException)
+        throw (IOException) aCause;
+      if (aCause instanceof RuntimeException)
+        throw (RuntimeException) aCause;
+      throw new IllegalStateException ("Failed to digest entry", aCause);
+    }
+    finally
+    {
+      // Don't waste resources on failure
+      for (final Future <?> aFuture : aFutures)
+        aFuture.cancel (true);
+    }
+
+    internalVerifyComplete ();
+  }
+
+  /**
+   * Read all entries of the entry source in order, digest the payload entries and verify the
+   * results against the manifests. Without an event handler, the content is digested via
+   * {@link IAsicEntrySource#digestEntry(ByteBuffer, AsicMultiDigest)} only, so that no payload is
+   * materialised and no per-entry output stream is allocated.
+   *
+   * @param aBuffer
+   *        The buffer to digest the content with. May not be <code>null</code>.
+   * @param aEntries
+   *        The list to add each digested payload entry to. May not be <code>null</code>.
+   * @param aEventHandler
+   *        The optional handler to be invoked for the start, each content chunk and the end of each
+   *        payload entry. If present, the content is read via the entry stream and each chunk is
+   *        copied. May be <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error
+   * @throws IllegalStateException
+   *         if the verification failed
+   */
+  final void internalDigestAllEntries (@NonNull final ByteBuffer aBuffer,
+                                       @NonNull final ICommonsList <AsicVerificationReport.Entry> aEntries,
+                                       @Nullable final Consumer <AsicEntryEvent> aEventHandler) throws IOException
+  {
+    ZipEntry aZipEntry;
+    while ((aZipEntry = _getNextEntry ()) != null)
+    {
+      final String sFilename = aZipEntry.getName ();
+      if (sFilename.startsWith (PREFIX_META_INF))
+      {
+        internalHandleMetadataEntry (sFilename, m_aEntrySource.getEntryInputStream ());
+        continue;
+      }
+
+      final boolean bMetadataFirst = m_aEntrySource.isMetadataFirst ();
+      final AsicMultiDigest aMultiDigest;
+      if (bMetadataFirst)
+      {
+        internalVerifyAllSignaturesUsed ();
+        internalVerifyEntryListed (sFilename);
+        aMultiDigest = internalCreateMultiDigest (sFilename);
+      }
+      else
+      {
+        aMultiDigest = m_aMultiDigest;
+        aMultiDigest.reset ();
+      }
+
+      final long nStart = System.nanoTime ();
+      final long nSize;
+      if (aEventHandler == null)
+        nSize = m_aEntrySource.digestEntry (aBuffer, aMultiDigest);
+      else
+      {
+        aEventHandler.accept (AsicEntryEvent.createEntryStart (sFilename));
+        nSize = _digestAndEmitEntry (sFilename, aBuffer, aMultiDigest, aEventHandler);
+      }
+      m_aEntrySource.closeEntry ();
+      _recordEntryRead (sFilename, aMultiDigest, System.nanoTime () - nStart);
+
+      final ICommonsOrderedMap <EMessageDigestAlgorithm, byte []> aDigests = aMultiDigest.digest ();
+      _logDigests (sFilename, aDigests);
+      if (bMetadataFirst)
+        internalVerifyEntryDigest (sFilename, aDigests);
+      else
+        _updateManifestVerifier (sFilename, aDigests);
+      final AsicVerificationReport.Entry aEntry = new AsicVerificationReport.Entry (sFilename, nSize, aDigests);
+      aEntries.add (aEntry);
+      if (aEventHandler != null)
+        aEventHandler.accept (AsicEntryEvent.createEntryEnd (aEntry));
+    }
+
+    internalVerifyComplete ();
+  }
+
+  @Nonnegative
+  private long _digestAndEmitEntry (@NonNull final String sFilename,
+                                    @NonNull final ByteBuffer aBuffer,
+                                    @NonNull final AsicMultiDigest aMultiDigest,
+                                    @NonNull final Consumer <AsicEntryEvent> aEventHandler) throws IOException
+  {
+    final InputStream aIS = m_aEntrySource.getEntryInputStream ();
+    final byte [] aArray = aBuffer.array ();
+    final int nOfs = aBuffer.arrayOffset ();
+    long ret = 0;
+    int nRead;
+    while ((nRead = aIS.readNBytes (aArray, nOfs, aBuffer.capacity ())) > 0)
+    {
+      aMultiDigest.update (aArray, nOfs, nRead);
+      // The buffer is reused, so the handler gets a copy
+      aEventHandler.accept (AsicEntryEvent.createEntryChunk (sFilename, Arrays.copyOfRange (aArray, nOfs, nOfs + nRead)));
+      ret += nRead;
+    }
+    return ret;
+  }
+
+  /**
+   * Ensure that each CAdES manifest found so far was matched with its signature and vice versa.
+   *
+   * @throws IllegalStateException
+   *         if at least one manifest or signature is unmatched
+   * @since 4.1.1
+   */
+  protected final void internalVerifyAllSignaturesUsed ()
+  {
     if (m_aSigningContent.isNotEmpty ())
       throw new IllegalStateException ("Signatures not verified: " + m_aSigningContent.keySet ());
+  }
 
-    // Return null when container is out of content to read.
-    return null;
+  /**
+   * Ensure that a payload entry is listed in at least one of the already read manifests. This
+   * requires that all META-INF entries were handled before. Otherwise the digest of the content
+   * would be taken as the reference for later reads of the same entry.
+   *
+   * @param sFilename
+   *        The name of the ZIP entry. May not be <code>null</code>.
+   * @throws IllegalStateException
+   *         if the entry is not listed in any manifest
+   * @since 4.1.1
+   */
+  protected final void internalVerifyEntryListed (@NonNull final String sFilename)
+  {
+    if (!m_aManifestVerifier.containsFile (sFilename))
+      throw new IllegalStateException ("File not verified: " + sFilename);
+  }
+
+  /**
+   * Verify the digest of a single entry against the already read manifests. This requires that all
+   * META-INF entries were handled before.
+   *
+   * @param sFilename
+   *        The name of the ZIP entry. May not be <code>null</code>.
+   * @param aDigests
+   *        The digests of the entry content per algorithm. May not be <code>null</code>.
+   * @throws IllegalStateException
+   *         if a digest does not match or the entry is not covered by any manifest
+   * @since 4.1.1
+   */
+  protected final void internalVerifyEntryDigest (@NonNull final String sFilename,
+                                                  @NonNull final ICommonsOrderedMap <EMessageDigestAlgorithm, byte []> aDigests)
+  {
+    _updateManifestVerifier (sFilename, aDigests);
+    if (!m_aManifestVerifier.isVerified (sFilename))
+      throw new IllegalStateException ("File not verified: " + sFilename);
+  }
+
+  private void _updateManifestVerifier (@NonNull final String sFilename,
+                                        @NonNull final ICommonsOrderedMap <EMessageDigestAlgorithm, byte []> aDigests)
+  {
+    for (final Map.Entry <EMessageDigestAlgorithm, byte []> aEntry : aDigests.entrySet ())
+      m_aManifestVerifier.update (sFilename, aEntry.getKey (), aEntry.getValue ());
+  }
+
+  /**
+   * Get the next entry of the entry source, accounting the time as ZIP parsing.
+   */
+  @Nullable
+  private ZipEntry _getNextEntry () throws IOException
+  {
+    final long nStart = System.nanoTime ();
+    final ZipEntry ret = m_aEntrySource.getNextEntry ();
+    m_aTimings.addZipParsing (System.nanoTime () - nStart);
+    return ret;
+  }
+
+  private void _recordManifestParsed (final long nNanos)
+  {
+    m_aTimings.addManifest (nNanos);
+    AsicMetrics.getMetrics ().onManifestParsed (nNanos);
+  }
+
+  /**
+   * Report a payload entry to the timings and the metrics, separating the digest calculation from
+   * the rest.
+   */
+  private void _recordEntryRead (@NonNull final String sFilename,
+                                 @NonNull final AsicMultiDigest aMultiDigest,
+                                 final long nTotalNanos)
+  {
+    final IAsicMetrics aMetrics = AsicMetrics.getMetrics ();
+    final long nBytes = aMultiDigest.getUpdatedBytes ();
+    final long nDigestNanos = aMultiDigest.getUpdateNanos ();
+    final long nInflateNanos = Math.max (0, nTotalNanos - nDigestNanos);
+    m_aTimings.addEntry (sFilename, nBytes, nInflateNanos, nDigestNanos);
+    aMetrics.onEntryRead (nBytes, nInflateNanos);
+    aMetrics.onDigest (internalGetOperation (), nBytes, nDigestNanos);
+  }
+
+  /**
+   * @return The operation of this reader, as reported to the metrics. Never <code>null</code>.
+   */
+  @NonNull
+  EAsicOperation internalGetOperation ()
+  {
+    return EAsicOperation.READ;
+  }
+
+  private static void _logDigests (@NonNull final String sFilename,
+                                   @NonNull final ICommonsOrderedMap <EMessageDigestAlgorithm, byte []> aDigests)
+  {
+    if (LOG.isDebugEnabled ())
+      for (final Map.Entry <EMessageDigestAlgorithm, byte []> aEntry : aDigests.entrySet ())
+        LOG.debug (aEntry.getKey ().getMessageDigestAlgorithm () +
+                   " digest of '" +
+                   sFilename +
+                   "': " +
+                   Base64.encodeBytes (aEntry.getValue ()));
   }
 
   protected final void internalWriteFile (@NonNull final OutputStream aOS) throws IOException
@@ -204,13 +624,31 @@ public abstract class AbstractAsicReader implements Closeable
       throw new IllegalStateException ("No file to read.");
 
     // Calculate digest while reading file
-    m_aMD.reset ();
-    final DigestOutputStream aDOS = new DigestOutputStream (aOS, m_aMD);
-    AsicUtils.copyStream (m_aZipInputStream, aDOS);
+    final long nStart = System.nanoTime ();
+    m_aMultiDigest.reset ();
+    final AsicMultiDigestOutputStream aDOS = new AsicMultiDigestOutputStream (aOS, m_aMultiDigest);
+    AsicUtils.copyStream (m_aEntrySource.getEntryInputStream (), aDOS);
 
-    m_aZipInputStream.closeEntry ();
+    m_aEntrySource.closeEntry ();
+    _recordEntryRead (m_aCurrentZipEntry.getName (), m_aMultiDigest, System.nanoTime () - nStart);
 
     m_bContentIsConsumed = true;
+
+    // Fail fast, if the manifests are already known
+    if (m_aEntrySource.isMetadataFirst ())
+      _verifyEntryDigest (m_aCurrentZipEntry, m_aMultiDigest.digest ());
+  }
+
+  private void _verifyEntryDigest (@NonNull final ZipEntry aZipEntry,
+                                   @NonNull final ICommonsOrderedMap <EMessageDigestAlgorithm, byte []> aDigests)
+  {
+    _logDigests (aZipEntry.getName (), aDigests);
+
+    // The stream returned by internalInputStream may be read after the next
+    // file was selected
+    if (aZipEntry == m_aCurrentZipEntry)
+      m_bCurrentEntryVerified = true;
+    internalVerifyEntryDigest (aZipEntry.getName (), aDigests);
   }
 
   @NonNull
@@ -222,15 +660,44 @@ public abstract class AbstractAsicReader implements Closeable
     // We must trust the user.
     m_bContentIsConsumed = true;
 
-    m_aMD.reset ();
-    return new DigestInputStream (m_aZipInputStream, m_aMD);
+    m_aMultiDigest.reset ();
+    if (m_aEntrySource.isMetadataFirst ())
+    {
+      // Verify as soon as the end of the entry is reached
+      final ZipEntry aZipEntry = m_aCurrentZipEntry;
+      return new AsicMultiDigestInputStream (m_aEntrySource.getEntryInputStream (),
+                                             m_aMultiDigest,
+                                             aDigests -> _verifyEntryDigest (aZipEntry, aDigests));
+    }
+    // The digests are taken in getNextFile
+    return new AsicMultiDigestInputStream (m_aEntrySource.getEntryInputStream (), m_aMultiDigest, null);
   }
 
   @Override
   public final void close () throws IOException
   {
-    StreamHelper.close (m_aZipInputStream);
-    m_aZipInputStream = null;
+    if (m_aEntrySource != null)
+    {
+      StreamHelper.close (m_aEntrySource);
+      m_aEntrySource = null;
+      AsicMetrics.getMetrics ().onContainerFinished (internalGetOperation (), m_bVerified);
+      if (LOG.isDebugEnabled ())
+        LOG.debug ("Finished " + internalGetOperation ().getID () + " of ASiC container: " + m_aTimings);
+    }
+  }
+
+  /**
+   * Get the time spent in the different phases of reading this container. Entries whose content
+   * is read as a stream are not contained, as the end of the reading is not known.
+   *
+   * @return The timings of this reader. Complete after the reader was closed. Never
+   *         <code>null</code>.
+   * @since 4.1.1
+   */
+  @NonNull
+  public final AsicTimings getTimings ()
+  {
+    return m_aTimings;
   }
 
   /**
@@ -14,7 +14,11 @@ package com.helger.asic;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.security.DigestOutputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 
 import org.jspecify.annotations.NonNull;
@@ -25,6 +29,8 @@ import org.slf4j.LoggerFactory;
 import com.helger.annotation.OverridingMethodsMustInvokeSuper;
 import com.helger.annotation.concurrent.NotThreadSafe;
 import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayInputStream;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
 import com.helger.mime.IMimeType;
 
 /**
@@ -35,12 +41,24 @@ public abstract class AbstractAsicWriter implements IAsicWriter
 {
   private static final Logger LOGGER = LoggerFactory.getLogger (AbstractAsicWriter.class);
 
+  /**
+   * The maximum size of an entry to be written with the ZIP method STORED. STORED entries must be
+   * buffered, because CRC and size must be known in advance. Larger entries are deflated without
+   * compression instead.
+   *
+   * @since 4.1.1
+   */
+  public static final int MAX_STORED_ENTRY_SIZE = 1024 * 1024;
+
   protected boolean m_bFinished = false;
   protected final OutputStream m_aContainerOS;
+  /** The ZIP output. <code>null</code> if the parallel writer is used. */
   protected final AsicOutputStream m_aAsicOutputStream;
+  private final AsicParallelZipWriter m_aParallelWriter;
   protected final boolean m_bCloseStreamOnSign;
   protected final AbstractAsicManifest m_aAsicManifest;
   private final OasisManifest m_aOasisManifest;
+  private IAsicCompressionPolicy m_aCompressionPolicy = IAsicCompressionPolicy.DEFAULT;
 
   /**
    * Prepares creation of a new container.
@@ -61,6 +79,35 @@ public abstract class AbstractAsicWriter implements IAsicWriter
                                 final boolean bCloseStreamOnSign,
                                 @NonNull final AbstractAsicManifest aAsicManifest,
                                 final boolean bWriteOasisManifest) throws IOException
+  {
+    this (aOS, bCloseStreamOnSign, aAsicManifest, bWriteOasisManifest, null);
+  }
+
+  /**
+   * Prepares creation of a new container.
+   *
+   * @param aOS
+   *        Stream used to write container.
+   * @param bCloseStreamOnSign
+   *        close output stream after signing
+   * @param aAsicManifest
+   *        The asic manifest to use
+   * @param bWriteOasisManifest
+   *        <code>true</code> if the OASIS OpenDocument Manifest XML should also
+   *        be created.
+   * @param aExecutor
+   *        The executor to deflate the entries in parallel chunks. May be
+   *        <code>null</code> to deflate on the calling thread. Is never shut
+   *        down by this class.
+   * @throws IOException
+   *         in case of IO error
+   * @since 4.1.1
+   */
+  protected AbstractAsicWriter (@NonNull final OutputStream aOS,
+                                final boolean bCloseStreamOnSign,
+                                @NonNull final AbstractAsicManifest aAsicManifest,
+                                final boolean bWriteOasisManifest,
+                                @Nullable final ExecutorService aExecutor) throws IOException
   {
     // Keep original output stream
     m_aContainerOS = aOS;
@@ -70,16 +117,67 @@ public abstract class AbstractAsicWriter implements IAsicWriter
     m_aAsicManifest = aAsicManifest;
 
     // Initiate zip container
-    m_aAsicOutputStream = new AsicOutputStream (aOS);
+    if (aExecutor != null)
+    {
+      m_aAsicOutputStream = null;
+      m_aParallelWriter = new AsicParallelZipWriter (aOS,
+                                                     aExecutor,
+                                                     AsicParallelZipWriter.DEFAULT_CHUNK_SIZE,
+                                                     2 * Runtime.getRuntime ().availableProcessors ());
+    }
+    else
+    {
+      m_aAsicOutputStream = new AsicOutputStream (aOS);
+      m_aParallelWriter = null;
+    }
 
     // Add mimetype to OASIS OpenDocument manifest
     m_aOasisManifest = bWriteOasisManifest ? new OasisManifest (AsicUtils.MIMETYPE_ASICE) : null;
   }
 
+  /**
+   * @return The compression policy used for all entries added without an explicit compression
+   *         level. Never <code>null</code>.
+   * @since 4.1.1
+   */
+  @NonNull
+  public final IAsicCompressionPolicy getCompressionPolicy ()
+  {
+    return m_aCompressionPolicy;
+  }
+
+  @NonNull
+  public final AbstractAsicWriter setCompressionPolicy (@NonNull final IAsicCompressionPolicy aCompressionPolicy)
+  {
+    ValueEnforcer.notNull (aCompressionPolicy, "CompressionPolicy");
+    m_aCompressionPolicy = aCompressionPolicy;
+    return this;
+  }
+
   @NonNull
   public IAsicWriter add (@NonNull final InputStream aIS,
                           @NonNull final String sFilename,
                           @NonNull final IMimeType aMimeType) throws IOException, IllegalStateException
+  {
+    return _add (aIS, sFilename, aMimeType, null);
+  }
+
+  @NonNull
+  public IAsicWriter add (@NonNull final InputStream aIS,
+                          @NonNull final String sFilename,
+                          @NonNull final IMimeType aMimeType,
+                          final int nCompressionLevel) throws IOException, IllegalStateException
+  {
+    ValueEnforcer.isTrue (IAsicCompressionPolicy.isValidLevel (nCompressionLevel),
+                          () -> "Invalid compression level " + nCompressionLevel);
+    return _add (aIS, sFilename, aMimeType, Integer.valueOf (nCompressionLevel));
+  }
+
+  @NonNull
+  private IAsicWriter _add (@NonNull final InputStream aIS,
+                            @NonNull final String sFilename,
+                            @NonNull final IMimeType aMimeType,
+                            @Nullable final Integer aCompressionLevel) throws IOException, IllegalStateException
   {
     ValueEnforcer.notNull (aIS, "IS");
     ValueEnforcer.notNull (sFilename, "Filename");
@@ -92,20 +190,104 @@ public abstract class AbstractAsicWriter implements IAsicWriter
     if (sFilename.startsWith ("META-INF/"))
       throw new IllegalStateException ("Adding files to META-INF is not allowed.");
 
+    final long nStart = System.nanoTime ();
+
+    // Read the beginning of the content, to let the policy decide
+    final byte [] aSample = new byte [IAsicCompressionPolicy.SAMPLE_SIZE];
+    final int nSampleLen = aIS.readNBytes (aSample, 0, aSample.length);
+    final int nLevel;
+    if (aCompressionLevel != null)
+      nLevel = aCompressionLevel.intValue ();
+    else
+      nLevel = m_aCompressionPolicy.getCompressionLevel (sFilename, aMimeType, aSample, nSampleLen);
+
+    // Prepare for calculation of message digest
+    final AsicMultiDigest aMD = m_aAsicManifest.getNewMultiDigest ();
+
     // Creates new zip entry
     if (LOGGER.isDebugEnabled ())
-      LOGGER.debug ("Writing file '" + sFilename + "' to container");
-    m_aAsicOutputStream.putNextEntry (new ZipEntry (sFilename));
+      LOGGER.debug ("Writing file '" + sFilename + "' to container with compression level " + nLevel);
 
-    // Prepare for calculation of message digest
-    final DigestOutputStream aDigestOS = new DigestOutputStream (m_aAsicOutputStream,
-                                                                 m_aAsicManifest.getNewMessageDigest ());
+    byte [] aHead = aSample;
+    int nHeadLen = nSampleLen;
+    boolean bStored = false;
+    if (nLevel == IAsicCompressionPolicy.LEVEL_STORED)
+    {
+      // CRC and size of STORED entries must be known in advance, so buffer up to the limit
+      final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream (nSampleLen);
+      aBAOS.write (aSample, 0, nSampleLen);
+      final byte [] aBuf = new byte [IAsicCompressionPolicy.SAMPLE_SIZE];
+      int nRead = 0;
+      while (aBAOS.size () <= MAX_STORED_ENTRY_SIZE && (nRead = aIS.read (aBuf)) >= 0)
+        aBAOS.write (aBuf, 0, nRead);
+
+      aHead = aBAOS.directGetBuffer ();
+      nHeadLen = aBAOS.size ();
+      // If too large, deflate without compression, to avoid buffering everything
+      bStored = nHeadLen <= MAX_STORED_ENTRY_SIZE;
+    }
+
+    if (m_aParallelWriter != null)
+    {
+      if (bStored)
+      {
+        aMD.update (aHead, 0, nHeadLen);
+        m_aParallelWriter.writeEntry (sFilename, ZipEntry.STORED, Arrays.copyOf (aHead, nHeadLen));
+      }
+      else
+      {
+        // The digest is calculated on the plain content while reading it. The
+        // provided stream must not be closed.
+        final InputStream aHeadIS = new NonBlockingByteArrayInputStream (aHead, 0, nHeadLen);
+        final InputStream aContentIS = new AsicMultiDigestInputStream (new SequenceInputStream (aHeadIS, aIS),
+                                                                       aMD,
+                                                                       null);
+        m_aParallelWriter.writeDeflatedEntry (sFilename, aContentIS, nLevel);
+      }
+    }
+    else
+    {
+      final AsicMultiDigestOutputStream aDigestOS = new AsicMultiDigestOutputStream (m_aAsicOutputStream, aMD);
+      try
+      {
+        if (bStored)
+        {
+          final CRC32 aCRC = new CRC32 ();
+          aCRC.update (aHead, 0, nHeadLen);
 
-    // Copy inputStream to zip output stream
-    AsicUtils.copyStream (aIS, aDigestOS);
+          final ZipEntry aZipEntry = new ZipEntry (sFilename);
+          aZipEntry.setMethod (ZipEntry.STORED);
+          aZipEntry.setSize (nHeadLen);
+          aZipEntry.setCompressedSize (nHeadLen);
+          aZipEntry.setCrc (aCRC.getValue ());
+          m_aAsicOutputStream.putNextEntry (aZipEntry);
+          aDigestOS.write (aHead, 0, nHeadLen);
+        }
+        else
+        {
+          m_aAsicOutputStream.setLevel (nLevel);
+          m_aAsicOutputStream.putNextEntry (new ZipEntry (sFilename));
+          aDigestOS.write (aHead, 0, nHeadLen);
 
-    // Closes the zip entry
-    m_aAsicOutputStream.closeEntry ();
+          // Copy inputStream to zip output stream. Errors must not be swallowed, as a truncated
+          // entry would be signed otherwise.
+          aIS.transferTo (aDigestOS);
+        }
+
+        // Closes the zip entry
+        m_aAsicOutputStream.closeEntry ();
+      }
+      finally
+      {
+        // Metadata entries are always written with the default level
+        m_aAsicOutputStream.setLevel (Deflater.DEFAULT_COMPRESSION);
+      }
+    }
+
+    final IAsicMetrics aMetrics = AsicMetrics.getMetrics ();
+    final long nDigestNanos = aMD.getUpdateNanos ();
+    aMetrics.onEntryWritten (aMD.getUpdatedBytes (), Math.max (0, System.nanoTime () - nStart - nDigestNanos));
+    aMetrics.onDigest (EAsicOperation.WRITE, aMD.getUpdatedBytes (), nDigestNanos);
 
     // Adds contents of input stream to manifest which will be signed and
     // written once all data objects have been added
@@ -129,6 +311,25 @@ public abstract class AbstractAsicWriter implements IAsicWriter
    */
   protected abstract void performSign (@NonNull SignatureHelper aSH) throws IOException;
 
+  /**
+   * Write a complete metadata entry into the container.
+   *
+   * @param sFilename
+   *        The entry name. May not be <code>null</code>.
+   * @param aBytes
+   *        The content of the entry. May not be <code>null</code>.
+   * @throws IOException
+   *         in case of IO error
+   * @since 4.1.1
+   */
+  protected final void writeZipEntry (@NonNull final String sFilename, @NonNull final byte [] aBytes) throws IOException
+  {
+    if (m_aParallelWriter != null)
+      m_aParallelWriter.writeEntry (sFilename, ZipEntry.DEFLATED, aBytes);
+    else
+      m_aAsicOutputStream.writeZipEntry (sFilename, aBytes);
+  }
+
   @NonNull
   public IAsicWriter sign (@NonNull final SignatureHelper aSH) throws IOException
   {
@@ -139,18 +340,37 @@ public abstract class AbstractAsicWriter implements IAsicWriter
     // Flip status to ensure nobody is allowed to sign more than once.
     m_bFinished = true;
 
+    boolean bSuccess = false;
+    try
+    {
+      _signAndClose (aSH);
+      bSuccess = true;
+    }
+    finally
+    {
+      AsicMetrics.getMetrics ().onContainerFinished (EAsicOperation.WRITE, bSuccess);
+    }
+    return this;
+  }
+
+  private void _signAndClose (@NonNull final SignatureHelper aSH) throws IOException
+  {
     // Delegates the actual signature creation to the signature helper
     performSign (aSH);
 
     if (m_aOasisManifest != null)
-      m_aAsicOutputStream.writeZipEntry ("META-INF/" + AsicUtils.OASIS_MANIFEST_BASENAME + ".xml",
-                                         m_aOasisManifest.getAsBytes ());
+      writeZipEntry ("META-INF/" + AsicUtils.OASIS_MANIFEST_BASENAME + ".xml", m_aOasisManifest.getAsBytes ());
 
     // Close container
     try
     {
-      m_aAsicOutputStream.finish ();
-      m_aAsicOutputStream.close ();
+      if (m_aParallelWriter != null)
+        m_aParallelWriter.close ();
+      else
+      {
+        m_aAsicOutputStream.finish ();
+        m_aAsicOutputStream.close ();
+      }
     }
     catch (final IOException e)
     {
@@ -169,8 +389,6 @@ public abstract class AbstractAsicWriter implements IAsicWriter
         throw new IllegalStateException ("Unable to close file", e);
       }
     }
-
-    return this;
   }
 
   // Cannot be final
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.util.concurrent.ExecutionException;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.WillCloseWhenClosed;
+import com.helger.annotation.concurrent.NotThreadSafe;
+
+/**
+ * {@link OutputStream} that writes sequentially to an {@link AsynchronousFileChannel}, starting at a
+ * given position. Each write waits for the completion of the channel operation, so this stream is
+ * meant to be used on a thread that may block, e.g. by {@link AsyncAsicWriter}.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@NotThreadSafe
+final class AsicAsyncFileChannelOutputStream extends OutputStream
+{
+  private final AsynchronousFileChannel m_aChannel;
+  private long m_nPosition;
+
+  AsicAsyncFileChannelOutputStream (@NonNull @WillCloseWhenClosed final AsynchronousFileChannel aChannel,
+                                    @Nonnegative final long nPosition)
+  {
+    m_aChannel = aChannel;
+    m_nPosition = nPosition;
+  }
+
+  @Override
+  public void write (final int b) throws IOException
+  {
+    write (new byte [] { (byte) b }, 0, 1);
+  }
+
+  @Override
+  public void write (final byte [] aBuf, final int nOfs, final int nLen) throws IOException
+  {
+    final ByteBuffer aBB = ByteBuffer.wrap (aBuf, nOfs, nLen);
+    try
+    {
+      while (aBB.hasRemaining ())
+        m_nPosition += m_aChannel.write (aBB, m_nPosition).get ().intValue ();
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      throw new InterruptedIOException ("Interrupted while writing");
+    }
+    catch (final ExecutionException ex)
+    {
+      final Throwable aCause = ex.getCause ();
+      if (aCause instanceof IOException)
+        throw (IOException) aCause;
+      throw new IOException ("Failed to write to the channel", aCause);
+    }
+  }
+
+  @Override
+  public void close () throws IOException
+  {
+    m_aChannel.close ();
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+
+/**
+ * Signs many ASiC containers with the same {@link SignatureHelper} concurrently. Each container is
+ * signed via {@link IAsicWriter#sign(SignatureHelper)} on the provided executor, so that a slow
+ * signing device (e.g. an HSM) can work on multiple signatures at once instead of paying the round
+ * trip latency per container. The number of containers being signed at the same time is limited -
+ * {@link #submit(IAsicWriter)} blocks if the limit is reached, which provides backpressure to the
+ * producer of the containers.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@ThreadSafe
+public class AsicBatchSigner
+{
+  private final SignatureHelper m_aSH;
+  private final ExecutorService m_aExecutor;
+  private final int m_nMaxPending;
+  private final Semaphore m_aPermits;
+
+  /**
+   * Constructor
+   *
+   * @param aSH
+   *        The signature helper to be used for all containers. May not be <code>null</code>.
+   * @param aExecutor
+   *        The executor to sign on. It is not shut down by this class. May not be
+   *        <code>null</code>.
+   * @param nMaxPending
+   *        The maximum number of containers being signed at the same time. Must be &gt; 0.
+   */
+  public AsicBatchSigner (@NonNull final SignatureHelper aSH,
+                          @NonNull final ExecutorService aExecutor,
+                          @Nonnegative final int nMaxPending)
+  {
+    ValueEnforcer.notNull (aSH, "SignatureHelper");
+    ValueEnforcer.notNull (aExecutor, "Executor");
+    ValueEnforcer.isGT0 (nMaxPending, "MaxPending");
+    m_aSH = aSH;
+    m_aExecutor = aExecutor;
+    m_nMaxPending = nMaxPending;
+    m_aPermits = new Semaphore (nMaxPending);
+  }
+
+  @NonNull
+  public final SignatureHelper getSignatureHelper ()
+  {
+    return m_aSH;
+  }
+
+  /**
+   * @return The maximum number of containers being signed at the same time. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getMaxPending ()
+  {
+    return m_nMaxPending;
+  }
+
+  /**
+   * @return The number of containers currently submitted but not yet signed. Always &ge; 0.
+   */
+  @Nonnegative
+  public final int getPendingCount ()
+  {
+    return m_nMaxPending - m_aPermits.availablePermits ();
+  }
+
+  /**
+   * Submit a single container for signing. If the maximum number of pending containers is reached,
+   * this method blocks until a signing slot becomes available. The writer must not be used by the
+   * caller until the returned future is completed.
+   *
+   * @param aWriter
+   *        The writer with all content added. May not be <code>null</code>.
+   * @return A future that is completed with the signed writer. If signing fails, it is completed
+   *         exceptionally with the causing exception, where an {@link IOException} is wrapped in
+   *         an {@link UncheckedIOException}. Never <code>null</code>.
+   * @throws InterruptedIOException
+   *         if the current thread was interrupted while waiting for a signing slot
+   */
+  @NonNull
+  public CompletableFuture <IAsicWriter> submit (@NonNull final IAsicWriter aWriter) throws InterruptedIOException
+  {
+    ValueEnforcer.notNull (aWriter, "Writer");
+
+    try
+    {
+      m_aPermits.acquire ();
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      throw new InterruptedIOException ("Interrupted while waiting for a signing slot");
+    }
+
+    try
+    {
+      return CompletableFuture.supplyAsync ( () -> {
+        try
+        {
+          return aWriter.sign (m_aSH);
+        }
+        catch (final IOException ex)
+        {
+          throw new UncheckedIOException (ex);
+        }
+        finally
+        {
+          m_aPermits.release ();
+        }
+      }, m_aExecutor);
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      m_aPermits.release ();
+      throw ex;
+    }
+  }
+
+  /**
+   * Sign all provided containers and wait until all of them are finished. Even if signing a
+   * container fails, all other containers are signed before this method returns.
+   *
+   * @param aWriters
+   *        The writers with all content added. May not be <code>null</code>.
+   * @return The signed writers in the order of the parameter. Never <code>null</code>.
+   * @throws IOException
+   *         if signing at least one container failed with an IO error, or if the current thread was
+   *         interrupted
+   * @throws IllegalStateException
+   *         if signing at least one container failed
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <IAsicWriter> signAll (@NonNull final Iterable <? extends IAsicWriter> aWriters) throws IOException
+  {
+    ValueEnforcer.notNull (aWriters, "Writers");
+
+    final ICommonsList <CompletableFuture <IAsicWriter>> aFutures = new CommonsArrayList <> ();
+    InterruptedIOException aInterrupted = null;
+    for (final IAsicWriter aWriter : aWriters)
+      try
+      {
+        aFutures.add (submit (aWriter));
+      }
+      catch (final InterruptedIOException ex)
+      {
+        aInterrupted = ex;
+        break;
+      }
+
+    // Wait for all submitted containers, so that no signing is in progress
+    // after this method returned
+    final ICommonsList <IAsicWriter> ret = new CommonsArrayList <> (aFutures.size ());
+    Throwable aFirstError = aInterrupted;
+    for (final CompletableFuture <IAsicWriter> aFuture : aFutures)
+      try
+      {
+        ret.add (aFuture.join ());
+      }
+      catch (final CompletionException ex)
+      {
+        if (aFirstError == null)
+          aFirstError = ex.getCause ();
+      }
+
+    if (aFirstError instanceof UncheckedIOException)
+      throw ((UncheckedIOException) aFirstError).getCause ();
+    if (aFirstError instanceof IOException)
+      throw (IOException) aFirstError;
+    if (aFirstError instanceof RuntimeException)
+      throw (RuntimeException) aFirstError;
+    if (aFirstError != null)
+      throw new IllegalStateException ("Failed to sign container", aFirstError);
+    return ret;
+  }
+}
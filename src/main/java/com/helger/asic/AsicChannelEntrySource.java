@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.zip.ZipEntry;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.WillCloseWhenClosed;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+
+/**
+ * {@link IAsicEntrySource} reading a {@link SeekableByteChannel} in two passes: the central
+ * directory at the end of the file is read first, and all META-INF entries are returned before the
+ * first payload entry. This way all manifests and signatures are known before any payload content
+ * is handed out, even though ASiC writers put the META-INF entries at the end of the file. If the
+ * channel is a {@link FileChannel}, payload entries that are only digested are memory mapped.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@NotThreadSafe
+final class AsicChannelEntrySource implements IAsicEntrySource
+{
+  private final SeekableByteChannel m_aChannel;
+  private final AsicZipCentralDirectory.Entry m_aMimeTypeEntry;
+  private final ICommonsList <AsicZipCentralDirectory.Entry> m_aEntries = new CommonsArrayList <> ();
+  private boolean m_bMimeTypeVerified = false;
+  private int m_nNextIndex = 0;
+  private AsicZipCentralDirectory.Entry m_aCurrentEntry;
+  private long m_nCurrentDataOffset;
+  // Opened on demand
+  private InputStream m_aCurrentIS;
+
+  AsicChannelEntrySource (@NonNull @WillCloseWhenClosed final SeekableByteChannel aChannel) throws IOException
+  {
+    m_aChannel = aChannel;
+
+    final ICommonsList <AsicZipCentralDirectory.Entry> aAllEntries = AsicZipCentralDirectory.read (aChannel)
+                                                                                             .getAllEntries ();
+    m_aMimeTypeEntry = AsicZipCentralDirectory.findEntry (aAllEntries, AsicInputStream.ZIPENTRY_NAME_MIMETYPE);
+
+    // All META-INF entries first, in the order of the central directory
+    for (final AsicZipCentralDirectory.Entry aEntry : aAllEntries)
+      if (aEntry.isMetadata ())
+        m_aEntries.add (aEntry);
+    for (final AsicZipCentralDirectory.Entry aEntry : aAllEntries)
+      if (!aEntry.isMetadata () && aEntry != m_aMimeTypeEntry)
+        m_aEntries.add (aEntry);
+  }
+
+  @Nullable
+  public ZipEntry getNextEntry () throws IOException
+  {
+    closeEntry ();
+
+    if (!m_bMimeTypeVerified)
+    {
+      m_bMimeTypeVerified = true;
+      if (m_aMimeTypeEntry != null)
+        try (final InputStream aIS = AsicZipCentralDirectory.openStream (m_aChannel, m_aMimeTypeEntry))
+        {
+          AsicInputStream.verifyMimeTypeContent (aIS);
+        }
+    }
+
+    if (m_nNextIndex >= m_aEntries.size ())
+      return null;
+
+    final AsicZipCentralDirectory.Entry aEntry = m_aEntries.get (m_nNextIndex++);
+    m_nCurrentDataOffset = AsicZipCentralDirectory.getDataOffset (m_aChannel, aEntry);
+    m_aCurrentEntry = aEntry;
+    return aEntry.getAsZipEntry ();
+  }
+
+  @NonNull
+  public InputStream getEntryInputStream ()
+  {
+    if (m_aCurrentEntry == null)
+      throw new IllegalStateException ("No file to read.");
+    if (m_aCurrentIS == null)
+      m_aCurrentIS = AsicZipCentralDirectory.openStream (m_aChannel, m_aCurrentEntry, m_nCurrentDataOffset);
+    return m_aCurrentIS;
+  }
+
+  /**
+   * If the channel is a {@link FileChannel} and the content of the current entry was not yet read,
+   * the entry is digested from a memory mapped region of the file instead of reading it via a
+   * stream.
+   */
+  @Override
+  public long digestEntry (@NonNull final ByteBuffer aBuffer, @NonNull final AsicMultiDigest aMultiDigest) throws IOException
+  {
+    if (m_aChannel instanceof FileChannel && m_aCurrentEntry != null && m_aCurrentIS == null)
+      return AsicZipCentralDirectory.digestMapped ((FileChannel) m_aChannel,
+                                                   m_aCurrentEntry,
+                                                   m_nCurrentDataOffset,
+                                                   aBuffer,
+                                                   aMultiDigest);
+    return IAsicEntrySource.super.digestEntry (aBuffer, aMultiDigest);
+  }
+
+  public void closeEntry () throws IOException
+  {
+    m_aCurrentEntry = null;
+    if (m_aCurrentIS != null)
+    {
+      m_aCurrentIS.close ();
+      m_aCurrentIS = null;
+    }
+  }
+
+  @Override
+  public boolean isMetadataFirst ()
+  {
+    return true;
+  }
+
+  public void close () throws IOException
+  {
+    try
+    {
+      closeEntry ();
+    }
+    finally
+    {
+      m_aChannel.close ();
+    }
+  }
+}
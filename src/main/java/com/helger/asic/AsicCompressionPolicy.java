@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.collection.commons.CommonsHashSet;
+import com.helger.collection.commons.ICommonsSet;
+import com.helger.mime.IMimeType;
+
+/**
+ * Default configurable implementation of {@link IAsicCompressionPolicy}. Entries are stored without
+ * compression if their MIME type or file extension identifies already compressed or encrypted
+ * content, or if the optional probe shows that the sample does not compress well. All other entries
+ * are deflated with the configured default level.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@NotThreadSafe
+public class AsicCompressionPolicy implements IAsicCompressionPolicy
+{
+  /** The default minimum ratio of compressed to uncompressed sample size to store an entry */
+  public static final double DEFAULT_PROBE_RATIO = 0.9;
+
+  private int m_nDefaultLevel = Deflater.DEFAULT_COMPRESSION;
+  private final ICommonsSet <String> m_aStoredMimeTypes = new CommonsHashSet <> ();
+  private final ICommonsSet <String> m_aStoredExtensions = new CommonsHashSet <> ();
+  private boolean m_bProbe = true;
+  private double m_dProbeRatio = DEFAULT_PROBE_RATIO;
+
+  public AsicCompressionPolicy ()
+  {
+    m_aStoredMimeTypes.addAll ("application/pdf",
+                               "application/zip",
+                               "application/gzip",
+                               "application/x-gzip",
+                               "application/pkcs7-mime",
+                               "application/x-pkcs7-mime",
+                               "application/vnd.etsi.asic-e+zip",
+                               "application/vnd.etsi.asic-s+zip",
+                               "image/jpeg",
+                               "image/png",
+                               "image/gif");
+    m_aStoredExtensions.addAll ("p7m", "zip", "gz", "asice", "sce", "asics", "scs", "pdf", "jpg", "jpeg", "png", "gif");
+  }
+
+  @NonNull
+  private static String _unify (@NonNull final String s)
+  {
+    return s.toLowerCase (Locale.ROOT);
+  }
+
+  public final int getDefaultLevel ()
+  {
+    return m_nDefaultLevel;
+  }
+
+  /**
+   * Set the compression level for all entries that are not stored.
+   *
+   * @param nDefaultLevel
+   *        The compression level to use. Must be valid according to
+   *        {@link IAsicCompressionPolicy#isValidLevel(int)}.
+   * @return this for chaining
+   */
+  @NonNull
+  public final AsicCompressionPolicy setDefaultLevel (final int nDefaultLevel)
+  {
+    ValueEnforcer.isTrue (IAsicCompressionPolicy.isValidLevel (nDefaultLevel),
+                          () -> "Invalid compression level " + nDefaultLevel);
+    m_nDefaultLevel = nDefaultLevel;
+    return this;
+  }
+
+  @NonNull
+  @ReturnsMutableCopy
+  public final ICommonsSet <String> getAllStoredMimeTypes ()
+  {
+    return m_aStoredMimeTypes.getClone ();
+  }
+
+  /**
+   * Add a MIME type whose entries are always stored without compression. Parameters are ignored.
+   *
+   * @param aMimeType
+   *        The MIME type to add. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @NonNull
+  public final AsicCompressionPolicy addStoredMimeType (@NonNull final IMimeType aMimeType)
+  {
+    ValueEnforcer.notNull (aMimeType, "MimeType");
+    m_aStoredMimeTypes.add (_unify (aMimeType.getAsStringWithoutParameters ()));
+    return this;
+  }
+
+  @NonNull
+  public final AsicCompressionPolicy removeAllStoredMimeTypes ()
+  {
+    m_aStoredMimeTypes.clear ();
+    return this;
+  }
+
+  @NonNull
+  @ReturnsMutableCopy
+  public final ICommonsSet <String> getAllStoredExtensions ()
+  {
+    return m_aStoredExtensions.getClone ();
+  }
+
+  /**
+   * Add a file extension whose entries are always stored without compression.
+   *
+   * @param sExtension
+   *        The file extension without the leading dot. May neither be <code>null</code> nor empty.
+   * @return this for chaining
+   */
+  @NonNull
+  public final AsicCompressionPolicy addStoredExtension (@NonNull final String sExtension)
+  {
+    ValueEnforcer.notEmpty (sExtension, "Extension");
+    m_aStoredExtensions.add (_unify (sExtension));
+    return this;
+  }
+
+  @NonNull
+  public final AsicCompressionPolicy removeAllStoredExtensions ()
+  {
+    m_aStoredExtensions.clear ();
+    return this;
+  }
+
+  public final boolean isProbe ()
+  {
+    return m_bProbe;
+  }
+
+  /**
+   * Enable or disable the compressibility probe. If enabled, the sample of each entry is deflated
+   * with the fastest level, and the entry is stored if the compressed sample is not smaller than the
+   * probe ratio.
+   *
+   * @param bProbe
+   *        <code>true</code> to enable the probe
+   * @return this for chaining
+   */
+  @NonNull
+  public final AsicCompressionPolicy setProbe (final boolean bProbe)
+  {
+    m_bProbe = bProbe;
+    return this;
+  }
+
+  public final double getProbeRatio ()
+  {
+    return m_dProbeRatio;
+  }
+
+  @NonNull
+  public final AsicCompressionPolicy setProbeRatio (final double dProbeRatio)
+  {
+    ValueEnforcer.isTrue (dProbeRatio > 0 && dProbeRatio <= 1, "ProbeRatio must be in the range (0, 1]");
+    m_dProbeRatio = dProbeRatio;
+    return this;
+  }
+
+  /**
+   * Deflate the sample with the fastest compression level.
+   *
+   * @param aSample
+   *        The sample bytes
+   * @param nSampleLen
+   *        The number of sample bytes to use
+   * @return The compressed size of the sample
+   */
+  @Nonnegative
+  static int getProbedSize (@NonNull final byte [] aSample, @Nonnegative final int nSampleLen)
+  {
+    final Deflater aDeflater = new Deflater (Deflater.BEST_SPEED, true);
+    try
+    {
+      aDeflater.setInput (aSample, 0, nSampleLen);
+      aDeflater.finish ();
+      final byte [] aBuf = new byte [1024];
+      int ret = 0;
+      while (!aDeflater.finished ())
+        ret += aDeflater.deflate (aBuf);
+      return ret;
+    }
+    finally
+    {
+      aDeflater.end ();
+    }
+  }
+
+  public int getCompressionLevel (@NonNull final String sFilename,
+                                  @NonNull final IMimeType aMimeType,
+                                  @NonNull final byte [] aSample,
+                                  @Nonnegative final int nSampleLen)
+  {
+    if (m_aStoredMimeTypes.contains (_unify (aMimeType.getAsStringWithoutParameters ())))
+      return LEVEL_STORED;
+
+    final int nDot = sFilename.lastIndexOf ('.');
+    if (nDot >= 0 && m_aStoredExtensions.contains (_unify (sFilename.substring (nDot + 1))))
+      return LEVEL_STORED;
+
+    if (m_bProbe && nSampleLen > 0 && getProbedSize (aSample, nSampleLen) >= nSampleLen * m_dProbeRatio)
+      return LEVEL_STORED;
+
+    return m_nDefaultLevel;
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.nio.ByteBuffer;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.asic.AsicVerificationReport.Entry;
+
+/**
+ * A single event of a reactive verification, as emitted by
+ * <code>AsicVerifierFactory.verifyReactive</code>. For each payload entry an
+ * {@link EType#ENTRY_START} event, any number of {@link EType#ENTRY_CHUNK} events and an
+ * {@link EType#ENTRY_END} event are emitted. The last event is always a {@link EType#COMPLETE}
+ * event with the verification report.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@Immutable
+public final class AsicEntryEvent
+{
+  /**
+   * The event types.
+   *
+   * @author Philip Helger
+   */
+  public enum EType
+  {
+    /** A payload entry starts */
+    ENTRY_START,
+    /** A chunk of the uncompressed content of the current payload entry */
+    ENTRY_CHUNK,
+    /** A payload entry was completely read and digested */
+    ENTRY_END,
+    /** The container was completely read */
+    COMPLETE
+  }
+
+  private final EType m_eType;
+  private final String m_sName;
+  private final byte [] m_aChunk;
+  private final Entry m_aEntry;
+  private final AsicVerificationReport m_aReport;
+
+  private AsicEntryEvent (@NonNull final EType eType,
+                          @Nullable final String sName,
+                          @Nullable final byte [] aChunk,
+                          @Nullable final Entry aEntry,
+                          @Nullable final AsicVerificationReport aReport)
+  {
+    m_eType = eType;
+    m_sName = sName;
+    m_aChunk = aChunk;
+    m_aEntry = aEntry;
+    m_aReport = aReport;
+  }
+
+  /**
+   * @return The type of this event. Never <code>null</code>.
+   */
+  @NonNull
+  public EType getType ()
+  {
+    return m_eType;
+  }
+
+  /**
+   * @return The name of the payload entry. <code>null</code> only for {@link EType#COMPLETE}.
+   */
+  @Nullable
+  public String getName ()
+  {
+    return m_sName;
+  }
+
+  /**
+   * @return A read-only view on the content chunk. Only present for {@link EType#ENTRY_CHUNK}.
+   */
+  @Nullable
+  public ByteBuffer getChunk ()
+  {
+    return m_aChunk == null ? null : ByteBuffer.wrap (m_aChunk).asReadOnlyBuffer ();
+  }
+
+  /**
+   * @return The size and the digests of the payload entry. Only present for {@link EType#ENTRY_END}.
+   *         If the manifests follow the payload in the container, the digests are only verified
+   *         when the container was completely read.
+   */
+  @Nullable
+  public Entry getEntry ()
+  {
+    return m_aEntry;
+  }
+
+  /**
+   * @return The verification report. Only present for {@link EType#COMPLETE}.
+   */
+  @Nullable
+  public AsicVerificationReport getReport ()
+  {
+    return m_aReport;
+  }
+
+  @NonNull
+  static AsicEntryEvent createEntryStart (@NonNull final String sName)
+  {
+    return new AsicEntryEvent (EType.ENTRY_START, sName, null, null, null);
+  }
+
+  @NonNull
+  static AsicEntryEvent createEntryChunk (@NonNull final String sName, @NonNull final byte [] aChunk)
+  {
+    return new AsicEntryEvent (EType.ENTRY_CHUNK, sName, aChunk, null, null);
+  }
+
+  @NonNull
+  static AsicEntryEvent createEntryEnd (@NonNull final Entry aEntry)
+  {
+    return new AsicEntryEvent (EType.ENTRY_END, aEntry.getName (), null, aEntry, null);
+  }
+
+  @NonNull
+  static AsicEntryEvent createComplete (@NonNull final AsicVerificationReport aReport)
+  {
+    return new AsicEntryEvent (EType.COMPLETE, null, null, null, aReport);
+  }
+}
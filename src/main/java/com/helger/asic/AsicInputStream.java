@@ -23,7 +23,7 @@ import org.slf4j.LoggerFactory;
 
 import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
 
-public class AsicInputStream extends ZipInputStream
+public class AsicInputStream extends ZipInputStream implements IAsicEntrySource
 {
   public static final String ZIPENTRY_NAME_MIMETYPE = "mimetype";
   private static final Logger LOGGER = LoggerFactory.getLogger (AsicInputStream.class);
@@ -40,16 +40,7 @@ public class AsicInputStream extends ZipInputStream
 
     if (aZipEntry != null && aZipEntry.getName ().equals (ZIPENTRY_NAME_MIMETYPE))
     {
-      try (final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();)
-      {
-        AsicUtils.copyStream (this, aBAOS);
-        final String sMimeType = aBAOS.getAsString (StandardCharsets.ISO_8859_1);
-
-        if (LOGGER.isDebugEnabled ())
-          LOGGER.debug ("Content of mimetype: " + sMimeType);
-        if (!AsicUtils.MIMETYPE_ASICE.getAsString ().equals (sMimeType))
-          throw new IllegalStateException ("Content is not ASiC-E container.");
-      }
+      verifyMimeTypeContent (this);
 
       // Fetch next
       aZipEntry = super.getNextEntry ();
@@ -57,4 +48,33 @@ public class AsicInputStream extends ZipInputStream
 
     return aZipEntry;
   }
+
+  /**
+   * Ensure the content of the "mimetype" entry denotes an ASiC-E container.
+   *
+   * @param aIS
+   *        The stream with the content of the "mimetype" entry. May not be <code>null</code>.
+   * @throws IllegalStateException
+   *         if the content is not the ASiC-E MIME type
+   */
+  static void verifyMimeTypeContent (@NonNull final InputStream aIS)
+  {
+    try (final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ())
+    {
+      AsicUtils.copyStream (aIS, aBAOS);
+      final String sMimeType = aBAOS.getAsString (StandardCharsets.ISO_8859_1);
+
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("Content of mimetype: " + sMimeType);
+      if (!AsicUtils.MIMETYPE_ASICE.getAsString ().equals (sMimeType))
+        throw new IllegalStateException ("Content is not ASiC-E container.");
+    }
+  }
+
+  @NonNull
+  public InputStream getEntryInputStream ()
+  {
+    // The ZIP stream itself is positioned at the current entry
+    return this;
+  }
 }
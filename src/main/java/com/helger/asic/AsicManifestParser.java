@@ -0,0 +1,414 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.validation.ValidatorHandler;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+import com.helger.annotation.WillNotClose;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.asic.jaxb.ASiCManifestMarshaller;
+import com.helger.base.codec.base64.Base64;
+import com.helger.xsds.xmldsig.CXMLDSig;
+
+/**
+ * Streaming SAX based reader for the CAdES ASiC manifest and the XAdES signatures file. Legacy
+ * namespace URIs are rewritten while parsing and each referenced file is passed to the
+ * {@link ManifestVerifier} as soon as its reference was read, so that neither the file content nor
+ * an object tree needs to be held in memory.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@Immutable
+final class AsicManifestParser
+{
+  static final String NAMESPACE_URI_ASIC = "http://uri.etsi.org/02918/v1.2.1#";
+
+  private static final String [] LEGACY_NAMESPACE_URIS_ASIC = { "http://uri.etsi.org/02918/v1.1.1#",
+                                                                "http://uri.etsi.org/2918/v1.2.1#" };
+  private static final String LEGACY_ALGORITHM_PREFIX = "http://www.w3.org/2000/09/xmldsig#sha";
+  private static final String ALGORITHM_PREFIX = "http://www.w3.org/2001/04/xmlenc#sha";
+  private static final String DEFAULT_SIG_REFERENCE = "META-INF/signature.p7s";
+
+  // Only used to create new parsers after the configuration
+  private static final SAXParserFactory SAX_PARSER_FACTORY;
+
+  static
+  {
+    try
+    {
+      SAX_PARSER_FACTORY = SAXParserFactory.newInstance ();
+      SAX_PARSER_FACTORY.setNamespaceAware (true);
+      SAX_PARSER_FACTORY.setFeature (XMLConstants.FEATURE_SECURE_PROCESSING, true);
+      SAX_PARSER_FACTORY.setFeature ("http://apache.org/xml/features/disallow-doctype-decl", true);
+    }
+    catch (final ParserConfigurationException | SAXException ex)
+    {
+      throw new IllegalStateException ("Unable to create SAXParserFactory: " + ex.getMessage (), ex);
+    }
+  }
+
+  private AsicManifestParser ()
+  {}
+
+  @NonNull
+  private static String _getRewrittenNamespaceURI (@NonNull final String sNamespaceURI)
+  {
+    for (final String sLegacy : LEGACY_NAMESPACE_URIS_ASIC)
+      if (sLegacy.equals (sNamespaceURI))
+        return NAMESPACE_URI_ASIC;
+    return sNamespaceURI;
+  }
+
+  @Nullable
+  private static String _getRewrittenAlgorithm (@Nullable final String sAlgorithm)
+  {
+    if (sAlgorithm != null && sAlgorithm.startsWith (LEGACY_ALGORITHM_PREFIX))
+      return ALGORITHM_PREFIX + sAlgorithm.substring (LEGACY_ALGORITHM_PREFIX.length ());
+    return sAlgorithm;
+  }
+
+  /**
+   * Rewrites the legacy namespace URIs and digest algorithm URIs for compatibility with previous
+   * releases and other implementations, before the events reach validation and handling.
+   */
+  private static final class RewritingFilter extends XMLFilterImpl
+  {
+    RewritingFilter (@NonNull final XMLReader aParent)
+    {
+      super (aParent);
+    }
+
+    @Override
+    public void startPrefixMapping (final String sPrefix, final String sUri) throws SAXException
+    {
+      super.startPrefixMapping (sPrefix, _getRewrittenNamespaceURI (sUri));
+    }
+
+    @Override
+    public void startElement (final String sUri,
+                              final String sLocalName,
+                              final String sQName,
+                              final Attributes aAttrs) throws SAXException
+    {
+      AttributesImpl aRewrittenAttrs = null;
+      final int nIndex = aAttrs.getIndex ("", "Algorithm");
+      if (nIndex >= 0)
+      {
+        final String sValue = aAttrs.getValue (nIndex);
+        final String sRewritten = _getRewrittenAlgorithm (sValue);
+        if (!sRewritten.equals (sValue))
+        {
+          aRewrittenAttrs = new AttributesImpl (aAttrs);
+          aRewrittenAttrs.setValue (nIndex, sRewritten);
+        }
+      }
+      super.startElement (_getRewrittenNamespaceURI (sUri),
+                          sLocalName,
+                          sQName,
+                          aRewrittenAttrs != null ? aRewrittenAttrs : aAttrs);
+    }
+
+    @Override
+    public void endElement (final String sUri, final String sLocalName, final String sQName) throws SAXException
+    {
+      super.endElement (_getRewrittenNamespaceURI (sUri), sLocalName, sQName);
+    }
+  }
+
+  /**
+   * Base handler that tracks the element depth and collects the text of a single element.
+   */
+  private abstract static class AbstractReferenceHandler extends DefaultHandler
+  {
+    protected int m_nDepth = 0;
+    protected String m_sDigestAlgorithm;
+    protected byte [] m_aDigest;
+    private StringBuilder m_aText;
+
+    protected final void startCollectingText ()
+    {
+      m_aText = new StringBuilder ();
+    }
+
+    protected final void readDigestValue ()
+    {
+      m_aDigest = Base64.safeDecode (m_aText.toString ().trim ());
+      m_aText = null;
+      if (m_aDigest == null)
+        throw new IllegalStateException ("Invalid Base64 encoded DigestValue");
+    }
+
+    protected final void resetReference ()
+    {
+      m_sDigestAlgorithm = null;
+      m_aDigest = null;
+    }
+
+    protected final void checkReference (@Nullable final String sURI)
+    {
+      if (sURI == null)
+        throw new IllegalStateException ("Reference without a URI found");
+      if (m_sDigestAlgorithm == null)
+        throw new IllegalStateException ("Reference '" + sURI + "' has no DigestMethod");
+      if (m_aDigest == null)
+        throw new IllegalStateException ("Reference '" + sURI + "' has no DigestValue");
+    }
+
+    @Override
+    public void characters (final char [] aChars, final int nStart, final int nLength)
+    {
+      if (m_aText != null)
+        m_aText.append (aChars, nStart, nLength);
+    }
+  }
+
+  private static final class CadesHandler extends AbstractReferenceHandler
+  {
+    private final ManifestVerifier m_aMV;
+    private String m_sSigReference;
+    private String m_sURI;
+    private String m_sMimeType;
+    private boolean m_bRootfile;
+
+    CadesHandler (@NonNull final ManifestVerifier aMV)
+    {
+      m_aMV = aMV;
+    }
+
+    @Override
+    public void startElement (final String sUri,
+                              final String sLocalName,
+                              final String sQName,
+                              final Attributes aAttrs)
+    {
+      ++m_nDepth;
+      if (m_nDepth == 1)
+      {
+        if (!NAMESPACE_URI_ASIC.equals (sUri) || !"ASiCManifest".equals (sLocalName))
+          throw new IllegalStateException ("Unexpected root element {" + sUri + "}" + sLocalName);
+      }
+      else
+        if (m_nDepth == 2 && NAMESPACE_URI_ASIC.equals (sUri))
+        {
+          if ("SigReference".equals (sLocalName))
+          {
+            m_sSigReference = aAttrs.getValue ("", "URI");
+            if (m_sSigReference == null)
+              m_sSigReference = DEFAULT_SIG_REFERENCE;
+          }
+          else
+            if ("DataObjectReference".equals (sLocalName))
+            {
+              resetReference ();
+              m_sURI = aAttrs.getValue ("", "URI");
+              m_sMimeType = aAttrs.getValue ("", "MimeType");
+              final String sRootfile = aAttrs.getValue ("", "Rootfile");
+              m_bRootfile = "true".equals (sRootfile) || "1".equals (sRootfile);
+            }
+        }
+        else
+          if (m_nDepth == 3 && CXMLDSig.NAMESPACE_URI.equals (sUri))
+          {
+            if ("DigestMethod".equals (sLocalName))
+              m_sDigestAlgorithm = aAttrs.getValue ("", "Algorithm");
+            else
+              if ("DigestValue".equals (sLocalName))
+                startCollectingText ();
+          }
+    }
+
+    @Override
+    public void endElement (final String sUri, final String sLocalName, final String sQName)
+    {
+      if (m_nDepth == 3 && CXMLDSig.NAMESPACE_URI.equals (sUri) && "DigestValue".equals (sLocalName))
+        readDigestValue ();
+      else
+        if (m_nDepth == 2 && NAMESPACE_URI_ASIC.equals (sUri) && "DataObjectReference".equals (sLocalName))
+        {
+          if (m_sSigReference == null)
+            throw new IllegalStateException ("DataObjectReference found before SigReference");
+          checkReference (m_sURI);
+          m_aMV.update (m_sURI, m_sMimeType, m_aDigest, m_sDigestAlgorithm, m_sSigReference);
+          if (m_bRootfile)
+            m_aMV.setRootFilename (m_sURI);
+        }
+      --m_nDepth;
+    }
+  }
+
+  private static final class XadesHandler extends AbstractReferenceHandler
+  {
+    private final ManifestVerifier m_aMV;
+    // Only the direct path Signature/SignedInfo/Reference below the root is relevant
+    private boolean m_bInSignature;
+    private boolean m_bInSignedInfo;
+    private boolean m_bInReference;
+    private String m_sURI;
+
+    XadesHandler (@NonNull final ManifestVerifier aMV)
+    {
+      m_aMV = aMV;
+    }
+
+    private static boolean _isDS (final String sUri, final String sLocalName, final String sExpectedLocalName)
+    {
+      return CXMLDSig.NAMESPACE_URI.equals (sUri) && sExpectedLocalName.equals (sLocalName);
+    }
+
+    @Override
+    public void startElement (final String sUri,
+                              final String sLocalName,
+                              final String sQName,
+                              final Attributes aAttrs)
+    {
+      ++m_nDepth;
+      if (m_nDepth == 2)
+        m_bInSignature = _isDS (sUri, sLocalName, "Signature");
+      else
+        if (m_nDepth == 3)
+          m_bInSignedInfo = m_bInSignature && _isDS (sUri, sLocalName, "SignedInfo");
+        else
+          if (m_nDepth == 4)
+          {
+            m_bInReference = m_bInSignedInfo && _isDS (sUri, sLocalName, "Reference");
+            if (m_bInReference)
+            {
+              resetReference ();
+              m_sURI = aAttrs.getValue ("", "URI");
+            }
+          }
+          else
+            if (m_nDepth == 5 && m_bInReference)
+            {
+              if (_isDS (sUri, sLocalName, "DigestMethod"))
+                m_sDigestAlgorithm = aAttrs.getValue ("", "Algorithm");
+              else
+                if (_isDS (sUri, sLocalName, "DigestValue"))
+                  startCollectingText ();
+            }
+    }
+
+    @Override
+    public void endElement (final String sUri, final String sLocalName, final String sQName)
+    {
+      if (m_nDepth == 5 && m_bInReference && _isDS (sUri, sLocalName, "DigestValue"))
+        readDigestValue ();
+      else
+        if (m_nDepth == 4 && m_bInReference)
+        {
+          // Same document references are not relevant
+          if (m_sURI != null && !m_sURI.startsWith ("#"))
+          {
+            checkReference (m_sURI);
+            m_aMV.update (m_sURI, null, m_aDigest, m_sDigestAlgorithm, null);
+          }
+          m_bInReference = false;
+        }
+      --m_nDepth;
+    }
+  }
+
+  private static void _parse (@NonNull final InputSource aInputSource,
+                              @NonNull final ContentHandler aHandler) throws IOException
+  {
+    try
+    {
+      final RewritingFilter aFilter = new RewritingFilter (SAX_PARSER_FACTORY.newSAXParser ().getXMLReader ());
+      aFilter.setContentHandler (aHandler);
+      aFilter.parse (aInputSource);
+    }
+    catch (final ParserConfigurationException | SAXException ex)
+    {
+      throw new IllegalStateException ("Unable to read content as XML", ex);
+    }
+  }
+
+  @NonNull
+  static InputSource createInputSource (@NonNull @WillNotClose final InputStream aIS)
+  {
+    // The parser closes the input at the end of the document
+    return new InputSource (new FilterInputStream (aIS)
+    {
+      @Override
+      public void close ()
+      {}
+    });
+  }
+
+  /**
+   * Read a CAdES ASiC manifest, validate it against the XML Schema and pass all data object
+   * references to the manifest verifier.
+   *
+   * @param aInputSource
+   *        The XML to read. May not be <code>null</code>.
+   * @param aMV
+   *        The manifest verifier to update. May not be <code>null</code>.
+   * @return The signature reference of the manifest. Never <code>null</code>.
+   * @throws IOException
+   *         in case reading fails
+   * @throws IllegalStateException
+   *         if the content is not a valid manifest
+   */
+  @NonNull
+  static String parseCadesManifest (@NonNull final InputSource aInputSource,
+                                    @NonNull final ManifestVerifier aMV) throws IOException
+  {
+    final CadesHandler aHandler = new CadesHandler (aMV);
+
+    // Validate while parsing
+    final ValidatorHandler aValidatorHandler = ASiCManifestMarshaller.POOL.getSchema ().newValidatorHandler ();
+    aValidatorHandler.setContentHandler (aHandler);
+    _parse (aInputSource, aValidatorHandler);
+
+    if (aHandler.m_sSigReference == null)
+      throw new IllegalStateException ("Unable to read content as XML");
+    return aHandler.m_sSigReference;
+  }
+
+  /**
+   * Read a XAdES signatures file and pass all external references of all signatures to the
+   * manifest verifier.
+   *
+   * @param aInputSource
+   *        The XML to read. May not be <code>null</code>.
+   * @param aMV
+   *        The manifest verifier to update. May not be <code>null</code>.
+   * @throws IOException
+   *         in case reading fails
+   * @throws IllegalStateException
+   *         if the content is not valid
+   */
+  static void parseXadesSignatures (@NonNull final InputSource aInputSource,
+                                    @NonNull final ManifestVerifier aMV) throws IOException
+  {
+    _parse (aInputSource, new XadesHandler (aMV));
+  }
+}
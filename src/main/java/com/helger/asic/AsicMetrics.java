@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.annotation.style.PresentForCodeCoverage;
+
+/**
+ * Global registration of the {@link IAsicMetrics} to be used by all readers, writers and signature
+ * operations. By default nothing is recorded.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@ThreadSafe
+public final class AsicMetrics
+{
+  private static final IAsicMetrics NO_OP = new IAsicMetrics ()
+  {};
+
+  @PresentForCodeCoverage
+  private static final AsicMetrics INSTANCE = new AsicMetrics ();
+
+  private static volatile IAsicMetrics s_aMetrics = NO_OP;
+
+  private AsicMetrics ()
+  {}
+
+  /**
+   * @return The metrics to record to. Never <code>null</code>.
+   */
+  @NonNull
+  public static IAsicMetrics getMetrics ()
+  {
+    return s_aMetrics;
+  }
+
+  /**
+   * @return <code>true</code> if metrics other than the default no-op implementation are set.
+   */
+  public static boolean isEnabled ()
+  {
+    return s_aMetrics != NO_OP;
+  }
+
+  /**
+   * Set the metrics to record to.
+   *
+   * @param aMetrics
+   *        The metrics to use. May be <code>null</code> to disable recording.
+   */
+  public static void setMetrics (@Nullable final IAsicMetrics aMetrics)
+  {
+    s_aMetrics = aMetrics != null ? aMetrics : NO_OP;
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Map;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.annotation.style.ReturnsMutableObject;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.collection.commons.CommonsLinkedHashMap;
+import com.helger.collection.commons.CommonsLinkedHashSet;
+import com.helger.collection.commons.ICommonsOrderedMap;
+import com.helger.collection.commons.ICommonsOrderedSet;
+
+/**
+ * A set of {@link MessageDigest} objects that are updated together, so that the digests of
+ * multiple algorithms can be calculated in a single pass over the data. The order of the
+ * algorithms is maintained and duplicates are ignored.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@NotThreadSafe
+public final class AsicMultiDigest
+{
+  private final ICommonsOrderedMap <EMessageDigestAlgorithm, MessageDigest> m_aMDs = new CommonsLinkedHashMap <> ();
+  // Since the last reset
+  private long m_nUpdatedBytes = 0;
+  private long m_nUpdateNanos = 0;
+
+  /**
+   * Constructor
+   *
+   * @param aMDAlgos
+   *        The algorithms to calculate. May neither be <code>null</code> nor empty.
+   */
+  public AsicMultiDigest (@NonNull final Iterable <EMessageDigestAlgorithm> aMDAlgos)
+  {
+    ValueEnforcer.notNull (aMDAlgos, "MDAlgos");
+    for (final EMessageDigestAlgorithm eMDAlgo : aMDAlgos)
+    {
+      ValueEnforcer.notNull (eMDAlgo, "MDAlgo");
+      if (!m_aMDs.containsKey (eMDAlgo))
+        m_aMDs.put (eMDAlgo, eMDAlgo.createMessageDigest ());
+    }
+    ValueEnforcer.isTrue (m_aMDs.isNotEmpty (), "At least one Message Digest Algorithm must be provided");
+  }
+
+  /**
+   * @return All algorithms in the order they were provided. Never <code>null</code> nor empty.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsOrderedSet <EMessageDigestAlgorithm> getAllAlgorithms ()
+  {
+    return new CommonsLinkedHashSet <> (m_aMDs.keySet ());
+  }
+
+  /**
+   * Get the message digest of a single algorithm. Updating or resetting it directly, affects this
+   * object as well.
+   *
+   * @param eMDAlgo
+   *        The algorithm to search. May be <code>null</code>.
+   * @return <code>null</code> if the algorithm is not contained.
+   */
+  @Nullable
+  @ReturnsMutableObject
+  public MessageDigest getMessageDigest (@Nullable final EMessageDigestAlgorithm eMDAlgo)
+  {
+    return m_aMDs.get (eMDAlgo);
+  }
+
+  /**
+   * @return The number of bytes digested since the last {@link #reset()}.
+   * @since 4.1.1
+   */
+  @Nonnegative
+  public long getUpdatedBytes ()
+  {
+    return m_nUpdatedBytes;
+  }
+
+  /**
+   * @return The nanoseconds spent in updating the digests with arrays and buffers since the last
+   *         {@link #reset()}. Single byte updates are not timed.
+   * @since 4.1.1
+   */
+  @Nonnegative
+  public long getUpdateNanos ()
+  {
+    return m_nUpdateNanos;
+  }
+
+  public void update (final byte nByte)
+  {
+    for (final MessageDigest aMD : m_aMDs.values ())
+      aMD.update (nByte);
+    m_nUpdatedBytes++;
+  }
+
+  public void update (@NonNull final byte [] aBuf, final int nOfs, final int nLen)
+  {
+    final long nStart = System.nanoTime ();
+    for (final MessageDigest aMD : m_aMDs.values ())
+      aMD.update (aBuf, nOfs, nLen);
+    m_nUpdateNanos += System.nanoTime () - nStart;
+    m_nUpdatedBytes += nLen;
+  }
+
+  /**
+   * Update all digests with the remaining bytes of the buffer. Afterwards the position of the buffer
+   * equals its limit.
+   *
+   * @param aBuffer
+   *        The buffer to digest. May not be <code>null</code>.
+   */
+  public void update (@NonNull final ByteBuffer aBuffer)
+  {
+    final long nStart = System.nanoTime ();
+    final int nPos = aBuffer.position ();
+    for (final MessageDigest aMD : m_aMDs.values ())
+    {
+      aBuffer.position (nPos);
+      aMD.update (aBuffer);
+    }
+    m_nUpdateNanos += System.nanoTime () - nStart;
+    m_nUpdatedBytes += aBuffer.position () - nPos;
+  }
+
+  public void reset ()
+  {
+    for (final MessageDigest aMD : m_aMDs.values ())
+      aMD.reset ();
+    m_nUpdatedBytes = 0;
+    m_nUpdateNanos = 0;
+  }
+
+  /**
+   * Complete the calculation of all digests. Afterwards all message digests are reset, but the
+   * statistics are kept until {@link #reset()} is called.
+   *
+   * @return A map from algorithm to digest value in the order of the algorithms. Never
+   *         <code>null</code> nor empty.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsOrderedMap <EMessageDigestAlgorithm, byte []> digest ()
+  {
+    final ICommonsOrderedMap <EMessageDigestAlgorithm, byte []> ret = new CommonsLinkedHashMap <> (m_aMDs.size ());
+    for (final Map.Entry <EMessageDigestAlgorithm, MessageDigest> aEntry : m_aMDs.entrySet ())
+      ret.put (aEntry.getKey (), aEntry.getValue ().digest ());
+    return ret;
+  }
+}
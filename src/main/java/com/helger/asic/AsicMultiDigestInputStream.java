@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.collection.commons.ICommonsOrderedMap;
+
+/**
+ * Input stream that updates all digests of an {@link AsicMultiDigest} with the read content and
+ * optionally passes the digests to a callback, as soon as the end of the stream is reached. The
+ * callback is invoked at most once.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@NotThreadSafe
+final class AsicMultiDigestInputStream extends FilterInputStream
+{
+  private final AsicMultiDigest m_aMultiDigest;
+  private final Consumer <ICommonsOrderedMap <EMessageDigestAlgorithm, byte []>> m_aDigestConsumer;
+  private boolean m_bVerified = false;
+
+  AsicMultiDigestInputStream (@NonNull final InputStream aIS,
+                              @NonNull final AsicMultiDigest aMultiDigest,
+                              @Nullable final Consumer <ICommonsOrderedMap <EMessageDigestAlgorithm, byte []>> aDigestConsumer)
+  {
+    super (aIS);
+    m_aMultiDigest = aMultiDigest;
+    m_aDigestConsumer = aDigestConsumer;
+  }
+
+  private void _onEndOfStream ()
+  {
+    if (!m_bVerified && m_aDigestConsumer != null)
+    {
+      m_bVerified = true;
+      m_aDigestConsumer.accept (m_aMultiDigest.digest ());
+    }
+  }
+
+  @Override
+  public int read () throws IOException
+  {
+    final int ret = in.read ();
+    if (ret < 0)
+      _onEndOfStream ();
+    else
+      m_aMultiDigest.update ((byte) ret);
+    return ret;
+  }
+
+  @Override
+  public int read (final byte [] aBuf, final int nOfs, final int nLen) throws IOException
+  {
+    final int ret = in.read (aBuf, nOfs, nLen);
+    if (ret < 0)
+      _onEndOfStream ();
+    else
+      m_aMultiDigest.update (aBuf, nOfs, ret);
+    return ret;
+  }
+
+  @Override
+  public long skip (final long nBytes) throws IOException
+  {
+    // Skipped bytes must be part of the digest as well
+    final byte [] aBuf = new byte [(int) Math.max (1, Math.min (nBytes, 8192))];
+    long nSkipped = 0;
+    while (nSkipped < nBytes)
+    {
+      final int nRead = read (aBuf, 0, (int) Math.min (aBuf.length, nBytes - nSkipped));
+      if (nRead < 0)
+        break;
+      nSkipped += nRead;
+    }
+    return nSkipped;
+  }
+
+  @Override
+  public boolean markSupported ()
+  {
+    return false;
+  }
+}
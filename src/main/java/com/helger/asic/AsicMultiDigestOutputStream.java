@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.WillCloseWhenClosed;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+
+/**
+ * Output stream that updates all digests of an {@link AsicMultiDigest} with the written content,
+ * similar to {@link java.security.DigestOutputStream} for a single algorithm.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@NotThreadSafe
+public class AsicMultiDigestOutputStream extends FilterOutputStream
+{
+  private final AsicMultiDigest m_aMultiDigest;
+
+  /**
+   * Constructor
+   *
+   * @param aOS
+   *        The stream to write to. May not be <code>null</code>.
+   * @param aMultiDigest
+   *        The digests to update. May not be <code>null</code>.
+   */
+  public AsicMultiDigestOutputStream (@NonNull @WillCloseWhenClosed final OutputStream aOS,
+                                      @NonNull final AsicMultiDigest aMultiDigest)
+  {
+    super (aOS);
+    ValueEnforcer.notNull (aOS, "OS");
+    ValueEnforcer.notNull (aMultiDigest, "MultiDigest");
+    m_aMultiDigest = aMultiDigest;
+  }
+
+  @NonNull
+  public final AsicMultiDigest getMultiDigest ()
+  {
+    return m_aMultiDigest;
+  }
+
+  @Override
+  public void write (final int b) throws IOException
+  {
+    out.write (b);
+    m_aMultiDigest.update ((byte) b);
+  }
+
+  @Override
+  public void write (@NonNull final byte [] aBuf, final int nOfs, final int nLen) throws IOException
+  {
+    out.write (aBuf, nOfs, nLen);
+    m_aMultiDigest.update (aBuf, nOfs, nLen);
+  }
+}
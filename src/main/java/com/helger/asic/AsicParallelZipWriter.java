@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.WillCloseWhenClosed;
+import com.helger.annotation.WillNotClose;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
+
+/**
+ * Alternative to {@link AsicOutputStream} that deflates the entries in chunks on an
+ * {@link ExecutorService}, similar to pigz. Each chunk is deflated independently with the last
+ * 32 KB of the previous chunk as dictionary, and all but the last chunk end with a sync flush, so
+ * that the concatenated chunks form a single valid deflate stream. The chunks are written in the
+ * order they were read, so the result is deterministic. The CRC is calculated on the calling
+ * thread.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@NotThreadSafe
+final class AsicParallelZipWriter implements Closeable
+{
+  /** The default number of uncompressed bytes per chunk */
+  static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+  private static final int DICTIONARY_SIZE = 32 * 1024;
+  private static final byte [] EMPTY = new byte [0];
+
+  private final AsicZipRawWriter m_aRawWriter;
+  private final ExecutorService m_aExecutor;
+  private final int m_nChunkSize;
+  private final int m_nMaxPendingChunks;
+
+  /**
+   * Constructor. Writes the mimetype entry.
+   *
+   * @param aOS
+   *        The stream to write to. Is closed when this writer is closed. May not be
+   *        <code>null</code>.
+   * @param aExecutor
+   *        The executor to deflate the chunks. Is not shut down by this class. May not be
+   *        <code>null</code>.
+   * @param nChunkSize
+   *        The number of uncompressed bytes per chunk. Must be at least 64 KB.
+   * @param nMaxPendingChunks
+   *        The maximum number of chunks that are read but not yet written. Limits the memory
+   *        consumption. Must be &gt; 0.
+   * @throws IOException
+   *         in case of an IO error
+   */
+  AsicParallelZipWriter (@NonNull @WillCloseWhenClosed final OutputStream aOS,
+                         @NonNull final ExecutorService aExecutor,
+                         @Nonnegative final int nChunkSize,
+                         @Nonnegative final int nMaxPendingChunks) throws IOException
+  {
+    ValueEnforcer.notNull (aOS, "OS");
+    ValueEnforcer.notNull (aExecutor, "Executor");
+    ValueEnforcer.isTrue (nChunkSize >= 2 * DICTIONARY_SIZE, () -> "ChunkSize is too small: " + nChunkSize);
+    ValueEnforcer.isGT0 (nMaxPendingChunks, "MaxPendingChunks");
+    m_aRawWriter = new AsicZipRawWriter (aOS, "mimetype=" + AsicUtils.MIMETYPE_ASICE.getAsString ());
+    m_aExecutor = aExecutor;
+    m_nChunkSize = nChunkSize;
+    m_nMaxPendingChunks = nMaxPendingChunks;
+
+    // Must be the first entry and stored
+    m_aRawWriter.writeEntry (AsicInputStream.ZIPENTRY_NAME_MIMETYPE,
+                             ZipEntry.STORED,
+                             AsicUtils.MIMETYPE_ASICE.getAsString ().getBytes (StandardCharsets.ISO_8859_1));
+  }
+
+  /**
+   * Write a small entry that is completely available.
+   *
+   * @param sName
+   *        The entry name. May not be <code>null</code>.
+   * @param nMethod
+   *        {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+   * @param aContent
+   *        The uncompressed content. May not be <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error
+   */
+  void writeEntry (@NonNull final String sName, final int nMethod, @NonNull final byte [] aContent) throws IOException
+  {
+    m_aRawWriter.writeEntry (sName, nMethod, aContent);
+  }
+
+  @NonNull
+  private byte [] _readChunk (@NonNull final InputStream aIS) throws IOException
+  {
+    final byte [] ret = aIS.readNBytes (m_nChunkSize);
+    return ret.length == 0 ? EMPTY : ret;
+  }
+
+  /**
+   * Deflate a single chunk.
+   *
+   * @param aChunk
+   *        The uncompressed chunk
+   * @param aPrevChunk
+   *        The previous chunk, whose end is used as dictionary. <code>null</code> for the first
+   *        chunk.
+   * @param nLevel
+   *        The compression level
+   * @param bLast
+   *        <code>true</code> for the last chunk of the entry
+   * @return The raw deflated data
+   */
+  @NonNull
+  static byte [] deflateChunk (@NonNull final byte [] aChunk,
+                               @Nullable final byte [] aPrevChunk,
+                               final int nLevel,
+                               final boolean bLast)
+  {
+    final Deflater aDeflater = new Deflater (nLevel, true);
+    try
+    {
+      if (aPrevChunk != null)
+        aDeflater.setDictionary (aPrevChunk, aPrevChunk.length - DICTIONARY_SIZE, DICTIONARY_SIZE);
+      aDeflater.setInput (aChunk);
+
+      final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream (aChunk.length / 2 + 64);
+      final byte [] aBuf = new byte [64 * 1024];
+      if (bLast)
+      {
+        aDeflater.finish ();
+        while (!aDeflater.finished ())
+          aBAOS.write (aBuf, 0, aDeflater.deflate (aBuf));
+      }
+      else
+      {
+        // Sync flush ends the chunk on a byte boundary without ending the stream
+        int nLen;
+        do
+        {
+          nLen = aDeflater.deflate (aBuf, 0, aBuf.length, Deflater.SYNC_FLUSH);
+          aBAOS.write (aBuf, 0, nLen);
+        } while (nLen == aBuf.length);
+      }
+      return aBAOS.toByteArray ();
+    }
+    finally
+    {
+      aDeflater.end ();
+    }
+  }
+
+  @Nonnegative
+  private int _writeChunk (@NonNull final Future <byte []> aFuture) throws IOException
+  {
+    try
+    {
+      final byte [] aCompressed = aFuture.get ();
+      m_aRawWriter.writeRawData (aCompressed, 0, aCompressed.length);
+      return aCompressed.length;
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      throw new InterruptedIOException ("Interrupted while deflating");
+    }
+    catch (final ExecutionException ex)
+    {
+      throw new IOException ("Failed to deflate chunk", ex.getCause ());
+    }
+  }
+
+  /**
+   * Write a deflated entry. The content is read and the CRC is calculated on the calling thread,
+   * the compression happens on the executor.
+   *
+   * @param sName
+   *        The entry name. May not be <code>null</code>.
+   * @param aIS
+   *        The content to write. Is read until the end. May not be <code>null</code>.
+   * @param nLevel
+   *        The compression level.
+   * @throws IOException
+   *         in case of an IO error
+   */
+  void writeDeflatedEntry (@NonNull final String sName,
+                           @NonNull @WillNotClose final InputStream aIS,
+                           final int nLevel) throws IOException
+  {
+    m_aRawWriter.startDeflatedEntry (sName);
+
+    final CRC32 aCRC = new CRC32 ();
+    long nSize = 0;
+    long nCompressedSize = 0;
+    final Deque <Future <byte []>> aPending = new ArrayDeque <> ();
+    try
+    {
+      byte [] aPrevChunk = null;
+      byte [] aChunk = _readChunk (aIS);
+      while (true)
+      {
+        // Read ahead to know whether this is the last chunk
+        final byte [] aNextChunk = aChunk.length < m_nChunkSize ? EMPTY : _readChunk (aIS);
+        final boolean bLast = aNextChunk.length == 0;
+
+        aCRC.update (aChunk);
+        nSize += aChunk.length;
+
+        final byte [] aFinalChunk = aChunk;
+        final byte [] aFinalPrevChunk = aPrevChunk;
+        aPending.addLast (m_aExecutor.submit ( () -> deflateChunk (aFinalChunk, aFinalPrevChunk, nLevel, bLast)));
+
+        // Write the finished chunks in order
+        while (aPending.size () >= m_nMaxPendingChunks || (!aPending.isEmpty () && aPending.peekFirst ().isDone ()))
+          nCompressedSize += _writeChunk (aPending.removeFirst ());
+
+        if (bLast)
+          break;
+        aPrevChunk = aChunk;
+        aChunk = aNextChunk;
+      }
+
+      while (!aPending.isEmpty ())
+        nCompressedSize += _writeChunk (aPending.removeFirst ());
+    }
+    finally
+    {
+      // In case of an error
+      for (final Future <byte []> aFuture : aPending)
+        aFuture.cancel (true);
+    }
+
+    m_aRawWriter.endDeflatedEntry (aCRC.getValue (), nCompressedSize, nSize);
+  }
+
+  /**
+   * Write the central directory and close the underlying stream.
+   */
+  public void close () throws IOException
+  {
+    m_aRawWriter.close ();
+  }
+}
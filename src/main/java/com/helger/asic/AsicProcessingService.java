@@ -0,0 +1,576 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.io.stream.StreamHelper;
+
+/**
+ * Processes many ASiC containers at once. Read, verify and write jobs are put into a queue and at
+ * most a fixed number of them is running at the same time on the provided executor. Submitting
+ * never blocks. Each job returns a {@link CompletableFuture} and the service keeps throughput and
+ * latency statistics.
+ * <p>
+ * All jobs use the same reader, verifier and writer factory, which must not be modified after this
+ * service was created. The JAXB contexts, the signer certificate cache of
+ * {@link SignatureVerifier} and an optional {@link ISignatureVerificationCache} are static and
+ * therefore shared by all jobs anyway. Waiting for a free slot happens in the queue and not on a
+ * thread, and no monitor locks are held while a job is running, so the executor may use virtual
+ * threads - see {@link #newDefaultExecutor()}.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@ThreadSafe
+public class AsicProcessingService
+{
+  /**
+   * A single job.
+   *
+   * @param <T>
+   *        The result type
+   */
+  @FunctionalInterface
+  public interface IAsicJob <T>
+  {
+    T process () throws IOException;
+  }
+
+  /**
+   * Callback for reading a container.
+   */
+  @FunctionalInterface
+  public interface IAsicReaderCallback
+  {
+    void handle (@NonNull IAsicReader aReader) throws IOException;
+  }
+
+  /**
+   * Callback for adding the content of a new container.
+   */
+  @FunctionalInterface
+  public interface IAsicWriterCallback
+  {
+    void handle (@NonNull IAsicWriter aWriter) throws IOException;
+  }
+
+  /**
+   * A snapshot of the statistics of a service.
+   *
+   * @author Philip Helger
+   */
+  @Immutable
+  public static final class Statistics
+  {
+    private final long m_nSubmitted;
+    private final int m_nQueued;
+    private final int m_nRunning;
+    private final long m_nSucceeded;
+    private final long m_nFailed;
+    private final long m_nTotalLatencyNanos;
+    private final long m_nMaxLatencyNanos;
+    private final long m_nTotalProcessingNanos;
+    private final long m_nElapsedNanos;
+
+    Statistics (final long nSubmitted,
+                final int nQueued,
+                final int nRunning,
+                final long nSucceeded,
+                final long nFailed,
+                final long nTotalLatencyNanos,
+                final long nMaxLatencyNanos,
+                final long nTotalProcessingNanos,
+                final long nElapsedNanos)
+    {
+      m_nSubmitted = nSubmitted;
+      m_nQueued = nQueued;
+      m_nRunning = nRunning;
+      m_nSucceeded = nSucceeded;
+      m_nFailed = nFailed;
+      m_nTotalLatencyNanos = nTotalLatencyNanos;
+      m_nMaxLatencyNanos = nMaxLatencyNanos;
+      m_nTotalProcessingNanos = nTotalProcessingNanos;
+      m_nElapsedNanos = nElapsedNanos;
+    }
+
+    /**
+     * @return The number of jobs submitted so far.
+     */
+    @Nonnegative
+    public long getSubmittedCount ()
+    {
+      return m_nSubmitted;
+    }
+
+    /**
+     * @return The number of jobs waiting for a free slot.
+     */
+    @Nonnegative
+    public int getQueuedCount ()
+    {
+      return m_nQueued;
+    }
+
+    /**
+     * @return The number of jobs currently running.
+     */
+    @Nonnegative
+    public int getRunningCount ()
+    {
+      return m_nRunning;
+    }
+
+    /**
+     * @return The number of jobs that completed normally. A verification job with an unsuccessful
+     *         report is also counted here.
+     */
+    @Nonnegative
+    public long getSucceededCount ()
+    {
+      return m_nSucceeded;
+    }
+
+    /**
+     * @return The number of jobs that completed with an exception.
+     */
+    @Nonnegative
+    public long getFailedCount ()
+    {
+      return m_nFailed;
+    }
+
+    /**
+     * @return The number of finished jobs.
+     */
+    @Nonnegative
+    public long getFinishedCount ()
+    {
+      return m_nSucceeded + m_nFailed;
+    }
+
+    /**
+     * @return The average time from submission until a job finished, including the time in the
+     *         queue, in milliseconds. 0 if no job finished yet.
+     */
+    @Nonnegative
+    public double getAverageLatencyMillis ()
+    {
+      final long nFinished = getFinishedCount ();
+      return nFinished == 0 ? 0 : m_nTotalLatencyNanos / 1_000_000d / nFinished;
+    }
+
+    /**
+     * @return The maximum time from submission until a job finished in milliseconds.
+     */
+    @Nonnegative
+    public double getMaxLatencyMillis ()
+    {
+      return m_nMaxLatencyNanos / 1_000_000d;
+    }
+
+    /**
+     * @return The average time a job was running, in milliseconds. 0 if no job finished yet.
+     */
+    @Nonnegative
+    public double getAverageProcessingMillis ()
+    {
+      final long nFinished = getFinishedCount ();
+      return nFinished == 0 ? 0 : m_nTotalProcessingNanos / 1_000_000d / nFinished;
+    }
+
+    /**
+     * @return The number of finished jobs per second since the service was created.
+     */
+    @Nonnegative
+    public double getThroughputPerSecond ()
+    {
+      return m_nElapsedNanos <= 0 ? 0 : getFinishedCount () * 1_000_000_000d / m_nElapsedNanos;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return "submitted=" +
+             m_nSubmitted +
+             "; queued=" +
+             m_nQueued +
+             "; running=" +
+             m_nRunning +
+             "; succeeded=" +
+             m_nSucceeded +
+             "; failed=" +
+             m_nFailed +
+             "; avgLatencyMillis=" +
+             getAverageLatencyMillis () +
+             "; maxLatencyMillis=" +
+             getMaxLatencyMillis () +
+             "; avgProcessingMillis=" +
+             getAverageProcessingMillis () +
+             "; throughputPerSecond=" +
+             getThroughputPerSecond ();
+    }
+  }
+
+  /**
+   * A job in the queue.
+   */
+  private final class QueuedJob <T> implements Runnable
+  {
+    private final IAsicJob <T> m_aJob;
+    private final CompletableFuture <T> m_aFuture = new CompletableFuture <> ();
+    private final long m_nSubmitNanos = System.nanoTime ();
+
+    QueuedJob (@NonNull final IAsicJob <T> aJob)
+    {
+      m_aJob = aJob;
+    }
+
+    public void run ()
+    {
+      final long nStartNanos = System.nanoTime ();
+      T aResult = null;
+      Throwable aError = null;
+      boolean bSuccess = false;
+      try
+      {
+        aResult = m_aJob.process ();
+        bSuccess = true;
+      }
+      catch (final IOException ex)
+      {
+        aError = new UncheckedIOException (ex);
+      }
+      catch (final Throwable t)
+      {
+        // Including errors - the caller must never wait forever
+        aError = t;
+      }
+
+      // Always free the slot - the statistics are updated before the future is completed
+      _recordFinished (m_nSubmitNanos, nStartNanos, System.nanoTime (), bSuccess);
+      _dispatch ();
+
+      if (aError != null)
+        m_aFuture.completeExceptionally (aError);
+      else
+        m_aFuture.complete (aResult);
+    }
+  }
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (AsicProcessingService.class);
+
+  private final AsicReaderFactory m_aReaderFactory;
+  private final AsicVerifierFactory m_aVerifierFactory;
+  private final AsicWriterFactory m_aWriterFactory;
+  private final ExecutorService m_aExecutor;
+  private final int m_nMaxConcurrency;
+
+  private final Lock m_aLock = new ReentrantLock ();
+  private final Queue <QueuedJob <?>> m_aQueue = new ArrayDeque <> ();
+  private int m_nRunning = 0;
+
+  private final long m_nCreationNanos = System.nanoTime ();
+  private final AtomicLong m_aSubmitted = new AtomicLong ();
+  private final AtomicLong m_aSucceeded = new AtomicLong ();
+  private final AtomicLong m_aFailed = new AtomicLong ();
+  private final AtomicLong m_aTotalLatencyNanos = new AtomicLong ();
+  private final AtomicLong m_aMaxLatencyNanos = new AtomicLong ();
+  private final AtomicLong m_aTotalProcessingNanos = new AtomicLong ();
+
+  /**
+   * Constructor
+   *
+   * @param aReaderFactory
+   *        The factory for read jobs. May not be <code>null</code>.
+   * @param aVerifierFactory
+   *        The factory for verify jobs. May not be <code>null</code>.
+   * @param aWriterFactory
+   *        The factory for write jobs. May not be <code>null</code>.
+   * @param aExecutor
+   *        The executor to run the jobs on. It is not shut down by this class. May not be
+   *        <code>null</code>.
+   * @param nMaxConcurrency
+   *        The maximum number of jobs running at the same time. Must be &gt; 0.
+   */
+  public AsicProcessingService (@NonNull final AsicReaderFactory aReaderFactory,
+                                @NonNull final AsicVerifierFactory aVerifierFactory,
+                                @NonNull final AsicWriterFactory aWriterFactory,
+                                @NonNull final ExecutorService aExecutor,
+                                @Nonnegative final int nMaxConcurrency)
+  {
+    ValueEnforcer.notNull (aReaderFactory, "ReaderFactory");
+    ValueEnforcer.notNull (aVerifierFactory, "VerifierFactory");
+    ValueEnforcer.notNull (aWriterFactory, "WriterFactory");
+    ValueEnforcer.notNull (aExecutor, "Executor");
+    ValueEnforcer.isGT0 (nMaxConcurrency, "MaxConcurrency");
+    m_aReaderFactory = aReaderFactory;
+    m_aVerifierFactory = aVerifierFactory;
+    m_aWriterFactory = aWriterFactory;
+    m_aExecutor = aExecutor;
+    m_nMaxConcurrency = nMaxConcurrency;
+  }
+
+  /**
+   * Create an executor that starts a new virtual thread for each job, if the runtime supports
+   * virtual threads (Java 21 and later). Otherwise a cached thread pool is returned. The caller is
+   * responsible for shutting down the executor.
+   *
+   * @return A new executor. Never <code>null</code>.
+   */
+  @NonNull
+  public static ExecutorService newDefaultExecutor ()
+  {
+    try
+    {
+      // Resolved at runtime, as this library is compiled for Java 17
+      return (ExecutorService) Executors.class.getMethod ("newVirtualThreadPerTaskExecutor").invoke (null);
+    }
+    catch (final ReflectiveOperationException ex)
+    {
+      LOGGER.info ("Virtual threads are not available - using a cached thread pool");
+      return Executors.newCachedThreadPool ();
+    }
+  }
+
+  /**
+   * @return The maximum number of jobs running at the same time. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getMaxConcurrency ()
+  {
+    return m_nMaxConcurrency;
+  }
+
+  /**
+   * Update the statistics and free the slot of a finished job. Queued jobs are not started.
+   */
+  private void _recordFinished (final long nSubmitNanos,
+                                final long nStartNanos,
+                                final long nEndNanos,
+                                final boolean bSuccess)
+  {
+    final long nLatencyNanos = nEndNanos - nSubmitNanos;
+    m_aTotalLatencyNanos.addAndGet (nLatencyNanos);
+    m_aMaxLatencyNanos.accumulateAndGet (nLatencyNanos, Math::max);
+    m_aTotalProcessingNanos.addAndGet (nEndNanos - nStartNanos);
+    (bSuccess ? m_aSucceeded : m_aFailed).incrementAndGet ();
+
+    m_aLock.lock ();
+    try
+    {
+      m_nRunning--;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  /**
+   * Start queued jobs, as long as the maximum concurrency is not reached.
+   */
+  private void _dispatch ()
+  {
+    while (true)
+    {
+      final QueuedJob <?> aJob;
+      m_aLock.lock ();
+      try
+      {
+        if (m_nRunning >= m_nMaxConcurrency)
+          return;
+        aJob = m_aQueue.poll ();
+        if (aJob == null)
+          return;
+        m_nRunning++;
+      }
+      finally
+      {
+        m_aLock.unlock ();
+      }
+
+      try
+      {
+        m_aExecutor.execute (aJob);
+      }
+      catch (final RejectedExecutionException ex)
+      {
+        // Continue with the next job, which most likely fails the same way
+        final long nNowNanos = System.nanoTime ();
+        _recordFinished (aJob.m_nSubmitNanos, nNowNanos, nNowNanos, false);
+        aJob.m_aFuture.completeExceptionally (ex);
+      }
+    }
+  }
+
+  /**
+   * Submit a generic job, e.g. one that uses the factories in a different way.
+   *
+   * @param <T>
+   *        The result type
+   * @param aJob
+   *        The job to run. May not be <code>null</code>.
+   * @return A future that is completed with the result of the job. If the job fails, it is
+   *         completed exceptionally with the causing exception, where an {@link IOException} is
+   *         wrapped in an {@link UncheckedIOException}. Never <code>null</code>.
+   */
+  @NonNull
+  public <T> CompletableFuture <T> submit (@NonNull final IAsicJob <T> aJob)
+  {
+    ValueEnforcer.notNull (aJob, "Job");
+
+    final QueuedJob <T> aQueuedJob = new QueuedJob <> (aJob);
+    m_aSubmitted.incrementAndGet ();
+    m_aLock.lock ();
+    try
+    {
+      m_aQueue.add (aQueuedJob);
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+    _dispatch ();
+    return aQueuedJob.m_aFuture;
+  }
+
+  /**
+   * Submit a job that opens the provided container with the reader factory and passes the reader
+   * to the callback. The reader is closed afterwards.
+   *
+   * @param aFile
+   *        The container to read. May not be <code>null</code>.
+   * @param aCallback
+   *        The callback to read the content. May not be <code>null</code>.
+   * @return A future that is completed when the container was read. Never <code>null</code>.
+   * @see #submit(IAsicJob)
+   */
+  @NonNull
+  public CompletableFuture <Void> submitRead (@NonNull final Path aFile, @NonNull final IAsicReaderCallback aCallback)
+  {
+    ValueEnforcer.notNull (aFile, "File");
+    ValueEnforcer.notNull (aCallback, "Callback");
+    return submit ( () -> {
+      try (final IAsicReader aReader = m_aReaderFactory.open (aFile))
+      {
+        aCallback.handle (aReader);
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Submit a job that verifies the provided container via
+   * {@link AsicVerifierFactory#verifyStreaming(Path)}.
+   *
+   * @param aFile
+   *        The container to verify. May not be <code>null</code>.
+   * @return A future that is completed with the verification report. Never <code>null</code>.
+   * @see #submit(IAsicJob)
+   */
+  @NonNull
+  public CompletableFuture <AsicVerificationReport> submitVerify (@NonNull final Path aFile)
+  {
+    ValueEnforcer.notNull (aFile, "File");
+    return submit ( () -> m_aVerifierFactory.verifyStreaming (aFile));
+  }
+
+  /**
+   * Submit a job that creates a new container with the writer factory, lets the callback add the
+   * content and signs the container.
+   *
+   * @param aFile
+   *        The container file to create. May not be <code>null</code>.
+   * @param aCallback
+   *        The callback to add the content. May not be <code>null</code>.
+   * @param aSH
+   *        The signature helper to sign with. May not be <code>null</code>.
+   * @return A future that is completed when the container was written. Never <code>null</code>.
+   * @see #submit(IAsicJob)
+   */
+  @NonNull
+  public CompletableFuture <Void> submitWrite (@NonNull final Path aFile,
+                                               @NonNull final IAsicWriterCallback aCallback,
+                                               @NonNull final SignatureHelper aSH)
+  {
+    ValueEnforcer.notNull (aFile, "File");
+    ValueEnforcer.notNull (aCallback, "Callback");
+    ValueEnforcer.notNull (aSH, "SH");
+    return submit ( () -> {
+      final OutputStream aOS = Files.newOutputStream (aFile);
+      try
+      {
+        final IAsicWriter aWriter = m_aWriterFactory.newContainer (aOS, true);
+        aCallback.handle (aWriter);
+        aWriter.sign (aSH);
+      }
+      catch (final IOException | RuntimeException ex)
+      {
+        // Closed by sign otherwise
+        StreamHelper.close (aOS);
+        throw ex;
+      }
+      return null;
+    });
+  }
+
+  /**
+   * @return A snapshot of the current statistics. Never <code>null</code>.
+   */
+  @NonNull
+  public Statistics getStatistics ()
+  {
+    final int nQueued;
+    final int nRunning;
+    m_aLock.lock ();
+    try
+    {
+      nQueued = m_aQueue.size ();
+      nRunning = m_nRunning;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+    return new Statistics (m_aSubmitted.get (),
+                           nQueued,
+                           nRunning,
+                           m_aSucceeded.get (),
+                           m_aFailed.get (),
+                           m_aTotalLatencyNanos.get (),
+                           m_aMaxLatencyNanos.get (),
+                           m_aTotalProcessingNanos.get (),
+                           System.nanoTime () - m_nCreationNanos);
+  }
+}
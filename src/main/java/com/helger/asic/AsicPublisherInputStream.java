@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+
+/**
+ * {@link InputStream} that subscribes to a {@link Flow.Publisher} of {@link ByteBuffer} chunks. At
+ * most a fixed number of chunks is requested ahead, and a new chunk is requested whenever a chunk
+ * was consumed, so that the publisher is never asked for more than can be buffered. The subscriber
+ * callbacks never block. The published buffers are used without copying and must not be modified
+ * afterwards. Only {@link #abort()} may be called from a different thread than the reading one.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@NotThreadSafe
+final class AsicPublisherInputStream extends InputStream implements Flow.Subscriber <ByteBuffer>
+{
+  /** The default number of chunks requested ahead */
+  static final int DEFAULT_PREFETCH = 16;
+
+  private static final Object END = new Object ();
+
+  private final int m_nPrefetch;
+  // Room for all requested chunks plus the terminal signal
+  private final BlockingQueue <Object> m_aQueue;
+  // Subscription calls must be serialized, as abort may be called concurrently
+  private final Lock m_aSubscriptionLock = new ReentrantLock ();
+  private Subscription m_aSubscription;
+  private boolean m_bAborted = false;
+  private ByteBuffer m_aCurrent;
+  private boolean m_bEnd = false;
+
+  AsicPublisherInputStream (@Nonnegative final int nPrefetch)
+  {
+    ValueEnforcer.isGT0 (nPrefetch, "Prefetch");
+    m_nPrefetch = nPrefetch;
+    m_aQueue = new ArrayBlockingQueue <> (nPrefetch + 1);
+  }
+
+  public void onSubscribe (@NonNull final Subscription aSubscription)
+  {
+    m_aSubscriptionLock.lock ();
+    try
+    {
+      if (m_aSubscription != null || m_bAborted)
+      {
+        // Only one subscription is allowed
+        aSubscription.cancel ();
+        return;
+      }
+      m_aSubscription = aSubscription;
+      aSubscription.request (m_nPrefetch);
+    }
+    finally
+    {
+      m_aSubscriptionLock.unlock ();
+    }
+  }
+
+  public void onNext (@NonNull final ByteBuffer aItem)
+  {
+    if (!m_aQueue.offer (aItem))
+      onError (new IllegalStateException ("The publisher sent more chunks than requested"));
+  }
+
+  public void onError (@NonNull final Throwable t)
+  {
+    m_aQueue.offer (t);
+  }
+
+  public void onComplete ()
+  {
+    m_aQueue.offer (END);
+  }
+
+  /**
+   * @return <code>false</code> if the end of the stream was reached, <code>true</code> if
+   *         {@link #m_aCurrent} has remaining bytes.
+   */
+  private boolean _ensureCurrent () throws IOException
+  {
+    while (!m_bEnd && (m_aCurrent == null || !m_aCurrent.hasRemaining ()))
+    {
+      final Object aNext;
+      try
+      {
+        aNext = m_aQueue.take ();
+      }
+      catch (final InterruptedException ex)
+      {
+        Thread.currentThread ().interrupt ();
+        throw new InterruptedIOException ("Interrupted while waiting for the next chunk");
+      }
+
+      if (aNext == END)
+        m_bEnd = true;
+      else
+        if (aNext instanceof Throwable)
+        {
+          m_bEnd = true;
+          throw new IOException ("The publisher failed", (Throwable) aNext);
+        }
+        else
+        {
+          m_aCurrent = (ByteBuffer) aNext;
+          _requestNext ();
+        }
+    }
+    return !m_bEnd;
+  }
+
+  @Override
+  public int read () throws IOException
+  {
+    return _ensureCurrent () ? m_aCurrent.get () & 0xff : -1;
+  }
+
+  @Override
+  public int read (final byte [] aBuf, final int nOfs, final int nLen) throws IOException
+  {
+    if (nLen == 0)
+      return 0;
+    if (!_ensureCurrent ())
+      return -1;
+
+    final int ret = Math.min (nLen, m_aCurrent.remaining ());
+    m_aCurrent.get (aBuf, nOfs, ret);
+    return ret;
+  }
+
+  @Override
+  public int available ()
+  {
+    return m_aCurrent == null ? 0 : m_aCurrent.remaining ();
+  }
+
+  private void _requestNext ()
+  {
+    m_aSubscriptionLock.lock ();
+    try
+    {
+      if (!m_bAborted)
+        m_aSubscription.request (1);
+    }
+    finally
+    {
+      m_aSubscriptionLock.unlock ();
+    }
+  }
+
+  /**
+   * Cancel the subscription, if the end of the stream was not reached.
+   */
+  @Override
+  public void close ()
+  {
+    if (!m_bEnd)
+    {
+      m_bEnd = true;
+      abort ();
+    }
+  }
+
+  /**
+   * Cancel the subscription immediately and unblock a pending read, which then reports the end of
+   * the stream. May be called from any thread, also before the subscription.
+   */
+  void abort ()
+  {
+    m_aSubscriptionLock.lock ();
+    try
+    {
+      if (m_bAborted)
+        return;
+      m_bAborted = true;
+      if (m_aSubscription != null)
+        m_aSubscription.cancel ();
+    }
+    finally
+    {
+      m_aSubscriptionLock.unlock ();
+    }
+    // Only fails if a terminal signal is already queued, so that the reader ends anyway
+    m_aQueue.offer (END);
+  }
+}
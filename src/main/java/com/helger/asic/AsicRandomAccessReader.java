@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.WillCloseWhenClosed;
+import com.helger.annotation.WillNotClose;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.io.stream.StreamHelper;
+import com.helger.collection.commons.ICommonsList;
+
+/**
+ * ASiC reader based on the central directory of a file, using {@link ZipFile}. All META-INF entries
+ * (manifests and signatures) are read and verified when the reader is created, so that the
+ * {@link #getAsicManifest() ASiC manifest} is available immediately, and each payload entry can be
+ * accessed directly by name without reading the entries before it. Sequential access via
+ * {@link #getNextFile()} is supported as well and returns the payload entries in the order of the
+ * central directory.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@NotThreadSafe
+public class AsicRandomAccessReader extends AbstractAsicReader implements IAsicReader
+{
+  private final AsicZipFileEntrySource m_aSource;
+
+  protected AsicRandomAccessReader (@NonNull final EMessageDigestAlgorithm eMDAlgo,
+                                    @Nullable final Iterable <EMessageDigestAlgorithm> aAdditionalMDAlgos,
+                                    @NonNull @WillCloseWhenClosed final ZipFile aZipFile) throws IOException
+  {
+    this (eMDAlgo, aAdditionalMDAlgos, new AsicZipFileEntrySource (aZipFile));
+  }
+
+  private AsicRandomAccessReader (@NonNull final EMessageDigestAlgorithm eMDAlgo,
+                                  @Nullable final Iterable <EMessageDigestAlgorithm> aAdditionalMDAlgos,
+                                  @NonNull @WillCloseWhenClosed final AsicZipFileEntrySource aSource) throws IOException
+  {
+    super (eMDAlgo, aAdditionalMDAlgos, aSource);
+    m_aSource = aSource;
+
+    // Read all manifests and signatures before any payload
+    aSource.handleAllMetadataEntries (this);
+  }
+
+  @Override
+  public void writeFile (@NonNull final OutputStream aOS) throws IOException
+  {
+    super.internalWriteFile (aOS);
+  }
+
+  @Override
+  @NonNull
+  public InputStream inputStream ()
+  {
+    return super.internalInputStream ();
+  }
+
+  /**
+   * @return The names of all payload entries in the order of the central directory. Never
+   *         <code>null</code> but maybe empty.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <String> getAllEntryNames ()
+  {
+    return m_aSource.getAllPayloadEntries ().getAllMapped (ZipEntry::getName);
+  }
+
+  /**
+   * Check if a payload entry with the provided name is contained.
+   *
+   * @param sFilename
+   *        The name of the entry to check. May be <code>null</code>.
+   * @return <code>true</code> if such an entry is present, <code>false</code> if not.
+   */
+  public boolean containsEntry (@Nullable final String sFilename)
+  {
+    return m_aSource.getPayloadEntry (sFilename) != null;
+  }
+
+  /**
+   * Open a payload entry directly, without reading any other payload entry. The digest of the entry
+   * is verified against the manifests, when the end of the returned stream is reached. In case of a
+   * mismatch an {@link IllegalStateException} is thrown from the read method. The caller is
+   * responsible for closing the returned stream.
+   *
+   * @param sFilename
+   *        The name of the entry to open. May not be <code>null</code>.
+   * @return The stream to read the entry content from. Never <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error
+   * @throws IllegalStateException
+   *         if no such entry is contained or the entry is not listed in any manifest
+   */
+  @NonNull
+  public InputStream openEntry (@NonNull final String sFilename) throws IOException
+  {
+    ValueEnforcer.notNull (sFilename, "Filename");
+
+    final ZipEntry aEntry = m_aSource.getPayloadEntry (sFilename);
+    if (aEntry == null)
+      throw new IllegalStateException ("ASiC contains no file '" + sFilename + "'");
+    // All manifests are known - an unlisted entry can never be verified
+    internalVerifyEntryListed (sFilename);
+
+    return new AsicMultiDigestInputStream (m_aSource.openPayloadEntry (aEntry),
+                                           internalCreateMultiDigest (sFilename),
+                                           aDigests -> internalVerifyEntryDigest (sFilename, aDigests));
+  }
+
+  /**
+   * Write the content of a payload entry to the provided output stream, without reading any other
+   * payload entry. The digest of the entry is verified against the manifests.
+   *
+   * @param sFilename
+   *        The name of the entry to write. May not be <code>null</code>.
+   * @param aOS
+   *        The stream to write to. May not be <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error
+   * @throws IllegalStateException
+   *         if no such entry is contained or the digest does not match
+   */
+  public void writeEntry (@NonNull final String sFilename, @NonNull @WillNotClose final OutputStream aOS) throws IOException
+  {
+    ValueEnforcer.notNull (aOS, "OS");
+
+    final InputStream aIS = openEntry (sFilename);
+    try
+    {
+      // Don't swallow errors - a truncated entry would not be verified
+      aIS.transferTo (aOS);
+    }
+    finally
+    {
+      StreamHelper.close (aIS);
+    }
+  }
+
+  /**
+   * Verify the digests of all payload entries, by inflating and digesting the entries concurrently
+   * on the provided executor. On Java 21 and later
+   * <code>Executors.newVirtualThreadPerTaskExecutor ()</code> may be used. Afterwards it is ensured,
+   * that all files listed in the manifests are present and verified.
+   *
+   * @param aExecutor
+   *        The executor service to run the digest calculation on. It is not shut down by this
+   *        method. May not be <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error or if the current thread is interrupted
+   * @throws IllegalStateException
+   *         if the verification failed
+   */
+  public void verifyAllEntries (@NonNull final ExecutorService aExecutor) throws IOException
+  {
+    ValueEnforcer.notNull (aExecutor, "Executor");
+    internalVerifyAllEntriesParallel (m_aSource, aExecutor);
+  }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.collection.commons.ICommonsOrderedSet;
+
+/**
+ * Publisher of the {@link AsicEntryEvent}s of a container, that is itself published as
+ * {@link ByteBuffer} chunks. The local file headers are parsed and the entries are inflated and
+ * digested while the chunks arrive. The input is only requested as fast as it is processed, and the
+ * processing waits for the demand of the subscriber. Only a single subscriber is supported.
+ * <p>
+ * The processing reads the input as a blocking stream on the provided executor, which must therefore
+ * allow blocking operations.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@ThreadSafe
+final class AsicReactiveVerifier implements Publisher <AsicEntryEvent>
+{
+  /**
+   * The subscription of the single subscriber, which also emits the events.
+   */
+  private final class EventSubscription implements Subscription
+  {
+    private final Subscriber <? super AsicEntryEvent> m_aSubscriber;
+    private final Lock m_aLock = new ReentrantLock ();
+    private final Condition m_aDemandChanged = m_aLock.newCondition ();
+    private long m_nDemand = 0;
+    private boolean m_bCancelled = false;
+    private IllegalArgumentException m_aInvalidRequest;
+    // The input of the running processing, to be aborted on termination
+    private AsicPublisherInputStream m_aInput;
+
+    EventSubscription (@NonNull final Subscriber <? super AsicEntryEvent> aSubscriber)
+    {
+      m_aSubscriber = aSubscriber;
+    }
+
+    public void request (final long n)
+    {
+      AsicPublisherInputStream aInputToAbort = null;
+      m_aLock.lock ();
+      try
+      {
+        if (n <= 0)
+        {
+          // Reported by the emitting thread
+          if (m_aInvalidRequest == null)
+          {
+            m_aInvalidRequest = new IllegalArgumentException ("The number of requested events must be positive: " + n);
+            aInputToAbort = m_aInput;
+          }
+        }
+        else
+        {
+          // Saturate on overflow
+          m_nDemand = m_nDemand + n < 0 ? Long.MAX_VALUE : m_nDemand + n;
+        }
+        m_aDemandChanged.signalAll ();
+      }
+      finally
+      {
+        m_aLock.unlock ();
+      }
+      if (aInputToAbort != null)
+        aInputToAbort.abort ();
+    }
+
+    public void cancel ()
+    {
+      final AsicPublisherInputStream aInput;
+      m_aLock.lock ();
+      try
+      {
+        m_bCancelled = true;
+        m_aDemandChanged.signalAll ();
+        aInput = m_aInput;
+      }
+      finally
+      {
+        m_aLock.unlock ();
+      }
+      // Don't wait until the processing emits the next event - the input may stall
+      if (aInput != null)
+        aInput.abort ();
+    }
+
+    private boolean _isTerminated ()
+    {
+      return m_bCancelled || m_aInvalidRequest != null;
+    }
+
+    /**
+     * Wait for demand and emit the event.
+     *
+     * @throws CancellationException
+     *         if the subscription was cancelled or the subscriber requested an invalid number of
+     *         events
+     */
+    void emit (@NonNull final AsicEntryEvent aEvent)
+    {
+      m_aLock.lock ();
+      try
+      {
+        while (m_nDemand == 0 && !_isTerminated ())
+          m_aDemandChanged.awaitUninterruptibly ();
+        if (_isTerminated ())
+          throw new CancellationException ("The subscription was terminated");
+        m_nDemand--;
+      }
+      finally
+      {
+        m_aLock.unlock ();
+      }
+      m_aSubscriber.onNext (aEvent);
+    }
+
+    /**
+     * Signal the end of the processing to the subscriber, unless it cancelled.
+     *
+     * @param aError
+     *        The processing error. May be <code>null</code>.
+     */
+    void finish (@Nullable final Throwable aError)
+    {
+      final IllegalArgumentException aInvalidRequest;
+      m_aLock.lock ();
+      try
+      {
+        if (m_bCancelled)
+          return;
+        aInvalidRequest = m_aInvalidRequest;
+      }
+      finally
+      {
+        m_aLock.unlock ();
+      }
+
+      if (aInvalidRequest != null)
+        m_aSubscriber.onError (aInvalidRequest);
+      else
+        if (aError != null)
+          m_aSubscriber.onError (aError);
+        else
+          m_aSubscriber.onComplete ();
+    }
+
+    void run ()
+    {
+      try (final AsicPublisherInputStream aIS = new AsicPublisherInputStream (AsicPublisherInputStream.DEFAULT_PREFETCH))
+      {
+        m_aLock.lock ();
+        try
+        {
+          m_aInput = aIS;
+        }
+        finally
+        {
+          m_aLock.unlock ();
+        }
+        // Terminated before the input was known
+        if (_isTerminatedLocked ())
+          aIS.abort ();
+        m_aSource.subscribe (aIS);
+        final AsicVerificationReport aReport = new AsicStreamingVerifier (m_eMDAlgo,
+                                                                          m_aAdditionalMDAlgos,
+                                                                          new AsicInputStream (aIS)).verify (AsicStreamingVerifier.DEFAULT_BUFFER_SIZE,
+                                                                                                             this::emit);
+        // A cancellation inside the verification is reported as an error message
+        if (!_isTerminatedLocked ())
+          emit (AsicEntryEvent.createComplete (aReport));
+        finish (null);
+      }
+      catch (final CancellationException ex)
+      {
+        finish (null);
+      }
+      catch (final Exception ex)
+      {
+        finish (ex);
+      }
+    }
+
+    private boolean _isTerminatedLocked ()
+    {
+      m_aLock.lock ();
+      try
+      {
+        return _isTerminated ();
+      }
+      finally
+      {
+        m_aLock.unlock ();
+      }
+    }
+  }
+
+  /** Subscription for rejected subscribers */
+  private static final Subscription NO_SUBSCRIPTION = new Subscription ()
+  {
+    public void request (final long n)
+    {}
+
+    public void cancel ()
+    {}
+  };
+
+  private final EMessageDigestAlgorithm m_eMDAlgo;
+  private final ICommonsOrderedSet <EMessageDigestAlgorithm> m_aAdditionalMDAlgos;
+  private final Publisher <ByteBuffer> m_aSource;
+  private final Executor m_aExecutor;
+  private final AtomicBoolean m_aSubscribed = new AtomicBoolean (false);
+
+  AsicReactiveVerifier (@NonNull final EMessageDigestAlgorithm eMDAlgo,
+                        @Nullable final ICommonsOrderedSet <EMessageDigestAlgorithm> aAdditionalMDAlgos,
+                        @NonNull final Publisher <ByteBuffer> aSource,
+                        @NonNull final Executor aExecutor)
+  {
+    ValueEnforcer.notNull (eMDAlgo, "MDAlgo");
+    ValueEnforcer.notNull (aSource, "Source");
+    ValueEnforcer.notNull (aExecutor, "Executor");
+    m_eMDAlgo = eMDAlgo;
+    m_aAdditionalMDAlgos = aAdditionalMDAlgos;
+    m_aSource = aSource;
+    m_aExecutor = aExecutor;
+  }
+
+  public void subscribe (@NonNull final Subscriber <? super AsicEntryEvent> aSubscriber)
+  {
+    ValueEnforcer.notNull (aSubscriber, "Subscriber");
+    if (!m_aSubscribed.compareAndSet (false, true))
+    {
+      aSubscriber.onSubscribe (NO_SUBSCRIPTION);
+      aSubscriber.onError (new IllegalStateException ("Only a single subscriber is supported"));
+      return;
+    }
+
+    final EventSubscription aSubscription = new EventSubscription (aSubscriber);
+    aSubscriber.onSubscribe (aSubscription);
+    try
+    {
+      m_aExecutor.execute (aSubscription::run);
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      aSubscription.finish (ex);
+    }
+  }
+}
@@ -14,20 +14,180 @@ package com.helger.asic;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.zip.ZipFile;
 
 import org.jspecify.annotations.NonNull;
 
+import com.helger.annotation.WillCloseWhenClosed;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.io.stream.StreamHelper;
+import com.helger.collection.commons.CommonsLinkedHashSet;
+import com.helger.collection.commons.ICommonsOrderedSet;
+
 public class AsicReaderFactory
 {
+  public static final boolean DEFAULT_RANDOM_ACCESS = false;
+  public static final boolean DEFAULT_METADATA_FIRST = false;
+  public static final boolean DEFAULT_ACCEPT_ANY_MD_ALGO = false;
+
   private final EMessageDigestAlgorithm m_eMDAlgo;
+  private final ICommonsOrderedSet <EMessageDigestAlgorithm> m_aAdditionalMDAlgos = new CommonsLinkedHashSet <> ();
+  private boolean m_bRandomAccess = DEFAULT_RANDOM_ACCESS;
+  private boolean m_bMetadataFirst = DEFAULT_METADATA_FIRST;
+  private boolean m_bAcceptAnyMDAlgo = DEFAULT_ACCEPT_ANY_MD_ALGO;
 
   protected AsicReaderFactory (@NonNull final EMessageDigestAlgorithm eMDAlgo)
   {
     m_eMDAlgo = eMDAlgo;
   }
 
+  /**
+   * @return A copy of all additional message digest algorithms that are accepted in manifests,
+   *         besides the primary one. Never <code>null</code> but maybe empty.
+   * @since 4.1.1
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public final ICommonsOrderedSet <EMessageDigestAlgorithm> getAllAdditionalMDAlgos ()
+  {
+    return m_aAdditionalMDAlgos.getClone ();
+  }
+
+  /**
+   * Add an additional message digest algorithm that is accepted in manifests, e.g. during the
+   * migration from one algorithm to another. The content of each entry is digested with all
+   * algorithms in a single pass.
+   *
+   * @param eMDAlgo
+   *        The algorithm to add. May not be <code>null</code>.
+   * @return this for chaining
+   * @since 4.1.1
+   */
+  @NonNull
+  public final AsicReaderFactory addAdditionalMDAlgo (@NonNull final EMessageDigestAlgorithm eMDAlgo)
+  {
+    ValueEnforcer.notNull (eMDAlgo, "MDAlgo");
+    if (eMDAlgo != m_eMDAlgo)
+      m_aAdditionalMDAlgos.add (eMDAlgo);
+    return this;
+  }
+
+  /**
+   * Remove all additional message digest algorithms, so that only the primary one is accepted.
+   *
+   * @return this for chaining
+   * @since 4.1.1
+   */
+  @NonNull
+  public final AsicReaderFactory removeAllAdditionalMDAlgos ()
+  {
+    m_aAdditionalMDAlgos.clear ();
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if any digest algorithm declared in the manifests is accepted,
+   *         <code>false</code> if only the configured ones are accepted. Default is
+   *         {@value #DEFAULT_ACCEPT_ANY_MD_ALGO}.
+   * @since 4.1.1
+   */
+  public final boolean isAcceptAnyMDAlgo ()
+  {
+    return m_bAcceptAnyMDAlgo;
+  }
+
+  /**
+   * Define whether any digest algorithm declared in the manifests should be accepted, so that a
+   * container must not be read again with a different configuration. SHA-1 is only accepted if
+   * it is configured explicitly. If the manifests are read first (random access
+   * or metadata first), each entry is only digested with the algorithms declared for it. Otherwise
+   * each entry is digested with all accepted algorithms in a single pass, as the manifests follow
+   * the content.
+   *
+   * @param bAcceptAnyMDAlgo
+   *        <code>true</code> to accept any declared algorithm, <code>false</code> to accept only
+   *        the configured ones.
+   * @return this for chaining
+   * @since 4.1.1
+   */
+  @NonNull
+  public final AsicReaderFactory setAcceptAnyMDAlgo (final boolean bAcceptAnyMDAlgo)
+  {
+    m_bAcceptAnyMDAlgo = bAcceptAnyMDAlgo;
+    return this;
+  }
+
+  @NonNull
+  private ICommonsOrderedSet <EMessageDigestAlgorithm> _getAdditionalMDAlgos ()
+  {
+    if (m_bAcceptAnyMDAlgo)
+      return AbstractAsicReader.getAllMDAlgosAcceptingAny (m_aAdditionalMDAlgos);
+    return m_aAdditionalMDAlgos;
+  }
+
+  /**
+   * @return <code>true</code> if {@link #open(Path)} and {@link #open(File)} create an
+   *         {@link AsicRandomAccessReader}, <code>false</code> if they read the file as a stream.
+   *         Default is {@value #DEFAULT_RANDOM_ACCESS}.
+   * @since 4.1.1
+   */
+  public final boolean isRandomAccess ()
+  {
+    return m_bRandomAccess;
+  }
+
+  /**
+   * Define whether files should be opened for random access or not.
+   *
+   * @param bRandomAccess
+   *        <code>true</code> to use an {@link AsicRandomAccessReader} for files,
+   *        <code>false</code> to read files as a stream.
+   * @return this for chaining
+   * @since 4.1.1
+   */
+  @NonNull
+  public final AsicReaderFactory setRandomAccess (final boolean bRandomAccess)
+  {
+    m_bRandomAccess = bRandomAccess;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if {@link #open(Path)} and {@link #open(File)} read all manifests and
+   *         signatures before the first payload entry, <code>false</code> if the file is read
+   *         strictly in the order of the entries. Only relevant if random access is disabled.
+   *         Default is {@value #DEFAULT_METADATA_FIRST}.
+   * @since 4.1.1
+   */
+  public final boolean isMetadataFirst ()
+  {
+    return m_bMetadataFirst;
+  }
+
+  /**
+   * Define whether files should be read in two passes, so that all manifests and signatures are
+   * handled before the first payload entry. In this mode the digest of each payload entry is
+   * verified as soon as the end of the entry is reached, so that a corrupted entry is detected
+   * immediately instead of after the whole container was read.
+   *
+   * @param bMetadataFirst
+   *        <code>true</code> to read the metadata first, <code>false</code> to read the file
+   *        strictly in order.
+   * @return this for chaining
+   * @see #open(SeekableByteChannel)
+   * @since 4.1.1
+   */
+  @NonNull
+  public final AsicReaderFactory setMetadataFirst (final boolean bMetadataFirst)
+  {
+    m_bMetadataFirst = bMetadataFirst;
+    return this;
+  }
+
   @NonNull
   public IAsicReader open (@NonNull final File aFile) throws IOException
   {
@@ -37,13 +197,71 @@ public class AsicReaderFactory
   @NonNull
   public IAsicReader open (@NonNull final Path aFile) throws IOException
   {
+    if (m_bRandomAccess)
+      return openRandomAccess (aFile);
+    if (m_bMetadataFirst)
+      return open (Files.newByteChannel (aFile));
     return open (Files.newInputStream (aFile));
   }
 
+  /**
+   * Open the provided file for random access. All manifests and signatures are read and verified
+   * before this method returns.
+   *
+   * @param aFile
+   *        The ASiC file to open. May not be <code>null</code>.
+   * @return The new reader. Never <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error
+   * @since 4.1.1
+   */
+  @NonNull
+  public AsicRandomAccessReader openRandomAccess (@NonNull final Path aFile) throws IOException
+  {
+    final ZipFile aZipFile = new ZipFile (aFile.toFile ());
+    try
+    {
+      return new AsicRandomAccessReader (m_eMDAlgo, _getAdditionalMDAlgos (), aZipFile);
+    }
+    catch (final IOException | RuntimeException ex)
+    {
+      StreamHelper.close (aZipFile);
+      throw ex;
+    }
+  }
+
+  /**
+   * Open a seekable ASiC source for streaming in two passes: the central directory at the end of
+   * the file is read first, and all manifests and signatures are handled before the first payload
+   * entry is returned. The digest of each payload entry is verified as soon as the end of the entry
+   * is reached, so that reading fails on the first corrupted entry.
+   *
+   * @param aChannel
+   *        The channel to read from. It is closed, when the reader is closed. May not be
+   *        <code>null</code>.
+   * @return The new reader. Never <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error or if the central directory is invalid
+   * @since 4.1.1
+   */
+  @NonNull
+  public IAsicReader open (@NonNull @WillCloseWhenClosed final SeekableByteChannel aChannel) throws IOException
+  {
+    try
+    {
+      return new AsicReaderImpl (m_eMDAlgo, _getAdditionalMDAlgos (), new AsicChannelEntrySource (aChannel));
+    }
+    catch (final IOException | RuntimeException ex)
+    {
+      StreamHelper.close (aChannel);
+      throw ex;
+    }
+  }
+
   @NonNull
   public IAsicReader open (@NonNull final InputStream aIS)
   {
-    return new AsicReaderImpl (m_eMDAlgo, aIS);
+    return new AsicReaderImpl (m_eMDAlgo, _getAdditionalMDAlgos (), new AsicInputStream (aIS));
   }
 
   @NonNull
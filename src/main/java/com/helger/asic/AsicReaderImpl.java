@@ -16,6 +16,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 
 import com.helger.annotation.WillCloseWhenClosed;
 
@@ -27,6 +28,25 @@ public class AsicReaderImpl extends AbstractAsicReader implements IAsicReader
     super (eMDAlgo, aIS);
   }
 
+  /**
+   * Constructor
+   *
+   * @param eMDAlgo
+   *        Primary Message Digest Algorithm to use. May not be <code>null</code>.
+   * @param aAdditionalMDAlgos
+   *        Additional Message Digest Algorithms that are accepted in manifests. May be
+   *        <code>null</code>.
+   * @param aEntrySource
+   *        The source of the ZIP entries. May not be <code>null</code>.
+   * @since 4.1.1
+   */
+  protected AsicReaderImpl (@NonNull final EMessageDigestAlgorithm eMDAlgo,
+                            @Nullable final Iterable <EMessageDigestAlgorithm> aAdditionalMDAlgos,
+                            @NonNull @WillCloseWhenClosed final IAsicEntrySource aEntrySource)
+  {
+    super (eMDAlgo, aAdditionalMDAlgos, aEntrySource);
+  }
+
   @Override
   public void writeFile (@NonNull final OutputStream aOS) throws IOException
   {
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.WillCloseWhenClosed;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+
+/**
+ * Verification engine that only digests the payload entries and never hands out their content. All
+ * entries are read through a single reused buffer, and the result is returned as an
+ * {@link AsicVerificationReport} instead of an exception.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@NotThreadSafe
+final class AsicStreamingVerifier extends AbstractAsicReader
+{
+  /** The default size of the read buffer */
+  static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+  AsicStreamingVerifier (@NonNull final EMessageDigestAlgorithm eMDAlgo,
+                         @Nullable final Iterable <EMessageDigestAlgorithm> aAdditionalMDAlgos,
+                         @NonNull @WillCloseWhenClosed final IAsicEntrySource aEntrySource)
+  {
+    super (eMDAlgo, aAdditionalMDAlgos, aEntrySource);
+  }
+
+  /**
+   * Verify all entries and close the entry source afterwards. Invalid containers are reported in
+   * the result, IO errors are thrown.
+   *
+   * @param nBufferSize
+   *        The size of the read buffer. Must be &gt; 0.
+   * @return The verification report. Never <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error
+   */
+  @NonNull
+  AsicVerificationReport verify (@Nonnegative final int nBufferSize) throws IOException
+  {
+    return verify (nBufferSize, null);
+  }
+
+  /**
+   * Verify all entries and close the entry source afterwards. Invalid containers are reported in
+   * the result, IO errors are thrown.
+   *
+   * @param nBufferSize
+   *        The size of the read buffer. Must be &gt; 0.
+   * @param aEventHandler
+   *        The optional handler for the start, the content chunks and the end of each payload entry.
+   *        May be <code>null</code>.
+   * @return The verification report. Never <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error
+   */
+  @NonNull
+  AsicVerificationReport verify (@Nonnegative final int nBufferSize,
+                                 @Nullable final Consumer <AsicEntryEvent> aEventHandler) throws IOException
+  {
+    ValueEnforcer.isGT0 (nBufferSize, "BufferSize");
+
+    final ICommonsList <AsicVerificationReport.Entry> aEntries = new CommonsArrayList <> ();
+    String sErrorMessage = null;
+    try
+    {
+      internalDigestAllEntries (ByteBuffer.allocate (nBufferSize), aEntries, aEventHandler);
+    }
+    catch (final IllegalStateException | IllegalArgumentException ex)
+    {
+      sErrorMessage = ex.getMessage () != null ? ex.getMessage () : ex.getClass ().getName ();
+    }
+    finally
+    {
+      close ();
+    }
+    return new AsicVerificationReport (aEntries, getAsicManifest (), sErrorMessage, getTimings ());
+  }
+
+  @Override
+  @NonNull
+  EAsicOperation internalGetOperation ()
+  {
+    return EAsicOperation.VERIFY;
+  }
+}
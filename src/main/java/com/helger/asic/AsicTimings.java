@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.util.Locale;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+
+/**
+ * The time spent in the different phases of reading or verifying a single container. It is filled
+ * while the container is read and is complete after the reader was closed. For containers that are
+ * verified concurrently, the inflate and digest times are the sum over all threads and may exceed
+ * the elapsed time.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@NotThreadSafe
+public final class AsicTimings
+{
+  /**
+   * The timings of a single payload entry.
+   *
+   * @author Philip Helger
+   */
+  @Immutable
+  public static final class Entry
+  {
+    private final String m_sName;
+    private final long m_nSize;
+    private final long m_nInflateNanos;
+    private final long m_nDigestNanos;
+
+    Entry (@NonNull final String sName,
+           @Nonnegative final long nSize,
+           @Nonnegative final long nInflateNanos,
+           @Nonnegative final long nDigestNanos)
+    {
+      m_sName = sName;
+      m_nSize = nSize;
+      m_nInflateNanos = nInflateNanos;
+      m_nDigestNanos = nDigestNanos;
+    }
+
+    /**
+     * @return The name of the ZIP entry. Never <code>null</code>.
+     */
+    @NonNull
+    public String getName ()
+    {
+      return m_sName;
+    }
+
+    /**
+     * @return The number of uncompressed bytes of the entry.
+     */
+    @Nonnegative
+    public long getSize ()
+    {
+      return m_nSize;
+    }
+
+    /**
+     * @return The time spent reading and inflating the entry content in nanoseconds.
+     */
+    @Nonnegative
+    public long getInflateNanos ()
+    {
+      return m_nInflateNanos;
+    }
+
+    /**
+     * @return The time spent calculating the digests of the entry content in nanoseconds.
+     */
+    @Nonnegative
+    public long getDigestNanos ()
+    {
+      return m_nDigestNanos;
+    }
+  }
+
+  private long m_nZipParsingNanos;
+  private long m_nManifestNanos;
+  private long m_nSignatureNanos;
+  private long m_nInflateNanos;
+  private long m_nDigestNanos;
+  private long m_nTotalSize;
+  private final ICommonsList <Entry> m_aEntries = new CommonsArrayList <> ();
+
+  AsicTimings ()
+  {}
+
+  void addZipParsing (final long nNanos)
+  {
+    m_nZipParsingNanos += nNanos;
+  }
+
+  void addManifest (final long nNanos)
+  {
+    m_nManifestNanos += nNanos;
+  }
+
+  void addSignature (final long nNanos)
+  {
+    m_nSignatureNanos += nNanos;
+  }
+
+  void addEntry (@NonNull final String sName,
+                 @Nonnegative final long nSize,
+                 @Nonnegative final long nInflateNanos,
+                 @Nonnegative final long nDigestNanos)
+  {
+    m_aEntries.add (new Entry (sName, nSize, nInflateNanos, nDigestNanos));
+    m_nTotalSize += nSize;
+    m_nInflateNanos += nInflateNanos;
+    m_nDigestNanos += nDigestNanos;
+  }
+
+  /**
+   * @return The time spent parsing the ZIP structure to locate the entries in nanoseconds.
+   */
+  @Nonnegative
+  public long getZipParsingNanos ()
+  {
+    return m_nZipParsingNanos;
+  }
+
+  /**
+   * @return The time spent unmarshalling the manifests and XAdES signature files in nanoseconds.
+   */
+  @Nonnegative
+  public long getManifestNanos ()
+  {
+    return m_nManifestNanos;
+  }
+
+  /**
+   * @return The time spent verifying the CAdES signatures in nanoseconds.
+   */
+  @Nonnegative
+  public long getSignatureNanos ()
+  {
+    return m_nSignatureNanos;
+  }
+
+  /**
+   * @return The time spent reading and inflating all payload entries in nanoseconds.
+   */
+  @Nonnegative
+  public long getInflateNanos ()
+  {
+    return m_nInflateNanos;
+  }
+
+  /**
+   * @return The time spent calculating the digests of all payload entries in nanoseconds.
+   */
+  @Nonnegative
+  public long getDigestNanos ()
+  {
+    return m_nDigestNanos;
+  }
+
+  /**
+   * @return The sum of all timings in nanoseconds.
+   */
+  @Nonnegative
+  public long getTotalNanos ()
+  {
+    return m_nZipParsingNanos + m_nManifestNanos + m_nSignatureNanos + m_nInflateNanos + m_nDigestNanos;
+  }
+
+  /**
+   * @return The number of uncompressed payload bytes read.
+   */
+  @Nonnegative
+  public long getTotalSize ()
+  {
+    return m_nTotalSize;
+  }
+
+  /**
+   * @return A copy of the timings of all payload entries read, in the order they were read. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <Entry> getAllEntries ()
+  {
+    return m_aEntries.getClone ();
+  }
+
+  @NonNull
+  private static String _millis (final long nNanos)
+  {
+    return String.format (Locale.ROOT, "%.3f", Double.valueOf (nNanos / 1_000_000d));
+  }
+
+  @Override
+  public String toString ()
+  {
+    return "zipParsingMillis=" +
+           _millis (m_nZipParsingNanos) +
+           "; inflateMillis=" +
+           _millis (m_nInflateNanos) +
+           "; digestMillis=" +
+           _millis (m_nDigestNanos) +
+           "; manifestMillis=" +
+           _millis (m_nManifestNanos) +
+           "; signatureMillis=" +
+           _millis (m_nSignatureNanos) +
+           "; entries=" +
+           m_aEntries.size () +
+           "; totalSize=" +
+           m_nTotalSize;
+  }
+}
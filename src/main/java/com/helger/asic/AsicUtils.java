@@ -15,8 +15,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URLConnection;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
@@ -114,7 +116,7 @@ public final class AsicUtils
 
                 // Read manifest
                 final ManifestVerifier aManifestVerifier = new ManifestVerifier (null);
-                CadesAsicManifest.extractAndVerify (aBAOS.getAsString (StandardCharsets.UTF_8), aManifestVerifier);
+                CadesAsicManifest.extractAndVerify (aBAOS.getAsInputStream (), aManifestVerifier);
 
                 // Make sure only on rootfile makes it to the source container
                 if (aManifestVerifier.getAsicManifest ().getRootfile () != null)
@@ -181,6 +183,131 @@ public final class AsicUtils
     }
   }
 
+  private static void _copyRawEntry (@NonNull final AsicZipRawWriter aWriter,
+                                     @NonNull final SeekableByteChannel aChannel,
+                                     final AsicZipCentralDirectory.@NonNull Entry aEntry,
+                                     @NonNull final String sTargetName) throws IOException
+  {
+    try (final InputStream aRawIS = AsicZipCentralDirectory.openRawStream (aChannel, aEntry))
+    {
+      aWriter.writeRawEntry (sTargetName, aEntry, aRawIS);
+    }
+  }
+
+  /**
+   * Combine multiple containers to one container, like {@link #combine(OutputStream, InputStream...)},
+   * but without decompressing and recompressing the entries. The compressed data, CRC and sizes of
+   * all entries are copied unchanged from the source containers. Only the CAdES manifests and the
+   * OASIS OpenDocument manifests are decompressed, because they need to be read. As the data is not
+   * decompressed, the CRC of the copied entries is not checked - use an {@link IAsicReader} to
+   * verify the result if the sources are not trusted.
+   *
+   * @param aOS
+   *        Stream for target container. Is closed afterwards.
+   * @param aSources
+   *        The paths of the source containers.
+   * @throws IOException
+   *         in case of error
+   * @since 4.1.1
+   */
+  public static void combineRaw (@NonNull final OutputStream aOS, @NonNull final Path... aSources) throws IOException
+  {
+    // Statuses
+    int nManifestCounter = 0;
+    int nFileCounter = 0;
+    boolean bContainsRootFile = false;
+
+    // Open target container
+    try (final AsicZipRawWriter aWriter = new AsicZipRawWriter (aOS, "mimetype=" + MIMETYPE_ASICE.getAsString ()))
+    {
+      aWriter.writeEntry (AsicInputStream.ZIPENTRY_NAME_MIMETYPE,
+                          ZipEntry.STORED,
+                          MIMETYPE_ASICE.getAsString ().getBytes (StandardCharsets.ISO_8859_1));
+
+      // Prepare to combine OASIS OpenDocument Manifests
+      final OasisManifest aOasisManifest = new OasisManifest (MIMETYPE_ASICE);
+
+      for (final Path aSource : aSources)
+      {
+        // Open source container
+        try (final SeekableByteChannel aChannel = Files.newByteChannel (aSource))
+        {
+          for (final AsicZipCentralDirectory.Entry aEntry : AsicZipCentralDirectory.read (aChannel).getAllEntries ())
+          {
+            final String sName = aEntry.getName ();
+            if (sName.equals (AsicInputStream.ZIPENTRY_NAME_MIMETYPE))
+            {
+              // The target container has its own mimetype
+              try (final InputStream aIS = AsicZipCentralDirectory.openStream (aChannel, aEntry))
+              {
+                AsicInputStream.verifyMimeTypeContent (aIS);
+              }
+            }
+            else
+              if (PATTERN_CADES_MANIFEST.matcher (sName).matches ())
+              {
+                // Read manifest
+                final ManifestVerifier aManifestVerifier = new ManifestVerifier (null);
+                try (final InputStream aIS = AsicZipCentralDirectory.openStream (aChannel, aEntry))
+                {
+                  CadesAsicManifest.extractAndVerify (aIS, aManifestVerifier);
+                }
+
+                // Make sure only on rootfile makes it to the source container
+                if (aManifestVerifier.getAsicManifest ().getRootfile () != null)
+                {
+                  if (bContainsRootFile)
+                    throw new IllegalStateException ("Multiple rootfiles is not allowed when combining containers.");
+                  bContainsRootFile = true;
+                }
+
+                // Write manifest to container
+                ++nManifestCounter;
+                _copyRawEntry (aWriter,
+                               aChannel,
+                               aEntry,
+                               "META-INF/" + ASIC_MANIFEST_BASENAME + nManifestCounter + ".xml");
+              }
+              else
+                if (PATTERN_XADES_SIGNATURES.matcher (sName).matches ())
+                {
+                  // Copy content to target container
+                  ++nManifestCounter;
+                  _copyRawEntry (aWriter, aChannel, aEntry, "META-INF/" + SIGNATURES_BASENAME + nManifestCounter + ".xml");
+                }
+                else
+                  if (PATTERN_OASIS_MANIFEST.matcher (sName).matches ())
+                  {
+                    // Copy entries - nothing to write to target container
+                    try (final InputStream aIS = AsicZipCentralDirectory.openStream (aChannel, aEntry))
+                    {
+                      aOasisManifest.addAll (new OasisManifest (aIS));
+                    }
+                  }
+                  else
+                  {
+                    // Copy content to target container
+                    _copyRawEntry (aWriter, aChannel, aEntry, sName);
+
+                    if (!aEntry.isMetadata ())
+                      nFileCounter++;
+                  }
+          }
+
+          // Close source container
+        }
+      }
+
+      // Add manifest if it contains the same amount of files as the container.
+      if (aOasisManifest.getFileEntryCount () == nFileCounter + 1)
+        aWriter.writeEntry ("META-INF/" + OASIS_MANIFEST_BASENAME + ".xml",
+                            ZipEntry.DEFLATED,
+                            aOasisManifest.getAsBytes ());
+
+      // Close target container
+    }
+  }
+
   @Nullable
   public static IMimeType detectMime (final String sFilename) throws IOException
   {
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.asic.jaxb.asic.AsicManifest;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.collection.commons.CommonsLinkedHashMap;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.collection.commons.ICommonsOrderedMap;
+
+/**
+ * The result of a streaming verification of an ASiC container. It contains the payload entries in
+ * the order they were read, and either the verified manifest or the reason why the verification
+ * failed.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@Immutable
+public final class AsicVerificationReport
+{
+  /**
+   * A single digested payload entry.
+   *
+   * @author Philip Helger
+   */
+  @Immutable
+  public static final class Entry
+  {
+    private final String m_sName;
+    private final long m_nSize;
+    private final ICommonsOrderedMap <EMessageDigestAlgorithm, byte []> m_aDigests;
+
+    Entry (@NonNull final String sName,
+           @Nonnegative final long nSize,
+           @NonNull final ICommonsOrderedMap <EMessageDigestAlgorithm, byte []> aDigests)
+    {
+      m_sName = sName;
+      m_nSize = nSize;
+      m_aDigests = aDigests;
+    }
+
+    /**
+     * @return The name of the ZIP entry. Never <code>null</code>.
+     */
+    @NonNull
+    public String getName ()
+    {
+      return m_sName;
+    }
+
+    /**
+     * @return The number of uncompressed bytes of the entry.
+     */
+    @Nonnegative
+    public long getSize ()
+    {
+      return m_nSize;
+    }
+
+    /**
+     * @return A copy of the calculated digests per algorithm. Never <code>null</code>.
+     */
+    @NonNull
+    @ReturnsMutableCopy
+    public ICommonsOrderedMap <EMessageDigestAlgorithm, byte []> getAllDigests ()
+    {
+      return new CommonsLinkedHashMap <> (m_aDigests);
+    }
+
+    /**
+     * @param eMDAlgo
+     *        The algorithm to query. May be <code>null</code>.
+     * @return A copy of the digest of the provided algorithm or <code>null</code> if the entry was
+     *         not digested with it.
+     */
+    @Nullable
+    @ReturnsMutableCopy
+    public byte [] getDigest (@Nullable final EMessageDigestAlgorithm eMDAlgo)
+    {
+      final byte [] ret = m_aDigests.get (eMDAlgo);
+      return ret == null ? null : ret.clone ();
+    }
+  }
+
+  private final ICommonsList <Entry> m_aEntries;
+  private final AsicManifest m_aAsicManifest;
+  private final String m_sErrorMessage;
+  private final AsicTimings m_aTimings;
+
+  AsicVerificationReport (@NonNull final ICommonsList <Entry> aEntries,
+                          @NonNull final AsicManifest aAsicManifest,
+                          @Nullable final String sErrorMessage,
+                          @NonNull final AsicTimings aTimings)
+  {
+    ValueEnforcer.notNull (aEntries, "Entries");
+    ValueEnforcer.notNull (aAsicManifest, "AsicManifest");
+    ValueEnforcer.notNull (aTimings, "Timings");
+    m_aEntries = aEntries;
+    m_aAsicManifest = aAsicManifest;
+    m_sErrorMessage = sErrorMessage;
+    m_aTimings = aTimings;
+  }
+
+  /**
+   * @return <code>true</code> if all payload entries are covered by a manifest, all digests match
+   *         and all signatures are valid, <code>false</code> otherwise.
+   */
+  public boolean isSuccess ()
+  {
+    return m_sErrorMessage == null;
+  }
+
+  /**
+   * @return The reason why the verification failed or <code>null</code> if it succeeded.
+   */
+  @Nullable
+  public String getErrorMessage ()
+  {
+    return m_sErrorMessage;
+  }
+
+  /**
+   * @return A copy of all payload entries read, in the order of the container. In case of a
+   *         failure, only the entries read until the failure are contained. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <Entry> getAllEntries ()
+  {
+    return m_aEntries.getClone ();
+  }
+
+  /**
+   * @return The number of uncompressed payload bytes read.
+   */
+  @Nonnegative
+  public long getTotalSize ()
+  {
+    long ret = 0;
+    for (final Entry aEntry : m_aEntries)
+      ret += aEntry.getSize ();
+    return ret;
+  }
+
+  /**
+   * @return The manifest with the files and certificates found. In case of a failure it may be
+   *         incomplete. Never <code>null</code>.
+   */
+  @NonNull
+  public AsicManifest getAsicManifest ()
+  {
+    return m_aAsicManifest;
+  }
+
+  /**
+   * @return The time spent in the different phases of the verification, to find out whether a slow
+   *         verification is caused by the size, the XML or the cryptography. In case of a failure,
+   *         only the phases until the failure are contained. Never <code>null</code>.
+   */
+  @NonNull
+  public AsicTimings getTimings ()
+  {
+    return m_aTimings;
+  }
+}
@@ -13,8 +13,11 @@ package com.helger.asic;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.ZipFile;
 
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 
 import com.helger.annotation.WillClose;
 import com.helger.base.io.stream.NullOutputStream;
@@ -24,7 +27,29 @@ public class AsicVerifier extends AbstractAsicReader
   protected AsicVerifier (@NonNull final EMessageDigestAlgorithm eMDAlgo,
                           @NonNull @WillClose final InputStream aIS) throws IOException
   {
-    super (eMDAlgo, aIS);
+    this (eMDAlgo, null, aIS);
+  }
+
+  /**
+   * Verify a container stream, by reading all entries in order.
+   *
+   * @param eMDAlgo
+   *        Primary Message Digest Algorithm. May not be <code>null</code>.
+   * @param aAdditionalMDAlgos
+   *        Additional Message Digest Algorithms that are accepted in manifests. The content of each
+   *        entry is digested with all algorithms in a single pass. May be <code>null</code>.
+   * @param aIS
+   *        The container stream to verify. Is closed by this constructor. May not be
+   *        <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error
+   * @since 4.1.1
+   */
+  protected AsicVerifier (@NonNull final EMessageDigestAlgorithm eMDAlgo,
+                          @Nullable final Iterable <EMessageDigestAlgorithm> aAdditionalMDAlgos,
+                          @NonNull @WillClose final InputStream aIS) throws IOException
+  {
+    super (eMDAlgo, aAdditionalMDAlgos, new AsicInputStream (aIS));
 
     try
     {
@@ -36,4 +61,56 @@ public class AsicVerifier extends AbstractAsicReader
       close ();
     }
   }
+
+  /**
+   * Verify a container file, by reading all manifests and signatures first and then digesting all
+   * payload entries concurrently on the provided executor.
+   *
+   * @param eMDAlgo
+   *        Primary Message Digest Algorithm. May not be <code>null</code>.
+   * @param aAdditionalMDAlgos
+   *        Additional Message Digest Algorithms that are accepted in manifests. May be
+   *        <code>null</code>.
+   * @param aZipFile
+   *        The container file to verify. Is closed by this constructor. May not be
+   *        <code>null</code>.
+   * @param aExecutor
+   *        The executor to run the digest calculation on. It is not shut down. May not be
+   *        <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error
+   * @since 4.1.1
+   */
+  protected AsicVerifier (@NonNull final EMessageDigestAlgorithm eMDAlgo,
+                          @Nullable final Iterable <EMessageDigestAlgorithm> aAdditionalMDAlgos,
+                          @NonNull @WillClose final ZipFile aZipFile,
+                          @NonNull final ExecutorService aExecutor) throws IOException
+  {
+    this (eMDAlgo, aAdditionalMDAlgos, new AsicZipFileEntrySource (aZipFile), aExecutor);
+  }
+
+  private AsicVerifier (@NonNull final EMessageDigestAlgorithm eMDAlgo,
+                        @Nullable final Iterable <EMessageDigestAlgorithm> aAdditionalMDAlgos,
+                        @NonNull @WillClose final AsicZipFileEntrySource aSource,
+                        @NonNull final ExecutorService aExecutor) throws IOException
+  {
+    super (eMDAlgo, aAdditionalMDAlgos, aSource);
+
+    try
+    {
+      aSource.handleAllMetadataEntries (this);
+      internalVerifyAllEntriesParallel (aSource, aExecutor);
+    }
+    finally
+    {
+      close ();
+    }
+  }
+
+  @Override
+  @NonNull
+  EAsicOperation internalGetOperation ()
+  {
+    return EAsicOperation.VERIFY;
+  }
 }
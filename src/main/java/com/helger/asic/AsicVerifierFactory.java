@@ -14,17 +14,35 @@ package com.helger.asic;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow.Publisher;
+import java.util.zip.ZipFile;
 
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 
+import com.helger.annotation.WillClose;
 import com.helger.annotation.WillCloseWhenClosed;
+import com.helger.annotation.style.ReturnsMutableCopy;
 import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.io.stream.StreamHelper;
+import com.helger.collection.commons.CommonsLinkedHashSet;
+import com.helger.collection.commons.ICommonsOrderedSet;
 
 public class AsicVerifierFactory
 {
+  public static final boolean DEFAULT_ACCEPT_ANY_MD_ALGO = false;
+
   private final EMessageDigestAlgorithm m_eMDAlgo;
+  private final ICommonsOrderedSet <EMessageDigestAlgorithm> m_aAdditionalMDAlgos = new CommonsLinkedHashSet <> ();
+  private boolean m_bAcceptAnyMDAlgo = DEFAULT_ACCEPT_ANY_MD_ALGO;
+  private ExecutorService m_aExecutor;
 
   @NonNull
   public static AsicVerifierFactory newFactory ()
@@ -44,6 +62,120 @@ public class AsicVerifierFactory
     m_eMDAlgo = eMDAlgo;
   }
 
+  /**
+   * @return A copy of all additional message digest algorithms that are accepted in manifests,
+   *         besides the primary one. Never <code>null</code> but maybe empty.
+   * @since 4.1.1
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public final ICommonsOrderedSet <EMessageDigestAlgorithm> getAllAdditionalMDAlgos ()
+  {
+    return m_aAdditionalMDAlgos.getClone ();
+  }
+
+  /**
+   * Add an additional message digest algorithm that is accepted in manifests, e.g. during the
+   * migration from one algorithm to another. The content of each entry is digested with all
+   * algorithms in a single pass.
+   *
+   * @param eMDAlgo
+   *        The algorithm to add. May not be <code>null</code>.
+   * @return this for chaining
+   * @since 4.1.1
+   */
+  @NonNull
+  public final AsicVerifierFactory addAdditionalMDAlgo (@NonNull final EMessageDigestAlgorithm eMDAlgo)
+  {
+    ValueEnforcer.notNull (eMDAlgo, "MDAlgo");
+    if (eMDAlgo != m_eMDAlgo)
+      m_aAdditionalMDAlgos.add (eMDAlgo);
+    return this;
+  }
+
+  /**
+   * Remove all additional message digest algorithms, so that only the primary one is accepted.
+   *
+   * @return this for chaining
+   * @since 4.1.1
+   */
+  @NonNull
+  public final AsicVerifierFactory removeAllAdditionalMDAlgos ()
+  {
+    m_aAdditionalMDAlgos.clear ();
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if any digest algorithm declared in the manifests is accepted,
+   *         <code>false</code> if only the configured ones are accepted. Default is
+   *         {@value #DEFAULT_ACCEPT_ANY_MD_ALGO}.
+   * @since 4.1.1
+   */
+  public final boolean isAcceptAnyMDAlgo ()
+  {
+    return m_bAcceptAnyMDAlgo;
+  }
+
+  /**
+   * Define whether any digest algorithm declared in the manifests should be accepted, so that a
+   * container must not be read again with a different configuration. SHA-1 is only accepted if
+   * it is configured explicitly. If an executor is set, each entry is only digested
+   * with the algorithms declared for it. Otherwise each entry is digested with all accepted
+   * algorithms in a single pass, as the manifests follow the content.
+   *
+   * @param bAcceptAnyMDAlgo
+   *        <code>true</code> to accept any declared algorithm, <code>false</code> to accept only
+   *        the configured ones.
+   * @return this for chaining
+   * @since 4.1.1
+   */
+  @NonNull
+  public final AsicVerifierFactory setAcceptAnyMDAlgo (final boolean bAcceptAnyMDAlgo)
+  {
+    m_bAcceptAnyMDAlgo = bAcceptAnyMDAlgo;
+    return this;
+  }
+
+  @NonNull
+  private ICommonsOrderedSet <EMessageDigestAlgorithm> _getAdditionalMDAlgos ()
+  {
+    if (m_bAcceptAnyMDAlgo)
+      return AbstractAsicReader.getAllMDAlgosAcceptingAny (m_aAdditionalMDAlgos);
+    return m_aAdditionalMDAlgos;
+  }
+
+  /**
+   * @return The executor service used to verify the entries of files in parallel. May be
+   *         <code>null</code>.
+   * @since 4.1.1
+   */
+  @Nullable
+  public final ExecutorService getExecutor ()
+  {
+    return m_aExecutor;
+  }
+
+  /**
+   * Set the executor service to verify the entries of files in parallel. If an executor is set,
+   * {@link #verify(Path)} and {@link #verify(File)} read all manifests and signatures first and
+   * then inflate and digest all payload entries concurrently on this executor. On Java 21 and later
+   * <code>Executors.newVirtualThreadPerTaskExecutor ()</code> may be used. The executor is never
+   * shut down by this class.
+   *
+   * @param aExecutor
+   *        The executor service to use. May be <code>null</code> to verify sequentially (which is
+   *        the default).
+   * @return this for chaining
+   * @since 4.1.1
+   */
+  @NonNull
+  public final AsicVerifierFactory setExecutor (@Nullable final ExecutorService aExecutor)
+  {
+    m_aExecutor = aExecutor;
+    return this;
+  }
+
   @NonNull
   public AsicVerifier verify (@NonNull final File aFile) throws IOException
   {
@@ -53,12 +185,103 @@ public class AsicVerifierFactory
   @NonNull
   public AsicVerifier verify (@NonNull final Path aFile) throws IOException
   {
+    if (m_aExecutor != null)
+    {
+      final ZipFile aZipFile = new ZipFile (aFile.toFile ());
+      try
+      {
+        return new AsicVerifier (m_eMDAlgo, _getAdditionalMDAlgos (), aZipFile, m_aExecutor);
+      }
+      catch (final IOException | RuntimeException ex)
+      {
+        // Make sure the file is closed, even if the verifier was not created
+        StreamHelper.close (aZipFile);
+        throw ex;
+      }
+    }
     return verify (Files.newInputStream (aFile));
   }
 
   @NonNull
   public AsicVerifier verify (@NonNull @WillCloseWhenClosed final InputStream aIS) throws IOException
   {
-    return new AsicVerifier (m_eMDAlgo, aIS);
+    return new AsicVerifier (m_eMDAlgo, _getAdditionalMDAlgos (), aIS);
+  }
+
+  /**
+   * Verify a local container file without exposing the content of the entries. The central
+   * directory is read first, and all manifests and signatures are handled before the first payload
+   * entry. The payload entries are digested from memory mapped regions of the file: stored entries
+   * directly, deflated entries are inflated from the mapped region. See
+   * {@link #verifyStreaming(InputStream)} for the handling of invalid containers.
+   *
+   * @param aFile
+   *        The container file to verify. May not be <code>null</code>.
+   * @return The verification report. Never <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error or if the central directory is invalid
+   * @since 4.1.1
+   */
+  @NonNull
+  public AsicVerificationReport verifyStreaming (@NonNull final Path aFile) throws IOException
+  {
+    final FileChannel aChannel = FileChannel.open (aFile, StandardOpenOption.READ);
+    final AsicChannelEntrySource aSource;
+    try
+    {
+      aSource = new AsicChannelEntrySource (aChannel);
+    }
+    catch (final IOException | RuntimeException ex)
+    {
+      StreamHelper.close (aChannel);
+      throw ex;
+    }
+    return new AsicStreamingVerifier (m_eMDAlgo, _getAdditionalMDAlgos (), aSource).verify (AsicStreamingVerifier.DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Verify a container stream without exposing the content of the entries. Each payload entry is
+   * digested through a single reused buffer and compared with the manifests. In contrast to the
+   * <code>verify</code> methods, an invalid container does not result in an exception but in a
+   * report that is not successful.
+   *
+   * @param aIS
+   *        The container stream to verify. Is closed by this method. May not be <code>null</code>.
+   * @return The verification report. Never <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error
+   * @since 4.1.1
+   */
+  @NonNull
+  public AsicVerificationReport verifyStreaming (@NonNull @WillClose final InputStream aIS) throws IOException
+  {
+    return new AsicStreamingVerifier (m_eMDAlgo,
+                                      _getAdditionalMDAlgos (),
+                                      new AsicInputStream (aIS)).verify (AsicStreamingVerifier.DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Verify a container that is published as {@link ByteBuffer} chunks, e.g. the body of an HTTP
+   * request, while it arrives. Nothing happens until the returned publisher is subscribed. Then the
+   * chunks are requested with a bounded prefetch, the local file headers are parsed and each payload
+   * entry is inflated and digested. The subscriber receives an {@link AsicEntryEvent} for the start,
+   * each content chunk and the end of each payload entry, and finally an event with the
+   * verification report, before <code>onComplete</code> is called. No further chunks are read until
+   * the subscriber requested more events. An IO error or a failed input publisher is signalled via
+   * <code>onError</code>.
+   *
+   * @param aPublisher
+   *        The publisher of the container bytes. May not be <code>null</code>.
+   * @param aExecutor
+   *        The executor to read the container on. The task blocks while waiting for input or
+   *        demand, so the executor must allow blocking operations. May not be <code>null</code>.
+   * @return A publisher supporting a single subscriber. Never <code>null</code>.
+   * @since 4.1.1
+   */
+  @NonNull
+  public Publisher <AsicEntryEvent> verifyReactive (@NonNull final Publisher <ByteBuffer> aPublisher,
+                                                    @NonNull final Executor aExecutor)
+  {
+    return new AsicReactiveVerifier (m_eMDAlgo, _getAdditionalMDAlgos (), aPublisher, aExecutor);
   }
 }
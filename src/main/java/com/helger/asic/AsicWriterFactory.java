@@ -11,17 +11,28 @@
  */
 package com.helger.asic;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.helger.annotation.WillCloseWhenClosed;
+import com.helger.annotation.style.ReturnsMutableCopy;
 import com.helger.base.enforce.ValueEnforcer;
+import com.helger.collection.commons.CommonsLinkedHashSet;
+import com.helger.collection.commons.ICommonsOrderedSet;
 
 /**
  * Creates AsicWriter instances according to the supplied parameters.
@@ -29,9 +40,13 @@ import com.helger.base.enforce.ValueEnforcer;
 public class AsicWriterFactory
 {
   private static final Logger LOGGER = LoggerFactory.getLogger (AsicWriterFactory.class);
+  private static final int ASYNC_BUFFER_SIZE = 64 * 1024;
 
   private final ESignatureMethod m_eSM;
   private EMessageDigestAlgorithm m_eMDAlgo;
+  private final ICommonsOrderedSet <EMessageDigestAlgorithm> m_aAdditionalMDAlgos = new CommonsLinkedHashSet <> ();
+  private IAsicCompressionPolicy m_aCompressionPolicy = IAsicCompressionPolicy.DEFAULT;
+  private ExecutorService m_aExecutor;
 
   protected AsicWriterFactory (@NonNull final ESignatureMethod eSM)
   {
@@ -54,6 +69,125 @@ public class AsicWriterFactory
     return this;
   }
 
+  /**
+   * @return A copy of all additional message digest algorithms, whose digests are written besides
+   *         the ones of the primary algorithm. Never <code>null</code> but maybe empty.
+   * @since 4.1.1
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public final ICommonsOrderedSet <EMessageDigestAlgorithm> getAllAdditionalMDAlgos ()
+  {
+    return m_aAdditionalMDAlgos.getClone ();
+  }
+
+  /**
+   * Add an additional message digest algorithm. The content of each entry is digested with all
+   * algorithms in a single pass and all digests are part of the signed manifest, so that the
+   * containers can be verified by receivers that only support one of the algorithms, e.g. during a
+   * migration from SHA-256 to SHA-512. The signature itself uses the primary algorithm only.
+   *
+   * @param eMDAlgo
+   *        The algorithm to add. May not be <code>null</code>.
+   * @return this for chaining
+   * @since 4.1.1
+   */
+  @NonNull
+  public final AsicWriterFactory addAdditionalMDAlgo (@NonNull final EMessageDigestAlgorithm eMDAlgo)
+  {
+    ValueEnforcer.notNull (eMDAlgo, "MDAlgo");
+    m_aAdditionalMDAlgos.add (eMDAlgo);
+    return this;
+  }
+
+  /**
+   * Remove all additional message digest algorithms, so that only the primary one is used.
+   *
+   * @return this for chaining
+   * @since 4.1.1
+   */
+  @NonNull
+  public final AsicWriterFactory removeAllAdditionalMDAlgos ()
+  {
+    m_aAdditionalMDAlgos.clear ();
+    return this;
+  }
+
+  /**
+   * @return The compression policy applied to all created writers. Never
+   *         <code>null</code>.
+   * @since 4.1.1
+   */
+  @NonNull
+  public final IAsicCompressionPolicy getCompressionPolicy ()
+  {
+    return m_aCompressionPolicy;
+  }
+
+  /**
+   * Set the compression policy applied to all created writers.
+   *
+   * @param aCompressionPolicy
+   *        The policy to use. May not be <code>null</code>.
+   * @return this for chaining
+   * @see AsicCompressionPolicy
+   * @since 4.1.1
+   */
+  @NonNull
+  public final AsicWriterFactory setCompressionPolicy (@NonNull final IAsicCompressionPolicy aCompressionPolicy)
+  {
+    ValueEnforcer.notNull (aCompressionPolicy, "CompressionPolicy");
+    m_aCompressionPolicy = aCompressionPolicy;
+    return this;
+  }
+
+  /**
+   * Use the same compression level for all entries of created writers.
+   *
+   * @param nCompressionLevel
+   *        The compression level to use.
+   *        {@link IAsicCompressionPolicy#LEVEL_STORED} stores all entries
+   *        without compression.
+   * @return this for chaining
+   * @since 4.1.1
+   */
+  @NonNull
+  public final AsicWriterFactory setCompressionLevel (final int nCompressionLevel)
+  {
+    return setCompressionPolicy (IAsicCompressionPolicy.fixed (nCompressionLevel));
+  }
+
+  /**
+   * @return The executor service used to deflate the entries of created writers in parallel. May
+   *         be <code>null</code>.
+   * @since 4.1.1
+   */
+  @Nullable
+  public final ExecutorService getExecutor ()
+  {
+    return m_aExecutor;
+  }
+
+  /**
+   * Set the executor service to deflate the entries of created writers in parallel. If an
+   * executor is set, each entry is split into chunks of 1 MB that are deflated concurrently and
+   * written in the original order, so the resulting container does not depend on the number of
+   * threads. The message digests are still calculated on the calling thread. The executor is never
+   * shut down by this class.
+   *
+   * @param aExecutor
+   *        The executor service to use. May be <code>null</code> to deflate on the calling thread
+   *        (which is the default).
+   * @return this for chaining
+   * @since 4.1.1
+   */
+  @NonNull
+  public final AsicWriterFactory setExecutor (@Nullable final ExecutorService aExecutor)
+  {
+    m_aExecutor = aExecutor;
+    return this;
+  }
+
   /**
    * Factory method creating a new AsicWriter, which will create an ASiC archive
    * in the supplied directory with the supplied file name
@@ -126,15 +260,71 @@ public class AsicWriterFactory
                                    final boolean bCloseStreamOnSign,
                                    final boolean bWriteOasisManifest) throws IOException
   {
+    final AbstractAsicWriter ret;
     switch (m_eSM)
     {
       case CAdES:
-        return new CadesAsicWriter (aOS, bCloseStreamOnSign, m_eMDAlgo, bWriteOasisManifest);
+        ret = new CadesAsicWriter (aOS, bCloseStreamOnSign, m_eMDAlgo, bWriteOasisManifest, m_aExecutor);
+        break;
       case XAdES:
-        return new XadesAsicWriter (aOS, bCloseStreamOnSign, m_eMDAlgo, bWriteOasisManifest);
+        ret = new XadesAsicWriter (aOS, bCloseStreamOnSign, m_eMDAlgo, bWriteOasisManifest, m_aExecutor);
+        break;
       default:
         throw new IllegalStateException ("Not implemented: " + m_eSM);
     }
+    ret.setCompressionPolicy (m_aCompressionPolicy);
+    for (final EMessageDigestAlgorithm eMDAlgo : m_aAdditionalMDAlgos)
+      ret.getAsicManifest ().addAdditionalMessageDigestAlgorithm (eMDAlgo);
+    return ret;
+  }
+
+  @NonNull
+  private AsyncAsicWriter _newAsyncContainer (@NonNull final OutputStream aOS, @NonNull final Executor aExecutor)
+  {
+    // Avoid a channel operation for each small write of the ZIP stream
+    final OutputStream aBufferedOS = new BufferedOutputStream (aOS, ASYNC_BUFFER_SIZE);
+    // On failure the underlying stream is closed, without flushing an incomplete container
+    return new AsyncAsicWriter ( () -> newContainer (aBufferedOS, true), aOS, aExecutor);
+  }
+
+  /**
+   * Creates a new asynchronous writer, which writes the container to the supplied channel. The
+   * channel is closed after signing or on the first failure.
+   *
+   * @param aChannel
+   *        The channel to write to. Must be in blocking mode. May not be <code>null</code>.
+   * @param aExecutor
+   *        The executor to write the container on. It must allow blocking operations. May not be
+   *        <code>null</code>.
+   * @return The new writer. Never <code>null</code>.
+   * @since 4.1.1
+   */
+  @NonNull
+  public AsyncAsicWriter newAsyncContainer (@NonNull @WillCloseWhenClosed final WritableByteChannel aChannel,
+                                            @NonNull final Executor aExecutor)
+  {
+    ValueEnforcer.notNull (aChannel, "Channel");
+    return _newAsyncContainer (Channels.newOutputStream (aChannel), aExecutor);
+  }
+
+  /**
+   * Creates a new asynchronous writer, which writes the container to the supplied file channel,
+   * starting at position 0. The channel is closed after signing or on the first failure.
+   *
+   * @param aChannel
+   *        The channel to write to. May not be <code>null</code>.
+   * @param aExecutor
+   *        The executor to write the container on. It must allow blocking operations. May not be
+   *        <code>null</code>.
+   * @return The new writer. Never <code>null</code>.
+   * @since 4.1.1
+   */
+  @NonNull
+  public AsyncAsicWriter newAsyncContainer (@NonNull @WillCloseWhenClosed final AsynchronousFileChannel aChannel,
+                                            @NonNull final Executor aExecutor)
+  {
+    ValueEnforcer.notNull (aChannel, "Channel");
+    return _newAsyncContainer (new AsicAsyncFileChannelOutputStream (aChannel, 0), aExecutor);
   }
 
   /**
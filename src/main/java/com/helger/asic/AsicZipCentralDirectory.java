@@ -0,0 +1,599 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.WillNotClose;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+
+/**
+ * Minimal reader for the central directory of a ZIP file, that works on any
+ * {@link SeekableByteChannel}. It is used to access the entries of an ASiC container in an
+ * arbitrary order. ZIP64 is supported, multi-disk archives and encryption are not.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@Immutable
+final class AsicZipCentralDirectory
+{
+  static final int SIG_LOCAL_FILE_HEADER = 0x04034b50;
+  static final int SIG_DATA_DESCRIPTOR = 0x08074b50;
+  static final int SIG_CENTRAL_DIRECTORY = 0x02014b50;
+  static final int SIG_END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+  static final int SIG_ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+  static final int SIG_ZIP64_LOCATOR = 0x07064b50;
+
+  static final int LOCAL_FILE_HEADER_SIZE = 30;
+  static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+  static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+  static final int ZIP64_LOCATOR_SIZE = 20;
+  static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE = 56;
+  static final int MAX_COMMENT_SIZE = 0xffff;
+
+  static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+  static final int FLAG_UTF8 = 1 << 11;
+  static final int EXTRA_ID_ZIP64 = 0x0001;
+  static final long ZIP64_MAGIC = 0xffffffffL;
+  /** The maximum size of a single memory mapped region */
+  static final long MAX_MAP_SIZE = 1L << 30;
+
+  /**
+   * A single entry of the central directory.
+   */
+  @Immutable
+  static final class Entry
+  {
+    private final String m_sName;
+    private final int m_nFlags;
+    private final int m_nMethod;
+    private final int m_nDosTime;
+    private final long m_nCrc;
+    private final long m_nCompressedSize;
+    private final long m_nSize;
+    private final long m_nLocalHeaderOffset;
+
+    Entry (@NonNull final String sName,
+           final int nFlags,
+           final int nMethod,
+           final int nDosTime,
+           final long nCrc,
+           final long nCompressedSize,
+           final long nSize,
+           final long nLocalHeaderOffset)
+    {
+      m_sName = sName;
+      m_nFlags = nFlags;
+      m_nMethod = nMethod;
+      m_nDosTime = nDosTime;
+      m_nCrc = nCrc;
+      m_nCompressedSize = nCompressedSize;
+      m_nSize = nSize;
+      m_nLocalHeaderOffset = nLocalHeaderOffset;
+    }
+
+    @NonNull
+    String getName ()
+    {
+      return m_sName;
+    }
+
+    boolean isMetadata ()
+    {
+      return m_sName.startsWith ("META-INF/");
+    }
+
+    int getFlags ()
+    {
+      return m_nFlags;
+    }
+
+    /**
+     * @return {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+     */
+    int getMethod ()
+    {
+      return m_nMethod;
+    }
+
+    /**
+     * @return The last modification time and date in MS-DOS format (time in the lower 16 bits).
+     */
+    int getDosTime ()
+    {
+      return m_nDosTime;
+    }
+
+    long getCrc ()
+    {
+      return m_nCrc;
+    }
+
+    @Nonnegative
+    long getCompressedSize ()
+    {
+      return m_nCompressedSize;
+    }
+
+    @Nonnegative
+    long getSize ()
+    {
+      return m_nSize;
+    }
+
+    @Nonnegative
+    long getLocalHeaderOffset ()
+    {
+      return m_nLocalHeaderOffset;
+    }
+
+    @NonNull
+    ZipEntry getAsZipEntry ()
+    {
+      final ZipEntry ret = new ZipEntry (m_sName);
+      ret.setMethod (m_nMethod);
+      ret.setCrc (m_nCrc);
+      ret.setSize (m_nSize);
+      ret.setCompressedSize (m_nCompressedSize);
+      return ret;
+    }
+  }
+
+  /**
+   * Input stream reading a range of a channel. The channel position is set before each read, so
+   * that multiple streams on the same channel may be used alternately.
+   */
+  private static final class ChannelRangeInputStream extends InputStream
+  {
+    private final SeekableByteChannel m_aChannel;
+    private long m_nPos;
+    private final long m_nEnd;
+
+    ChannelRangeInputStream (@NonNull final SeekableByteChannel aChannel, final long nPos, final long nLength)
+    {
+      m_aChannel = aChannel;
+      m_nPos = nPos;
+      m_nEnd = nPos + nLength;
+    }
+
+    @Override
+    public int read () throws IOException
+    {
+      final byte [] aBuf = new byte [1];
+      final int n = read (aBuf, 0, 1);
+      return n < 0 ? -1 : aBuf[0] & 0xff;
+    }
+
+    @Override
+    public int read (final byte [] aBuf, final int nOfs, final int nLen) throws IOException
+    {
+      if (nLen == 0)
+        return 0;
+      if (m_nPos >= m_nEnd)
+        return -1;
+
+      final int nMax = (int) Math.min (nLen, m_nEnd - m_nPos);
+      m_aChannel.position (m_nPos);
+      final int nRead = m_aChannel.read (ByteBuffer.wrap (aBuf, nOfs, nMax));
+      if (nRead < 0)
+        throw new EOFException ("Unexpected end of ZIP file");
+      m_nPos += nRead;
+      return nRead;
+    }
+
+    @Override
+    public long skip (final long nBytes)
+    {
+      final long nSkipped = Math.max (0, Math.min (nBytes, m_nEnd - m_nPos));
+      m_nPos += nSkipped;
+      return nSkipped;
+    }
+
+    @Override
+    public int available ()
+    {
+      return (int) Math.min (Integer.MAX_VALUE, m_nEnd - m_nPos);
+    }
+  }
+
+  private final ICommonsList <Entry> m_aEntries;
+
+  private AsicZipCentralDirectory (@NonNull final ICommonsList <Entry> aEntries)
+  {
+    m_aEntries = aEntries;
+  }
+
+  /**
+   * @return All entries in the order of the central directory. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  ICommonsList <Entry> getAllEntries ()
+  {
+    return m_aEntries.getClone ();
+  }
+
+  static void readFully (@NonNull final SeekableByteChannel aChannel,
+                         final long nPos,
+                         @NonNull final ByteBuffer aBuf) throws IOException
+  {
+    aChannel.position (nPos);
+    while (aBuf.hasRemaining ())
+      if (aChannel.read (aBuf) < 0)
+        throw new EOFException ("Unexpected end of ZIP file");
+    aBuf.flip ();
+  }
+
+  @NonNull
+  private static ByteBuffer _read (@NonNull final SeekableByteChannel aChannel, final long nPos, final int nLen)
+                                                                                                            throws IOException
+  {
+    final ByteBuffer ret = ByteBuffer.allocate (nLen).order (ByteOrder.LITTLE_ENDIAN);
+    readFully (aChannel, nPos, ret);
+    return ret;
+  }
+
+  private static int _u16 (@NonNull final ByteBuffer aBuf)
+  {
+    return aBuf.getShort () & 0xffff;
+  }
+
+  private static long _u32 (@NonNull final ByteBuffer aBuf)
+  {
+    return aBuf.getInt () & ZIP64_MAGIC;
+  }
+
+  /**
+   * Parse the central directory of the provided ZIP file.
+   *
+   * @param aChannel
+   *        The channel to read from. May not be <code>null</code>.
+   * @return The parsed central directory. Never <code>null</code>.
+   * @throws IOException
+   *         in case of IO error or if the file is no valid ZIP file
+   */
+  @NonNull
+  static AsicZipCentralDirectory read (@NonNull @WillNotClose final SeekableByteChannel aChannel) throws IOException
+  {
+    final long nFileSize = aChannel.size ();
+    if (nFileSize < END_OF_CENTRAL_DIRECTORY_SIZE)
+      throw new ZipException ("File is too small to be a ZIP file");
+
+    // Find the end of central directory record, which is followed by the
+    // (variable length) comment
+    final int nTailLen = (int) Math.min (nFileSize, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_COMMENT_SIZE);
+    final long nTailStart = nFileSize - nTailLen;
+    final ByteBuffer aTail = _read (aChannel, nTailStart, nTailLen);
+    int nEOCDPos = -1;
+    for (int i = nTailLen - END_OF_CENTRAL_DIRECTORY_SIZE; i >= 0; --i)
+      if (aTail.getInt (i) == SIG_END_OF_CENTRAL_DIRECTORY &&
+          i + END_OF_CENTRAL_DIRECTORY_SIZE + (aTail.getShort (i + 20) & 0xffff) == nTailLen)
+      {
+        nEOCDPos = i;
+        break;
+      }
+    if (nEOCDPos < 0)
+      throw new ZipException ("No end of central directory record found");
+
+    aTail.position (nEOCDPos + 10);
+    long nEntryCount = _u16 (aTail);
+    long nCDSize = _u32 (aTail);
+    long nCDOffset = _u32 (aTail);
+
+    if (nEntryCount == 0xffff || nCDSize == ZIP64_MAGIC || nCDOffset == ZIP64_MAGIC)
+    {
+      // ZIP64 end of central directory locator precedes the regular record
+      final long nLocatorPos = nTailStart + nEOCDPos - ZIP64_LOCATOR_SIZE;
+      if (nLocatorPos < 0)
+        throw new ZipException ("ZIP64 end of central directory locator is missing");
+      final ByteBuffer aLocator = _read (aChannel, nLocatorPos, ZIP64_LOCATOR_SIZE);
+      if (aLocator.getInt () != SIG_ZIP64_LOCATOR)
+        throw new ZipException ("ZIP64 end of central directory locator is missing");
+      aLocator.getInt ();
+      final long nEOCD64Pos = aLocator.getLong ();
+
+      final ByteBuffer aEOCD64 = _read (aChannel, nEOCD64Pos, ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE);
+      if (aEOCD64.getInt () != SIG_ZIP64_END_OF_CENTRAL_DIRECTORY)
+        throw new ZipException ("Invalid ZIP64 end of central directory record");
+      aEOCD64.position (32);
+      nEntryCount = aEOCD64.getLong ();
+      nCDSize = aEOCD64.getLong ();
+      nCDOffset = aEOCD64.getLong ();
+    }
+
+    if (nCDSize > Integer.MAX_VALUE || nCDOffset + nCDSize > nFileSize)
+      throw new ZipException ("Invalid central directory size " + nCDSize);
+
+    final ByteBuffer aCD = _read (aChannel, nCDOffset, (int) nCDSize);
+    final ICommonsList <Entry> aEntries = new CommonsArrayList <> ();
+    for (long n = 0; n < nEntryCount; ++n)
+    {
+      if (aCD.remaining () < CENTRAL_DIRECTORY_HEADER_SIZE || aCD.getInt () != SIG_CENTRAL_DIRECTORY)
+        throw new ZipException ("Invalid central directory header of entry " + n);
+
+      // Skip "version made by" and "version needed"
+      aCD.position (aCD.position () + 4);
+      final int nFlags = _u16 (aCD);
+      final int nMethod = _u16 (aCD);
+      final int nDosTime = aCD.getInt ();
+      final long nCrc = _u32 (aCD);
+      long nCompressedSize = _u32 (aCD);
+      long nSize = _u32 (aCD);
+      final int nNameLen = _u16 (aCD);
+      final int nExtraLen = _u16 (aCD);
+      final int nCommentLen = _u16 (aCD);
+      // Skip "disk number start", "internal attributes" and "external
+      // attributes"
+      aCD.position (aCD.position () + 8);
+      long nLocalHeaderOffset = _u32 (aCD);
+      if (nNameLen + nExtraLen + nCommentLen > aCD.remaining ())
+        throw new ZipException ("Invalid central directory header of entry " + n);
+
+      final byte [] aName = new byte [nNameLen];
+      aCD.get (aName);
+      final String sName = new String (aName, StandardCharsets.UTF_8);
+
+      // Resolve ZIP64 values
+      final int nExtraEnd = aCD.position () + nExtraLen;
+      while (aCD.position () + 4 <= nExtraEnd)
+      {
+        final int nHeaderID = _u16 (aCD);
+        final int nDataLen = _u16 (aCD);
+        final int nDataEnd = aCD.position () + nDataLen;
+        if (nDataEnd > nExtraEnd)
+          throw new ZipException ("Invalid central directory header of entry " + n);
+        if (nHeaderID == EXTRA_ID_ZIP64)
+        {
+          if (nSize == ZIP64_MAGIC && aCD.position () + 8 <= nDataEnd)
+            nSize = aCD.getLong ();
+          if (nCompressedSize == ZIP64_MAGIC && aCD.position () + 8 <= nDataEnd)
+            nCompressedSize = aCD.getLong ();
+          if (nLocalHeaderOffset == ZIP64_MAGIC && aCD.position () + 8 <= nDataEnd)
+            nLocalHeaderOffset = aCD.getLong ();
+        }
+        aCD.position (nDataEnd);
+      }
+      aCD.position (nExtraEnd + nCommentLen);
+
+      if (nMethod != ZipEntry.STORED && nMethod != ZipEntry.DEFLATED)
+        throw new ZipException ("Unsupported compression method " + nMethod + " of entry '" + sName + "'");
+      if ((nFlags & 1) != 0)
+        throw new ZipException ("Encrypted entry '" + sName + "' is not supported");
+
+      aEntries.add (new Entry (sName,
+                               nFlags,
+                               nMethod,
+                               nDosTime,
+                               nCrc,
+                               nCompressedSize,
+                               nSize,
+                               nLocalHeaderOffset));
+    }
+    return new AsicZipCentralDirectory (aEntries);
+  }
+
+  /**
+   * Determine the offset of the (compressed) data of an entry, by reading its local file header.
+   *
+   * @param aChannel
+   *        The channel to read from. May not be <code>null</code>.
+   * @param aEntry
+   *        The entry to locate. May not be <code>null</code>.
+   * @return The absolute offset of the first data byte.
+   * @throws IOException
+   *         in case of an IO error
+   */
+  static long getDataOffset (@NonNull final SeekableByteChannel aChannel, @NonNull final Entry aEntry)
+                                                                                                     throws IOException
+  {
+    final ByteBuffer aHeader = _read (aChannel, aEntry.getLocalHeaderOffset (), LOCAL_FILE_HEADER_SIZE);
+    if (aHeader.getInt () != SIG_LOCAL_FILE_HEADER)
+      throw new ZipException ("Invalid local file header of entry '" + aEntry.getName () + "'");
+    final int nNameLen = aHeader.getShort (26) & 0xffff;
+    final int nExtraLen = aHeader.getShort (28) & 0xffff;
+    return aEntry.getLocalHeaderOffset () + LOCAL_FILE_HEADER_SIZE + nNameLen + nExtraLen;
+  }
+
+  /**
+   * Open a stream with the raw (still compressed) data of an entry.
+   *
+   * @param aChannel
+   *        The channel to read from. May not be <code>null</code>.
+   * @param aEntry
+   *        The entry to read. May not be <code>null</code>.
+   * @return The stream. Never <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error
+   */
+  @NonNull
+  static InputStream openRawStream (@NonNull @WillNotClose final SeekableByteChannel aChannel,
+                                    @NonNull final Entry aEntry) throws IOException
+  {
+    return new ChannelRangeInputStream (aChannel, getDataOffset (aChannel, aEntry), aEntry.getCompressedSize ());
+  }
+
+  /**
+   * Open a stream with the uncompressed data of an entry.
+   *
+   * @param aChannel
+   *        The channel to read from. May not be <code>null</code>.
+   * @param aEntry
+   *        The entry to read. May not be <code>null</code>.
+   * @return The stream. Never <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error
+   */
+  @NonNull
+  static InputStream openStream (@NonNull @WillNotClose final SeekableByteChannel aChannel,
+                                 @NonNull final Entry aEntry) throws IOException
+  {
+    return openStream (aChannel, aEntry, getDataOffset (aChannel, aEntry));
+  }
+
+  /**
+   * Open a stream with the uncompressed data of an entry, whose data offset is already known. No IO
+   * happens until the stream is read.
+   *
+   * @param aChannel
+   *        The channel to read from. May not be <code>null</code>.
+   * @param aEntry
+   *        The entry to read. May not be <code>null</code>.
+   * @param nDataOffset
+   *        The absolute offset of the first data byte, as returned by
+   *        {@link #getDataOffset(SeekableByteChannel, Entry)}.
+   * @return The stream. Never <code>null</code>.
+   */
+  @NonNull
+  static InputStream openStream (@NonNull @WillNotClose final SeekableByteChannel aChannel,
+                                 @NonNull final Entry aEntry,
+                                 @Nonnegative final long nDataOffset)
+  {
+    final InputStream aRawIS = new ChannelRangeInputStream (aChannel, nDataOffset, aEntry.getCompressedSize ());
+    if (aEntry.getMethod () == ZipEntry.STORED)
+      return aRawIS;
+
+    final Inflater aInflater = new Inflater (true);
+    return new InflaterInputStream (aRawIS, aInflater, 8192)
+    {
+      private boolean m_bClosed = false;
+
+      @Override
+      public void close () throws IOException
+      {
+        if (!m_bClosed)
+        {
+          m_bClosed = true;
+          aInflater.end ();
+          super.close ();
+        }
+      }
+    };
+  }
+
+  /**
+   * Digest the uncompressed data of an entry by memory mapping the file. Stored entries are digested
+   * directly from the mapped region, deflated entries are inflated from the mapped region into the
+   * provided buffer. Regions larger than {@link #MAX_MAP_SIZE} are mapped in multiple parts.
+   *
+   * @param aChannel
+   *        The file channel to map. May not be <code>null</code>.
+   * @param aEntry
+   *        The entry to digest. May not be <code>null</code>.
+   * @param nDataOffset
+   *        The absolute offset of the first data byte, as returned by
+   *        {@link #getDataOffset(SeekableByteChannel, Entry)}.
+   * @param aBuffer
+   *        The buffer to inflate into. May not be <code>null</code>.
+   * @param aMultiDigest
+   *        The digests to update. May not be <code>null</code>.
+   * @return The number of uncompressed bytes digested.
+   * @throws IOException
+   *         in case of an IO error or if the entry data is invalid
+   */
+  @Nonnegative
+  static long digestMapped (@NonNull @WillNotClose final FileChannel aChannel,
+                            @NonNull final Entry aEntry,
+                            @Nonnegative final long nDataOffset,
+                            @NonNull final ByteBuffer aBuffer,
+                            @NonNull final AsicMultiDigest aMultiDigest) throws IOException
+  {
+    final long nCompressedSize = aEntry.getCompressedSize ();
+    if (nDataOffset + nCompressedSize > aChannel.size ())
+      throw new EOFException ("Entry '" + aEntry.getName () + "' exceeds the end of the ZIP file");
+
+    if (aEntry.getMethod () == ZipEntry.STORED)
+    {
+      long nPos = 0;
+      while (nPos < nCompressedSize)
+      {
+        final long nLen = Math.min (nCompressedSize - nPos, MAX_MAP_SIZE);
+        aMultiDigest.update (aChannel.map (FileChannel.MapMode.READ_ONLY, nDataOffset + nPos, nLen));
+        nPos += nLen;
+      }
+      return nCompressedSize;
+    }
+
+    final Inflater aInflater = new Inflater (true);
+    try
+    {
+      long ret = 0;
+      long nPos = 0;
+      while (!aInflater.finished ())
+      {
+        if (aInflater.needsInput ())
+        {
+          if (nPos >= nCompressedSize)
+            throw new EOFException ("Unexpected end of entry '" + aEntry.getName () + "'");
+          final long nLen = Math.min (nCompressedSize - nPos, MAX_MAP_SIZE);
+          aInflater.setInput (aChannel.map (FileChannel.MapMode.READ_ONLY, nDataOffset + nPos, nLen));
+          nPos += nLen;
+        }
+
+        aBuffer.clear ();
+        try
+        {
+          aInflater.inflate (aBuffer);
+        }
+        catch (final DataFormatException ex)
+        {
+          throw new ZipException ("Invalid deflated data of entry '" + aEntry.getName () + "': " + ex.getMessage ());
+        }
+        if (aInflater.needsDictionary ())
+          throw new ZipException ("Invalid deflated data of entry '" + aEntry.getName () + "'");
+        aBuffer.flip ();
+        ret += aBuffer.remaining ();
+        aMultiDigest.update (aBuffer);
+      }
+      if (ret != aEntry.getSize ())
+        throw new ZipException ("Invalid size of entry '" +
+                                aEntry.getName () +
+                                "': expected " +
+                                aEntry.getSize () +
+                                " but got " +
+                                ret);
+      return ret;
+    }
+    finally
+    {
+      aInflater.end ();
+    }
+  }
+
+  @Nullable
+  static Entry findEntry (@NonNull final Iterable <Entry> aEntries, @Nullable final String sName)
+  {
+    for (final Entry aEntry : aEntries)
+      if (aEntry.getName ().equals (sName))
+        return aEntry;
+    return null;
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.WillCloseWhenClosed;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.CommonsHashMap;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.collection.commons.ICommonsMap;
+import com.helger.collection.commons.ICommonsOrderedMap;
+
+/**
+ * {@link IAsicEntrySource} based on the central directory of a {@link ZipFile}. Only payload
+ * entries are returned by {@link #getNextEntry()} - all META-INF entries must be handled upfront
+ * via {@link #handleAllMetadataEntries(AbstractAsicReader)}.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@NotThreadSafe
+final class AsicZipFileEntrySource implements IAsicEntrySource
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (AsicZipFileEntrySource.class);
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final ZipFile m_aZipFile;
+  private final ZipEntry m_aMimeTypeEntry;
+  private final ICommonsList <ZipEntry> m_aMetadataEntries = new CommonsArrayList <> ();
+  private final ICommonsList <ZipEntry> m_aPayloadEntries = new CommonsArrayList <> ();
+  private final ICommonsMap <String, ZipEntry> m_aPayloadEntryMap = new CommonsHashMap <> ();
+  private int m_nNextIndex = 0;
+  private InputStream m_aCurrentIS;
+
+  AsicZipFileEntrySource (@NonNull @WillCloseWhenClosed final ZipFile aZipFile)
+  {
+    m_aZipFile = aZipFile;
+
+    ZipEntry aMimeTypeEntry = null;
+    final Enumeration <? extends ZipEntry> aEnum = aZipFile.entries ();
+    while (aEnum.hasMoreElements ())
+    {
+      final ZipEntry aEntry = aEnum.nextElement ();
+      final String sName = aEntry.getName ();
+      if (sName.equals (AsicInputStream.ZIPENTRY_NAME_MIMETYPE))
+        aMimeTypeEntry = aEntry;
+      else
+        if (sName.startsWith ("META-INF/"))
+          m_aMetadataEntries.add (aEntry);
+        else
+        {
+          m_aPayloadEntries.add (aEntry);
+          m_aPayloadEntryMap.put (sName, aEntry);
+        }
+    }
+    m_aMimeTypeEntry = aMimeTypeEntry;
+  }
+
+  /**
+   * Check the mimetype entry and pass all META-INF entries to the provided reader. Afterwards all
+   * CAdES manifests and signatures must be matched.
+   *
+   * @param aReader
+   *        The reader to handle the entries. May not be <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error
+   */
+  void handleAllMetadataEntries (@NonNull final AbstractAsicReader aReader) throws IOException
+  {
+    // Check the mimetype if present
+    if (m_aMimeTypeEntry != null)
+      try (final InputStream aIS = m_aZipFile.getInputStream (m_aMimeTypeEntry))
+      {
+        AsicInputStream.verifyMimeTypeContent (aIS);
+      }
+
+    // Read all manifests and signatures before any payload
+    for (final ZipEntry aEntry : m_aMetadataEntries)
+    {
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("Found metadata file: " + aEntry.getName ());
+
+      try (final InputStream aIS = m_aZipFile.getInputStream (aEntry))
+      {
+        aReader.internalHandleMetadataEntry (aEntry.getName (), aIS);
+      }
+    }
+
+    // All CAdES signatures and manifest must match
+    aReader.internalVerifyAllSignaturesUsed ();
+  }
+
+  @NonNull
+  @ReturnsMutableCopy
+  ICommonsList <ZipEntry> getAllPayloadEntries ()
+  {
+    return m_aPayloadEntries.getClone ();
+  }
+
+  @Nullable
+  ZipEntry getPayloadEntry (@Nullable final String sFilename)
+  {
+    return m_aPayloadEntryMap.get (sFilename);
+  }
+
+  @NonNull
+  InputStream openPayloadEntry (@NonNull final ZipEntry aEntry) throws IOException
+  {
+    return m_aZipFile.getInputStream (aEntry);
+  }
+
+  /**
+   * Calculate the digests of a single payload entry. This method may be called concurrently for
+   * different entries, as {@link ZipFile} is safe for concurrent use.
+   *
+   * @param aEntry
+   *        The entry to digest. May not be <code>null</code>.
+   * @param aMultiDigest
+   *        The message digests to use. May not be <code>null</code>.
+   * @return The digest values per algorithm. Never <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error
+   */
+  @NonNull
+  ICommonsOrderedMap <EMessageDigestAlgorithm, byte []> digestPayloadEntry (@NonNull final ZipEntry aEntry,
+                                                                           @NonNull final AsicMultiDigest aMultiDigest) throws IOException
+  {
+    aMultiDigest.reset ();
+    try (final InputStream aIS = m_aZipFile.getInputStream (aEntry))
+    {
+      final byte [] aBuffer = new byte [BUFFER_SIZE];
+      int nRead;
+      while ((nRead = aIS.read (aBuffer)) >= 0)
+        aMultiDigest.update (aBuffer, 0, nRead);
+    }
+    return aMultiDigest.digest ();
+  }
+
+  @Nullable
+  public ZipEntry getNextEntry () throws IOException
+  {
+    closeEntry ();
+
+    if (m_nNextIndex >= m_aPayloadEntries.size ())
+      return null;
+
+    final ZipEntry ret = m_aPayloadEntries.get (m_nNextIndex++);
+    m_aCurrentIS = m_aZipFile.getInputStream (ret);
+    return ret;
+  }
+
+  @NonNull
+  public InputStream getEntryInputStream ()
+  {
+    if (m_aCurrentIS == null)
+      throw new IllegalStateException ("No file to read.");
+    return m_aCurrentIS;
+  }
+
+  public void closeEntry () throws IOException
+  {
+    if (m_aCurrentIS != null)
+    {
+      m_aCurrentIS.close ();
+      m_aCurrentIS = null;
+    }
+  }
+
+  @Override
+  public boolean isMetadataFirst ()
+  {
+    return true;
+  }
+
+  public void close () throws IOException
+  {
+    try
+    {
+      closeEntry ();
+    }
+    finally
+    {
+      m_aZipFile.close ();
+    }
+  }
+}
@@ -0,0 +1,515 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.WillCloseWhenClosed;
+import com.helger.annotation.WillNotClose;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.CommonsHashSet;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.collection.commons.ICommonsSet;
+
+/**
+ * Minimal ZIP writer that can store the already compressed data of an entry from another ZIP file
+ * unchanged. Opposite to {@link java.util.zip.ZipOutputStream} the CRC and the sizes of each entry
+ * must be known before the entry is written, so no data descriptors are needed. Only deflated data
+ * that is compressed elsewhere may be streamed with a trailing data descriptor via
+ * {@link #startDeflatedEntry(String)}. ZIP64 is written where needed. It is the counterpart of
+ * {@link AsicZipCentralDirectory}.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@NotThreadSafe
+final class AsicZipRawWriter implements Closeable
+{
+  private static final int VERSION_NEEDED = 20;
+  private static final int VERSION_NEEDED_ZIP64 = 45;
+
+  /**
+   * The data remembered per entry for the central directory.
+   */
+  private static final class WrittenEntry
+  {
+    private final byte [] m_aName;
+    private final int m_nFlags;
+    private final int m_nMethod;
+    private final int m_nDosTime;
+    private final long m_nCrc;
+    private final long m_nCompressedSize;
+    private final long m_nSize;
+    private final long m_nLocalHeaderOffset;
+
+    WrittenEntry (@NonNull final byte [] aName,
+                  final int nFlags,
+                  final int nMethod,
+                  final int nDosTime,
+                  final long nCrc,
+                  final long nCompressedSize,
+                  final long nSize,
+                  final long nLocalHeaderOffset)
+    {
+      m_aName = aName;
+      m_nFlags = nFlags;
+      m_nMethod = nMethod;
+      m_nDosTime = nDosTime;
+      m_nCrc = nCrc;
+      m_nCompressedSize = nCompressedSize;
+      m_nSize = nSize;
+      m_nLocalHeaderOffset = nLocalHeaderOffset;
+    }
+
+    boolean isZip64Size ()
+    {
+      return m_nSize >= AsicZipCentralDirectory.ZIP64_MAGIC ||
+             m_nCompressedSize >= AsicZipCentralDirectory.ZIP64_MAGIC;
+    }
+  }
+
+  private final OutputStream m_aOS;
+  private final byte [] m_aComment;
+  private final ICommonsList <WrittenEntry> m_aEntries = new CommonsArrayList <> ();
+  private final ICommonsSet <String> m_aNames = new CommonsHashSet <> ();
+  private long m_nOffset = 0;
+  private boolean m_bClosed = false;
+  // The entry started with startDeflatedEntry
+  private String m_sOpenEntryName;
+  private int m_nOpenEntryDosTime;
+  private long m_nOpenEntryOffset;
+
+  /**
+   * Constructor
+   *
+   * @param aOS
+   *        The stream to write to. Is closed when this writer is closed. May not be
+   *        <code>null</code>.
+   * @param sComment
+   *        The optional ZIP file comment. May be <code>null</code>.
+   */
+  AsicZipRawWriter (@NonNull @WillCloseWhenClosed final OutputStream aOS, @Nullable final String sComment)
+  {
+    m_aOS = aOS;
+    m_aComment = sComment == null ? new byte [0] : sComment.getBytes (StandardCharsets.UTF_8);
+    if (m_aComment.length > AsicZipCentralDirectory.MAX_COMMENT_SIZE)
+      throw new IllegalArgumentException ("ZIP file comment is too long");
+  }
+
+  /**
+   * Convert a Java timestamp to the MS-DOS date and time format used in ZIP files.
+   *
+   * @param nMillis
+   *        Milliseconds since the epoch.
+   * @return The DOS date and time (time in the lower 16 bits).
+   */
+  static int getDosTime (final long nMillis)
+  {
+    final LocalDateTime aLDT = LocalDateTime.ofInstant (Instant.ofEpochMilli (nMillis), ZoneId.systemDefault ());
+    if (aLDT.getYear () < 1980)
+      return (1 << 21) | (1 << 16);
+    return (aLDT.getYear () - 1980) << 25 |
+           aLDT.getMonthValue () << 21 |
+           aLDT.getDayOfMonth () << 16 |
+           aLDT.getHour () << 11 |
+           aLDT.getMinute () << 5 |
+           aLDT.getSecond () >> 1;
+  }
+
+  private void _write (@NonNull final ByteBuffer aBuf) throws IOException
+  {
+    m_aOS.write (aBuf.array (), 0, aBuf.position ());
+    m_nOffset += aBuf.position ();
+  }
+
+  @NonNull
+  private static ByteBuffer _allocate (@Nonnegative final int nSize)
+  {
+    return ByteBuffer.allocate (nSize).order (ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private void _checkName (@NonNull final String sName) throws ZipException
+  {
+    if (m_bClosed)
+      throw new IllegalStateException ("Writer is already closed");
+    if (m_sOpenEntryName != null)
+      throw new IllegalStateException ("Entry '" + m_sOpenEntryName + "' is not yet finished");
+    if (!m_aNames.add (sName))
+      throw new ZipException ("duplicate entry: " + sName);
+  }
+
+  private void _startEntry (@NonNull final String sName,
+                            final int nMethod,
+                            final int nDosTime,
+                            final long nCrc,
+                            final long nCompressedSize,
+                            final long nSize) throws IOException
+  {
+    if (nMethod != ZipEntry.STORED && nMethod != ZipEntry.DEFLATED)
+      throw new ZipException ("Unsupported compression method " + nMethod + " of entry '" + sName + "'");
+    _checkName (sName);
+
+    final WrittenEntry aEntry = new WrittenEntry (sName.getBytes (StandardCharsets.UTF_8),
+                                                  AsicZipCentralDirectory.FLAG_UTF8,
+                                                  nMethod,
+                                                  nDosTime,
+                                                  nCrc,
+                                                  nCompressedSize,
+                                                  nSize,
+                                                  m_nOffset);
+    final boolean bZip64 = aEntry.isZip64Size ();
+
+    final ByteBuffer aHeader = _allocate (AsicZipCentralDirectory.LOCAL_FILE_HEADER_SIZE +
+                                          aEntry.m_aName.length +
+                                          (bZip64 ? 20 : 0));
+    aHeader.putInt (AsicZipCentralDirectory.SIG_LOCAL_FILE_HEADER);
+    aHeader.putShort ((short) (bZip64 ? VERSION_NEEDED_ZIP64 : VERSION_NEEDED));
+    aHeader.putShort ((short) AsicZipCentralDirectory.FLAG_UTF8);
+    aHeader.putShort ((short) nMethod);
+    aHeader.putInt (nDosTime);
+    aHeader.putInt ((int) nCrc);
+    aHeader.putInt (bZip64 ? (int) AsicZipCentralDirectory.ZIP64_MAGIC : (int) nCompressedSize);
+    aHeader.putInt (bZip64 ? (int) AsicZipCentralDirectory.ZIP64_MAGIC : (int) nSize);
+    aHeader.putShort ((short) aEntry.m_aName.length);
+    aHeader.putShort ((short) (bZip64 ? 20 : 0));
+    aHeader.put (aEntry.m_aName);
+    if (bZip64)
+    {
+      // The local header must contain both sizes
+      aHeader.putShort ((short) AsicZipCentralDirectory.EXTRA_ID_ZIP64);
+      aHeader.putShort ((short) 16);
+      aHeader.putLong (nSize);
+      aHeader.putLong (nCompressedSize);
+    }
+    _write (aHeader);
+    m_aEntries.add (aEntry);
+  }
+
+  /**
+   * Write an entry with the provided uncompressed content.
+   *
+   * @param sName
+   *        The entry name. May not be <code>null</code>.
+   * @param nMethod
+   *        {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+   * @param aContent
+   *        The uncompressed content. May not be <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error or a duplicate entry name
+   */
+  void writeEntry (@NonNull final String sName, final int nMethod, @NonNull final byte [] aContent) throws IOException
+  {
+    final CRC32 aCrc = new CRC32 ();
+    aCrc.update (aContent);
+
+    byte [] aData = aContent;
+    if (nMethod == ZipEntry.DEFLATED)
+    {
+      final Deflater aDeflater = new Deflater (Deflater.DEFAULT_COMPRESSION, true);
+      try (final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+           final DeflaterOutputStream aDOS = new DeflaterOutputStream (aBAOS, aDeflater))
+      {
+        aDOS.write (aContent);
+        aDOS.finish ();
+        aData = aBAOS.toByteArray ();
+      }
+      finally
+      {
+        aDeflater.end ();
+      }
+    }
+
+    _startEntry (sName,
+                 nMethod,
+                 getDosTime (System.currentTimeMillis ()),
+                 aCrc.getValue (),
+                 aData.length,
+                 aContent.length);
+    m_aOS.write (aData);
+    m_nOffset += aData.length;
+  }
+
+  /**
+   * Write an entry with the raw data of an entry of another ZIP file. Method, CRC, sizes and
+   * modification time are taken from the source entry, the data is copied without decompressing
+   * it.
+   *
+   * @param sName
+   *        The entry name in the target. May differ from the source entry name. May not be
+   *        <code>null</code>.
+   * @param aSourceEntry
+   *        The source entry. May not be <code>null</code>.
+   * @param aRawIS
+   *        The raw data of the source entry, as created by
+   *        {@link AsicZipCentralDirectory#openRawStream(java.nio.channels.SeekableByteChannel, AsicZipCentralDirectory.Entry)}.
+   *        May not be <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error, a duplicate entry name or if the raw data length does not
+   *         match the source entry
+   */
+  void writeRawEntry (@NonNull final String sName,
+                      final AsicZipCentralDirectory.@NonNull Entry aSourceEntry,
+                      @NonNull @WillNotClose final InputStream aRawIS) throws IOException
+  {
+    _startEntry (sName,
+                 aSourceEntry.getMethod (),
+                 aSourceEntry.getDosTime (),
+                 aSourceEntry.getCrc (),
+                 aSourceEntry.getCompressedSize (),
+                 aSourceEntry.getSize ());
+    final long nCopied = aRawIS.transferTo (m_aOS);
+    m_nOffset += nCopied;
+    if (nCopied != aSourceEntry.getCompressedSize ())
+      throw new ZipException ("Expected " +
+                              aSourceEntry.getCompressedSize () +
+                              " bytes of entry '" +
+                              aSourceEntry.getName () +
+                              "' but found " +
+                              nCopied);
+  }
+
+  /**
+   * Start a deflated entry whose CRC and sizes are not yet known. The compressed data must be
+   * written with {@link #writeRawData(byte[], int, int)} and the entry must be finished with
+   * {@link #endDeflatedEntry(long, long, long)} before any other entry is written.
+   *
+   * @param sName
+   *        The entry name. May not be <code>null</code>.
+   * @throws IOException
+   *         in case of an IO error or a duplicate entry name
+   */
+  void startDeflatedEntry (@NonNull final String sName) throws IOException
+  {
+    _checkName (sName);
+
+    final byte [] aName = sName.getBytes (StandardCharsets.UTF_8);
+    m_sOpenEntryName = sName;
+    m_nOpenEntryDosTime = getDosTime (System.currentTimeMillis ());
+    m_nOpenEntryOffset = m_nOffset;
+
+    final ByteBuffer aHeader = _allocate (AsicZipCentralDirectory.LOCAL_FILE_HEADER_SIZE + aName.length);
+    aHeader.putInt (AsicZipCentralDirectory.SIG_LOCAL_FILE_HEADER);
+    aHeader.putShort ((short) VERSION_NEEDED);
+    aHeader.putShort ((short) (AsicZipCentralDirectory.FLAG_UTF8 | AsicZipCentralDirectory.FLAG_DATA_DESCRIPTOR));
+    aHeader.putShort ((short) ZipEntry.DEFLATED);
+    aHeader.putInt (m_nOpenEntryDosTime);
+    // CRC and sizes follow in the data descriptor
+    aHeader.putInt (0);
+    aHeader.putInt (0);
+    aHeader.putInt (0);
+    aHeader.putShort ((short) aName.length);
+    aHeader.putShort ((short) 0);
+    aHeader.put (aName);
+    _write (aHeader);
+  }
+
+  /**
+   * Write compressed data of the entry started with {@link #startDeflatedEntry(String)}.
+   *
+   * @param aData
+   *        The buffer. May not be <code>null</code>.
+   * @param nOfs
+   *        Offset into the buffer
+   * @param nLen
+   *        Number of bytes to write
+   * @throws IOException
+   *         in case of an IO error
+   */
+  void writeRawData (@NonNull final byte [] aData,
+                     @Nonnegative final int nOfs,
+                     @Nonnegative final int nLen) throws IOException
+  {
+    if (m_sOpenEntryName == null)
+      throw new IllegalStateException ("No entry was started");
+    m_aOS.write (aData, nOfs, nLen);
+    m_nOffset += nLen;
+  }
+
+  /**
+   * Finish the entry started with {@link #startDeflatedEntry(String)} by writing the data
+   * descriptor.
+   *
+   * @param nCrc
+   *        The CRC32 of the uncompressed data
+   * @param nCompressedSize
+   *        The number of compressed bytes written
+   * @param nSize
+   *        The number of uncompressed bytes
+   * @throws IOException
+   *         in case of an IO error
+   */
+  void endDeflatedEntry (final long nCrc,
+                         @Nonnegative final long nCompressedSize,
+                         @Nonnegative final long nSize) throws IOException
+  {
+    if (m_sOpenEntryName == null)
+      throw new IllegalStateException ("No entry was started");
+
+    final WrittenEntry aEntry = new WrittenEntry (m_sOpenEntryName.getBytes (StandardCharsets.UTF_8),
+                                                  AsicZipCentralDirectory.FLAG_UTF8 |
+                                                    AsicZipCentralDirectory.FLAG_DATA_DESCRIPTOR,
+                                                  ZipEntry.DEFLATED,
+                                                  m_nOpenEntryDosTime,
+                                                  nCrc,
+                                                  nCompressedSize,
+                                                  nSize,
+                                                  m_nOpenEntryOffset);
+    m_sOpenEntryName = null;
+
+    // Like ZipOutputStream, 8 byte sizes are only used if needed
+    final boolean bZip64 = aEntry.isZip64Size ();
+    final ByteBuffer aDescriptor = _allocate (bZip64 ? 24 : 16);
+    aDescriptor.putInt (AsicZipCentralDirectory.SIG_DATA_DESCRIPTOR);
+    aDescriptor.putInt ((int) nCrc);
+    if (bZip64)
+    {
+      aDescriptor.putLong (nCompressedSize);
+      aDescriptor.putLong (nSize);
+    }
+    else
+    {
+      aDescriptor.putInt ((int) nCompressedSize);
+      aDescriptor.putInt ((int) nSize);
+    }
+    _write (aDescriptor);
+    m_aEntries.add (aEntry);
+  }
+
+  private void _writeCentralDirectory () throws IOException
+  {
+    final long nCDOffset = m_nOffset;
+    for (final WrittenEntry aEntry : m_aEntries)
+    {
+      final boolean bZip64Offset = aEntry.m_nLocalHeaderOffset >= AsicZipCentralDirectory.ZIP64_MAGIC;
+      final boolean bZip64Size = aEntry.isZip64Size ();
+      final int nExtraLen = bZip64Size || bZip64Offset ? 4 + (bZip64Size ? 16 : 0) + (bZip64Offset ? 8 : 0) : 0;
+
+      final ByteBuffer aHeader = _allocate (AsicZipCentralDirectory.CENTRAL_DIRECTORY_HEADER_SIZE +
+                                            aEntry.m_aName.length +
+                                            nExtraLen);
+      aHeader.putInt (AsicZipCentralDirectory.SIG_CENTRAL_DIRECTORY);
+      final int nVersion = nExtraLen > 0 ? VERSION_NEEDED_ZIP64 : VERSION_NEEDED;
+      aHeader.putShort ((short) nVersion);
+      aHeader.putShort ((short) nVersion);
+      aHeader.putShort ((short) aEntry.m_nFlags);
+      aHeader.putShort ((short) aEntry.m_nMethod);
+      aHeader.putInt (aEntry.m_nDosTime);
+      aHeader.putInt ((int) aEntry.m_nCrc);
+      aHeader.putInt (bZip64Size ? (int) AsicZipCentralDirectory.ZIP64_MAGIC : (int) aEntry.m_nCompressedSize);
+      aHeader.putInt (bZip64Size ? (int) AsicZipCentralDirectory.ZIP64_MAGIC : (int) aEntry.m_nSize);
+      aHeader.putShort ((short) aEntry.m_aName.length);
+      aHeader.putShort ((short) nExtraLen);
+      // Comment length, disk number start, internal and external attributes
+      aHeader.putShort ((short) 0);
+      aHeader.putShort ((short) 0);
+      aHeader.putShort ((short) 0);
+      aHeader.putInt (0);
+      aHeader.putInt (bZip64Offset ? (int) AsicZipCentralDirectory.ZIP64_MAGIC : (int) aEntry.m_nLocalHeaderOffset);
+      aHeader.put (aEntry.m_aName);
+      if (nExtraLen > 0)
+      {
+        aHeader.putShort ((short) AsicZipCentralDirectory.EXTRA_ID_ZIP64);
+        aHeader.putShort ((short) (nExtraLen - 4));
+        if (bZip64Size)
+        {
+          aHeader.putLong (aEntry.m_nSize);
+          aHeader.putLong (aEntry.m_nCompressedSize);
+        }
+        if (bZip64Offset)
+          aHeader.putLong (aEntry.m_nLocalHeaderOffset);
+      }
+      _write (aHeader);
+    }
+    final long nCDSize = m_nOffset - nCDOffset;
+    final int nEntryCount = m_aEntries.size ();
+
+    final boolean bZip64 = nEntryCount >= 0xffff ||
+                           nCDSize >= AsicZipCentralDirectory.ZIP64_MAGIC ||
+                           nCDOffset >= AsicZipCentralDirectory.ZIP64_MAGIC;
+    if (bZip64)
+    {
+      final long nEOCD64Offset = m_nOffset;
+      final ByteBuffer aEOCD64 = _allocate (AsicZipCentralDirectory.ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE +
+                                            AsicZipCentralDirectory.ZIP64_LOCATOR_SIZE);
+      aEOCD64.putInt (AsicZipCentralDirectory.SIG_ZIP64_END_OF_CENTRAL_DIRECTORY);
+      // Size of the remaining record
+      aEOCD64.putLong (AsicZipCentralDirectory.ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE - 12);
+      aEOCD64.putShort ((short) VERSION_NEEDED_ZIP64);
+      aEOCD64.putShort ((short) VERSION_NEEDED_ZIP64);
+      // Number of this disk and the disk with the central directory
+      aEOCD64.putInt (0);
+      aEOCD64.putInt (0);
+      aEOCD64.putLong (nEntryCount);
+      aEOCD64.putLong (nEntryCount);
+      aEOCD64.putLong (nCDSize);
+      aEOCD64.putLong (nCDOffset);
+
+      aEOCD64.putInt (AsicZipCentralDirectory.SIG_ZIP64_LOCATOR);
+      aEOCD64.putInt (0);
+      aEOCD64.putLong (nEOCD64Offset);
+      // Total number of disks
+      aEOCD64.putInt (1);
+      _write (aEOCD64);
+    }
+
+    final ByteBuffer aEOCD = _allocate (AsicZipCentralDirectory.END_OF_CENTRAL_DIRECTORY_SIZE + m_aComment.length);
+    aEOCD.putInt (AsicZipCentralDirectory.SIG_END_OF_CENTRAL_DIRECTORY);
+    aEOCD.putShort ((short) 0);
+    aEOCD.putShort ((short) 0);
+    aEOCD.putShort ((short) Math.min (nEntryCount, 0xffff));
+    aEOCD.putShort ((short) Math.min (nEntryCount, 0xffff));
+    aEOCD.putInt (bZip64 ? (int) AsicZipCentralDirectory.ZIP64_MAGIC : (int) nCDSize);
+    aEOCD.putInt (bZip64 ? (int) AsicZipCentralDirectory.ZIP64_MAGIC : (int) nCDOffset);
+    aEOCD.putShort ((short) m_aComment.length);
+    aEOCD.put (m_aComment);
+    _write (aEOCD);
+  }
+
+  /**
+   * Write the central directory and close the underlying stream.
+   */
+  public void close () throws IOException
+  {
+    if (!m_bClosed)
+    {
+      m_bClosed = true;
+      try
+      {
+        _writeCentralDirectory ();
+      }
+      finally
+      {
+        m_aOS.close ();
+      }
+    }
+  }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.WillCloseWhenClosed;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.io.stream.StreamHelper;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.mime.IMimeType;
+
+/**
+ * Asynchronous facade for {@link IAsicWriter}. All operations return immediately with a
+ * {@link CompletableFuture} and are executed one after another on the provided executor, in the
+ * order they were called. The content of the entries is provided as {@link ByteBuffer} chunks or as
+ * {@link Flow.Publisher} and is digested while it is written. If an operation fails, all following
+ * operations fail with the same cause, as the container is unusable afterwards. The output is
+ * closed on the first failure.
+ * <p>
+ * The underlying writer is blocking, so the executor thread waits for the channel and for the
+ * chunks of a publisher. Use an executor that is allowed to block (e.g. virtual threads on Java 21
+ * and later) and never the event loop of the caller.
+ * <p>
+ * Instances are created via <code>AsicWriterFactory.newAsyncContainer</code>.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@ThreadSafe
+public final class AsyncAsicWriter
+{
+  /**
+   * Action on the underlying writer.
+   */
+  @FunctionalInterface
+  interface IWriterAction
+  {
+    void run (@NonNull IAsicWriter aWriter) throws IOException;
+  }
+
+  /**
+   * Creation of the underlying writer, which already writes to the output.
+   */
+  @FunctionalInterface
+  interface IWriterCreator
+  {
+    @NonNull
+    IAsicWriter create () throws IOException;
+  }
+
+  /**
+   * Input stream reading a sequence of buffers, without modifying them.
+   */
+  private static final class ByteBufferSequenceInputStream extends InputStream
+  {
+    private final Iterator <ByteBuffer> m_aIter;
+    private ByteBuffer m_aCurrent;
+
+    ByteBufferSequenceInputStream (@NonNull final Iterable <ByteBuffer> aChunks)
+    {
+      m_aIter = aChunks.iterator ();
+    }
+
+    private boolean _ensureCurrent ()
+    {
+      while (m_aCurrent == null || !m_aCurrent.hasRemaining ())
+      {
+        if (!m_aIter.hasNext ())
+          return false;
+        m_aCurrent = m_aIter.next ().duplicate ();
+      }
+      return true;
+    }
+
+    @Override
+    public int read ()
+    {
+      return _ensureCurrent () ? m_aCurrent.get () & 0xff : -1;
+    }
+
+    @Override
+    public int read (final byte [] aBuf, final int nOfs, final int nLen)
+    {
+      if (nLen == 0)
+        return 0;
+      if (!_ensureCurrent ())
+        return -1;
+
+      final int ret = Math.min (nLen, m_aCurrent.remaining ());
+      m_aCurrent.get (aBuf, nOfs, ret);
+      return ret;
+    }
+  }
+
+  private final Closeable m_aOutput;
+  private final Executor m_aExecutor;
+  private final Lock m_aLock = new ReentrantLock ();
+  // The writer is only accessed by the operations, which never run concurrently
+  private IAsicWriter m_aWriter;
+  // The completion of the last enqueued operation
+  private CompletableFuture <Void> m_aTail;
+
+  AsyncAsicWriter (@NonNull final IWriterCreator aCreator,
+                   @NonNull @WillCloseWhenClosed final Closeable aOutput,
+                   @NonNull final Executor aExecutor)
+  {
+    ValueEnforcer.notNull (aCreator, "Creator");
+    ValueEnforcer.notNull (aOutput, "Output");
+    ValueEnforcer.notNull (aExecutor, "Executor");
+    m_aOutput = aOutput;
+    m_aExecutor = aExecutor;
+    m_aTail = CompletableFuture.runAsync ( () -> {
+      try
+      {
+        m_aWriter = aCreator.create ();
+      }
+      catch (final IOException ex)
+      {
+        StreamHelper.close (aOutput);
+        throw new CompletionException (ex);
+      }
+      catch (final RuntimeException ex)
+      {
+        StreamHelper.close (aOutput);
+        throw ex;
+      }
+    }, aExecutor);
+  }
+
+  @NonNull
+  private static Throwable _unwrap (@NonNull final Throwable t)
+  {
+    return t instanceof CompletionException && t.getCause () != null ? t.getCause () : t;
+  }
+
+  @NonNull
+  private CompletableFuture <Void> _enqueue (@NonNull final IWriterAction aAction)
+  {
+    final CompletableFuture <Void> ret = new CompletableFuture <> ();
+    m_aLock.lock ();
+    try
+    {
+      m_aTail.whenCompleteAsync ( (x, aPrevError) -> {
+        if (aPrevError != null)
+          ret.completeExceptionally (_unwrap (aPrevError));
+        else
+          try
+          {
+            aAction.run (m_aWriter);
+            ret.complete (null);
+          }
+          catch (final Throwable t)
+          {
+            // The container is unusable - the following operations are skipped, so the output
+            // would never be closed otherwise
+            StreamHelper.close (m_aOutput);
+            ret.completeExceptionally (t);
+          }
+      }, m_aExecutor);
+      m_aTail = ret;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+    return ret;
+  }
+
+  /**
+   * Add an entry, whose content is completely available. The buffers are read from their current
+   * position to their limit, without modifying them, and must not be changed until the returned
+   * future is completed.
+   *
+   * @param aChunks
+   *        The content chunks in order. May not be <code>null</code>.
+   * @param sFilename
+   *        The entry name. May not be <code>null</code>.
+   * @param aMimeType
+   *        The MIME type of the entry. May not be <code>null</code>.
+   * @return A future that is completed when the entry was written. Never <code>null</code>.
+   */
+  @NonNull
+  public CompletableFuture <Void> add (@NonNull final Iterable <ByteBuffer> aChunks,
+                                       @NonNull final String sFilename,
+                                       @NonNull final IMimeType aMimeType)
+  {
+    ValueEnforcer.notNull (aChunks, "Chunks");
+    ValueEnforcer.notNull (sFilename, "Filename");
+    ValueEnforcer.notNull (aMimeType, "MimeType");
+
+    // Decouple from later changes of the provided collection
+    final ICommonsList <ByteBuffer> aCopy = new CommonsArrayList <> ();
+    for (final ByteBuffer aChunk : aChunks)
+      aCopy.add (aChunk);
+    return _enqueue (aWriter -> aWriter.add (new ByteBufferSequenceInputStream (aCopy), sFilename, aMimeType));
+  }
+
+  /**
+   * Add an entry, whose content is published asynchronously. The publisher is only subscribed to
+   * when all previous operations are completed, and only a limited number of chunks is requested
+   * ahead. The published buffers are read from their current position to their limit and must not
+   * be changed afterwards. If writing fails, the subscription is cancelled.
+   *
+   * @param aPublisher
+   *        The publisher of the content chunks. May not be <code>null</code>.
+   * @param sFilename
+   *        The entry name. May not be <code>null</code>.
+   * @param aMimeType
+   *        The MIME type of the entry. May not be <code>null</code>.
+   * @return A future that is completed when the entry was written. Never <code>null</code>.
+   */
+  @NonNull
+  public CompletableFuture <Void> add (@NonNull final Publisher <ByteBuffer> aPublisher,
+                                       @NonNull final String sFilename,
+                                       @NonNull final IMimeType aMimeType)
+  {
+    ValueEnforcer.notNull (aPublisher, "Publisher");
+    ValueEnforcer.notNull (sFilename, "Filename");
+    ValueEnforcer.notNull (aMimeType, "MimeType");
+
+    return _enqueue (aWriter -> {
+      try (final AsicPublisherInputStream aIS = new AsicPublisherInputStream (AsicPublisherInputStream.DEFAULT_PREFETCH))
+      {
+        aPublisher.subscribe (aIS);
+        aWriter.add (aIS, sFilename, aMimeType);
+      }
+    });
+  }
+
+  /**
+   * Sign the container and finish writing it. The output is closed afterwards.
+   *
+   * @param aSH
+   *        The signature helper to use. May not be <code>null</code>.
+   * @return A future that is completed when the container is completely written. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  public CompletableFuture <Void> sign (@NonNull final SignatureHelper aSH)
+  {
+    ValueEnforcer.notNull (aSH, "SH");
+    return _enqueue (aWriter -> aWriter.sign (aSH));
+  }
+}
@@ -11,11 +11,18 @@
  */
 package com.helger.asic;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.Map;
+
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xml.sax.InputSource;
 
+import com.helger.annotation.WillNotClose;
 import com.helger.asic.jaxb.ASiCManifestMarshaller;
 import com.helger.asic.jaxb.cades.ASiCManifestType;
 import com.helger.asic.jaxb.cades.DataObjectReferenceType;
@@ -39,18 +46,24 @@ public class CadesAsicManifest extends AbstractAsicManifest
   @Override
   public void add (@NonNull final String sFilename, @NonNull final IMimeType aMimeType)
   {
-    final DataObjectReferenceType aDataObjectRef = new DataObjectReferenceType ();
-    aDataObjectRef.setURI (sFilename);
-    aDataObjectRef.setMimeType (aMimeType.getAsString ());
-    aDataObjectRef.setDigestValue (internalGetMessageDigest ().digest ());
-
-    final DigestMethodType aDigestMethod = new DigestMethodType ();
-    aDigestMethod.setAlgorithm (getMessageDigestAlgorithm ().getUri ());
-    aDataObjectRef.setDigestMethod (aDigestMethod);
-
-    m_aManifest.addDataObjectReference (aDataObjectRef);
-    if (LOGGER.isDebugEnabled ())
-      LOGGER.debug ("Digest: " + Base64.encodeBytes (aDataObjectRef.getDigestValue ()));
+    // One reference per digest algorithm, the primary one first
+    for (final Map.Entry <EMessageDigestAlgorithm, byte []> aEntry : internalGetAllDigests ().entrySet ())
+    {
+      final DataObjectReferenceType aDataObjectRef = new DataObjectReferenceType ();
+      aDataObjectRef.setURI (sFilename);
+      aDataObjectRef.setMimeType (aMimeType.getAsString ());
+      aDataObjectRef.setDigestValue (aEntry.getValue ());
+
+      final DigestMethodType aDigestMethod = new DigestMethodType ();
+      aDigestMethod.setAlgorithm (aEntry.getKey ().getUri ());
+      aDataObjectRef.setDigestMethod (aDigestMethod);
+
+      m_aManifest.addDataObjectReference (aDataObjectRef);
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug (aEntry.getKey ().getMessageDigestAlgorithm () +
+                      " digest: " +
+                      Base64.encodeBytes (aDataObjectRef.getDigestValue ()));
+    }
   }
 
   /**
@@ -91,39 +104,53 @@ public class CadesAsicManifest extends AbstractAsicManifest
   @Nullable
   public byte [] getAsBytes ()
   {
-    return new ASiCManifestMarshaller ().getAsBytes (m_aManifest);
+    return ASiCManifestMarshaller.POOL.getAsBytes (m_aManifest);
   }
 
+  /**
+   * Read the provided CAdES ASiC manifest and pass all data object references to the manifest
+   * verifier.
+   *
+   * @param sXml
+   *        The manifest XML. May not be <code>null</code>.
+   * @param aMV
+   *        The manifest verifier to update. May not be <code>null</code>.
+   * @return The signature reference of the manifest. Never <code>null</code>.
+   * @throws IllegalStateException
+   *         if the content is not a valid manifest
+   */
   @NonNull
-  public static String extractAndVerify (final String sXml, final ManifestVerifier aMV)
+  public static String extractAndVerify (@NonNull final String sXml, @NonNull final ManifestVerifier aMV)
   {
-    // Updating namespaces for compatibility with previous releases and other
-    // implementations
-    String sRealXML = sXml.replace ("http://uri.etsi.org/02918/v1.1.1#", "http://uri.etsi.org/02918/v1.2.1#");
-    sRealXML = sRealXML.replace ("http://uri.etsi.org/2918/v1.2.1#", "http://uri.etsi.org/02918/v1.2.1#");
-    sRealXML = sRealXML.replace ("http://www.w3.org/2000/09/xmldsig#sha", "http://www.w3.org/2001/04/xmlenc#sha");
-
-    // Read XML
-    final ASiCManifestType aManifest = new ASiCManifestMarshaller ().read (sRealXML);
-    if (aManifest == null)
-      throw new IllegalStateException ("Unable to read content as XML");
-
-    String sSigReference = aManifest.getSigReference ().getURI ();
-    if (sSigReference == null)
-      sSigReference = "META-INF/signature.p7s";
-
-    // Run through recorded objects
-    for (final DataObjectReferenceType aDOR : aManifest.getDataObjectReference ())
+    try
+    {
+      return AsicManifestParser.parseCadesManifest (new InputSource (new StringReader (sXml)), aMV);
+    }
+    catch (final IOException ex)
     {
-      aMV.update (aDOR.getURI (),
-                  aDOR.getMimeType (),
-                  aDOR.getDigestValue (),
-                  aDOR.getDigestMethod ().getAlgorithm (),
-                  sSigReference);
-      if (aDOR.isRootfile () == Boolean.TRUE)
-        aMV.setRootFilename (aDOR.getURI ());
+      throw new IllegalStateException ("Unable to read content as XML", ex);
     }
+  }
 
-    return sSigReference;
+  /**
+   * Read the provided CAdES ASiC manifest while streaming and pass all data object references to
+   * the manifest verifier. Legacy namespaces are accepted.
+   *
+   * @param aIS
+   *        The manifest XML. Is not closed. May not be <code>null</code>.
+   * @param aMV
+   *        The manifest verifier to update. May not be <code>null</code>.
+   * @return The signature reference of the manifest. Never <code>null</code>.
+   * @throws IOException
+   *         in case reading fails
+   * @throws IllegalStateException
+   *         if the content is not a valid manifest
+   * @since 4.1.1
+   */
+  @NonNull
+  public static String extractAndVerify (@NonNull @WillNotClose final InputStream aIS,
+                                         @NonNull final ManifestVerifier aMV) throws IOException
+  {
+    return AsicManifestParser.parseCadesManifest (AsicManifestParser.createInputSource (aIS), aMV);
   }
 }
@@ -14,8 +14,10 @@ package com.helger.asic;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 
 /**
  * Builds an ASiC-E Cades container using a variation of "builder pattern". This
@@ -48,6 +50,34 @@ public class CadesAsicWriter extends AbstractAsicWriter
     super (aOS, bCloseStreamOnSign, new CadesAsicManifest (eMDAlgo), bWriteOasisManifest);
   }
 
+  /**
+   * Prepares creation of a new container.
+   *
+   * @param aOS
+   *        Stream used to write container.
+   * @param bCloseStreamOnSign
+   *        close stream when this is signed
+   * @param eMDAlgo
+   *        Message Digest Algorithm
+   * @param bWriteOasisManifest
+   *        <code>true</code> if the OASIS OpenDocument Manifest XML should also
+   *        be created.
+   * @param aExecutor
+   *        The executor to deflate the entries in parallel chunks. May be
+   *        <code>null</code> to deflate on the calling thread.
+   * @throws IOException
+   *         on IO error
+   * @since 4.1.1
+   */
+  public CadesAsicWriter (@NonNull final OutputStream aOS,
+                          final boolean bCloseStreamOnSign,
+                          @NonNull final EMessageDigestAlgorithm eMDAlgo,
+                          final boolean bWriteOasisManifest,
+                          @Nullable final ExecutorService aExecutor) throws IOException
+  {
+    super (aOS, bCloseStreamOnSign, new CadesAsicManifest (eMDAlgo), bWriteOasisManifest, aExecutor);
+  }
+
   @Override
   @NonNull
   public final CadesAsicManifest getAsicManifest ()
@@ -78,11 +108,11 @@ public class CadesAsicWriter extends AbstractAsicWriter
     // Generates and writes manifest (META-INF/ASiCManifest.xml) to the zip
     // archive
     final byte [] aManifestBytes = getAsicManifest ().getAsBytes ();
-    m_aAsicOutputStream.writeZipEntry ("META-INF/" + AsicUtils.ASIC_MANIFEST_BASENAME + ".xml", aManifestBytes);
+    writeZipEntry ("META-INF/" + AsicUtils.ASIC_MANIFEST_BASENAME + ".xml", aManifestBytes);
 
     // Generates and writes signature (META-INF/signature-*.p7s) to the zip
     // archive
     final byte [] aSignatureBytes = aSH.signData (aManifestBytes, getAsicManifest ().getMessageDigestAlgorithm ());
-    m_aAsicOutputStream.writeZipEntry (sSignatureFilename, aSignatureBytes);
+    writeZipEntry (sSignatureFilename, aSignatureBytes);
   }
 }
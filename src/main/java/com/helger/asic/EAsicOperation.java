@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+
+/**
+ * The operations on a container, as reported to {@link IAsicMetrics}.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+public enum EAsicOperation
+{
+  READ ("read"),
+  VERIFY ("verify"),
+  WRITE ("write");
+
+  private final String m_sID;
+
+  private EAsicOperation (@NonNull @Nonempty final String sID)
+  {
+    m_sID = sID;
+  }
+
+  /**
+   * @return The ID of the operation, e.g. to be used as a metric tag. Never <code>null</code> nor
+   *         empty.
+   */
+  @NonNull
+  @Nonempty
+  public String getID ()
+  {
+    return m_sID;
+  }
+}
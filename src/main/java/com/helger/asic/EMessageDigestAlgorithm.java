@@ -11,12 +11,16 @@
  */
 package com.helger.asic;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 import javax.xml.crypto.dsig.DigestMethod;
 
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
 import org.bouncycastle.asn1.oiw.OIWObjectIdentifiers;
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 
 import com.helger.annotation.Nonempty;
 
@@ -92,4 +96,42 @@ public enum EMessageDigestAlgorithm
   {
     return m_aOID;
   }
+
+  /**
+   * @return A new {@link MessageDigest} for this algorithm. Never <code>null</code>.
+   * @throws IllegalStateException
+   *         if the algorithm is not supported by the runtime
+   * @since 4.1.1
+   */
+  @NonNull
+  public MessageDigest createMessageDigest ()
+  {
+    try
+    {
+      return MessageDigest.getInstance (m_sMessageDigestAlgorithm);
+    }
+    catch (final NoSuchAlgorithmException ex)
+    {
+      throw new IllegalStateException ("Message Digest Algorithm '" + m_sMessageDigestAlgorithm + "' is not supported",
+                                       ex);
+    }
+  }
+
+  /**
+   * Find the algorithm with the provided XML DSig URI.
+   *
+   * @param sURI
+   *        The URI to search. May be <code>null</code>.
+   * @return <code>null</code> if no such algorithm exists.
+   * @since 4.1.1
+   */
+  @Nullable
+  public static EMessageDigestAlgorithm getFromUriOrNull (@Nullable final String sURI)
+  {
+    if (sURI != null)
+      for (final EMessageDigestAlgorithm e : values ())
+        if (e.m_sURI.equals (sURI))
+          return e;
+    return null;
+  }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.util.zip.Deflater;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.mime.IMimeType;
+
+/**
+ * Decides how each payload entry of an ASiC container is compressed.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@FunctionalInterface
+public interface IAsicCompressionPolicy
+{
+  /**
+   * The compression level for entries that are stored without compression. Small entries are
+   * written with the ZIP method STORED, larger ones are deflated without compression, so that they
+   * don't need to be buffered.
+   */
+  int LEVEL_STORED = Deflater.NO_COMPRESSION;
+
+  /** The maximum number of bytes passed as sample to the policy */
+  int SAMPLE_SIZE = 8 * 1024;
+
+  /** The default policy, deflating all entries with the default compression level */
+  IAsicCompressionPolicy DEFAULT = fixed (Deflater.DEFAULT_COMPRESSION);
+
+  /**
+   * Determine the compression level of a single entry.
+   *
+   * @param sFilename
+   *        The name of the entry. Never <code>null</code>.
+   * @param aMimeType
+   *        The MIME type of the entry. Never <code>null</code>.
+   * @param aSample
+   *        The first bytes of the entry content. Never <code>null</code>.
+   * @param nSampleLen
+   *        The number of bytes in the sample, at most {@link #SAMPLE_SIZE}. If it is less, the
+   *        sample contains the whole content.
+   * @return {@link #LEVEL_STORED}, a {@link Deflater} level between 1 and 9 or
+   *         {@link Deflater#DEFAULT_COMPRESSION}.
+   */
+  int getCompressionLevel (@NonNull String sFilename,
+                           @NonNull IMimeType aMimeType,
+                           @NonNull byte [] aSample,
+                           @Nonnegative int nSampleLen);
+
+  /**
+   * Check if the provided compression level is valid.
+   *
+   * @param nLevel
+   *        The level to check.
+   * @return <code>true</code> if it is {@link Deflater#DEFAULT_COMPRESSION} or between
+   *         {@link Deflater#NO_COMPRESSION} and {@link Deflater#BEST_COMPRESSION}.
+   */
+  static boolean isValidLevel (final int nLevel)
+  {
+    return nLevel == Deflater.DEFAULT_COMPRESSION ||
+           (nLevel >= Deflater.NO_COMPRESSION && nLevel <= Deflater.BEST_COMPRESSION);
+  }
+
+  /**
+   * Create a policy that uses the same compression level for all entries.
+   *
+   * @param nLevel
+   *        The compression level to use. Must be valid according to {@link #isValidLevel(int)}.
+   * @return The new policy and never <code>null</code>.
+   */
+  @NonNull
+  static IAsicCompressionPolicy fixed (final int nLevel)
+  {
+    ValueEnforcer.isTrue (isValidLevel (nLevel), () -> "Invalid compression level " + nLevel);
+    return (sFilename, aMimeType, aSample, nSampleLen) -> nLevel;
+  }
+}
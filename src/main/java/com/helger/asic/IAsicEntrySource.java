@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.ZipEntry;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.base.enforce.ValueEnforcer;
+
+/**
+ * Source of the ZIP entries of an ASiC container, as consumed by {@link AbstractAsicReader}. The
+ * "mimetype" entry is never returned by implementations.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+public interface IAsicEntrySource extends Closeable
+{
+  /**
+   * Position the source at the next entry.
+   *
+   * @return The next entry or <code>null</code> if there are no more entries.
+   * @throws IOException
+   *         in case of an IO error
+   */
+  @Nullable
+  ZipEntry getNextEntry () throws IOException;
+
+  /**
+   * @return The stream to read the content of the current entry from. Closing this stream is not
+   *         required. Never <code>null</code>.
+   */
+  @NonNull
+  InputStream getEntryInputStream ();
+
+  /**
+   * Digest the content of the current entry without handing it out. By default the content is read
+   * from {@link #getEntryInputStream()} into the provided buffer.
+   *
+   * @param aBuffer
+   *        The buffer to use. Must be backed by an array. May not be <code>null</code>.
+   * @param aMultiDigest
+   *        The digests to update. May not be <code>null</code>.
+   * @return The number of bytes digested.
+   * @throws IOException
+   *         in case of an IO error
+   */
+  @Nonnegative
+  default long digestEntry (@NonNull final ByteBuffer aBuffer, @NonNull final AsicMultiDigest aMultiDigest) throws IOException
+  {
+    ValueEnforcer.isTrue (aBuffer.hasArray (), "Buffer must be backed by an array");
+
+    final InputStream aIS = getEntryInputStream ();
+    final byte [] aArray = aBuffer.array ();
+    final int nOfs = aBuffer.arrayOffset ();
+    final int nCapacity = aBuffer.capacity ();
+    long ret = 0;
+    int nRead;
+    // Fill the whole buffer, to pass large blocks to the digests
+    while ((nRead = aIS.readNBytes (aArray, nOfs, nCapacity)) > 0)
+    {
+      aBuffer.clear ().limit (nRead);
+      aMultiDigest.update (aBuffer);
+      ret += nRead;
+    }
+    return ret;
+  }
+
+  /**
+   * Close the current entry, so that the next entry can be read.
+   *
+   * @throws IOException
+   *         in case of an IO error
+   */
+  void closeEntry () throws IOException;
+
+  /**
+   * @return <code>true</code> if all META-INF entries are handled before the first payload entry is
+   *         returned, so that the digest of each payload entry can be verified as soon as it was
+   *         read. <code>false</code> if the entries are returned in the order of the ZIP file.
+   */
+  default boolean isMetadataFirst ()
+  {
+    return false;
+  }
+}
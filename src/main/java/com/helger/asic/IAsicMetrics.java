@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+
+/**
+ * Receiver of the metrics of readers, writers, signing and signature verification. It is
+ * registered globally via {@link AsicMetrics#setMetrics(IAsicMetrics)}. All methods do nothing by
+ * default, so that implementations only need to override what they are interested in.
+ * Implementations must be thread-safe and fast, as they are called on the processing threads. All
+ * durations are in nanoseconds.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+public interface IAsicMetrics
+{
+  /**
+   * A payload entry was read and digested by the library. Entries that are read via
+   * <code>IAsicReader.inputStream</code> are not reported, as the caller controls the reading.
+   *
+   * @param nBytes
+   *        The number of uncompressed bytes.
+   * @param nInflateNanos
+   *        The time spent reading and inflating, excluding the digest calculation.
+   */
+  default void onEntryRead (@Nonnegative final long nBytes, @Nonnegative final long nInflateNanos)
+  {}
+
+  /**
+   * A payload entry was written.
+   *
+   * @param nBytes
+   *        The number of uncompressed bytes.
+   * @param nDeflateNanos
+   *        The time spent deflating and writing, excluding the digest calculation.
+   */
+  default void onEntryWritten (@Nonnegative final long nBytes, @Nonnegative final long nDeflateNanos)
+  {}
+
+  /**
+   * The digests of an entry were calculated.
+   *
+   * @param eOperation
+   *        The operation during which the digests were calculated. Never <code>null</code>.
+   * @param nBytes
+   *        The number of digested bytes.
+   * @param nDigestNanos
+   *        The time spent in all digest algorithms.
+   */
+  default void onDigest (@NonNull final EAsicOperation eOperation,
+                         @Nonnegative final long nBytes,
+                         @Nonnegative final long nDigestNanos)
+  {}
+
+  /**
+   * A manifest was parsed.
+   *
+   * @param nNanos
+   *        The time spent unmarshalling and checking the manifest.
+   */
+  default void onManifestParsed (@Nonnegative final long nNanos)
+  {}
+
+  /**
+   * A signature was created.
+   *
+   * @param nNanos
+   *        The time spent signing.
+   * @param bSuccess
+   *        <code>true</code> if the signature was created.
+   */
+  default void onSignatureCreated (@Nonnegative final long nNanos, final boolean bSuccess)
+  {}
+
+  /**
+   * A signature was verified. Results taken from an {@link ISignatureVerificationCache} are not
+   * reported.
+   *
+   * @param nNanos
+   *        The time spent verifying.
+   * @param bSuccess
+   *        <code>true</code> if the signature is valid.
+   */
+  default void onSignatureVerified (@Nonnegative final long nNanos, final boolean bSuccess)
+  {}
+
+  /**
+   * Processing a container finished. A reader that is closed before all entries were verified is
+   * reported as not successful.
+   *
+   * @param eOperation
+   *        The operation. Never <code>null</code>.
+   * @param bSuccess
+   *        <code>true</code> if the container was completely processed and is valid.
+   */
+  default void onContainerFinished (@NonNull final EAsicOperation eOperation, final boolean bSuccess)
+  {}
+}
@@ -98,4 +98,19 @@ public interface IAsicReader extends Closeable
    */
   @Nullable
   AsicManifest getAsicManifest ();
+
+  /**
+   * Get the time spent in the different phases of reading the container, like ZIP parsing,
+   * inflating, digesting, manifest parsing and signature verification. It is only complete after
+   * the reader was closed. Implementations that don't measure the timings
+   * return empty timings, which is the default.
+   *
+   * @return The timings. Never <code>null</code>.
+   * @since 4.1.1
+   */
+  @NonNull
+  default AsicTimings getTimings ()
+  {
+    return new AsicTimings ();
+  }
 }
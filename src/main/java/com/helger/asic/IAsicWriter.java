@@ -185,6 +185,51 @@ public interface IAsicWriter
                    @NonNull String sFilename,
                    @NonNull IMimeType aMimeType) throws IOException;
 
+  /**
+   * Adds the contents of an input stream into the ASiC archive, using an
+   * explicit compression level instead of the compression policy.
+   *
+   * @param aIS
+   *        Input stream to add
+   * @param sFilename
+   *        the archive entry name to be used.
+   * @param aMimeType
+   *        explicitly identifies the MIME type of the entry.
+   * @param nCompressionLevel
+   *        The compression level to use.
+   *        {@link IAsicCompressionPolicy#LEVEL_STORED} stores the entry without
+   *        compression. Implementations that don't support compression levels
+   *        may ignore it, which is the default.
+   * @return reference to this AsicWriter
+   * @throws IOException
+   *         on IO error
+   * @since 4.1.1
+   */
+  @NonNull
+  default IAsicWriter add (@NonNull final InputStream aIS,
+                           @NonNull final String sFilename,
+                           @NonNull final IMimeType aMimeType,
+                           final int nCompressionLevel) throws IOException
+  {
+    return add (aIS, sFilename, aMimeType);
+  }
+
+  /**
+   * Set the policy that determines the compression level of all entries added
+   * without an explicit compression level. Implementations that don't support
+   * compression levels may ignore it, which is the default.
+   *
+   * @param aCompressionPolicy
+   *        The policy to use. May not be <code>null</code>.
+   * @return reference to this AsicWriter
+   * @since 4.1.1
+   */
+  @NonNull
+  default IAsicWriter setCompressionPolicy (@NonNull final IAsicCompressionPolicy aCompressionPolicy)
+  {
+    return this;
+  }
+
   /**
    * Specifies which entry (file) represents the "root" document, i.e. which
    * business document to read first.
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.asic.jaxb.asic.Certificate;
+
+/**
+ * Cache for the results of successful CAdES signature verifications, used by
+ * {@link SignatureVerifier}. The key is a hash over the signed data and the signature, so a cache
+ * hit means that exactly the same signature was already verified successfully. Implementations must
+ * be thread-safe.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ * @see SignatureVerificationCache
+ */
+public interface ISignatureVerificationCache
+{
+  /**
+   * Get a cached verification result.
+   *
+   * @param sKey
+   *        The cache key. May not be <code>null</code>.
+   * @return The certificate of the signer or <code>null</code> if the key is not (or no longer)
+   *         cached.
+   */
+  @Nullable
+  Certificate get (@NonNull String sKey);
+
+  /**
+   * Remember a successful verification result.
+   *
+   * @param sKey
+   *        The cache key. May not be <code>null</code>.
+   * @param aCertificate
+   *        The certificate of the signer. May not be <code>null</code>.
+   */
+  void put (@NonNull String sKey, @NonNull Certificate aCertificate);
+}
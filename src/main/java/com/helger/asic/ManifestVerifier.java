@@ -18,23 +18,64 @@ import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 
 import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
 import com.helger.asic.jaxb.asic.AsicFile;
 import com.helger.asic.jaxb.asic.AsicManifest;
 import com.helger.asic.jaxb.asic.Certificate;
 import com.helger.base.enforce.ValueEnforcer;
 import com.helger.collection.commons.CommonsHashMap;
+import com.helger.collection.commons.CommonsLinkedHashMap;
+import com.helger.collection.commons.CommonsLinkedHashSet;
 import com.helger.collection.commons.ICommonsMap;
+import com.helger.collection.commons.ICommonsOrderedMap;
+import com.helger.collection.commons.ICommonsOrderedSet;
 
 @NotThreadSafe
 public class ManifestVerifier implements Serializable
 {
   private final EMessageDigestAlgorithm m_eReferenceMD;
+  private final ICommonsOrderedSet <EMessageDigestAlgorithm> m_aAllowedMDs;
   private final AsicManifest m_aAsicManifest = new AsicManifest ();
   private final ICommonsMap <String, AsicFile> m_aAsicManifestMap = new CommonsHashMap <> ();
+  // Filename to digest algorithm URI to the first digest value
+  private final ICommonsMap <String, ICommonsOrderedMap <String, byte []>> m_aDigestMap = new CommonsHashMap <> ();
+  // Filename to the first declared digest algorithm URI that is not allowed
+  private final ICommonsMap <String, String> m_aIgnoredMDs = new CommonsHashMap <> ();
 
   public ManifestVerifier (@Nullable final EMessageDigestAlgorithm eReferenceMD)
+  {
+    this (eReferenceMD, null);
+  }
+
+  /**
+   * Constructor for a verifier that accepts multiple digest algorithms. Each file is verified, if
+   * the digests of at least one algorithm match. Mismatching digests of any algorithm are an error.
+   *
+   * @param eReferenceMD
+   *        The digest algorithm used for updates without an explicit algorithm. May be
+   *        <code>null</code> to accept all algorithms.
+   * @param aAdditionalMDs
+   *        Additional digest algorithms accepted in manifests. Only relevant if a reference
+   *        algorithm is provided. May be <code>null</code>.
+   * @since 4.1.1
+   */
+  public ManifestVerifier (@Nullable final EMessageDigestAlgorithm eReferenceMD,
+                           @Nullable final Iterable <EMessageDigestAlgorithm> aAdditionalMDs)
   {
     m_eReferenceMD = eReferenceMD;
+    if (eReferenceMD == null)
+      m_aAllowedMDs = null;
+    else
+    {
+      m_aAllowedMDs = new CommonsLinkedHashSet <> ();
+      m_aAllowedMDs.add (eReferenceMD);
+      if (aAdditionalMDs != null)
+        for (final EMessageDigestAlgorithm eMDAlgo : aAdditionalMDs)
+        {
+          ValueEnforcer.notNull (eMDAlgo, "AdditionalMD");
+          m_aAllowedMDs.add (eMDAlgo);
+        }
+    }
   }
 
   @Nullable
@@ -43,6 +84,26 @@ public class ManifestVerifier implements Serializable
     return m_eReferenceMD;
   }
 
+  /**
+   * @return A copy of all accepted digest algorithms or <code>null</code> if all algorithms are
+   *         accepted.
+   * @since 4.1.1
+   */
+  @Nullable
+  @ReturnsMutableCopy
+  public final ICommonsOrderedSet <EMessageDigestAlgorithm> getAllAllowedMDs ()
+  {
+    return m_aAllowedMDs == null ? null : m_aAllowedMDs.getClone ();
+  }
+
+  private boolean _isAllowed (@NonNull final String sDigestAlgorithm)
+  {
+    if (m_aAllowedMDs == null)
+      return true;
+    final EMessageDigestAlgorithm eMDAlgo = EMessageDigestAlgorithm.getFromUriOrNull (sDigestAlgorithm);
+    return eMDAlgo != null && m_aAllowedMDs.contains (eMDAlgo);
+  }
+
   public void update (@NonNull final String sFilename,
                       @NonNull final byte [] aDigest,
                       @Nullable final String sSigReference)
@@ -50,35 +111,80 @@ public class ManifestVerifier implements Serializable
     update (sFilename, null, aDigest, null, sSigReference);
   }
 
+  /**
+   * Update the digest of a file for a specific algorithm, e.g. if the content was digested with
+   * multiple algorithms.
+   *
+   * @param sFilename
+   *        The name of the file. May not be <code>null</code>.
+   * @param eMDAlgo
+   *        The digest algorithm used. May not be <code>null</code>.
+   * @param aDigest
+   *        The digest value. May not be <code>null</code>.
+   * @since 4.1.1
+   */
+  public void update (@NonNull final String sFilename,
+                      @NonNull final EMessageDigestAlgorithm eMDAlgo,
+                      @NonNull final byte [] aDigest)
+  {
+    ValueEnforcer.notNull (eMDAlgo, "MDAlgo");
+    // The content must only be digested with allowed algorithms
+    ValueEnforcer.isTrue (_isAllowed (eMDAlgo.getUri ()),
+                          () -> "Wrong digest method for file " + sFilename + ": '" + eMDAlgo.getUri () + "'");
+    update (sFilename, null, aDigest, eMDAlgo.getUri (), null);
+  }
+
+  /**
+   * Update the digest of a file. Digests with an algorithm that is not allowed are ignored, so that
+   * containers with additional digest algorithms can be verified with any one of them. A file that
+   * is only covered by algorithms that are not allowed is never verified.
+   *
+   * @param sFilename
+   *        The name of the file. May not be <code>null</code>.
+   * @param sMimeType
+   *        The MIME type of the file. May be <code>null</code>.
+   * @param aDigest
+   *        The digest value. May not be <code>null</code>.
+   * @param sDigestAlgorithm
+   *        The digest algorithm URI. May be <code>null</code> to use the reference algorithm.
+   * @param sSigReference
+   *        The signature reference. May be <code>null</code>.
+   */
   public void update (@NonNull final String sFilename,
                       @Nullable final String sMimeType,
                       @NonNull final byte [] aDigest,
                       @Nullable final String sDigestAlgorithm,
                       @Nullable final String sSigReference)
   {
-    ValueEnforcer.isTrue (m_eReferenceMD == null ||
-                          sDigestAlgorithm == null ||
-                          sDigestAlgorithm.equals (m_eReferenceMD.getUri ()),
-                          () -> "Wrong digest method for file " + sFilename + ": '" + sDigestAlgorithm + "'");
+    final boolean bAllowed = sDigestAlgorithm == null || _isAllowed (sDigestAlgorithm);
+
+    // Without an explicit algorithm, the reference algorithm is used
+    final String sRealDigestAlgorithm;
+    if (sDigestAlgorithm != null)
+      sRealDigestAlgorithm = sDigestAlgorithm;
+    else
+      sRealDigestAlgorithm = m_eReferenceMD == null ? "" : m_eReferenceMD.getUri ();
 
     AsicFile aAsicFile = m_aAsicManifestMap.get (sFilename);
     if (aAsicFile == null)
     {
       aAsicFile = new AsicFile ();
       aAsicFile.setName (sFilename);
-      aAsicFile.setDigest (aDigest);
+      if (bAllowed)
+        aAsicFile.setDigest (aDigest);
       aAsicFile.setVerified (false);
 
       m_aAsicManifest.getFile ().add (aAsicFile);
       m_aAsicManifestMap.put (sFilename, aAsicFile);
     }
-    else
-    {
-      if (!Arrays.equals (aAsicFile.getDigest (), aDigest))
-        throw new IllegalStateException ("Mismatching digest for file " + sFilename);
 
-      aAsicFile.setVerified (true);
+    if (!bAllowed)
+    {
+      // The file is still listed, but this digest is not used
+      m_aIgnoredMDs.putIfAbsent (sFilename, sDigestAlgorithm);
     }
+    else
+      _updateDigest (sFilename, aAsicFile, sRealDigestAlgorithm, aDigest);
 
     if (sMimeType != null)
       aAsicFile.setMimetype (sMimeType);
@@ -86,6 +192,31 @@ public class ManifestVerifier implements Serializable
       aAsicFile.getCertRef ().add (sSigReference);
   }
 
+  private void _updateDigest (@NonNull final String sFilename,
+                              @NonNull final AsicFile aAsicFile,
+                              @NonNull final String sRealDigestAlgorithm,
+                              @NonNull final byte [] aDigest)
+  {
+    final ICommonsOrderedMap <String, byte []> aDigests = m_aDigestMap.computeIfAbsent (sFilename,
+                                                                                      k -> new CommonsLinkedHashMap <> ());
+    final byte [] aFirstDigest = aDigests.get (sRealDigestAlgorithm);
+    if (aFirstDigest == null)
+    {
+      // First occurrence of this algorithm for this file
+      aDigests.put (sRealDigestAlgorithm, aDigest);
+      if (aAsicFile.getDigest () == null ||
+          (m_eReferenceMD != null && sRealDigestAlgorithm.equals (m_eReferenceMD.getUri ())))
+        aAsicFile.setDigest (aDigest);
+    }
+    else
+    {
+      if (!Arrays.equals (aFirstDigest, aDigest))
+        throw new IllegalStateException ("Mismatching digest for file " + sFilename);
+
+      aAsicFile.setVerified (true);
+    }
+  }
+
   public void addCertificate (@NonNull final Certificate aCertificate)
   {
     ValueEnforcer.notNull (aCertificate, "Certificate");
@@ -97,11 +228,78 @@ public class ManifestVerifier implements Serializable
     m_aAsicManifest.setRootfile (sFilename);
   }
 
+  /**
+   * Check if the provided file is known, either from a manifest or from the content.
+   *
+   * @param sFilename
+   *        The filename to check. May be <code>null</code>.
+   * @return <code>true</code> if the file is known, <code>false</code> otherwise.
+   * @since 4.1.1
+   */
+  public boolean containsFile (@Nullable final String sFilename)
+  {
+    return m_aAsicManifestMap.containsKey (sFilename);
+  }
+
+  /**
+   * Get all known digest algorithms of a file, in the order they were first declared. After all
+   * manifests were read, these are the algorithms that the content of the file must be digested
+   * with.
+   *
+   * @param sFilename
+   *        The filename to check. May be <code>null</code>.
+   * @return A new set with the algorithms. Never <code>null</code> but empty if the file is unknown.
+   *         Algorithms not contained in {@link EMessageDigestAlgorithm} are not contained.
+   * @since 4.1.1
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsOrderedSet <EMessageDigestAlgorithm> getAllDigestAlgorithms (@Nullable final String sFilename)
+  {
+    final ICommonsOrderedSet <EMessageDigestAlgorithm> ret = new CommonsLinkedHashSet <> ();
+    final ICommonsOrderedMap <String, byte []> aDigests = m_aDigestMap.get (sFilename);
+    if (aDigests != null)
+      for (final String sDigestAlgorithm : aDigests.keySet ())
+      {
+        final EMessageDigestAlgorithm eMDAlgo = EMessageDigestAlgorithm.getFromUriOrNull (sDigestAlgorithm);
+        if (eMDAlgo != null)
+          ret.add (eMDAlgo);
+      }
+    return ret;
+  }
+
+  /**
+   * Check if the provided file was already verified, meaning that the digest from a manifest and
+   * the digest of the content were compared successfully.
+   *
+   * @param sFilename
+   *        The filename to check. May be <code>null</code>.
+   * @return <code>true</code> if the file is known and verified, <code>false</code> otherwise.
+   * @since 4.1.1
+   */
+  public boolean isVerified (@Nullable final String sFilename)
+  {
+    final AsicFile aAsicFile = m_aAsicManifestMap.get (sFilename);
+    return aAsicFile != null && aAsicFile.isVerified ();
+  }
+
   public void verifyAllVerified ()
   {
     for (final AsicFile aAsicFile : m_aAsicManifest.getFile ())
       if (!aAsicFile.isVerified ())
+      {
+        final String sIgnoredMD = m_aIgnoredMDs.get (aAsicFile.getName ());
+        if (sIgnoredMD != null)
+        {
+          // Not covered by an allowed algorithm
+          throw new IllegalArgumentException ("Wrong digest method for file " +
+                                              aAsicFile.getName () +
+                                              ": '" +
+                                              sIgnoredMD +
+                                              "'");
+        }
         throw new IllegalStateException ("File not verified: " + aAsicFile.getName ());
+      }
   }
 
   @NonNull
@@ -14,6 +14,8 @@ package com.helger.asic;
 import java.io.InputStream;
 import java.io.Serializable;
 
+import javax.xml.transform.stream.StreamSource;
+
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 
@@ -37,7 +39,7 @@ public class OasisManifest implements Serializable
 
   public OasisManifest (@NonNull final InputStream aIS)
   {
-    m_aManifest = new OasisManifestMarshaller ().read (aIS);
+    m_aManifest = OasisManifestMarshaller.POOL.read (new StreamSource (aIS));
     if (m_aManifest == null)
       throw new IllegalStateException ("Failed to read Manifest from IS");
   }
@@ -66,12 +68,12 @@ public class OasisManifest implements Serializable
   @Nullable
   public byte [] getAsBytes ()
   {
-    return new OasisManifestMarshaller ().getAsBytes (m_aManifest);
+    return OasisManifestMarshaller.POOL.getAsBytes (m_aManifest);
   }
 
   @Nullable
   public String getAsString ()
   {
-    return new OasisManifestMarshaller ().getAsString (m_aManifest);
+    return OasisManifestMarshaller.POOL.getAsString (m_aManifest);
   }
 }
@@ -18,6 +18,8 @@ import java.security.MessageDigest;
 import java.security.Provider;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bouncycastle.asn1.ASN1EncodableVector;
 import org.bouncycastle.asn1.DERNull;
@@ -50,6 +52,7 @@ import org.jspecify.annotations.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.helger.annotation.concurrent.ThreadSafe;
 import com.helger.base.codec.base64.Base64;
 import com.helger.base.enforce.ValueEnforcer;
 import com.helger.bc.PBCProvider;
@@ -63,17 +66,43 @@ import com.helger.text.util.TextHelper;
 /**
  * Helper class to assist when creating a signature.
  * <p>
- * Not thread safe
+ * This class is thread safe, so that one instance can be shared between many writers. The
+ * signing setup, which only depends on the key pair and the message digest algorithm, is created
+ * once per algorithm and reused for all signatures.
  *
  * @author steinar Date: 11.07.15 Time: 22.53
  */
+@ThreadSafe
 public class SignatureHelper
 {
+  /**
+   * The immutable parts of the signing setup for one message digest algorithm.
+   */
+  private static final class SigningTemplate
+  {
+    private final DigestCalculatorProvider m_aDigestCalculatorProvider;
+    private final JcaContentSignerBuilder m_aContentSignerBuilder;
+    private final DefaultSignedAttributeTableGenerator m_aAttributeTableGenerator;
+    private final JcaCertStore m_aCertStore;
+
+    SigningTemplate (@NonNull final DigestCalculatorProvider aDigestCalculatorProvider,
+                     @NonNull final JcaContentSignerBuilder aContentSignerBuilder,
+                     @NonNull final DefaultSignedAttributeTableGenerator aAttributeTableGenerator,
+                     @NonNull final JcaCertStore aCertStore)
+    {
+      m_aDigestCalculatorProvider = aDigestCalculatorProvider;
+      m_aContentSignerBuilder = aContentSignerBuilder;
+      m_aAttributeTableGenerator = aAttributeTableGenerator;
+      m_aCertStore = aCertStore;
+    }
+  }
+
   private static final Logger LOGGER = LoggerFactory.getLogger (SignatureHelper.class);
 
   private final X509Certificate m_aX509Certificate;
   private final Certificate [] m_aCertificateChain;
   private final KeyPair m_aKeyPair;
+  private final Map <EMessageDigestAlgorithm, SigningTemplate> m_aSigningTemplates = new ConcurrentHashMap <> ();
 
   /**
    * Loads the keystore and obtains the private key, the public key and the associated certificate
@@ -121,15 +150,15 @@ public class SignatureHelper
   }
 
   /**
-   * Sign content using CMS.
+   * Create the signing setup for a single message digest algorithm. Everything created here only
+   * depends on the key pair and the algorithm and is safe to be shared between threads.
    *
-   * @param aData
-   *        Content to be signed. May not be <code>null</code>.
    * @param eMDAlgo
-   *        Message Digest Algorithm
-   * @return Signature
+   *        Message Digest Algorithm. May not be <code>null</code>.
+   * @return The new template. Never <code>null</code>.
    */
-  protected final byte [] signData (@NonNull final byte [] aData, @NonNull final EMessageDigestAlgorithm eMDAlgo)
+  @NonNull
+  private SigningTemplate _createSigningTemplate (@NonNull final EMessageDigestAlgorithm eMDAlgo)
   {
     try
     {
@@ -178,39 +207,64 @@ public class SignatureHelper
       final AttributeTable aAttributeTable = new AttributeTable (aSignedAttributes);
       final DefaultSignedAttributeTableGenerator aAttributeTableGenerator = new DefaultSignedAttributeTableGenerator (aAttributeTable);
 
-      final ContentSigner aContentSigner = aJcaContentSignerBuilder.build (m_aKeyPair.getPrivate ());
+      // The provided certificate chain is put into the signature
+      final JcaCertStore aCertStore = new JcaCertStore (new CommonsArrayList <> (getCertificateChain ()));
+
+      return new SigningTemplate (aDigestCalculatorProvider,
+                                  aJcaContentSignerBuilder,
+                                  aAttributeTableGenerator,
+                                  aCertStore);
+    }
+    catch (final Exception ex)
+    {
+      throw new IllegalStateException ("Unable to prepare signing with " + eMDAlgo, ex);
+    }
+  }
+
+  /**
+   * Sign content using CMS. This method may be called concurrently.
+   *
+   * @param aData
+   *        Content to be signed. May not be <code>null</code>.
+   * @param eMDAlgo
+   *        Message Digest Algorithm
+   * @return Signature
+   */
+  protected final byte [] signData (@NonNull final byte [] aData, @NonNull final EMessageDigestAlgorithm eMDAlgo)
+  {
+    final SigningTemplate aTemplate = m_aSigningTemplates.computeIfAbsent (eMDAlgo, this::_createSigningTemplate);
+    final long nStart = System.nanoTime ();
+    boolean bSuccess = false;
+    try
+    {
+      // ContentSigner and SignerInfoGenerator are stateful and must be
+      // created per signature
+      final ContentSigner aContentSigner = aTemplate.m_aContentSignerBuilder.build (m_aKeyPair.getPrivate ());
+      final SignerInfoGenerator aSignerInfoGenerator = new JcaSignerInfoGeneratorBuilder (aTemplate.m_aDigestCalculatorProvider).setSignedAttributeGenerator (aTemplate.m_aAttributeTableGenerator)
+                                                                                                                                .build (aContentSigner,
+                                                                                                                                        m_aX509Certificate);
+
       final CMSSignedDataGenerator aCMSSignedDataGenerator = new CMSSignedDataGenerator ();
-      if (true)
-      {
-        // Add the SignedAttributeTableGenerator to the SignerInfoGenerator
-        final SignerInfoGenerator aSignerInfoGenerator = new JcaSignerInfoGeneratorBuilder (aDigestCalculatorProvider).setSignedAttributeGenerator (aAttributeTableGenerator)
-                                                                                                                      .build (aContentSigner,
-                                                                                                                              m_aX509Certificate);
-        aCMSSignedDataGenerator.addSignerInfoGenerator (aSignerInfoGenerator);
-
-        // Put the provided certificate chain into the signature
-        aCMSSignedDataGenerator.addCertificates (new JcaCertStore (new CommonsArrayList <> (getCertificateChain ())));
-      }
-      else
-      {
-        // Old code
-        final SignerInfoGenerator aSignerInfoGenerator = new JcaSignerInfoGeneratorBuilder (aDigestCalculatorProvider).build (aContentSigner,
-                                                                                                                              m_aX509Certificate);
+      aCMSSignedDataGenerator.addSignerInfoGenerator (aSignerInfoGenerator);
+      aCMSSignedDataGenerator.addCertificates (aTemplate.m_aCertStore);
 
-        aCMSSignedDataGenerator.addSignerInfoGenerator (aSignerInfoGenerator);
-        aCMSSignedDataGenerator.addCertificates (new JcaCertStore (new CommonsArrayList <> (m_aX509Certificate)));
-      }
       final CMSSignedData aCMSSignedData = aCMSSignedDataGenerator.generate (new CMSProcessableByteArray (aData),
                                                                              false);
 
+      final byte [] ret = aCMSSignedData.getEncoded ();
       if (LOGGER.isDebugEnabled ())
-        LOGGER.debug (Base64.encodeBytes (aCMSSignedData.getEncoded ()));
-      return aCMSSignedData.getEncoded ();
+        LOGGER.debug (Base64.encodeBytes (ret));
+      bSuccess = true;
+      return ret;
     }
     catch (final Exception ex)
     {
       throw new IllegalStateException ("Unable to sign with " + eMDAlgo, ex);
     }
+    finally
+    {
+      AsicMetrics.getMetrics ().onSignatureCreated (System.nanoTime () - nStart, bSuccess);
+    }
   }
 
   @NonNull
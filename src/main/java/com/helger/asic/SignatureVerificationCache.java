@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.asic.jaxb.asic.Certificate;
+import com.helger.base.enforce.ValueEnforcer;
+
+/**
+ * Default implementation of {@link ISignatureVerificationCache} with a maximum number of entries
+ * and a time to live. If the cache is full, the least recently used entry is evicted. Expired
+ * entries are removed when they are accessed.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@ThreadSafe
+public class SignatureVerificationCache implements ISignatureVerificationCache
+{
+  /** The default maximum number of cached entries */
+  public static final int DEFAULT_MAX_SIZE = 1000;
+  /** The default time to live of each entry */
+  public static final Duration DEFAULT_TTL = Duration.ofMinutes (10);
+
+  private static final class CacheEntry
+  {
+    private final Certificate m_aCertificate;
+    private final long m_nExpiryNanos;
+
+    CacheEntry (@NonNull final Certificate aCertificate, final long nExpiryNanos)
+    {
+      m_aCertificate = aCertificate;
+      m_nExpiryNanos = nExpiryNanos;
+    }
+  }
+
+  private final int m_nMaxSize;
+  private final long m_nTTLNanos;
+  private final LongSupplier m_aNanoTime;
+  private final Lock m_aLock = new ReentrantLock ();
+  // In access order, to evict the least recently used entry first
+  private final Map <String, CacheEntry> m_aMap;
+
+  /**
+   * Constructor with {@link #DEFAULT_MAX_SIZE} and {@link #DEFAULT_TTL}.
+   */
+  public SignatureVerificationCache ()
+  {
+    this (DEFAULT_MAX_SIZE, DEFAULT_TTL);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param nMaxSize
+   *        The maximum number of cached entries. Must be &gt; 0.
+   * @param aTTL
+   *        The time to live of each entry. May not be <code>null</code> and must be positive.
+   */
+  public SignatureVerificationCache (@Nonnegative final int nMaxSize, @NonNull final Duration aTTL)
+  {
+    this (nMaxSize, aTTL, System::nanoTime);
+  }
+
+  SignatureVerificationCache (@Nonnegative final int nMaxSize,
+                              @NonNull final Duration aTTL,
+                              @NonNull final LongSupplier aNanoTime)
+  {
+    ValueEnforcer.isGT0 (nMaxSize, "MaxSize");
+    ValueEnforcer.notNull (aTTL, "TTL");
+    ValueEnforcer.isTrue (!aTTL.isNegative () && !aTTL.isZero (), "TTL must be positive");
+    ValueEnforcer.notNull (aNanoTime, "NanoTime");
+    m_nMaxSize = nMaxSize;
+    m_nTTLNanos = aTTL.toNanos ();
+    m_aNanoTime = aNanoTime;
+    m_aMap = new LinkedHashMap <> (16, 0.75f, true)
+    {
+      @Override
+      protected boolean removeEldestEntry (final Map.Entry <String, CacheEntry> aEldest)
+      {
+        return size () > m_nMaxSize;
+      }
+    };
+  }
+
+  /**
+   * @return The maximum number of cached entries. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getMaxSize ()
+  {
+    return m_nMaxSize;
+  }
+
+  /**
+   * @return The time to live of each entry. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getTTL ()
+  {
+    return Duration.ofNanos (m_nTTLNanos);
+  }
+
+  /**
+   * @return The number of currently cached entries, including expired ones that were not yet
+   *         accessed.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    m_aLock.lock ();
+    try
+    {
+      return m_aMap.size ();
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  /**
+   * Remove all entries.
+   */
+  public void clear ()
+  {
+    m_aLock.lock ();
+    try
+    {
+      m_aMap.clear ();
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  @Nullable
+  public Certificate get (@NonNull final String sKey)
+  {
+    ValueEnforcer.notNull (sKey, "Key");
+
+    m_aLock.lock ();
+    try
+    {
+      final CacheEntry aEntry = m_aMap.get (sKey);
+      if (aEntry == null)
+        return null;
+      if (m_aNanoTime.getAsLong () - aEntry.m_nExpiryNanos >= 0)
+      {
+        m_aMap.remove (sKey);
+        return null;
+      }
+      return aEntry.m_aCertificate;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  public void put (@NonNull final String sKey, @NonNull final Certificate aCertificate)
+  {
+    ValueEnforcer.notNull (sKey, "Key");
+    ValueEnforcer.notNull (aCertificate, "Certificate");
+
+    final CacheEntry aEntry = new CacheEntry (aCertificate, m_aNanoTime.getAsLong () + m_nTTLNanos);
+    m_aLock.lock ();
+    try
+    {
+      m_aMap.put (sKey, aEntry);
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+}
@@ -11,6 +11,9 @@
  */
 package com.helger.asic;
 
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+
 import org.bouncycastle.cert.X509CertificateHolder;
 import org.bouncycastle.cms.CMSProcessableByteArray;
 import org.bouncycastle.cms.CMSSignedData;
@@ -19,12 +22,13 @@ import org.bouncycastle.cms.SignerInformationStore;
 import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoVerifierBuilder;
 import org.bouncycastle.util.Store;
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.helger.annotation.style.PresentForCodeCoverage;
 import com.helger.asic.jaxb.asic.Certificate;
-import com.helger.base.timing.StopWatch;
+import com.helger.base.codec.base64.Base64;
 import com.helger.bc.PBCProvider;
 
 /**
@@ -35,22 +39,148 @@ public final class SignatureVerifier
   private static final Logger LOGGER = LoggerFactory.getLogger (SignatureHelper.class);
 
   private static final JcaSimpleSignerInfoVerifierBuilder VERIFIER_BUILDER = new JcaSimpleSignerInfoVerifierBuilder ().setProvider (PBCProvider.getProvider ());
+  private static final SignerCertificateCache CERTIFICATE_CACHE = new SignerCertificateCache (VERIFIER_BUILDER,
+                                                                                             SignerCertificateCache.DEFAULT_MAX_SIZE);
 
   @PresentForCodeCoverage
   private static final SignatureVerifier INSTANCE = new SignatureVerifier ();
 
+  private static volatile ISignatureVerificationCache s_aCache;
+
   private SignatureVerifier ()
   {}
 
+  /**
+   * @return The cache used by {@link #validate(byte[], byte[])}. May be <code>null</code>.
+   * @since 4.1.1
+   */
+  @Nullable
+  public static ISignatureVerificationCache getCache ()
+  {
+    return s_aCache;
+  }
+
+  /**
+   * Set the cache to be used by {@link #validate(byte[], byte[])}, so that reading the same
+   * container multiple times verifies each signature only once. By default no cache is used.
+   *
+   * @param aCache
+   *        The cache to use, e.g. a {@link SignatureVerificationCache}. May be <code>null</code> to
+   *        disable caching.
+   * @since 4.1.1
+   */
+  public static void setCache (@Nullable final ISignatureVerificationCache aCache)
+  {
+    s_aCache = aCache;
+  }
+
+  /**
+   * Get the cache key for the provided signature. The key is the Base64 encoded SHA-256 hash over
+   * the length of the data, the data and the signature.
+   *
+   * @param aData
+   *        The signed data. May not be <code>null</code>.
+   * @param aSignature
+   *        The signature. May not be <code>null</code>.
+   * @return The cache key. Never <code>null</code>.
+   * @since 4.1.1
+   */
+  @NonNull
+  public static String getCacheKey (@NonNull final byte [] aData, @NonNull final byte [] aSignature)
+  {
+    final MessageDigest aMD = EMessageDigestAlgorithm.SHA256.createMessageDigest ();
+    // The length avoids ambiguities when shifting bytes between data and signature
+    aMD.update (ByteBuffer.allocate (Long.BYTES).putLong (0, aData.length));
+    aMD.update (aData);
+    aMD.update (aSignature);
+    return Base64.encodeBytes (aMD.digest ());
+  }
+
+  /**
+   * Remove all signer certificates from the internal cache. The certificates of the signers are
+   * cached by issuer and serial number or subject key identifier, so that the verifiers need not be
+   * created again for known signers.
+   *
+   * @since 4.1.1
+   */
+  public static void clearCertificateCache ()
+  {
+    CERTIFICATE_CACHE.clear ();
+  }
+
+  @NonNull
+  private static Certificate _getCopy (@NonNull final Certificate aCertificate)
+  {
+    final Certificate ret = new Certificate ();
+    ret.setCertificate (aCertificate.getCertificate ());
+    ret.setSubject (aCertificate.getSubject ());
+    return ret;
+  }
+
+  /**
+   * Verify a CAdES signature using the cache set via
+   * {@link #setCache(ISignatureVerificationCache)}.
+   *
+   * @param aData
+   *        The signed data. May not be <code>null</code>.
+   * @param aSignature
+   *        The signature. May not be <code>null</code>.
+   * @return The certificate of the signer. Never <code>null</code>.
+   * @throws IllegalStateException
+   *         if the signature could not be verified
+   */
   @NonNull
   public static Certificate validate (@NonNull final byte [] aData, @NonNull final byte [] aSignature)
+  {
+    return validate (aData, aSignature, s_aCache);
+  }
+
+  /**
+   * Verify a CAdES signature. Only successful verifications are cached.
+   *
+   * @param aData
+   *        The signed data. May not be <code>null</code>.
+   * @param aSignature
+   *        The signature. May not be <code>null</code>.
+   * @param aCache
+   *        The cache to use. May be <code>null</code> to always verify the signature.
+   * @return A new certificate object of the signer. Never <code>null</code>.
+   * @throws IllegalStateException
+   *         if the signature could not be verified
+   * @since 4.1.1
+   */
+  @NonNull
+  public static Certificate validate (@NonNull final byte [] aData,
+                                      @NonNull final byte [] aSignature,
+                                      @Nullable final ISignatureVerificationCache aCache)
+  {
+    if (aCache == null)
+      return _validate (aData, aSignature);
+
+    final String sKey = getCacheKey (aData, aSignature);
+    final Certificate aCached = aCache.get (sKey);
+    if (aCached != null)
+    {
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("Using cached signature verification result");
+      // The caller may modify the returned object
+      return _getCopy (aCached);
+    }
+
+    final Certificate ret = _validate (aData, aSignature);
+    aCache.put (sKey, _getCopy (ret));
+    return ret;
+  }
+
+  @NonNull
+  private static Certificate _validate (@NonNull final byte [] aData, @NonNull final byte [] aSignature)
   {
     Certificate ret = null;
 
     if (LOGGER.isDebugEnabled ())
       LOGGER.debug ("Starting to validate signature of data");
 
-    final StopWatch aSW = StopWatch.createdStarted ();
+    final long nStart = System.nanoTime ();
     try
     {
       final CMSSignedData aCMSSignedData = new CMSSignedData (new CMSProcessableByteArray (aData), aSignature);
@@ -66,19 +196,22 @@ public final class SignatureVerifier
         final X509CertificateHolder aX509CertHolder = (X509CertificateHolder) aStore.getMatches (aSignerInformation.getSID ())
                                                                                     .iterator ()
                                                                                     .next ();
+        // Reuse the verifier, encoding and subject of known certificates
+        final SignerCertificateCache.Entry aCertEntry = CERTIFICATE_CACHE.getOrCreate (aSignerInformation.getSID (),
+                                                                                       aX509CertHolder);
         if (LOGGER.isDebugEnabled ())
-          LOGGER.debug ("Using certificate subject " +
-                        (aX509CertHolder == null ? "null" : "'" + aX509CertHolder.getSubject ().toString () + "'") +
-                        " for '" +
+          LOGGER.debug ("Using certificate subject '" +
+                        aCertEntry.getSubject () +
+                        "' for '" +
                         aSignerInformation.getSID () +
                         "'");
 
         ++nSIs;
-        if (aSignerInformation.verify (VERIFIER_BUILDER.build (aX509CertHolder)))
+        if (aSignerInformation.verify (aCertEntry.getVerifier ()))
         {
           ret = new Certificate ();
-          ret.setCertificate (aX509CertHolder.getEncoded ());
-          ret.setSubject (aX509CertHolder.getSubject ().toString ());
+          ret.setCertificate (aCertEntry.getEncoded ());
+          ret.setSubject (aCertEntry.getSubject ());
           break;
         }
       }
@@ -93,7 +226,9 @@ public final class SignatureVerifier
     }
     finally
     {
-      final long nMillis = aSW.stopAndGetMillis ();
+      final long nNanos = System.nanoTime () - nStart;
+      AsicMetrics.getMetrics ().onSignatureVerified (nNanos, ret != null);
+      final long nMillis = nNanos / 1_000_000;
       if (nMillis > 100)
         LOGGER.warn ("Certificate validation took " + nMillis + " which is too long");
     }
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import java.io.IOException;
+import java.security.cert.CertificateException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cms.SignerId;
+import org.bouncycastle.cms.SignerInformationVerifier;
+import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoVerifierBuilder;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+
+/**
+ * Bounded cache of the signer certificates seen by {@link SignatureVerifier}, keyed by the signer ID
+ * (issuer and serial number or subject key identifier). It keeps the verifier created for the
+ * certificate as well as its encoding and subject, so that signatures of known partners are
+ * verified without creating the public key and the verifier again. The least recently used
+ * entry is evicted if the cache is full.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@ThreadSafe
+final class SignerCertificateCache
+{
+  /** The default maximum number of cached certificates */
+  static final int DEFAULT_MAX_SIZE = 256;
+
+  /**
+   * A single cached certificate. The verifier creates new content verifiers and digest calculators
+   * per verification and may therefore be shared between threads.
+   */
+  @Immutable
+  static final class Entry
+  {
+    private final X509CertificateHolder m_aHolder;
+    private final SignerInformationVerifier m_aVerifier;
+    private final byte [] m_aEncoded;
+    private final String m_sSubject;
+
+    Entry (@NonNull final X509CertificateHolder aHolder, @NonNull final SignerInformationVerifier aVerifier)
+                                                                                                             throws IOException
+    {
+      m_aHolder = aHolder;
+      m_aVerifier = aVerifier;
+      m_aEncoded = aHolder.getEncoded ();
+      m_sSubject = aHolder.getSubject ().toString ();
+    }
+
+    @NonNull
+    X509CertificateHolder getHolder ()
+    {
+      return m_aHolder;
+    }
+
+    @NonNull
+    SignerInformationVerifier getVerifier ()
+    {
+      return m_aVerifier;
+    }
+
+    /**
+     * @return A copy of the encoded certificate. Never <code>null</code>.
+     */
+    @NonNull
+    byte [] getEncoded ()
+    {
+      return m_aEncoded.clone ();
+    }
+
+    @NonNull
+    String getSubject ()
+    {
+      return m_sSubject;
+    }
+  }
+
+  private final JcaSimpleSignerInfoVerifierBuilder m_aVerifierBuilder;
+  private final int m_nMaxSize;
+  private final Lock m_aLock = new ReentrantLock ();
+  // In access order, to evict the least recently used entry first
+  private final Map <SignerId, Entry> m_aMap;
+
+  SignerCertificateCache (@NonNull final JcaSimpleSignerInfoVerifierBuilder aVerifierBuilder,
+                          @Nonnegative final int nMaxSize)
+  {
+    ValueEnforcer.notNull (aVerifierBuilder, "VerifierBuilder");
+    ValueEnforcer.isGT0 (nMaxSize, "MaxSize");
+    m_aVerifierBuilder = aVerifierBuilder;
+    m_nMaxSize = nMaxSize;
+    m_aMap = new LinkedHashMap <> (16, 0.75f, true)
+    {
+      @Override
+      protected boolean removeEldestEntry (final Map.Entry <SignerId, Entry> aEldest)
+      {
+        return size () > m_nMaxSize;
+      }
+    };
+  }
+
+  /**
+   * Get the cached entry for the provided signer, or create a new one. A cached entry is only used
+   * if it contains the same certificate as the provided one, so that a different certificate with
+   * the same issuer and serial number replaces the cached entry instead of being verified with the
+   * wrong key.
+   *
+   * @param aSID
+   *        The signer ID. May not be <code>null</code>.
+   * @param aHolder
+   *        The certificate of the signer from the signature. May not be <code>null</code>.
+   * @return The cached or created entry. Never <code>null</code>.
+   * @throws OperatorCreationException
+   *         if the verifier cannot be created
+   * @throws CertificateException
+   *         if the certificate cannot be converted
+   * @throws IOException
+   *         if the certificate cannot be encoded
+   */
+  @NonNull
+  Entry getOrCreate (@NonNull final SignerId aSID, @NonNull final X509CertificateHolder aHolder) throws OperatorCreationException,
+                                                                                                 CertificateException,
+                                                                                                 IOException
+  {
+    Entry ret;
+    m_aLock.lock ();
+    try
+    {
+      ret = m_aMap.get (aSID);
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+    if (ret != null && ret.getHolder ().equals (aHolder))
+      return ret;
+
+    // Build outside of the lock
+    ret = new Entry (aHolder, m_aVerifierBuilder.build (aHolder));
+    m_aLock.lock ();
+    try
+    {
+      m_aMap.put (aSID, ret);
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+    return ret;
+  }
+
+  @Nonnegative
+  int size ()
+  {
+    m_aLock.lock ();
+    try
+    {
+      return m_aMap.size ();
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  void clear ()
+  {
+    m_aLock.lock ();
+    try
+    {
+      m_aMap.clear ();
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+}
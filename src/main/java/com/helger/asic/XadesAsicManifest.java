@@ -11,24 +11,28 @@
  */
 package com.helger.asic;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateEncodingException;
+import java.util.Map;
 
 import javax.xml.crypto.dsig.CanonicalizationMethod;
 
 import org.jspecify.annotations.NonNull;
+import org.xml.sax.InputSource;
 
+import com.helger.annotation.WillNotClose;
+import com.helger.asic.jaxb.JAXBMarshallerPool;
 import com.helger.asic.jaxb.cades.XAdESSignaturesType;
 import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
 import com.helger.datetime.helper.PDTFactory;
-import com.helger.jaxb.JAXBContextCache;
-import com.helger.jaxb.JAXBContextCacheKey;
 import com.helger.jaxb.JAXBMarshallerHelper;
 import com.helger.mime.IMimeType;
 import com.helger.xml.namespace.MapBasedNamespaceContext;
-import com.helger.xml.transform.TransformSourceFactory;
 import com.helger.xsds.xades132.CXAdES132;
 import com.helger.xsds.xades132.CertIDListType;
 import com.helger.xsds.xades132.CertIDType;
@@ -53,36 +57,37 @@ import com.helger.xsds.xmldsig.TransformsType;
 import com.helger.xsds.xmldsig.X509DataType;
 import com.helger.xsds.xmldsig.X509IssuerSerialType;
 
-import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBElement;
 import jakarta.xml.bind.JAXBException;
-import jakarta.xml.bind.Marshaller;
-import jakarta.xml.bind.Unmarshaller;
 
 public class XadesAsicManifest extends AbstractAsicManifest
 {
-  // Thread safe
-  private static final JAXBContext JAXB_CONTEXT;
   private static final com.helger.xsds.xades132.ObjectFactory OF_XADES = new com.helger.xsds.xades132.ObjectFactory ();
   private static final com.helger.asic.jaxb.cades.ObjectFactory OF_CADES = new com.helger.asic.jaxb.cades.ObjectFactory ();
   private static final com.helger.xsds.xmldsig.ObjectFactory OF_XMLDSIG = new com.helger.xsds.xmldsig.ObjectFactory ();
 
+  private static final MapBasedNamespaceContext NSCTX = new MapBasedNamespaceContext ();
   static
   {
-    try
-    {
-      JAXB_CONTEXT = false ? JAXBContextCache.getInstance ()
-                                             .getFromCache (JAXBContextCacheKey.createForClass (XAdESSignaturesType.class))
-                           : JAXBContext.newInstance (XAdESSignaturesType.class,
-                                                      X509DataType.class,
-                                                      QualifyingPropertiesType.class);
-    }
-    catch (final JAXBException e)
-    {
-      throw new IllegalStateException ("Unable to create JAXBContext: " + e.getMessage (), e);
-    }
+    NSCTX.addMapping (CXMLDSig.DEFAULT_PREFIX, CXMLDSig.NAMESPACE_URI);
+    NSCTX.addMapping (CXAdES132.DEFAULT_PREFIX, CXAdES132.NAMESPACE_URI);
   }
 
+  // Thread safe
+  private static final JAXBMarshallerPool <XAdESSignaturesType> POOL = new JAXBMarshallerPool <> (JAXBMarshallerPool.createContext (XAdESSignaturesType.class,
+                                                                                                                                    X509DataType.class,
+                                                                                                                                    QualifyingPropertiesType.class),
+                                                                                                  XAdESSignaturesType.class,
+                                                                                                  null,
+                                                                                                  OF_CADES::createXAdESSignatures,
+                                                                                                  m -> {
+                                                                                                    JAXBMarshallerHelper.setFormattedOutput (m,
+                                                                                                                                             true);
+                                                                                                    JAXBMarshallerHelper.setJakartaNamespacePrefixMapper (m,
+                                                                                                                                                          NSCTX);
+                                                                                                  },
+                                                                                                  JAXBMarshallerPool.DEFAULT_MAX_IDLE);
+
   // \XAdESSignature\Signature\SignedInfo
   private final SignedInfoType m_aSignedInfo;
   // \XAdESSignature\Signature\Object\QualifyingProperties\SignedProperties\SignedDataObjectProperties
@@ -109,18 +114,23 @@ public class XadesAsicManifest extends AbstractAsicManifest
   @Override
   public void add (final String sFilename, @NonNull final IMimeType aMimeType)
   {
-    final String id = "ID_" + m_aSignedInfo.getReference ().size ();
-
+    String sPrimaryID = null;
+    // One reference per digest algorithm, the primary one first
+    for (final Map.Entry <EMessageDigestAlgorithm, byte []> aEntry : internalGetAllDigests ().entrySet ())
     {
+      final String id = "ID_" + m_aSignedInfo.getReference ().size ();
+      if (sPrimaryID == null)
+        sPrimaryID = id;
+
       // \XAdESSignature\Signature\SignedInfo\Reference
       final ReferenceType reference = new ReferenceType ();
       reference.setId (id);
       reference.setURI (sFilename);
-      reference.setDigestValue (internalGetMessageDigest ().digest ());
+      reference.setDigestValue (aEntry.getValue ());
 
       // \XAdESSignature\Signature\SignedInfo\Reference\DigestMethod
       final DigestMethodType digestMethodType = new DigestMethodType ();
-      digestMethodType.setAlgorithm (getMessageDigestAlgorithm ().getUri ());
+      digestMethodType.setAlgorithm (aEntry.getKey ().getUri ());
       reference.setDigestMethod (digestMethodType);
 
       m_aSignedInfo.getReference ().add (reference);
@@ -129,7 +139,7 @@ public class XadesAsicManifest extends AbstractAsicManifest
     {
       // \XAdESSignature\Signature\Object\QualifyingProperties\SignedProperties\SignedDataObjectProperties\DataObjectFormat
       final DataObjectFormatType dataObjectFormatType = new DataObjectFormatType ();
-      dataObjectFormatType.setObjectReference ("#" + id);
+      dataObjectFormatType.setObjectReference ("#" + sPrimaryID);
       dataObjectFormatType.setMimeType (aMimeType.getAsString ());
 
       m_aSignedDataObjectProperties.getDataObjectFormat ().add (dataObjectFormatType);
@@ -168,17 +178,9 @@ public class XadesAsicManifest extends AbstractAsicManifest
   {
     try
     {
-      final Marshaller aMarshaller = JAXB_CONTEXT.createMarshaller ();
-      JAXBMarshallerHelper.setFormattedOutput (aMarshaller, true);
-      final MapBasedNamespaceContext aNSCtx = new MapBasedNamespaceContext ();
-      aNSCtx.addMapping (CXMLDSig.DEFAULT_PREFIX, CXMLDSig.NAMESPACE_URI);
-      aNSCtx.addMapping (CXAdES132.DEFAULT_PREFIX, CXAdES132.NAMESPACE_URI);
-      JAXBMarshallerHelper.setJakartaNamespacePrefixMapper (aMarshaller, aNSCtx);
-
       try (final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ())
       {
-        // TODO
-        aMarshaller.marshal (OF_CADES.createXAdESSignatures (getCreateXAdESSignatures (aSH)), aBAOS);
+        POOL.marshal (getCreateXAdESSignatures (aSH), aBAOS);
         return aBAOS.toByteArray ();
       }
     }
@@ -331,39 +333,45 @@ public class XadesAsicManifest extends AbstractAsicManifest
     return new SignatureValueType ();
   }
 
-  public static void extractAndVerify (@NonNull final String sXml, final ManifestVerifier aMV)
+  /**
+   * Read the provided XAdES signatures and pass all external references to the manifest verifier.
+   *
+   * @param sXml
+   *        The signatures XML. May not be <code>null</code>.
+   * @param aMV
+   *        The manifest verifier to update. May not be <code>null</code>.
+   * @throws IllegalStateException
+   *         if the content cannot be read
+   */
+  public static void extractAndVerify (@NonNull final String sXml, @NonNull final ManifestVerifier aMV)
   {
-    // Updating namespace
-    String sRealXML = sXml.replace ("http://uri.etsi.org/02918/v1.1.1#", "http://uri.etsi.org/02918/v1.2.1#");
-    sRealXML = sRealXML.replace ("http://uri.etsi.org/2918/v1.2.1#", "http://uri.etsi.org/02918/v1.2.1#");
-    sRealXML = sRealXML.replace ("http://www.w3.org/2000/09/xmldsig#sha", "http://www.w3.org/2001/04/xmlenc#sha");
-
-    XAdESSignaturesType aXadesSignatures;
-
     try
     {
-      final Unmarshaller aUnmarshaller = JAXB_CONTEXT.createUnmarshaller ();
-      aXadesSignatures = aUnmarshaller.unmarshal (TransformSourceFactory.create (sRealXML), XAdESSignaturesType.class)
-                                      .getValue ();
+      AsicManifestParser.parseXadesSignatures (new InputSource (new StringReader (sXml)), aMV);
     }
-    catch (final Exception ex)
+    catch (final IOException ex)
     {
       throw new IllegalStateException ("Unable to read content as XML", ex);
     }
+  }
 
-    for (final SignatureType aSignature : aXadesSignatures.getSignature ())
-    {
-      // SignedInfo is mandatory
-      final SignedInfoType aSignedInfo = aSignature.getSignedInfo ();
-      for (final ReferenceType aRef : aSignedInfo.getReference ())
-      {
-        // URI is optional
-        if (aRef.getURI () != null && !aRef.getURI ().startsWith ("#"))
-        {
-          // DigestMethod is mandatory
-          aMV.update (aRef.getURI (), null, aRef.getDigestValue (), aRef.getDigestMethod ().getAlgorithm (), null);
-        }
-      }
-    }
+  /**
+   * Read the provided XAdES signatures while streaming and pass all external references to the
+   * manifest verifier. Legacy namespaces are accepted.
+   *
+   * @param aIS
+   *        The signatures XML. Is not closed. May not be <code>null</code>.
+   * @param aMV
+   *        The manifest verifier to update. May not be <code>null</code>.
+   * @throws IOException
+   *         in case reading fails
+   * @throws IllegalStateException
+   *         if the content cannot be read
+   * @since 4.1.1
+   */
+  public static void extractAndVerify (@NonNull @WillNotClose final InputStream aIS,
+                                       @NonNull final ManifestVerifier aMV) throws IOException
+  {
+    AsicManifestParser.parseXadesSignatures (AsicManifestParser.createInputSource (aIS), aMV);
   }
 }
@@ -13,8 +13,10 @@ package com.helger.asic;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
 
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 
 public class XadesAsicWriter extends AbstractAsicWriter
 {
@@ -41,6 +43,34 @@ public class XadesAsicWriter extends AbstractAsicWriter
     super (aOS, bCloseStreamOnSign, new XadesAsicManifest (eMDAlgo), bWriteOasisManifest);
   }
 
+  /**
+   * Prepares creation of a new container.
+   *
+   * @param aOS
+   *        Stream used to write container.
+   * @param bCloseStreamOnSign
+   *        close stream when this is signed
+   * @param eMDAlgo
+   *        Message Digest Algorithm
+   * @param bWriteOasisManifest
+   *        <code>true</code> if the OASIS OpenDocument Manifest XML should also
+   *        be created.
+   * @param aExecutor
+   *        The executor to deflate the entries in parallel chunks. May be
+   *        <code>null</code> to deflate on the calling thread.
+   * @throws IOException
+   *         on IO error
+   * @since 4.1.1
+   */
+  public XadesAsicWriter (@NonNull final OutputStream aOS,
+                          final boolean bCloseStreamOnSign,
+                          @NonNull final EMessageDigestAlgorithm eMDAlgo,
+                          final boolean bWriteOasisManifest,
+                          @Nullable final ExecutorService aExecutor) throws IOException
+  {
+    super (aOS, bCloseStreamOnSign, new XadesAsicManifest (eMDAlgo), bWriteOasisManifest, aExecutor);
+  }
+
   @Override
   @NonNull
   public XadesAsicManifest getAsicManifest ()
@@ -59,6 +89,6 @@ public class XadesAsicWriter extends AbstractAsicWriter
   {
     // Generate and write manifest (META-INF/signatures.xml)
     final byte [] manifestBytes = getAsicManifest ().getAsBytes (aSH);
-    m_aAsicOutputStream.writeZipEntry ("META-INF/" + AsicUtils.SIGNATURES_BASENAME + ".xml", manifestBytes);
+    writeZipEntry ("META-INF/" + AsicUtils.SIGNATURES_BASENAME + ".xml", manifestBytes);
   }
 }
@@ -12,42 +12,80 @@
 package com.helger.asic.extras;
 
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
 import java.util.Collection;
 
 import org.bouncycastle.cms.CMSEnvelopedDataParser;
 import org.bouncycastle.cms.CMSException;
 import org.bouncycastle.cms.RecipientInformation;
+import org.bouncycastle.cms.Recipient;
+import org.bouncycastle.cms.RecipientInformationStore;
 import org.bouncycastle.cms.jcajce.JceKeyTransEnvelopedRecipient;
+import org.bouncycastle.cms.jcajce.JceKeyTransRecipientId;
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 
-import com.helger.asic.AsicUtils;
+import com.helger.asic.AsicTimings;
 import com.helger.asic.IAsicReader;
 import com.helger.asic.jaxb.asic.AsicManifest;
-import com.helger.base.io.nonblocking.NonBlockingByteArrayInputStream;
-import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
+import com.helger.base.io.stream.NonClosingInputStream;
 import com.helger.bc.PBCProvider;
+import com.helger.collection.commons.CommonsArrayList;
 
 /**
- * Wrapper to seamlessly decode encoded files.
+ * Wrapper to seamlessly decode encoded files. The content is decrypted while it is read, so the
+ * memory consumption does not depend on the content size.
  */
 public class CmsEncryptedAsicReader implements IAsicReader
 {
   private final IAsicReader m_aAsicReader;
   private final PrivateKey m_aPrivateKey;
+  private final X509Certificate m_aCertificate;
   private String m_sCurrentFile;
 
+  /**
+   * Constructor. If the content is encrypted for multiple recipients, the provided key is tried for
+   * each recipient, until the content encryption key can be decrypted. Depending on the key
+   * encryption algorithm a wrong key is not always detected, so for multiple recipients
+   * {@link #CmsEncryptedAsicReader(IAsicReader, PrivateKey, X509Certificate)} should be used to
+   * select the recipient by certificate.
+   *
+   * @param aAsicReader
+   *        The reader to wrap. May not be <code>null</code>.
+   * @param aPrivateKey
+   *        The private key to decrypt with.
+   */
   public CmsEncryptedAsicReader (@NonNull final IAsicReader aAsicReader, final PrivateKey aPrivateKey)
+  {
+    this (aAsicReader, aPrivateKey, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aAsicReader
+   *        The reader to wrap. May not be <code>null</code>.
+   * @param aPrivateKey
+   *        The private key to decrypt with.
+   * @param aCertificate
+   *        The certificate matching the private key. If provided, the recipient with this
+   *        certificate is used. May be <code>null</code>.
+   * @since 4.1.1
+   */
+  public CmsEncryptedAsicReader (@NonNull final IAsicReader aAsicReader,
+                                 final PrivateKey aPrivateKey,
+                                 @Nullable final X509Certificate aCertificate)
   {
     m_aAsicReader = aAsicReader;
     m_aPrivateKey = aPrivateKey;
+    m_aCertificate = aCertificate;
   }
 
   public String getNextFile () throws IOException
@@ -73,30 +111,112 @@ public class CmsEncryptedAsicReader implements IAsicReader
     }
   }
 
-  public void writeFile (final OutputStream aOS) throws IOException
+  /**
+   * Get all recipients the content may be decrypted for.
+   *
+   * @param aRecipients
+   *        All recipients of the enveloped data. May not be <code>null</code>.
+   * @return The recipients to try in order. Never <code>null</code> nor empty.
+   */
+  @NonNull
+  private Collection <RecipientInformation> _getCandidateRecipients (@NonNull final RecipientInformationStore aRecipients)
   {
-    if (m_sCurrentFile.endsWith (".p7m"))
+    if (m_aCertificate != null)
     {
-      try (final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ())
-      {
-        m_aAsicReader.writeFile (aBAOS);
+      final RecipientInformation aRecipient = aRecipients.get (new JceKeyTransRecipientId (m_aCertificate));
+      if (aRecipient == null)
+        throw new IllegalArgumentException ("Found no recipient for certificate '" +
+                                            m_aCertificate.getSubjectX500Principal ().getName () +
+                                            "' in " +
+                                            aRecipients.size () +
+                                            " recipient(s)");
+      return new CommonsArrayList <> (aRecipient);
+    }
 
-        final CMSEnvelopedDataParser aCMSEnvelopedDataParser = new CMSEnvelopedDataParser (aBAOS.getAsInputStream ());
-        // expect exactly one recipient
-        final Collection <RecipientInformation> aRecipients = aCMSEnvelopedDataParser.getRecipientInfos ()
-                                                                                     .getRecipients ();
-        if (aRecipients.size () != 1)
-          throw new IllegalArgumentException ("Found not exactly one recipient but " + aRecipients.size ());
+    final Collection <RecipientInformation> ret = aRecipients.getRecipients ();
+    if (ret.isEmpty ())
+      throw new IllegalArgumentException ("Found no recipient");
+    return ret;
+  }
+
+  /**
+   * Open the current encrypted entry for decryption. The content is decrypted while it is read.
+   * Closing the returned stream reads the rest of the encrypted entry, so that its digest can be
+   * verified by the underlying reader. The underlying container stream is not closed, so that the
+   * next entry can be read.
+   *
+   * @return The stream with the decrypted content. Never <code>null</code>.
+   * @throws IOException
+   *         in case of an IO or decryption error
+   */
+  @NonNull
+  private InputStream _openDecrypting () throws IOException
+  {
+    final InputStream aEncryptedIS = m_aAsicReader.inputStream ();
+    try
+    {
+      // Closing the parser must not close the underlying container stream
+      final CMSEnvelopedDataParser aCMSEnvelopedDataParser = new CMSEnvelopedDataParser (new NonClosingInputStream (aEncryptedIS));
+      final Recipient aRecipient = new JceKeyTransEnvelopedRecipient (m_aPrivateKey).setProvider (PBCProvider.getProvider ());
 
-        // retrieve recipient and decode it
-        final RecipientInformation aRecipientInfo = aRecipients.iterator ().next ();
-        final byte [] aDecryptedData = aRecipientInfo.getContent (new JceKeyTransEnvelopedRecipient (m_aPrivateKey).setProvider (PBCProvider.getProvider ()));
+      // The content encryption key can only be decrypted for the recipient
+      // matching the private key
+      InputStream aDecryptedIS = null;
+      CMSException aLastException = null;
+      for (final RecipientInformation aRecipientInfo : _getCandidateRecipients (aCMSEnvelopedDataParser.getRecipientInfos ()))
+        try
+        {
+          aDecryptedIS = aRecipientInfo.getContentStream (aRecipient).getContentStream ();
+          break;
+        }
+        catch (final CMSException ex)
+        {
+          aLastException = ex;
+        }
+      if (aDecryptedIS == null)
+        throw new IOException ("Failed to decrypt the content encryption key for any recipient", aLastException);
 
-        AsicUtils.copyStream (new NonBlockingByteArrayInputStream (aDecryptedData), aOS);
-      }
-      catch (final CMSException e)
+      return new FilterInputStream (aDecryptedIS)
+      {
+        private boolean m_bClosed = false;
+
+        @Override
+        public void close () throws IOException
+        {
+          if (!m_bClosed)
+          {
+            m_bClosed = true;
+            try
+            {
+              // Consume the rest of the entry for the digest calculation
+              final byte [] aBuffer = new byte [8192];
+              while (aEncryptedIS.read (aBuffer) >= 0)
+              {
+                // Skip
+              }
+            }
+            finally
+            {
+              aCMSEnvelopedDataParser.close ();
+            }
+          }
+        }
+      };
+    }
+    catch (final CMSException e)
+    {
+      throw new IOException (e.getMessage (), e);
+    }
+  }
+
+  public void writeFile (final OutputStream aOS) throws IOException
+  {
+    if (m_sCurrentFile.endsWith (".p7m"))
+    {
+      try (final InputStream aDecryptedIS = _openDecrypting ())
       {
-        throw new IOException (e.getMessage (), e);
+        // Decryption errors must not be swallowed
+        aDecryptedIS.transferTo (aOS);
       }
     }
     else
@@ -105,14 +225,20 @@ public class CmsEncryptedAsicReader implements IAsicReader
     }
   }
 
+  /**
+   * Get the content of the current file as a stream. Encrypted content is decrypted while it is
+   * read. The returned stream should be closed after reading.
+   *
+   * @return The stream with the content of the current file. Never <code>null</code>.
+   * @throws IOException
+   *         in case of an IO or decryption error
+   */
   @NonNull
   public InputStream inputStream () throws IOException
   {
-    final PipedInputStream aPIS = new PipedInputStream ();
-    final PipedOutputStream aPOS = new PipedOutputStream (aPIS);
-
-    writeFile (aPOS);
-    return aPIS;
+    if (m_sCurrentFile.endsWith (".p7m"))
+      return _openDecrypting ();
+    return m_aAsicReader.inputStream ();
   }
 
   public void close () throws IOException
@@ -120,6 +246,12 @@ public class CmsEncryptedAsicReader implements IAsicReader
     m_aAsicReader.close ();
   }
 
+  @NonNull
+  public AsicTimings getTimings ()
+  {
+    return m_aAsicReader.getTimings ();
+  }
+
   @NonNull
   public AsicManifest getAsicManifest ()
   {
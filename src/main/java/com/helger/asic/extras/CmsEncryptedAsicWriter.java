@@ -23,29 +23,32 @@ import java.util.TreeSet;
 
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.bouncycastle.cms.CMSAlgorithm;
-import org.bouncycastle.cms.CMSEnvelopedData;
-import org.bouncycastle.cms.CMSEnvelopedDataGenerator;
+import org.bouncycastle.cms.CMSEnvelopedDataStreamGenerator;
 import org.bouncycastle.cms.CMSException;
-import org.bouncycastle.cms.CMSProcessableByteArray;
 import org.bouncycastle.cms.jcajce.JceCMSContentEncryptorBuilder;
 import org.bouncycastle.cms.jcajce.JceKeyTransRecipientInfoGenerator;
+import org.bouncycastle.operator.OutputEncryptor;
 import org.jspecify.annotations.NonNull;
 
+import com.helger.annotation.Nonempty;
 import com.helger.asic.AsicUtils;
+import com.helger.asic.IAsicCompressionPolicy;
 import com.helger.asic.IAsicWriter;
 import com.helger.asic.SignatureHelper;
-import com.helger.base.io.nonblocking.NonBlockingByteArrayInputStream;
-import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
+import com.helger.base.enforce.ValueEnforcer;
 import com.helger.bc.PBCProvider;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
 import com.helger.mime.IMimeType;
 
 /**
- * Wrapper to seamlessly encode specific files.
+ * Wrapper to seamlessly encode specific files. The content is encrypted while it is written to the
+ * container, so the memory consumption does not depend on the content size.
  */
 public class CmsEncryptedAsicWriter implements IAsicWriter
 {
   private final IAsicWriter m_aAsicWriter;
-  private final X509Certificate m_aCertificate;
+  private final ICommonsList <X509Certificate> m_aCertificates;
   private final ASN1ObjectIdentifier m_aCmsAlgorithm;
 
   private final Set <String> m_aEntryNames = new TreeSet <> ();
@@ -59,8 +62,44 @@ public class CmsEncryptedAsicWriter implements IAsicWriter
                                  final X509Certificate aCertificate,
                                  final ASN1ObjectIdentifier aCMSAlgorithm)
   {
+    this (aAsicWriter, new CommonsArrayList <> (aCertificate), aCMSAlgorithm);
+  }
+
+  /**
+   * Constructor for multiple recipients.
+   *
+   * @param aAsicWriter
+   *        The writer to wrap. May not be <code>null</code>.
+   * @param aCertificates
+   *        The certificates of all recipients. May neither be <code>null</code> nor empty.
+   * @since 4.1.1
+   */
+  public CmsEncryptedAsicWriter (final IAsicWriter aAsicWriter,
+                                 @NonNull @Nonempty final Iterable <? extends X509Certificate> aCertificates)
+  {
+    this (aAsicWriter, aCertificates, CMSAlgorithm.AES256_GCM);
+  }
+
+  /**
+   * Constructor for multiple recipients. The content is encrypted only once, and the content
+   * encryption key is encrypted for each recipient.
+   *
+   * @param aAsicWriter
+   *        The writer to wrap. May not be <code>null</code>.
+   * @param aCertificates
+   *        The certificates of all recipients. May neither be <code>null</code> nor empty.
+   * @param aCMSAlgorithm
+   *        The content encryption algorithm to use. May not be <code>null</code>.
+   * @since 4.1.1
+   */
+  public CmsEncryptedAsicWriter (final IAsicWriter aAsicWriter,
+                                 @NonNull @Nonempty final Iterable <? extends X509Certificate> aCertificates,
+                                 final ASN1ObjectIdentifier aCMSAlgorithm)
+  {
+    ValueEnforcer.notNull (aCertificates, "Certificates");
     m_aAsicWriter = aAsicWriter;
-    m_aCertificate = aCertificate;
+    m_aCertificates = new CommonsArrayList <> (aCertificates);
+    ValueEnforcer.notEmptyNoNullValue (m_aCertificates, "Certificates");
     m_aCmsAlgorithm = aCMSAlgorithm;
   }
 
@@ -72,6 +111,21 @@ public class CmsEncryptedAsicWriter implements IAsicWriter
     return m_aAsicWriter.add (aIS, sFilename, aMimeType);
   }
 
+  @NonNull
+  public IAsicWriter add (@NonNull final InputStream aIS,
+                          @NonNull final String sFilename,
+                          @NonNull final IMimeType aMimeType,
+                          final int nCompressionLevel) throws IOException
+  {
+    return m_aAsicWriter.add (aIS, sFilename, aMimeType, nCompressionLevel);
+  }
+
+  @NonNull
+  public IAsicWriter setCompressionPolicy (@NonNull final IAsicCompressionPolicy aCompressionPolicy)
+  {
+    return m_aAsicWriter.setCompressionPolicy (aCompressionPolicy);
+  }
+
   @NonNull
   public IAsicWriter addEncrypted (final File aFile) throws IOException
   {
@@ -131,21 +185,22 @@ public class CmsEncryptedAsicWriter implements IAsicWriter
                                    final String sFilename,
                                    final IMimeType aMimeType) throws IOException
   {
-    try (final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ())
+    try
     {
-      AsicUtils.copyStream (aIS, aBAOS);
-
-      final CMSEnvelopedDataGenerator aCMSEnvelopedDataGenerator = new CMSEnvelopedDataGenerator ();
-      aCMSEnvelopedDataGenerator.addRecipientInfoGenerator (new JceKeyTransRecipientInfoGenerator (m_aCertificate).setProvider (PBCProvider.getProvider ()));
-      final CMSEnvelopedData aData = aCMSEnvelopedDataGenerator.generate (new CMSProcessableByteArray (aBAOS.toByteArray ()),
-                                                                          new JceCMSContentEncryptorBuilder (m_aCmsAlgorithm).setProvider (PBCProvider.getProvider ())
-                                                                                                                             .build ());
+      final CMSEnvelopedDataStreamGenerator aGenerator = new CMSEnvelopedDataStreamGenerator ();
+      // The content is encrypted once, the content encryption key per recipient
+      for (final X509Certificate aCertificate : m_aCertificates)
+        aGenerator.addRecipientInfoGenerator (new JceKeyTransRecipientInfoGenerator (aCertificate).setProvider (PBCProvider.getProvider ()));
+      final OutputEncryptor aEncryptor = new JceCMSContentEncryptorBuilder (m_aCmsAlgorithm).setProvider (PBCProvider.getProvider ())
+                                                                                         .build ();
 
       m_aEntryNames.add (sFilename);
 
-      return m_aAsicWriter.add (new NonBlockingByteArrayInputStream (aData.getEncoded ()),
+      // Encrypt while writing the ZIP entry. Encrypted content cannot be compressed.
+      return m_aAsicWriter.add (new CmsEncryptingInputStream (aIS, aGenerator, aEncryptor),
                                 sFilename + ".p7m",
-                                aMimeType);
+                                aMimeType,
+                                IAsicCompressionPolicy.LEVEL_STORED);
     }
     catch (final CMSException | CertificateEncodingException e)
     {
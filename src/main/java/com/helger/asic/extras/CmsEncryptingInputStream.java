@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic.extras;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.bouncycastle.cms.CMSEnvelopedDataStreamGenerator;
+import org.bouncycastle.cms.CMSException;
+import org.bouncycastle.operator.OutputEncryptor;
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.WillNotClose;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
+
+/**
+ * Input stream that provides the CMS enveloped data of a plain text input stream. The plain text
+ * is read and encrypted chunk by chunk, when the encrypted data is read, so that the memory
+ * consumption is independent of the content size and no additional thread is needed.
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@NotThreadSafe
+final class CmsEncryptingInputStream extends InputStream
+{
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  private final InputStream m_aPlainIS;
+  // Receives the encrypted data
+  private final NonBlockingByteArrayOutputStream m_aEncryptedBuffer = new NonBlockingByteArrayOutputStream ();
+  private final OutputStream m_aEncryptingOS;
+  private final byte [] m_aPlainBuffer = new byte [CHUNK_SIZE];
+  private byte [] m_aPending = new byte [0];
+  private int m_nPendingPos = 0;
+  private boolean m_bPlainEOF = false;
+
+  CmsEncryptingInputStream (@NonNull @WillNotClose final InputStream aPlainIS,
+                            @NonNull final CMSEnvelopedDataStreamGenerator aGenerator,
+                            @NonNull final OutputEncryptor aEncryptor) throws CMSException, IOException
+  {
+    m_aPlainIS = aPlainIS;
+    // Writes the header including the recipient infos
+    m_aEncryptingOS = aGenerator.open (m_aEncryptedBuffer, aEncryptor);
+  }
+
+  /**
+   * Ensure that pending encrypted data is available.
+   *
+   * @return <code>false</code> if the end of the encrypted data is reached.
+   * @throws IOException
+   *         in case of an IO error
+   */
+  private boolean _ensurePending () throws IOException
+  {
+    while (m_nPendingPos >= m_aPending.length)
+    {
+      if (m_aEncryptedBuffer.size () > 0)
+      {
+        m_aPending = m_aEncryptedBuffer.toByteArray ();
+        m_nPendingPos = 0;
+        m_aEncryptedBuffer.reset ();
+      }
+      else
+      {
+        if (m_bPlainEOF)
+          return false;
+
+        final int nRead = m_aPlainIS.read (m_aPlainBuffer);
+        if (nRead < 0)
+        {
+          // Writes the remaining cipher blocks, the MAC (if any) and the end of
+          // the structure
+          m_bPlainEOF = true;
+          m_aEncryptingOS.close ();
+        }
+        else
+          if (nRead > 0)
+            m_aEncryptingOS.write (m_aPlainBuffer, 0, nRead);
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int read () throws IOException
+  {
+    if (!_ensurePending ())
+      return -1;
+    return m_aPending[m_nPendingPos++] & 0xff;
+  }
+
+  @Override
+  public int read (final byte [] aBuf, final int nOfs, final int nLen) throws IOException
+  {
+    if (nLen == 0)
+      return 0;
+    if (!_ensurePending ())
+      return -1;
+
+    final int nCount = Math.min (nLen, m_aPending.length - m_nPendingPos);
+    System.arraycopy (m_aPending, m_nPendingPos, aBuf, nOfs, nCount);
+    m_nPendingPos += nCount;
+    return nCount;
+  }
+
+  @Override
+  public int available ()
+  {
+    return m_aPending.length - m_nPendingPos;
+  }
+
+  @Override
+  public void close ()
+  {
+    // The plain text stream is owned by the caller
+  }
+}
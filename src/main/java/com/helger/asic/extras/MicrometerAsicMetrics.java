@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic.extras;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.asic.AsicMetrics;
+import com.helger.asic.EAsicOperation;
+import com.helger.asic.IAsicMetrics;
+import com.helger.base.enforce.ValueEnforcer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * {@link IAsicMetrics} implementation that records to a Micrometer {@link MeterRegistry}. All meters
+ * are registered in the constructor. Requires the optional dependency
+ * <code>io.micrometer:micrometer-core</code>. Register it via
+ * {@link AsicMetrics#setMetrics(IAsicMetrics)}.
+ * <ul>
+ * <li><code>asic.entry.bytes</code> - counter of the uncompressed payload bytes, tagged with
+ * <code>direction</code> <code>in</code> or <code>out</code></li>
+ * <li><code>asic.entry.inflate</code> and <code>asic.entry.deflate</code> - timers per payload
+ * entry</li>
+ * <li><code>asic.digest</code> - timer per payload entry, tagged with <code>operation</code></li>
+ * <li><code>asic.manifest.parse</code> - timer per manifest</li>
+ * <li><code>asic.signature.create</code> and <code>asic.signature.verify</code> - timers tagged with
+ * <code>outcome</code></li>
+ * <li><code>asic.containers</code> - counter tagged with <code>operation</code> and
+ * <code>outcome</code></li>
+ * </ul>
+ *
+ * @author Philip Helger
+ * @since 4.1.1
+ */
+@ThreadSafe
+public class MicrometerAsicMetrics implements IAsicMetrics
+{
+  public static final String TAG_DIRECTION = "direction";
+  public static final String TAG_OPERATION = "operation";
+  public static final String TAG_OUTCOME = "outcome";
+  public static final String OUTCOME_SUCCESS = "success";
+  public static final String OUTCOME_FAILURE = "failure";
+
+  private final Counter m_aBytesIn;
+  private final Counter m_aBytesOut;
+  private final Timer m_aInflate;
+  private final Timer m_aDeflate;
+  private final Map <EAsicOperation, Timer> m_aDigest = new EnumMap <> (EAsicOperation.class);
+  private final Timer m_aManifestParse;
+  private final Timer m_aSignatureCreateSuccess;
+  private final Timer m_aSignatureCreateFailure;
+  private final Timer m_aSignatureVerifySuccess;
+  private final Timer m_aSignatureVerifyFailure;
+  private final Map <EAsicOperation, Counter> m_aContainersSuccess = new EnumMap <> (EAsicOperation.class);
+  private final Map <EAsicOperation, Counter> m_aContainersFailure = new EnumMap <> (EAsicOperation.class);
+
+  public MicrometerAsicMetrics (@NonNull final MeterRegistry aRegistry)
+  {
+    ValueEnforcer.notNull (aRegistry, "Registry");
+    m_aBytesIn = Counter.builder ("asic.entry.bytes")
+                        .baseUnit ("bytes")
+                        .tag (TAG_DIRECTION, "in")
+                        .register (aRegistry);
+    m_aBytesOut = Counter.builder ("asic.entry.bytes")
+                         .baseUnit ("bytes")
+                         .tag (TAG_DIRECTION, "out")
+                         .register (aRegistry);
+    m_aInflate = Timer.builder ("asic.entry.inflate").register (aRegistry);
+    m_aDeflate = Timer.builder ("asic.entry.deflate").register (aRegistry);
+    m_aManifestParse = Timer.builder ("asic.manifest.parse").register (aRegistry);
+    m_aSignatureCreateSuccess = Timer.builder ("asic.signature.create")
+                                     .tag (TAG_OUTCOME, OUTCOME_SUCCESS)
+                                     .register (aRegistry);
+    m_aSignatureCreateFailure = Timer.builder ("asic.signature.create")
+                                     .tag (TAG_OUTCOME, OUTCOME_FAILURE)
+                                     .register (aRegistry);
+    m_aSignatureVerifySuccess = Timer.builder ("asic.signature.verify")
+                                     .tag (TAG_OUTCOME, OUTCOME_SUCCESS)
+                                     .register (aRegistry);
+    m_aSignatureVerifyFailure = Timer.builder ("asic.signature.verify")
+                                     .tag (TAG_OUTCOME, OUTCOME_FAILURE)
+                                     .register (aRegistry);
+    for (final EAsicOperation eOperation : EAsicOperation.values ())
+    {
+      m_aDigest.put (eOperation,
+                     Timer.builder ("asic.digest").tag (TAG_OPERATION, eOperation.getID ()).register (aRegistry));
+      m_aContainersSuccess.put (eOperation,
+                                Counter.builder ("asic.containers")
+                                       .tag (TAG_OPERATION, eOperation.getID ())
+                                       .tag (TAG_OUTCOME, OUTCOME_SUCCESS)
+                                       .register (aRegistry));
+      m_aContainersFailure.put (eOperation,
+                                Counter.builder ("asic.containers")
+                                       .tag (TAG_OPERATION, eOperation.getID ())
+                                       .tag (TAG_OUTCOME, OUTCOME_FAILURE)
+                                       .register (aRegistry));
+    }
+  }
+
+  @Override
+  public void onEntryRead (final long nBytes, final long nInflateNanos)
+  {
+    m_aBytesIn.increment (nBytes);
+    m_aInflate.record (nInflateNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void onEntryWritten (final long nBytes, final long nDeflateNanos)
+  {
+    m_aBytesOut.increment (nBytes);
+    m_aDeflate.record (nDeflateNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void onDigest (@NonNull final EAsicOperation eOperation, final long nBytes, final long nDigestNanos)
+  {
+    m_aDigest.get (eOperation).record (nDigestNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void onManifestParsed (final long nNanos)
+  {
+    m_aManifestParse.record (nNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void onSignatureCreated (final long nNanos, final boolean bSuccess)
+  {
+    (bSuccess ? m_aSignatureCreateSuccess : m_aSignatureCreateFailure).record (nNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void onSignatureVerified (final long nNanos, final boolean bSuccess)
+  {
+    (bSuccess ? m_aSignatureVerifySuccess : m_aSignatureVerifyFailure).record (nNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void onContainerFinished (@NonNull final EAsicOperation eOperation, final boolean bSuccess)
+  {
+    (bSuccess ? m_aContainersSuccess : m_aContainersFailure).get (eOperation).increment ();
+  }
+}
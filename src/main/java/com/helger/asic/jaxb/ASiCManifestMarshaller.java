@@ -18,6 +18,7 @@ import com.helger.asic.jaxb.cades.ObjectFactory;
 import com.helger.collection.commons.CommonsArrayList;
 import com.helger.io.resource.ClassPathResource;
 import com.helger.jaxb.GenericJAXBMarshaller;
+import com.helger.jaxb.JAXBMarshallerHelper;
 import com.helger.xsds.xmldsig.CXMLDSig;
 
 /**
@@ -32,6 +33,20 @@ public class ASiCManifestMarshaller extends GenericJAXBMarshaller <ASiCManifestT
                                                                                new ClassPathResource ("external/schemas/ts_102918v010201.xsd",
                                                                                                       ASiCManifestMarshaller.class.getClassLoader ())).getAsUnmodifiable ();
 
+  /**
+   * Shared pool with the compiled {@link #XSDS}, to be used instead of a new marshaller instance
+   * for every manifest.
+   *
+   * @since 4.1.1
+   */
+  public static final JAXBMarshallerPool <ASiCManifestType> POOL = new JAXBMarshallerPool <> (JAXBMarshallerPool.createContext (ASiCManifestType.class),
+                                                                                               ASiCManifestType.class,
+                                                                                               JAXBMarshallerPool.createSchema (XSDS),
+                                                                                               new ObjectFactory ()::createASiCManifest,
+                                                                                               m -> JAXBMarshallerHelper.setFormattedOutput (m,
+                                                                                                                                             true),
+                                                                                               JAXBMarshallerPool.DEFAULT_MAX_IDLE);
+
   public ASiCManifestMarshaller ()
   {
     super (ASiCManifestType.class, XSDS, new ObjectFactory ()::createASiCManifest);
@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic.jaxb;
+
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.Source;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
+import com.helger.io.resource.IReadableResource;
+import com.helger.xml.transform.TransformSourceFactory;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBElement;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import jakarta.xml.bind.Unmarshaller;
+
+/**
+ * A thread safe pool of JAXB {@link Marshaller} and {@link Unmarshaller} objects for a single root
+ * type. The {@link JAXBContext} and the compiled XML {@link Schema} are created once and shared by
+ * all pooled objects, so that reading and writing many small manifests does not pay the context and
+ * schema setup per container. Marshallers and unmarshallers are not thread safe themselves, so each
+ * one is used by a single thread at a time and is returned to the pool afterwards.
+ *
+ * @author Philip Helger
+ * @param <T>
+ *        The JAXB type to read and write
+ * @since 4.1.1
+ */
+@ThreadSafe
+public final class JAXBMarshallerPool <T>
+{
+  /** The default maximum number of idle marshallers and unmarshallers kept */
+  public static final int DEFAULT_MAX_IDLE = 16;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (JAXBMarshallerPool.class);
+
+  private final JAXBContext m_aContext;
+  private final Class <T> m_aClass;
+  private final Schema m_aSchema;
+  private final Function <? super T, ? extends JAXBElement <T>> m_aWrapper;
+  private final Consumer <? super Marshaller> m_aMarshallerCustomizer;
+  private final BlockingQueue <Marshaller> m_aMarshallers;
+  private final BlockingQueue <Unmarshaller> m_aUnmarshallers;
+
+  /**
+   * Constructor
+   *
+   * @param aContext
+   *        The JAXB context to use. May not be <code>null</code>.
+   * @param aClass
+   *        The root type to read and write. May not be <code>null</code>.
+   * @param aSchema
+   *        The compiled schema to validate against when reading and writing. May be
+   *        <code>null</code> to disable validation.
+   * @param aWrapper
+   *        The function creating the root element for writing. May not be <code>null</code>.
+   * @param aMarshallerCustomizer
+   *        Callback to set the output properties on every newly created marshaller. May not be
+   *        <code>null</code>.
+   * @param nMaxIdle
+   *        The maximum number of idle marshallers and unmarshallers to keep each. Must be &gt; 0.
+   */
+  public JAXBMarshallerPool (@NonNull final JAXBContext aContext,
+                             @NonNull final Class <T> aClass,
+                             @Nullable final Schema aSchema,
+                             @NonNull final Function <? super T, ? extends JAXBElement <T>> aWrapper,
+                             @NonNull final Consumer <? super Marshaller> aMarshallerCustomizer,
+                             @Nonnegative final int nMaxIdle)
+  {
+    ValueEnforcer.notNull (aContext, "Context");
+    ValueEnforcer.notNull (aClass, "Class");
+    ValueEnforcer.notNull (aWrapper, "Wrapper");
+    ValueEnforcer.notNull (aMarshallerCustomizer, "MarshallerCustomizer");
+    ValueEnforcer.isGT0 (nMaxIdle, "MaxIdle");
+    m_aContext = aContext;
+    m_aClass = aClass;
+    m_aSchema = aSchema;
+    m_aWrapper = aWrapper;
+    m_aMarshallerCustomizer = aMarshallerCustomizer;
+    m_aMarshallers = new LinkedBlockingQueue <> (nMaxIdle);
+    m_aUnmarshallers = new LinkedBlockingQueue <> (nMaxIdle);
+  }
+
+  /**
+   * Create a new JAXB context for the provided classes, wrapping the checked exception.
+   *
+   * @param aClasses
+   *        The classes to be bound. May not be <code>null</code>.
+   * @return The new context and never <code>null</code>.
+   * @throws IllegalStateException
+   *         if the context cannot be created
+   */
+  @NonNull
+  public static JAXBContext createContext (@NonNull final Class <?>... aClasses)
+  {
+    try
+    {
+      return JAXBContext.newInstance (aClasses);
+    }
+    catch (final JAXBException ex)
+    {
+      throw new IllegalStateException ("Unable to create JAXBContext: " + ex.getMessage (), ex);
+    }
+  }
+
+  /**
+   * Compile the provided XML Schemas into a single thread safe {@link Schema} object.
+   *
+   * @param aXSDs
+   *        The XSDs to compile. Imported XSDs must be contained before the importing ones. May
+   *        not be <code>null</code>.
+   * @return The compiled schema and never <code>null</code>.
+   * @throws IllegalStateException
+   *         if the schemas cannot be compiled
+   */
+  @NonNull
+  public static Schema createSchema (@NonNull final List <? extends IReadableResource> aXSDs)
+  {
+    ValueEnforcer.notEmptyNoNullValue (aXSDs, "XSDs");
+
+    final Source [] aSources = new Source [aXSDs.size ()];
+    for (int i = 0; i < aSources.length; ++i)
+      aSources[i] = TransformSourceFactory.create (aXSDs.get (i));
+    try
+    {
+      return SchemaFactory.newInstance (XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema (aSources);
+    }
+    catch (final SAXException ex)
+    {
+      throw new IllegalStateException ("Unable to compile XML Schema " + aXSDs + ": " + ex.getMessage (), ex);
+    }
+  }
+
+  @Nullable
+  public Schema getSchema ()
+  {
+    return m_aSchema;
+  }
+
+  @Nonnegative
+  int getIdleMarshallerCount ()
+  {
+    return m_aMarshallers.size ();
+  }
+
+  @Nonnegative
+  int getIdleUnmarshallerCount ()
+  {
+    return m_aUnmarshallers.size ();
+  }
+
+  @NonNull
+  private Marshaller _borrowMarshaller () throws JAXBException
+  {
+    Marshaller ret = m_aMarshallers.poll ();
+    if (ret == null)
+    {
+      ret = m_aContext.createMarshaller ();
+      ret.setSchema (m_aSchema);
+      m_aMarshallerCustomizer.accept (ret);
+    }
+    return ret;
+  }
+
+  @NonNull
+  private Unmarshaller _borrowUnmarshaller () throws JAXBException
+  {
+    Unmarshaller ret = m_aUnmarshallers.poll ();
+    if (ret == null)
+    {
+      ret = m_aContext.createUnmarshaller ();
+      ret.setSchema (m_aSchema);
+    }
+    return ret;
+  }
+
+  /**
+   * Read the provided source.
+   *
+   * @param aSource
+   *        The source to read. May not be <code>null</code>.
+   * @return The read object and never <code>null</code>.
+   * @throws JAXBException
+   *         if the source cannot be read or is invalid according to the schema
+   */
+  @NonNull
+  public T unmarshal (@NonNull final Source aSource) throws JAXBException
+  {
+    ValueEnforcer.notNull (aSource, "Source");
+
+    final Unmarshaller aUnmarshaller = _borrowUnmarshaller ();
+    try
+    {
+      return aUnmarshaller.unmarshal (aSource, m_aClass).getValue ();
+    }
+    finally
+    {
+      // An unmarshaller stays usable after an error, so it is always reused
+      m_aUnmarshallers.offer (aUnmarshaller);
+    }
+  }
+
+  /**
+   * Write the provided object to an output stream.
+   *
+   * @param aObject
+   *        The object to write. May not be <code>null</code>.
+   * @param aOS
+   *        The output stream to write to. Is not closed. May not be <code>null</code>.
+   * @throws JAXBException
+   *         if the object cannot be written or is invalid according to the schema
+   */
+  public void marshal (@NonNull final T aObject, @NonNull final OutputStream aOS) throws JAXBException
+  {
+    ValueEnforcer.notNull (aObject, "Object");
+    ValueEnforcer.notNull (aOS, "OutputStream");
+
+    final Marshaller aMarshaller = _borrowMarshaller ();
+    try
+    {
+      aMarshaller.marshal (m_aWrapper.apply (aObject), aOS);
+    }
+    finally
+    {
+      m_aMarshallers.offer (aMarshaller);
+    }
+  }
+
+  /**
+   * Read the provided source.
+   *
+   * @param aSource
+   *        The source to read. May not be <code>null</code>.
+   * @return <code>null</code> if the source cannot be read or is invalid.
+   */
+  @Nullable
+  public T read (@NonNull final Source aSource)
+  {
+    try
+    {
+      return unmarshal (aSource);
+    }
+    catch (final JAXBException ex)
+    {
+      LOGGER.error ("Failed to read " + m_aClass.getName () + ": " + ex.getMessage ());
+      return null;
+    }
+  }
+
+  /**
+   * Get the provided object as serialized bytes.
+   *
+   * @param aObject
+   *        The object to write. May not be <code>null</code>.
+   * @return <code>null</code> if the object cannot be written or is invalid.
+   */
+  @Nullable
+  public byte [] getAsBytes (@NonNull final T aObject)
+  {
+    try (final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ())
+    {
+      marshal (aObject, aBAOS);
+      return aBAOS.toByteArray ();
+    }
+    catch (final JAXBException ex)
+    {
+      LOGGER.error ("Failed to write " + m_aClass.getName () + ": " + ex.getMessage ());
+      return null;
+    }
+  }
+
+  /**
+   * Get the provided object as a string.
+   *
+   * @param aObject
+   *        The object to write. May not be <code>null</code>.
+   * @return <code>null</code> if the object cannot be written or is invalid.
+   */
+  @Nullable
+  public String getAsString (@NonNull final T aObject)
+  {
+    ValueEnforcer.notNull (aObject, "Object");
+
+    try
+    {
+      final Marshaller aMarshaller = _borrowMarshaller ();
+      try
+      {
+        final StringWriter aSW = new StringWriter ();
+        aMarshaller.marshal (m_aWrapper.apply (aObject), aSW);
+        return aSW.toString ();
+      }
+      finally
+      {
+        m_aMarshallers.offer (aMarshaller);
+      }
+    }
+    catch (final JAXBException ex)
+    {
+      LOGGER.error ("Failed to write " + m_aClass.getName () + ": " + ex.getMessage ());
+      return null;
+    }
+  }
+}
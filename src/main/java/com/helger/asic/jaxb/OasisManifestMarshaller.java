@@ -20,9 +20,12 @@ import com.helger.asic.jaxb.opendocument.manifest.Manifest;
 import com.helger.collection.commons.CommonsArrayList;
 import com.helger.io.resource.ClassPathResource;
 import com.helger.jaxb.GenericJAXBMarshaller;
+import com.helger.jaxb.JAXBMarshallerHelper;
 import com.helger.xml.namespace.MapBasedNamespaceContext;
 import com.helger.xsds.xmldsig.CXMLDSig;
 
+import jakarta.xml.bind.JAXBElement;
+
 /**
  * JAXB marshaller for the {@link Manifest}.
  *
@@ -44,6 +47,26 @@ public class OasisManifestMarshaller extends GenericJAXBMarshaller <Manifest>
     NSCTX.addMapping ("manifest", OasisManifest.NAMESPACE_URI);
   }
 
+  /**
+   * Shared pool to be used instead of a new marshaller instance for every manifest. Like this
+   * marshaller, it does not validate against the {@link #XSDS}.
+   *
+   * @since 4.1.1
+   */
+  public static final JAXBMarshallerPool <Manifest> POOL = new JAXBMarshallerPool <> (JAXBMarshallerPool.createContext (Manifest.class),
+                                                                                       Manifest.class,
+                                                                                       null,
+                                                                                       x -> new JAXBElement <> (QN,
+                                                                                                                Manifest.class,
+                                                                                                                x),
+                                                                                       m -> {
+                                                                                         JAXBMarshallerHelper.setFormattedOutput (m,
+                                                                                                                                  true);
+                                                                                         JAXBMarshallerHelper.setJakartaNamespacePrefixMapper (m,
+                                                                                                                                               NSCTX);
+                                                                                       },
+                                                                                       JAXBMarshallerPool.DEFAULT_MAX_IDLE);
+
   public OasisManifestMarshaller ()
   {
     super (Manifest.class, null, createSimpleJAXBElement (QN, Manifest.class));
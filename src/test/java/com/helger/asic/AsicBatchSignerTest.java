@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
+import com.helger.base.io.stream.StringInputStream;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.mime.CMimeType;
+
+/**
+ * Test class for class {@link AsicBatchSigner}.
+ *
+ * @author Philip Helger
+ */
+public final class AsicBatchSignerTest
+{
+  private static ExecutorService s_aExecutor;
+
+  @BeforeClass
+  public static void beforeClass ()
+  {
+    s_aExecutor = Executors.newFixedThreadPool (4);
+  }
+
+  @AfterClass
+  public static void afterClass ()
+  {
+    s_aExecutor.shutdownNow ();
+  }
+
+  @Test
+  public void testSignAll () throws IOException
+  {
+    final AsicBatchSigner aSigner = new AsicBatchSigner (TestUtil.createSignatureHelper (), s_aExecutor, 3);
+    final AsicWriterFactory aWriterFactory = AsicWriterFactory.newFactory (ESignatureMethod.CAdES);
+
+    final ICommonsList <NonBlockingByteArrayOutputStream> aOutputs = new CommonsArrayList <> ();
+    final ICommonsList <IAsicWriter> aWriters = new CommonsArrayList <> ();
+    for (int i = 0; i < 20; ++i)
+    {
+      final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+      aOutputs.add (aBAOS);
+      aWriters.add (aWriterFactory.newContainer (aBAOS)
+                                  .add (new StringInputStream ("Content " + i, StandardCharsets.ISO_8859_1),
+                                        "content.txt",
+                                        CMimeType.TEXT_PLAIN));
+    }
+
+    final ICommonsList <IAsicWriter> aSigned = aSigner.signAll (aWriters);
+    assertEquals (aWriters.size (), aSigned.size ());
+    for (int i = 0; i < aWriters.size (); ++i)
+      assertSame (aWriters.get (i), aSigned.get (i));
+    assertEquals (0, aSigner.getPendingCount ());
+
+    // All containers must be valid
+    for (final NonBlockingByteArrayOutputStream aBAOS : aOutputs)
+      try (final AsicVerifier aVerifier = AsicVerifierFactory.newFactory ().verify (aBAOS.getAsInputStream ()))
+      {
+        assertEquals (1, aVerifier.getAsicManifest ().getFile ().size ());
+        assertEquals (1, aVerifier.getAsicManifest ().getCertificate ().size ());
+      }
+  }
+
+  @Test
+  public void testSignAllWithError () throws IOException
+  {
+    final AsicBatchSigner aSigner = new AsicBatchSigner (TestUtil.createSignatureHelper (), s_aExecutor, 2);
+    final AsicWriterFactory aWriterFactory = AsicWriterFactory.newFactory (ESignatureMethod.CAdES);
+
+    final ICommonsList <IAsicWriter> aWriters = new CommonsArrayList <> ();
+    for (int i = 0; i < 5; ++i)
+      aWriters.add (aWriterFactory.newContainer (new NonBlockingByteArrayOutputStream ())
+                                  .add (new StringInputStream ("Content " + i, StandardCharsets.ISO_8859_1),
+                                        "content.txt",
+                                        CMimeType.TEXT_PLAIN));
+
+    // Signing a container twice is not allowed
+    aWriters.getLastOrNull ().sign (TestUtil.createSignatureHelper ());
+
+    try
+    {
+      aSigner.signAll (aWriters);
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+    assertEquals (0, aSigner.getPendingCount ());
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+
+import org.junit.Test;
+
+import com.helger.base.io.nonblocking.NonBlockingByteArrayInputStream;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.base.io.stream.NullOutputStream;
+import com.helger.io.resource.ClassPathResource;
+import com.helger.mime.CMimeType;
+
+/**
+ * Test class for class {@link AsicChannelEntrySource}.
+ *
+ * @author Philip Helger
+ */
+public final class AsicChannelEntrySourceTest
+{
+  private final AsicReaderFactory m_aAsicReaderFactory = AsicReaderFactory.newFactory ().setMetadataFirst (true);
+
+  @Test
+  public void testReadValidReference () throws IOException
+  {
+    final File aFile = ClassPathResource.getAsFile ("external/asic/asic-cades-test-valid.asice");
+    try (final IAsicReader aReader = m_aAsicReaderFactory.open (Files.newByteChannel (aFile.toPath ())))
+    {
+      // Signatures are verified before the first payload is returned
+      assertNotNull (aReader.getNextFile ());
+      assertEquals (1, aReader.getAsicManifest ().getCertificate ().size ());
+
+      aReader.writeFile (new NullOutputStream ());
+      while (aReader.getNextFile () != null)
+        AsicUtils.copyStream (aReader.inputStream (), new NullOutputStream ());
+    }
+
+    // Via file
+    try (final IAsicReader aReader = m_aAsicReaderFactory.open (aFile))
+    {
+      while (aReader.getNextFile () != null)
+      {
+        // Don't read explicitly
+      }
+      assertEquals (1, aReader.getAsicManifest ().getCertificate ().size ());
+    }
+  }
+
+  @Test
+  public void testReadInvalidReference () throws IOException
+  {
+    for (final String sFilename : new String [] { "external/asic/asic-cades-test-invalid-manifest.asice",
+                                                  "external/asic/asic-cades-test-invalid-signature.asice",
+                                                  "external/asic/asic-cades-test-invalid-sigreference.asice",
+                                                  "external/asic/asic-general-test-invalid-mime.asice" })
+    {
+      try (final IAsicReader aReader = m_aAsicReaderFactory.open (ClassPathResource.getAsFile (sFilename)))
+      {
+        while (aReader.getNextFile () != null)
+          aReader.writeFile (new NullOutputStream ());
+        fail ("Exception expected for " + sFilename);
+      }
+      catch (final IllegalStateException ex)
+      {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testFailOnFirstCorruptEntry () throws IOException
+  {
+    final File aFile = File.createTempFile ("asic-metadata-first", ".asice");
+    try
+    {
+      // Random data is stored uncompressed by the deflater
+      final Random aRandom = new Random (42);
+      final IAsicWriter aWriter = AsicWriterFactory.newFactory (ESignatureMethod.CAdES).newContainer (aFile);
+      for (int i = 0; i < 3; ++i)
+      {
+        final byte [] aContent = new byte [4096];
+        aRandom.nextBytes (aContent);
+        aWriter.add (new NonBlockingByteArrayInputStream (aContent),
+                     "content" + i + ".bin",
+                     CMimeType.APPLICATION_OCTET_STREAM);
+      }
+      aWriter.sign (TestUtil.createSignatureHelper ());
+
+      // Modify a single byte of the first payload
+      try (final SeekableByteChannel aChannel = Files.newByteChannel (aFile.toPath (),
+                                                                      StandardOpenOption.READ,
+                                                                      StandardOpenOption.WRITE))
+      {
+        final AsicZipCentralDirectory.Entry aEntry = AsicZipCentralDirectory.findEntry (AsicZipCentralDirectory.read (aChannel)
+                                                                                                              .getAllEntries (),
+                                                                                        "content0.bin");
+        assertNotNull (aEntry);
+        final long nPos = AsicZipCentralDirectory.getDataOffset (aChannel, aEntry) + 100;
+        final ByteBuffer aBuf = ByteBuffer.allocate (1);
+        AsicZipCentralDirectory.readFully (aChannel, nPos, aBuf);
+        aBuf.put (0, (byte) (aBuf.get (0) ^ 0xff));
+        aChannel.position (nPos);
+        aChannel.write (aBuf);
+      }
+
+      try (final IAsicReader aReader = m_aAsicReaderFactory.open (aFile))
+      {
+        assertEquals ("content0.bin", aReader.getNextFile ());
+        try
+        {
+          aReader.writeFile (new NullOutputStream ());
+          fail ();
+        }
+        catch (final IllegalStateException ex)
+        {
+          // expected - before the other entries are read
+        }
+      }
+    }
+    finally
+    {
+      Files.delete (aFile.toPath ());
+    }
+  }
+
+  @Test
+  public void testDigestMapped () throws IOException
+  {
+    final File aFile = File.createTempFile ("asic-mapped", ".asice");
+    try
+    {
+      // Random data is stored, text is deflated
+      final byte [] aRandom = new byte [100_000];
+      new Random (42).nextBytes (aRandom);
+      final StringBuilder aSB = new StringBuilder ();
+      for (int i = 0; i < 20_000; ++i)
+        aSB.append ("Line ").append (i).append ('\n');
+      final byte [] aText = aSB.toString ().getBytes (StandardCharsets.ISO_8859_1);
+
+      AsicWriterFactory.newFactory (ESignatureMethod.CAdES)
+                       .newContainer (aFile)
+                       .add (new NonBlockingByteArrayInputStream (aRandom), "random.bin", CMimeType.APPLICATION_OCTET_STREAM)
+                       .add (new NonBlockingByteArrayInputStream (aText), "text.txt", CMimeType.TEXT_PLAIN)
+                       .sign (TestUtil.createSignatureHelper ());
+
+      try (final AsicChannelEntrySource aSource = new AsicChannelEntrySource (FileChannel.open (aFile.toPath (),
+                                                                                                StandardOpenOption.READ)))
+      {
+        final AsicMultiDigest aMultiDigest = new AsicMultiDigest (new CommonsArrayList <> (EMessageDigestAlgorithm.SHA256));
+        // Small buffer to inflate in many steps
+        final ByteBuffer aBuffer = ByteBuffer.allocate (1000);
+        int nPayloads = 0;
+        ZipEntry aEntry;
+        while ((aEntry = aSource.getNextEntry ()) != null)
+        {
+          if (aEntry.getName ().startsWith ("META-INF/"))
+            continue;
+
+          final byte [] aExpected = aEntry.getName ().equals ("random.bin") ? aRandom : aText;
+          assertEquals (aEntry.getName ().equals ("random.bin") ? ZipEntry.STORED : ZipEntry.DEFLATED,
+                        aEntry.getMethod ());
+          assertEquals (aExpected.length, aSource.digestEntry (aBuffer, aMultiDigest));
+          assertArrayEquals (EMessageDigestAlgorithm.SHA256.createMessageDigest ().digest (aExpected),
+                             aMultiDigest.digest ().get (EMessageDigestAlgorithm.SHA256));
+          ++nPayloads;
+        }
+        assertEquals (2, nPayloads);
+      }
+    }
+    finally
+    {
+      Files.delete (aFile.toPath ());
+    }
+  }
+}
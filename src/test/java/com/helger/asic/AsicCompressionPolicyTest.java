@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+
+import com.helger.mime.CMimeType;
+
+/**
+ * Test class for class {@link AsicCompressionPolicy}.
+ *
+ * @author Philip Helger
+ */
+public final class AsicCompressionPolicyTest
+{
+  private static byte [] _text ()
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    while (aSB.length () < IAsicCompressionPolicy.SAMPLE_SIZE)
+      aSB.append ("<Invoice><ID>").append (aSB.length ()).append ("</ID></Invoice>\n");
+    return aSB.toString ().getBytes (StandardCharsets.UTF_8);
+  }
+
+  private static byte [] _random ()
+  {
+    final byte [] ret = new byte [IAsicCompressionPolicy.SAMPLE_SIZE];
+    new Random (4711).nextBytes (ret);
+    return ret;
+  }
+
+  @Test
+  public void testFixed ()
+  {
+    final byte [] aText = _text ();
+    assertEquals (Deflater.DEFAULT_COMPRESSION,
+                  IAsicCompressionPolicy.DEFAULT.getCompressionLevel ("a.xml",
+                                                                     CMimeType.APPLICATION_XML,
+                                                                     aText,
+                                                                     aText.length));
+    assertEquals (Deflater.BEST_SPEED,
+                  IAsicCompressionPolicy.fixed (Deflater.BEST_SPEED)
+                                        .getCompressionLevel ("a.pdf", CMimeType.APPLICATION_PDF, aText, 0));
+
+    assertTrue (IAsicCompressionPolicy.isValidLevel (IAsicCompressionPolicy.LEVEL_STORED));
+    assertTrue (IAsicCompressionPolicy.isValidLevel (Deflater.BEST_COMPRESSION));
+    assertFalse (IAsicCompressionPolicy.isValidLevel (-2));
+    assertFalse (IAsicCompressionPolicy.isValidLevel (10));
+  }
+
+  @Test
+  public void testMimeTypeAndExtension ()
+  {
+    final byte [] aText = _text ();
+    final AsicCompressionPolicy aPolicy = new AsicCompressionPolicy ();
+    assertEquals (IAsicCompressionPolicy.LEVEL_STORED,
+                  aPolicy.getCompressionLevel ("a.bin", CMimeType.APPLICATION_PDF, aText, aText.length));
+    assertEquals (IAsicCompressionPolicy.LEVEL_STORED,
+                  aPolicy.getCompressionLevel ("a.xml.P7M", CMimeType.APPLICATION_XML, aText, aText.length));
+    assertEquals (Deflater.DEFAULT_COMPRESSION,
+                  aPolicy.getCompressionLevel ("a.xml", CMimeType.APPLICATION_XML, aText, aText.length));
+
+    aPolicy.setDefaultLevel (Deflater.BEST_SPEED).addStoredExtension ("xml");
+    assertEquals (IAsicCompressionPolicy.LEVEL_STORED,
+                  aPolicy.getCompressionLevel ("a.xml", CMimeType.TEXT_PLAIN, aText, aText.length));
+    assertEquals (Deflater.BEST_SPEED,
+                  aPolicy.getCompressionLevel ("a.txt", CMimeType.TEXT_PLAIN, aText, aText.length));
+
+    aPolicy.removeAllStoredMimeTypes ().removeAllStoredExtensions ();
+    assertEquals (Deflater.BEST_SPEED,
+                  aPolicy.getCompressionLevel ("a.pdf", CMimeType.APPLICATION_PDF, aText, aText.length));
+  }
+
+  @Test
+  public void testProbe ()
+  {
+    final byte [] aText = _text ();
+    final byte [] aRandom = _random ();
+    final AsicCompressionPolicy aPolicy = new AsicCompressionPolicy ();
+    assertTrue (AsicCompressionPolicy.getProbedSize (aText, aText.length) < aText.length / 2);
+    assertTrue (AsicCompressionPolicy.getProbedSize (aRandom, aRandom.length) >= aRandom.length);
+
+    assertEquals (IAsicCompressionPolicy.LEVEL_STORED,
+                  aPolicy.getCompressionLevel ("a.bin", CMimeType.APPLICATION_OCTET_STREAM, aRandom, aRandom.length));
+    assertEquals (Deflater.DEFAULT_COMPRESSION,
+                  aPolicy.getCompressionLevel ("a.bin", CMimeType.APPLICATION_OCTET_STREAM, aText, aText.length));
+    // Empty content is never probed
+    assertEquals (Deflater.DEFAULT_COMPRESSION,
+                  aPolicy.getCompressionLevel ("a.bin", CMimeType.APPLICATION_OCTET_STREAM, aRandom, 0));
+
+    aPolicy.setProbe (false);
+    assertEquals (Deflater.DEFAULT_COMPRESSION,
+                  aPolicy.getCompressionLevel ("a.bin", CMimeType.APPLICATION_OCTET_STREAM, aRandom, aRandom.length));
+  }
+}
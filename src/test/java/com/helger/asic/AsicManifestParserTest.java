@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.Test;
+
+import com.helger.asic.jaxb.asic.AsicFile;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayInputStream;
+
+/**
+ * Test class for class {@link AsicManifestParser}.
+ *
+ * @author Philip Helger
+ */
+public final class AsicManifestParserTest
+{
+  private static final byte [] DIGEST = { 1, 2, 3, 4, 5, 6, 7, 8 };
+  private static final String DIGEST_B64 = Base64.getEncoder ().encodeToString (DIGEST);
+
+  private static String _cades (final String sNamespaceURI, final String sRootElement, final String sAlgorithm)
+  {
+    return "<?xml version='1.0' encoding='UTF-8'?>" +
+           "<" +
+           sRootElement +
+           " xmlns='" +
+           sNamespaceURI +
+           "' xmlns:ds='http://www.w3.org/2000/09/xmldsig#'>" +
+           "<SigReference URI='META-INF/signature-1.p7s' MimeType='application/x-pkcs7-signature'/>" +
+           "<DataObjectReference URI='b\u00e4r.xml' MimeType='application/xml' Rootfile='true'>" +
+           "<ds:DigestMethod Algorithm='" +
+           sAlgorithm +
+           "'/>" +
+           "<ds:DigestValue>\n" +
+           DIGEST_B64 +
+           "\n</ds:DigestValue>" +
+           "</DataObjectReference>" +
+           "</" +
+           sRootElement +
+           ">";
+  }
+
+  private static String _readCades (final String sXML, final ManifestVerifier aMV) throws IOException
+  {
+    try (final NonBlockingByteArrayInputStream aIS = new NonBlockingByteArrayInputStream (sXML.getBytes (StandardCharsets.UTF_8)))
+    {
+      final String ret = CadesAsicManifest.extractAndVerify (aIS, aMV);
+      // The stream must not be closed by the parser
+      assertEquals (-1, aIS.read ());
+      return ret;
+    }
+  }
+
+  @Test
+  public void testCadesCurrentNamespace () throws IOException
+  {
+    final ManifestVerifier aMV = new ManifestVerifier (EMessageDigestAlgorithm.SHA256);
+    assertEquals ("META-INF/signature-1.p7s",
+                  _readCades (_cades (AsicManifestParser.NAMESPACE_URI_ASIC,
+                                      "ASiCManifest",
+                                      EMessageDigestAlgorithm.SHA256.getUri ()),
+                              aMV));
+
+    // Non-ASCII file names are decoded according to the XML declaration
+    assertTrue (aMV.containsFile ("b\u00e4r.xml"));
+    assertFalse (aMV.isVerified ("b\u00e4r.xml"));
+    assertEquals ("b\u00e4r.xml", aMV.getAsicManifest ().getRootfile ());
+
+    final AsicFile aFile = aMV.getAsicManifest ().getFile ().get (0);
+    assertArrayEquals (DIGEST, aFile.getDigest ());
+    assertEquals ("META-INF/signature-1.p7s", aFile.getCertRef ().get (0));
+
+    // Second update with the same digest verifies the file
+    aMV.update ("b\u00e4r.xml", DIGEST, null);
+    assertTrue (aMV.isVerified ("b\u00e4r.xml"));
+  }
+
+  @Test
+  public void testCadesLegacyNamespaces () throws IOException
+  {
+    for (final String sNamespaceURI : new String [] { "http://uri.etsi.org/02918/v1.1.1#",
+                                                      "http://uri.etsi.org/2918/v1.2.1#" })
+    {
+      final ManifestVerifier aMV = new ManifestVerifier (EMessageDigestAlgorithm.SHA256);
+      // Legacy algorithm URI is rewritten as well
+      _readCades (_cades (sNamespaceURI, "ASiCManifest", "http://www.w3.org/2000/09/xmldsig#sha256"), aMV);
+      assertTrue (aMV.containsFile ("b\u00e4r.xml"));
+    }
+  }
+
+  @Test
+  public void testCadesInvalid () throws IOException
+  {
+    // Wrong root element
+    try
+    {
+      _readCades (_cades (AsicManifestParser.NAMESPACE_URI_ASIC,
+                          "AsicManifest",
+                          EMessageDigestAlgorithm.SHA256.getUri ()),
+                  new ManifestVerifier (null));
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+
+    // Not valid according to the XSD - no DataObjectReference
+    try
+    {
+      CadesAsicManifest.extractAndVerify ("<ASiCManifest xmlns='" +
+                                          AsicManifestParser.NAMESPACE_URI_ASIC +
+                                          "'><SigReference URI='a.p7s'/></ASiCManifest>",
+                                          new ManifestVerifier (null));
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+
+    // Not XML at all
+    try
+    {
+      CadesAsicManifest.extractAndVerify ("invalid data", new ManifestVerifier (null));
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testXades () throws IOException
+  {
+    final String sXML = "<XAdESSignatures xmlns='http://uri.etsi.org/2918/v1.2.1#'>" +
+                        "<ds:Signature xmlns:ds='http://www.w3.org/2000/09/xmldsig#' Id='Signature'>" +
+                        "<ds:SignedInfo>" +
+                        "<ds:Reference Id='ID_0' URI='file.xml'>" +
+                        "<ds:DigestMethod Algorithm='http://www.w3.org/2000/09/xmldsig#sha256'/>" +
+                        "<ds:DigestValue>" +
+                        DIGEST_B64 +
+                        "</ds:DigestValue>" +
+                        "</ds:Reference>" +
+                        "<ds:Reference URI='#SignedProperties'>" +
+                        "<ds:DigestMethod Algorithm='http://www.w3.org/2001/04/xmlenc#sha256'/>" +
+                        "<ds:DigestValue>AAAA</ds:DigestValue>" +
+                        "</ds:Reference>" +
+                        "</ds:SignedInfo>" +
+                        "<ds:Object><ds:Manifest><ds:Reference URI='other.xml'>" +
+                        "<ds:DigestMethod Algorithm='http://www.w3.org/2001/04/xmlenc#sha256'/>" +
+                        "<ds:DigestValue>AAAA</ds:DigestValue>" +
+                        "</ds:Reference></ds:Manifest></ds:Object>" +
+                        "</ds:Signature>" +
+                        "</XAdESSignatures>";
+
+    final ManifestVerifier aMV = new ManifestVerifier (EMessageDigestAlgorithm.SHA256);
+    try (final NonBlockingByteArrayInputStream aIS = new NonBlockingByteArrayInputStream (sXML.getBytes (StandardCharsets.UTF_8)))
+    {
+      XadesAsicManifest.extractAndVerify (aIS, aMV);
+    }
+
+    // Only the external reference of the SignedInfo is relevant
+    assertEquals (1, aMV.getAsicManifest ().getFile ().size ());
+    assertTrue (aMV.containsFile ("file.xml"));
+    assertNotNull (aMV.getAsicManifest ().getFile ().get (0).getDigest ());
+    assertFalse (aMV.containsFile ("other.xml"));
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jspecify.annotations.NonNull;
+import org.junit.Test;
+
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
+import com.helger.base.io.stream.StringInputStream;
+import com.helger.mime.CMimeType;
+
+/**
+ * Test class for class {@link AsicMetrics}.
+ *
+ * @author Philip Helger
+ */
+public final class AsicMetricsTest
+{
+  private static final class RecordingMetrics implements IAsicMetrics
+  {
+    private final AtomicLong m_aBytesIn = new AtomicLong ();
+    private final AtomicLong m_aBytesOut = new AtomicLong ();
+    private final AtomicInteger m_aDigests = new AtomicInteger ();
+    private final AtomicInteger m_aManifests = new AtomicInteger ();
+    private final AtomicInteger m_aSignaturesCreated = new AtomicInteger ();
+    private final AtomicInteger m_aSignaturesVerified = new AtomicInteger ();
+    private final AtomicInteger m_aWriteSuccess = new AtomicInteger ();
+    private final AtomicInteger m_aReadSuccess = new AtomicInteger ();
+    private final AtomicInteger m_aReadFailure = new AtomicInteger ();
+    private final AtomicInteger m_aVerifySuccess = new AtomicInteger ();
+
+    @Override
+    public void onEntryRead (final long nBytes, final long nInflateNanos)
+    {
+      m_aBytesIn.addAndGet (nBytes);
+    }
+
+    @Override
+    public void onEntryWritten (final long nBytes, final long nDeflateNanos)
+    {
+      m_aBytesOut.addAndGet (nBytes);
+    }
+
+    @Override
+    public void onDigest (@NonNull final EAsicOperation eOperation, final long nBytes, final long nDigestNanos)
+    {
+      m_aDigests.incrementAndGet ();
+    }
+
+    @Override
+    public void onManifestParsed (final long nNanos)
+    {
+      m_aManifests.incrementAndGet ();
+    }
+
+    @Override
+    public void onSignatureCreated (final long nNanos, final boolean bSuccess)
+    {
+      if (bSuccess)
+        m_aSignaturesCreated.incrementAndGet ();
+    }
+
+    @Override
+    public void onSignatureVerified (final long nNanos, final boolean bSuccess)
+    {
+      if (bSuccess)
+        m_aSignaturesVerified.incrementAndGet ();
+    }
+
+    @Override
+    public void onContainerFinished (@NonNull final EAsicOperation eOperation, final boolean bSuccess)
+    {
+      switch (eOperation)
+      {
+        case WRITE:
+          if (bSuccess)
+            m_aWriteSuccess.incrementAndGet ();
+          break;
+        case READ:
+          (bSuccess ? m_aReadSuccess : m_aReadFailure).incrementAndGet ();
+          break;
+        case VERIFY:
+          if (bSuccess)
+            m_aVerifySuccess.incrementAndGet ();
+          break;
+      }
+    }
+  }
+
+  @Test
+  public void testDefault ()
+  {
+    assertFalse (AsicMetrics.isEnabled ());
+    final IAsicMetrics aDefault = AsicMetrics.getMetrics ();
+    AsicMetrics.setMetrics (null);
+    assertSame (aDefault, AsicMetrics.getMetrics ());
+  }
+
+  @Test
+  public void testRecording () throws IOException
+  {
+    final RecordingMetrics aMetrics = new RecordingMetrics ();
+    AsicMetrics.setMetrics (aMetrics);
+    try
+    {
+      assertTrue (AsicMetrics.isEnabled ());
+
+      final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+      final IAsicWriter aWriter = AsicWriterFactory.newFactory (ESignatureMethod.CAdES).newContainer (aBAOS);
+      aWriter.add (new StringInputStream ("Hello world", StandardCharsets.ISO_8859_1), "a.txt", CMimeType.TEXT_PLAIN);
+      aWriter.add (new StringInputStream ("Bye", StandardCharsets.ISO_8859_1), "b.txt", CMimeType.TEXT_PLAIN);
+      aWriter.sign (TestUtil.createSignatureHelper ());
+
+      assertEquals ("Hello world".length () + "Bye".length (), aMetrics.m_aBytesOut.get ());
+      assertEquals (2, aMetrics.m_aDigests.get ());
+      assertEquals (1, aMetrics.m_aSignaturesCreated.get ());
+      assertEquals (1, aMetrics.m_aWriteSuccess.get ());
+
+      // Read completely
+      try (final IAsicReader aReader = AsicReaderFactory.newFactory ().open (aBAOS.getAsInputStream ()))
+      {
+        while (aReader.getNextFile () != null)
+          aReader.writeFile (new NonBlockingByteArrayOutputStream ());
+      }
+      assertEquals (aMetrics.m_aBytesOut.get (), aMetrics.m_aBytesIn.get ());
+      assertEquals (1, aMetrics.m_aReadSuccess.get ());
+      assertTrue (aMetrics.m_aManifests.get () >= 1);
+      assertEquals (1, aMetrics.m_aSignaturesVerified.get ());
+
+      // Closed before the end
+      try (final IAsicReader aReader = AsicReaderFactory.newFactory ().open (aBAOS.getAsInputStream ()))
+      {
+        aReader.getNextFile ();
+      }
+      assertEquals (1, aMetrics.m_aReadFailure.get ());
+
+      assertTrue (AsicVerifierFactory.newFactory ().verifyStreaming (aBAOS.getAsInputStream ()).isSuccess ());
+      assertEquals (1, aMetrics.m_aVerifySuccess.get ());
+    }
+    finally
+    {
+      AsicMetrics.setMetrics (null);
+    }
+  }
+}
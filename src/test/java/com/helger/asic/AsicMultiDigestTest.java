@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsOrderedMap;
+
+/**
+ * Test class for classes {@link AsicMultiDigest} and {@link AsicMultiDigestOutputStream}.
+ *
+ * @author Philip Helger
+ */
+public final class AsicMultiDigestTest
+{
+  private static final byte [] DATA = "The quick brown fox jumps over the lazy dog".getBytes (StandardCharsets.US_ASCII);
+
+  @Test
+  public void testDigest ()
+  {
+    final AsicMultiDigest aMD = new AsicMultiDigest (new CommonsArrayList <> (EMessageDigestAlgorithm.SHA512,
+                                                                              EMessageDigestAlgorithm.SHA256,
+                                                                              EMessageDigestAlgorithm.SHA512));
+    // Duplicates are ignored and the order is kept
+    assertEquals (new CommonsArrayList <> (EMessageDigestAlgorithm.SHA512, EMessageDigestAlgorithm.SHA256),
+                  new CommonsArrayList <> (aMD.getAllAlgorithms ()));
+    assertNull (aMD.getMessageDigest (EMessageDigestAlgorithm.SHA1));
+
+    aMD.update (DATA, 0, 10);
+    aMD.update (DATA[10]);
+    aMD.update (DATA, 11, DATA.length - 11);
+    final ICommonsOrderedMap <EMessageDigestAlgorithm, byte []> aDigests = aMD.digest ();
+    assertEquals (2, aDigests.size ());
+    assertSame (EMessageDigestAlgorithm.SHA512, aDigests.keySet ().iterator ().next ());
+    for (final Map.Entry <EMessageDigestAlgorithm, byte []> aEntry : aDigests.entrySet ())
+      assertArrayEquals (aEntry.getKey ().createMessageDigest ().digest (DATA), aEntry.getValue ());
+
+    // Reset after digest
+    assertArrayEquals (EMessageDigestAlgorithm.SHA256.createMessageDigest ().digest (),
+                       aMD.digest ().get (EMessageDigestAlgorithm.SHA256));
+  }
+
+  @Test
+  public void testOutputStream () throws IOException
+  {
+    final AsicMultiDigest aMD = new AsicMultiDigest (new CommonsArrayList <> (EMessageDigestAlgorithm.SHA256,
+                                                                              EMessageDigestAlgorithm.SHA384));
+    try (final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+         final AsicMultiDigestOutputStream aOS = new AsicMultiDigestOutputStream (aBAOS, aMD))
+    {
+      aOS.write (DATA[0]);
+      aOS.write (DATA, 1, DATA.length - 1);
+      assertArrayEquals (DATA, aBAOS.toByteArray ());
+    }
+
+    final ICommonsOrderedMap <EMessageDigestAlgorithm, byte []> aDigests = aMD.digest ();
+    for (final Map.Entry <EMessageDigestAlgorithm, byte []> aEntry : aDigests.entrySet ())
+      assertArrayEquals (aEntry.getKey ().createMessageDigest ().digest (DATA), aEntry.getValue ());
+  }
+
+  @Test
+  public void testGetFromUri ()
+  {
+    for (final EMessageDigestAlgorithm e : EMessageDigestAlgorithm.values ())
+      assertSame (e, EMessageDigestAlgorithm.getFromUriOrNull (e.getUri ()));
+    assertNull (EMessageDigestAlgorithm.getFromUriOrNull (null));
+    assertNull (EMessageDigestAlgorithm.getFromUriOrNull ("urn:unknown"));
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.junit.Test;
+
+import com.helger.base.io.nonblocking.NonBlockingByteArrayInputStream;
+import com.helger.collection.commons.CommonsLinkedHashMap;
+import com.helger.collection.commons.ICommonsOrderedMap;
+
+/**
+ * Test class for class {@link AsicParallelZipWriter}.
+ *
+ * @author Philip Helger
+ */
+public final class AsicParallelZipWriterTest
+{
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  private static byte [] _text (final int nLen)
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    int i = 0;
+    while (aSB.length () < nLen)
+      aSB.append ("<Line no='").append (i++).append ("'>Some text</Line>\n");
+    return aSB.substring (0, nLen).getBytes (StandardCharsets.ISO_8859_1);
+  }
+
+  private static ICommonsOrderedMap <String, byte []> _createEntries ()
+  {
+    final ICommonsOrderedMap <String, byte []> ret = new CommonsLinkedHashMap <> ();
+    ret.put ("empty.bin", new byte [0]);
+    ret.put ("small.txt", "hello world".getBytes (StandardCharsets.ISO_8859_1));
+    // Exactly one chunk
+    ret.put ("onechunk.xml", _text (CHUNK_SIZE));
+    // Partially random content over several chunks
+    final byte [] aMixed = _text (3 * CHUNK_SIZE + 12345);
+    final Random aRandom = new Random (4711);
+    for (int i = 0; i < aMixed.length; i += 2)
+      aMixed[i] = (byte) aRandom.nextInt ();
+    ret.put ("mixed.bin", aMixed);
+    ret.put ("large.xml", _text (5 * 1024 * 1024));
+    return ret;
+  }
+
+  private static void _write (final File aFile,
+                              final ExecutorService aES,
+                              final ICommonsOrderedMap <String, byte []> aEntries) throws IOException
+  {
+    try (final AsicParallelZipWriter aWriter = new AsicParallelZipWriter (Files.newOutputStream (aFile.toPath ()),
+                                                                          aES,
+                                                                          CHUNK_SIZE,
+                                                                          3))
+    {
+      for (final Map.Entry <String, byte []> aEntry : aEntries.entrySet ())
+        try (final InputStream aIS = new NonBlockingByteArrayInputStream (aEntry.getValue ()))
+        {
+          aWriter.writeDeflatedEntry (aEntry.getKey (), aIS, -1);
+        }
+      aWriter.writeEntry ("META-INF/manifest.xml", ZipEntry.DEFLATED, "<manifest/>".getBytes (StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void testRoundtrip () throws IOException
+  {
+    final ICommonsOrderedMap <String, byte []> aEntries = _createEntries ();
+    final File aFile = File.createTempFile ("asic-parallel", ".asice");
+    final ExecutorService aES = Executors.newFixedThreadPool (4);
+    try
+    {
+      _write (aFile, aES, aEntries);
+
+      try (final ZipFile aZipFile = new ZipFile (aFile))
+      {
+        assertEquals (aEntries.size () + 2, aZipFile.size ());
+        final ZipEntry aFirst = aZipFile.entries ().nextElement ();
+        assertEquals (AsicInputStream.ZIPENTRY_NAME_MIMETYPE, aFirst.getName ());
+        assertEquals (ZipEntry.STORED, aFirst.getMethod ());
+
+        for (final Map.Entry <String, byte []> aEntry : aEntries.entrySet ())
+          try (final InputStream aIS = aZipFile.getInputStream (aZipFile.getEntry (aEntry.getKey ())))
+          {
+            assertArrayEquals (aEntry.getKey (), aEntry.getValue (), aIS.readAllBytes ());
+          }
+      }
+
+      // Streaming access uses the data descriptors
+      try (final ZipInputStream aZIS = new ZipInputStream (Files.newInputStream (aFile.toPath ())))
+      {
+        int nCount = 0;
+        ZipEntry aZipEntry;
+        while ((aZipEntry = aZIS.getNextEntry ()) != null)
+        {
+          final byte [] aExpected = aEntries.get (aZipEntry.getName ());
+          final byte [] aRead = aZIS.readAllBytes ();
+          if (aExpected != null)
+            assertArrayEquals (aZipEntry.getName (), aExpected, aRead);
+          nCount++;
+        }
+        assertEquals (aEntries.size () + 2, nCount);
+      }
+    }
+    finally
+    {
+      aES.shutdown ();
+      aFile.delete ();
+    }
+  }
+
+  @Test
+  public void testIndependentOfThreadCount () throws IOException
+  {
+    final byte [] aContent = _text (10 * CHUNK_SIZE + 17);
+    final ICommonsOrderedMap <String, byte []> aEntries = new CommonsLinkedHashMap <> ();
+    aEntries.put ("file.xml", aContent);
+
+    final File aFile1 = File.createTempFile ("asic-parallel1", ".asice");
+    final File aFile2 = File.createTempFile ("asic-parallel2", ".asice");
+    final ExecutorService aES1 = Executors.newSingleThreadExecutor ();
+    final ExecutorService aES2 = Executors.newFixedThreadPool (4);
+    try
+    {
+      _write (aFile1, aES1, aEntries);
+      _write (aFile2, aES2, aEntries);
+
+      try (final ZipFile aZipFile1 = new ZipFile (aFile1); final ZipFile aZipFile2 = new ZipFile (aFile2))
+      {
+        final ZipEntry aEntry1 = aZipFile1.getEntry ("file.xml");
+        final ZipEntry aEntry2 = aZipFile2.getEntry ("file.xml");
+        assertEquals (aEntry1.getCrc (), aEntry2.getCrc ());
+        assertEquals (aEntry1.getCompressedSize (), aEntry2.getCompressedSize ());
+        assertEquals (aContent.length, aEntry2.getSize ());
+      }
+    }
+    finally
+    {
+      aES1.shutdown ();
+      aES2.shutdown ();
+      aFile1.delete ();
+      aFile2.delete ();
+    }
+  }
+}
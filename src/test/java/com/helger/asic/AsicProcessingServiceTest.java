@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jspecify.annotations.NonNull;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.helger.base.io.stream.StringInputStream;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.mime.CMimeType;
+
+/**
+ * Test class for class {@link AsicProcessingService}.
+ *
+ * @author Philip Helger
+ */
+public final class AsicProcessingServiceTest
+{
+  private static ExecutorService s_aExecutor;
+
+  @BeforeClass
+  public static void beforeClass ()
+  {
+    s_aExecutor = AsicProcessingService.newDefaultExecutor ();
+  }
+
+  @AfterClass
+  public static void afterClass ()
+  {
+    s_aExecutor.shutdownNow ();
+  }
+
+  @NonNull
+  private static AsicProcessingService _createService (final int nMaxConcurrency)
+  {
+    return new AsicProcessingService (AsicReaderFactory.newFactory (),
+                                      AsicVerifierFactory.newFactory (),
+                                      AsicWriterFactory.newFactory (ESignatureMethod.CAdES),
+                                      s_aExecutor,
+                                      nMaxConcurrency);
+  }
+
+  @Test
+  public void testWriteVerifyRead () throws IOException
+  {
+    final int nCount = 20;
+    final AsicProcessingService aService = _createService (4);
+    final SignatureHelper aSH = TestUtil.createSignatureHelper ();
+    final Path aDir = Files.createTempDirectory ("asic-processing");
+    try
+    {
+      final ICommonsList <CompletableFuture <Void>> aWrites = new CommonsArrayList <> ();
+      for (int i = 0; i < nCount; ++i)
+      {
+        final String sContent = "Content of container " + i;
+        aWrites.add (aService.submitWrite (aDir.resolve ("c" + i + ".asice"),
+                                           aWriter -> aWriter.add (new StringInputStream (sContent,
+                                                                                          StandardCharsets.ISO_8859_1),
+                                                                   "content.txt",
+                                                                   CMimeType.TEXT_PLAIN),
+                                           aSH));
+      }
+      for (final CompletableFuture <Void> aFuture : aWrites)
+        aFuture.join ();
+
+      final ICommonsList <CompletableFuture <AsicVerificationReport>> aVerifications = new CommonsArrayList <> ();
+      final AtomicInteger aFilesRead = new AtomicInteger ();
+      final ICommonsList <CompletableFuture <Void>> aReads = new CommonsArrayList <> ();
+      for (int i = 0; i < nCount; ++i)
+      {
+        final Path aFile = aDir.resolve ("c" + i + ".asice");
+        aVerifications.add (aService.submitVerify (aFile));
+        aReads.add (aService.submitRead (aFile, aReader -> {
+          while (aReader.getNextFile () != null)
+            aFilesRead.incrementAndGet ();
+        }));
+      }
+      for (final CompletableFuture <AsicVerificationReport> aFuture : aVerifications)
+      {
+        final AsicVerificationReport aReport = aFuture.join ();
+        assertTrue (aReport.getErrorMessage (), aReport.isSuccess ());
+        assertEquals (1, aReport.getAllEntries ().size ());
+      }
+      for (final CompletableFuture <Void> aFuture : aReads)
+        aFuture.join ();
+      assertEquals (nCount, aFilesRead.get ());
+
+      final AsicProcessingService.Statistics aStats = aService.getStatistics ();
+      assertEquals (3 * nCount, aStats.getSubmittedCount ());
+      assertEquals (3 * nCount, aStats.getSucceededCount ());
+      assertEquals (0, aStats.getFailedCount ());
+      assertEquals (0, aStats.getQueuedCount ());
+      assertEquals (0, aStats.getRunningCount ());
+      assertTrue (aStats.getThroughputPerSecond () > 0);
+    }
+    finally
+    {
+      for (int i = 0; i < nCount; ++i)
+        Files.deleteIfExists (aDir.resolve ("c" + i + ".asice"));
+      Files.delete (aDir);
+    }
+  }
+
+  @Test
+  public void testBoundedConcurrencyUnderLoad ()
+  {
+    final int nMaxConcurrency = 8;
+    final int nJobs = 1000;
+    final AsicProcessingService aService = _createService (nMaxConcurrency);
+    final AtomicInteger aRunning = new AtomicInteger ();
+    final AtomicInteger aMaxRunning = new AtomicInteger ();
+
+    // Stand-in workload: a short blocking operation, every 100th job fails
+    final ICommonsList <CompletableFuture <Integer>> aFutures = new CommonsArrayList <> ();
+    for (int i = 0; i < nJobs; ++i)
+    {
+      final int nJob = i;
+      aFutures.add (aService.submit ( () -> {
+        aMaxRunning.accumulateAndGet (aRunning.incrementAndGet (), Math::max);
+        try
+        {
+          Thread.sleep (1);
+        }
+        catch (final InterruptedException ex)
+        {
+          Thread.currentThread ().interrupt ();
+        }
+        finally
+        {
+          aRunning.decrementAndGet ();
+        }
+        if (nJob % 100 == 0)
+          throw new IOException ("Failure " + nJob);
+        return Integer.valueOf (nJob);
+      }));
+    }
+
+    int nFailed = 0;
+    for (int i = 0; i < nJobs; ++i)
+      try
+      {
+        assertEquals (i, aFutures.get (i).join ().intValue ());
+      }
+      catch (final CompletionException ex)
+      {
+        assertTrue (ex.getCause () instanceof UncheckedIOException);
+        nFailed++;
+      }
+
+    assertEquals (nJobs / 100, nFailed);
+    assertTrue (Integer.toString (aMaxRunning.get ()), aMaxRunning.get () <= nMaxConcurrency);
+
+    final AsicProcessingService.Statistics aStats = aService.getStatistics ();
+    assertEquals (nJobs, aStats.getFinishedCount ());
+    assertEquals (nJobs / 100, aStats.getFailedCount ());
+    // Most jobs had to wait in the queue
+    assertTrue (aStats.getMaxLatencyMillis () >= aStats.getAverageProcessingMillis ());
+    assertNotNull (aStats.toString ());
+  }
+
+  @Test
+  public void testError ()
+  {
+    final AsicProcessingService aService = _createService (1);
+    final CompletableFuture <Object> aFuture = aService.submit ( () -> {
+      throw new AssertionError ("Failure");
+    });
+    try
+    {
+      aFuture.join ();
+      fail ();
+    }
+    catch (final CompletionException ex)
+    {
+      assertTrue (ex.getCause () instanceof AssertionError);
+    }
+    assertEquals (1, aService.getStatistics ().getFailedCount ());
+
+    // The slot is free again
+    assertEquals (1, aService.submit ( () -> Integer.valueOf (1)).join ().intValue ());
+  }
+
+  @Test
+  public void testLongQueueAfterShutdown () throws Exception
+  {
+    final int nJobs = 100_000;
+    final ExecutorService aExecutor = Executors.newSingleThreadExecutor ();
+    final AsicProcessingService aService = new AsicProcessingService (AsicReaderFactory.newFactory (),
+                                                                      AsicVerifierFactory.newFactory (),
+                                                                      AsicWriterFactory.newFactory (ESignatureMethod.CAdES),
+                                                                      aExecutor,
+                                                                      1);
+    final CountDownLatch aStarted = new CountDownLatch (1);
+    final CountDownLatch aRelease = new CountDownLatch (1);
+    final CompletableFuture <Integer> aBlocking = aService.submit ( () -> {
+      aStarted.countDown ();
+      try
+      {
+        aRelease.await ();
+      }
+      catch (final InterruptedException ex)
+      {
+        Thread.currentThread ().interrupt ();
+      }
+      return Integer.valueOf (0);
+    });
+    aStarted.await ();
+
+    final ICommonsList <CompletableFuture <Integer>> aFutures = new CommonsArrayList <> (nJobs);
+    for (int i = 0; i < nJobs; ++i)
+      aFutures.add (aService.submit ( () -> Integer.valueOf (1)));
+    assertEquals (nJobs, aService.getStatistics ().getQueuedCount ());
+
+    // All queued jobs are rejected, once the running job finished
+    aExecutor.shutdown ();
+    aRelease.countDown ();
+    assertEquals (0, aBlocking.join ().intValue ());
+    for (final CompletableFuture <Integer> aFuture : aFutures)
+      try
+      {
+        aFuture.join ();
+        fail ();
+      }
+      catch (final CompletionException ex)
+      {
+        assertTrue (ex.getCause () instanceof RejectedExecutionException);
+      }
+    assertEquals (nJobs, aService.getStatistics ().getFailedCount ());
+  }
+
+  @Test
+  public void testInvalidParameters ()
+  {
+    try
+    {
+      _createService (0);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Test;
+
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
+import com.helger.base.io.stream.NullOutputStream;
+import com.helger.base.io.stream.StringInputStream;
+import com.helger.io.resource.ClassPathResource;
+import com.helger.mime.CMimeType;
+
+/**
+ * Test class for class {@link AsicRandomAccessReader}.
+ *
+ * @author Philip Helger
+ */
+public final class AsicRandomAccessReaderTest
+{
+  private static final String FILE_CONTENT_1 = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. Nam arcu eros, fermentum vel molestie ut, sagittis vel velit.";
+  private static final String FILE_CONTENT_2 = "Fusce eu risus ipsum. Sed mattis laoreet justo. Fusce nisi magna, posuere ac placerat tincidunt, dignissim non lacus.";
+
+  private final AsicReaderFactory m_aAsicReaderFactory = AsicReaderFactory.newFactory ().setRandomAccess (true);
+  private final AsicWriterFactory m_aAsicWriterFactory = AsicWriterFactory.newFactory (ESignatureMethod.CAdES);
+
+  @Test
+  public void testDirectAccess () throws IOException
+  {
+    final File aFile = File.createTempFile ("asic-random-access", ".asice");
+    try
+    {
+      m_aAsicWriterFactory.newContainer (aFile)
+                          .add (new StringInputStream (FILE_CONTENT_1, StandardCharsets.ISO_8859_1),
+                                "content1.txt",
+                                CMimeType.TEXT_PLAIN)
+                          .add (new StringInputStream (FILE_CONTENT_2, StandardCharsets.ISO_8859_1),
+                                "content2.txt",
+                                CMimeType.TEXT_PLAIN)
+                          .setRootEntryName ("content2.txt")
+                          .sign (TestUtil.createSignatureHelper ());
+
+      try (final AsicRandomAccessReader aReader = m_aAsicReaderFactory.openRandomAccess (aFile.toPath ()))
+      {
+        // Manifest is available before any payload was read
+        assertEquals ("content2.txt", aReader.getAsicManifest ().getRootfile ());
+        assertEquals (1, aReader.getAsicManifest ().getCertificate ().size ());
+        assertEquals (2, aReader.getAllEntryNames ().size ());
+        assertTrue (aReader.containsEntry ("content1.txt"));
+        assertFalse (aReader.containsEntry ("content3.txt"));
+
+        // Read the root file only
+        final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+        aReader.writeEntry ("content2.txt", aBAOS);
+        assertEquals (FILE_CONTENT_2, aBAOS.getAsString (StandardCharsets.ISO_8859_1));
+
+        try
+        {
+          aReader.openEntry ("content3.txt");
+          fail ();
+        }
+        catch (final IllegalStateException ex)
+        {
+          // expected
+        }
+      }
+
+      // Sequential access is still possible
+      try (final IAsicReader aReader = m_aAsicReaderFactory.open (aFile))
+      {
+        assertTrue (aReader instanceof AsicRandomAccessReader);
+        assertEquals ("content1.txt", aReader.getNextFile ());
+        final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+        aReader.writeFile (aBAOS);
+        assertEquals (FILE_CONTENT_1, aBAOS.getAsString (StandardCharsets.ISO_8859_1));
+
+        assertEquals ("content2.txt", aReader.getNextFile ());
+        assertNull (aReader.getNextFile ());
+      }
+    }
+    finally
+    {
+      Files.delete (aFile.toPath ());
+    }
+  }
+
+  @Test
+  public void testUnlistedEntryReadTwice () throws IOException
+  {
+    final File aSigned = File.createTempFile ("asic-random-access", ".asice");
+    final File aFile = File.createTempFile ("asic-random-access", ".asice");
+    try
+    {
+      m_aAsicWriterFactory.newContainer (aSigned)
+                          .add (new StringInputStream (FILE_CONTENT_1, StandardCharsets.ISO_8859_1),
+                                "content1.txt",
+                                CMimeType.TEXT_PLAIN)
+                          .sign (TestUtil.createSignatureHelper ());
+
+      // Append an entry that is not listed in the manifest
+      try (final ZipInputStream aZIS = new ZipInputStream (Files.newInputStream (aSigned.toPath ()));
+           final ZipOutputStream aZOS = new ZipOutputStream (Files.newOutputStream (aFile.toPath ())))
+      {
+        ZipEntry aEntry;
+        while ((aEntry = aZIS.getNextEntry ()) != null)
+        {
+          final ZipEntry aCopy = new ZipEntry (aEntry);
+          if (aCopy.getMethod () == ZipEntry.DEFLATED)
+            aCopy.setCompressedSize (-1);
+          aZOS.putNextEntry (aCopy);
+          aZIS.transferTo (aZOS);
+          aZOS.closeEntry ();
+        }
+        aZOS.putNextEntry (new ZipEntry ("unlisted.txt"));
+        aZOS.write (FILE_CONTENT_2.getBytes (StandardCharsets.ISO_8859_1));
+        aZOS.closeEntry ();
+      }
+
+      try (final AsicRandomAccessReader aReader = m_aAsicReaderFactory.openRandomAccess (aFile.toPath ()))
+      {
+        assertTrue (aReader.containsEntry ("unlisted.txt"));
+        for (int i = 0; i < 2; ++i)
+          try
+          {
+            aReader.writeEntry ("unlisted.txt", new NullOutputStream ());
+            fail ();
+          }
+          catch (final IllegalStateException ex)
+          {
+            // expected
+          }
+
+        // Listed entries are still readable
+        final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+        aReader.writeEntry ("content1.txt", aBAOS);
+        assertEquals (FILE_CONTENT_1, aBAOS.getAsString (StandardCharsets.ISO_8859_1));
+      }
+    }
+    finally
+    {
+      Files.delete (aSigned.toPath ());
+      Files.delete (aFile.toPath ());
+    }
+  }
+
+  @Test
+  public void testReadValidReference () throws IOException
+  {
+    try (final IAsicReader aReader = m_aAsicReaderFactory.open (ClassPathResource.getAsFile ("external/asic/asic-cades-test-valid.asice")))
+    {
+      while (aReader.getNextFile () != null)
+        aReader.writeFile (new NullOutputStream ());
+      assertEquals (1, aReader.getAsicManifest ().getCertificate ().size ());
+    }
+  }
+}
@@ -179,6 +179,58 @@ public class AsicReaderImplTest
     Files.delete (file.toPath ());
   }
 
+  @Test
+  public void readAnyDeclaredAlgorithm () throws IOException
+  {
+    final File file = File.createTempFile ("asic-reader-sha512", ".asice");
+    try
+    {
+      for (final ESignatureMethod eSM : ESignatureMethod.values ())
+      {
+        AsicWriterFactory.newFactory (eSM)
+                         .setMDAlgo (EMessageDigestAlgorithm.SHA512)
+                         .newContainer (file)
+                         .add (new StringInputStream (FILE_CONTENT_1, StandardCharsets.ISO_8859_1),
+                               "content1.txt",
+                               CMimeType.TEXT_PLAIN)
+                         .sign (m_aSignatureHelper);
+
+        // Only SHA-256 is configured
+        try (final IAsicReader asicReader = AsicReaderFactory.newFactory (EMessageDigestAlgorithm.SHA256).open (file))
+        {
+          while (asicReader.getNextFile () != null)
+            asicReader.writeFile (new NonBlockingByteArrayOutputStream ());
+          fail ("Exception expected");
+        }
+        catch (final IllegalArgumentException ex)
+        {
+          log.info (ex.getMessage ());
+        }
+
+        // Streaming, metadata first and random access
+        for (int i = 0; i < 3; ++i)
+        {
+          final AsicReaderFactory aFactory = AsicReaderFactory.newFactory (EMessageDigestAlgorithm.SHA256)
+                                                              .setAcceptAnyMDAlgo (true)
+                                                              .setMetadataFirst (i == 1)
+                                                              .setRandomAccess (i == 2);
+          try (final IAsicReader asicReader = aFactory.open (file))
+          {
+            assertEquals ("content1.txt", asicReader.getNextFile ());
+            final NonBlockingByteArrayOutputStream fileStream = new NonBlockingByteArrayOutputStream ();
+            asicReader.writeFile (fileStream);
+            assertEquals (FILE_CONTENT_1, fileStream.getAsString (StandardCharsets.ISO_8859_1));
+            assertNull (asicReader.getNextFile ());
+          }
+        }
+      }
+    }
+    finally
+    {
+      Files.delete (file.toPath ());
+    }
+  }
+
   @Test
   public void exceptionOnInvalidMime () throws IOException
   {
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jspecify.annotations.NonNull;
+import org.junit.Test;
+
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
+import com.helger.base.io.stream.StringInputStream;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.mime.CMimeType;
+
+/**
+ * Test class for class {@link AsicTimings}.
+ *
+ * @author Philip Helger
+ */
+public final class AsicTimingsTest
+{
+  private static final String CONTENT_A = "Hello world";
+  private static final String CONTENT_B = "Bye";
+
+  @NonNull
+  private static NonBlockingByteArrayOutputStream _createContainer () throws IOException
+  {
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    final IAsicWriter aWriter = AsicWriterFactory.newFactory (ESignatureMethod.CAdES).newContainer (aBAOS);
+    aWriter.add (new StringInputStream (CONTENT_A, StandardCharsets.ISO_8859_1), "a.txt", CMimeType.TEXT_PLAIN);
+    aWriter.add (new StringInputStream (CONTENT_B, StandardCharsets.ISO_8859_1), "b.txt", CMimeType.TEXT_PLAIN);
+    aWriter.sign (TestUtil.createSignatureHelper ());
+    return aBAOS;
+  }
+
+  private static void _assertTimings (@NonNull final AsicTimings aTimings)
+  {
+    final ICommonsList <AsicTimings.Entry> aEntries = aTimings.getAllEntries ();
+    assertEquals (2, aEntries.size ());
+    assertEquals ("a.txt", aEntries.get (0).getName ());
+    assertEquals (CONTENT_A.length (), aEntries.get (0).getSize ());
+    assertEquals ("b.txt", aEntries.get (1).getName ());
+    assertEquals (CONTENT_B.length (), aEntries.get (1).getSize ());
+    assertEquals (CONTENT_A.length () + CONTENT_B.length (), aTimings.getTotalSize ());
+
+    // Manifest and signature are always processed
+    assertTrue (aTimings.getManifestNanos () > 0);
+    assertTrue (aTimings.getSignatureNanos () > 0);
+    assertTrue (aTimings.getTotalNanos () >=
+                aTimings.getManifestNanos () + aTimings.getSignatureNanos () + aTimings.getDigestNanos ());
+    assertNotNull (aTimings.toString ());
+  }
+
+  @Test
+  public void testReader () throws IOException
+  {
+    final NonBlockingByteArrayOutputStream aBAOS = _createContainer ();
+    final IAsicReader aReader = AsicReaderFactory.newFactory ().open (aBAOS.getAsInputStream ());
+    try
+    {
+      while (aReader.getNextFile () != null)
+        aReader.writeFile (new NonBlockingByteArrayOutputStream ());
+    }
+    finally
+    {
+      aReader.close ();
+    }
+    _assertTimings (aReader.getTimings ());
+  }
+
+  @Test
+  public void testVerifyStreaming () throws IOException
+  {
+    final NonBlockingByteArrayOutputStream aBAOS = _createContainer ();
+    final AsicVerificationReport aReport = AsicVerifierFactory.newFactory ()
+                                                              .verifyStreaming (aBAOS.getAsInputStream ());
+    assertTrue (aReport.getErrorMessage (), aReport.isSuccess ());
+    _assertTimings (aReport.getTimings ());
+  }
+
+  @Test
+  public void testVerifyParallel () throws IOException
+  {
+    final Path aFile = Files.createTempFile ("asic-timings", ".asice");
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (2);
+    try
+    {
+      Files.write (aFile, _createContainer ().toByteArray ());
+      final AsicVerifier aVerifier = AsicVerifierFactory.newFactory ().setExecutor (aExecutor).verify (aFile);
+      _assertTimings (aVerifier.getTimings ());
+    }
+    finally
+    {
+      aExecutor.shutdownNow ();
+      Files.delete (aFile);
+    }
+  }
+}
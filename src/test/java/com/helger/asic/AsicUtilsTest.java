@@ -17,9 +17,13 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 import org.junit.Test;
@@ -283,4 +287,78 @@ public final class AsicUtilsTest
       assertNull (zipInputStream.getNextEntry ());
     }
   }
+
+  @Test
+  public void combineRaw () throws IOException
+  {
+    final File aSource1 = File.createTempFile ("asic-combine-raw-1", ".asice");
+    final File aSource2 = File.createTempFile ("asic-combine-raw-2", ".asice");
+    final File aTarget = File.createTempFile ("asic-combine-raw", ".asice");
+    try
+    {
+      m_aAsicWriterFactory.newContainer (aSource1)
+                          .add (new NonBlockingByteArrayInputStream (FILE_CONTENT_1.getBytes (StandardCharsets.ISO_8859_1)),
+                                "content1.txt",
+                                CMimeType.TEXT_PLAIN)
+                          .setRootEntryName ("content1.txt")
+                          .sign (m_aSignatureHelper);
+      m_aAsicWriterFactory.newContainer (aSource2)
+                          .add (new NonBlockingByteArrayInputStream (FILE_CONTENT_2.getBytes (StandardCharsets.ISO_8859_1)),
+                                "content2.txt",
+                                CMimeType.TEXT_PLAIN)
+                          .sign (m_aSignatureHelper);
+
+      AsicUtils.combineRaw (new FileOutputStream (aTarget), aSource1.toPath (), aSource2.toPath ());
+
+      // Read container (asic) - verifies CRCs and digests
+      try (final IAsicReader asicReader = m_aAsicReaderFactory.open (aTarget))
+      {
+        assertEquals ("content1.txt", asicReader.getNextFile ());
+        NonBlockingByteArrayOutputStream fileStream = new NonBlockingByteArrayOutputStream ();
+        asicReader.writeFile (fileStream);
+        assertEquals (FILE_CONTENT_1, fileStream.getAsString (StandardCharsets.ISO_8859_1));
+
+        assertEquals ("content2.txt", asicReader.getNextFile ());
+        fileStream = new NonBlockingByteArrayOutputStream ();
+        asicReader.writeFile (fileStream);
+        assertEquals (FILE_CONTENT_2, fileStream.getAsString (StandardCharsets.ISO_8859_1));
+
+        assertNull (asicReader.getNextFile ());
+        assertEquals ("content1.txt", asicReader.getAsicManifest ().getRootfile ());
+      }
+
+      // Read container (zip) - same layout as the regular combine
+      try (final ZipInputStream zipInputStream = new ZipInputStream (new FileInputStream (aTarget)))
+      {
+        assertEquals ("mimetype", zipInputStream.getNextEntry ().getName ());
+        assertEquals ("content1.txt", zipInputStream.getNextEntry ().getName ());
+        assertEquals ("META-INF/" + AsicUtils.ASIC_MANIFEST_BASENAME + "1.xml",
+                      zipInputStream.getNextEntry ().getName ());
+        assertTrue (AsicUtils.PATTERN_CADES_SIGNATURE.matcher (zipInputStream.getNextEntry ().getName ()).matches ());
+        assertEquals ("content2.txt", zipInputStream.getNextEntry ().getName ());
+        assertEquals ("META-INF/" + AsicUtils.ASIC_MANIFEST_BASENAME + "2.xml",
+                      zipInputStream.getNextEntry ().getName ());
+        assertTrue (AsicUtils.PATTERN_CADES_SIGNATURE.matcher (zipInputStream.getNextEntry ().getName ()).matches ());
+        assertEquals ("META-INF/manifest.xml", zipInputStream.getNextEntry ().getName ());
+        assertNull (zipInputStream.getNextEntry ());
+      }
+
+      // The compressed data was copied unchanged
+      try (final ZipFile aSourceZip = new ZipFile (aSource1); final ZipFile aTargetZip = new ZipFile (aTarget))
+      {
+        final ZipEntry aSourceEntry = aSourceZip.getEntry ("content1.txt");
+        final ZipEntry aTargetEntry = aTargetZip.getEntry ("content1.txt");
+        assertEquals (aSourceEntry.getMethod (), aTargetEntry.getMethod ());
+        assertEquals (aSourceEntry.getCrc (), aTargetEntry.getCrc ());
+        assertEquals (aSourceEntry.getCompressedSize (), aTargetEntry.getCompressedSize ());
+        assertEquals ("mimetype=" + AsicUtils.MIMETYPE_ASICE.getAsString (), aTargetZip.getComment ());
+      }
+    }
+    finally
+    {
+      aSource1.delete ();
+      aSource2.delete ();
+      aTarget.delete ();
+    }
+  }
 }
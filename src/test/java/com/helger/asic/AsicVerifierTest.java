@@ -0,0 +1,379 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.SubmissionPublisher;
+
+import org.jspecify.annotations.NonNull;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
+import com.helger.base.io.stream.StreamHelper;
+import com.helger.base.io.stream.StringInputStream;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.io.resource.ClassPathResource;
+import com.helger.mime.CMimeType;
+
+/**
+ * Test class for class {@link AsicVerifier}.
+ *
+ * @author Philip Helger
+ */
+public final class AsicVerifierTest
+{
+  private static ExecutorService s_aExecutor;
+
+  @BeforeClass
+  public static void beforeClass ()
+  {
+    s_aExecutor = Executors.newFixedThreadPool (4);
+  }
+
+  @AfterClass
+  public static void afterClass ()
+  {
+    s_aExecutor.shutdownNow ();
+  }
+
+  @Test
+  public void testParallelVerification () throws IOException
+  {
+    final File aFile = File.createTempFile ("asic-parallel", ".asice");
+    try
+    {
+      final IAsicWriter aWriter = AsicWriterFactory.newFactory (ESignatureMethod.CAdES).newContainer (aFile);
+      for (int i = 0; i < 50; ++i)
+        aWriter.add (new StringInputStream ("Content of file " + i, StandardCharsets.ISO_8859_1),
+                     "content" + i + ".txt",
+                     CMimeType.TEXT_PLAIN);
+      aWriter.sign (TestUtil.createSignatureHelper ());
+
+      final AsicVerifierFactory aFactory = AsicVerifierFactory.newFactory ().setExecutor (s_aExecutor);
+      try (final AsicVerifier aVerifier = aFactory.verify (aFile))
+      {
+        assertEquals (50, aVerifier.getAsicManifest ().getFile ().size ());
+        assertEquals (1, aVerifier.getAsicManifest ().getCertificate ().size ());
+      }
+    }
+    finally
+    {
+      Files.delete (aFile.toPath ());
+    }
+  }
+
+  @Test
+  public void testParallelVerificationInvalid () throws IOException
+  {
+    final AsicVerifierFactory aFactory = AsicVerifierFactory.newFactory ().setExecutor (s_aExecutor);
+    for (final String sFilename : new String [] { "external/asic/asic-cades-test-invalid-manifest.asice",
+                                                  "external/asic/asic-cades-test-invalid-signature.asice",
+                                                  "external/asic/asic-cades-test-invalid-sigreference.asice" })
+    {
+      try
+      {
+        aFactory.verify (ClassPathResource.getAsFile (sFilename));
+        fail ("Exception expected for " + sFilename);
+      }
+      catch (final IllegalStateException ex)
+      {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testAcceptAnyMDAlgo () throws IOException
+  {
+    final File aFile = File.createTempFile ("asic-sha384", ".asice");
+    try
+    {
+      AsicWriterFactory.newFactory (ESignatureMethod.XAdES)
+                       .setMDAlgo (EMessageDigestAlgorithm.SHA384)
+                       .newContainer (aFile)
+                       .add (new StringInputStream ("Content", StandardCharsets.ISO_8859_1),
+                             "content.txt",
+                             CMimeType.TEXT_PLAIN)
+                       .sign (TestUtil.createSignatureHelper ());
+
+      // Sequential and parallel
+      for (final ExecutorService aExecutor : new ExecutorService [] { null, s_aExecutor })
+      {
+        final AsicVerifierFactory aFactory = AsicVerifierFactory.newFactory ()
+                                                                .setAcceptAnyMDAlgo (true)
+                                                                .setExecutor (aExecutor);
+        try (final AsicVerifier aVerifier = aFactory.verify (aFile))
+        {
+          assertEquals (1, aVerifier.getAsicManifest ().getFile ().size ());
+        }
+      }
+    }
+    finally
+    {
+      Files.delete (aFile.toPath ());
+    }
+  }
+
+  @Test
+  public void testVerifyStreaming () throws IOException
+  {
+    final File aFile = File.createTempFile ("asic-streaming", ".asice");
+    try
+    {
+      final IAsicWriter aWriter = AsicWriterFactory.newFactory (ESignatureMethod.CAdES).newContainer (aFile);
+      for (int i = 0; i < 3; ++i)
+        aWriter.add (new StringInputStream ("Content of file " + i, StandardCharsets.ISO_8859_1),
+                     "content" + i + ".txt",
+                     CMimeType.TEXT_PLAIN);
+      aWriter.sign (TestUtil.createSignatureHelper ());
+
+      final AsicVerificationReport aReport = AsicVerifierFactory.newFactory ().verifyStreaming (aFile.toPath ());
+      assertTrue (aReport.getErrorMessage (), aReport.isSuccess ());
+      assertNull (aReport.getErrorMessage ());
+      assertEquals (3, aReport.getAllEntries ().size ());
+      assertEquals (3 * "Content of file 0".length (), aReport.getTotalSize ());
+      assertEquals (3, aReport.getAsicManifest ().getFile ().size ());
+      assertEquals (1, aReport.getAsicManifest ().getCertificate ().size ());
+
+      final AsicVerificationReport.Entry aEntry = aReport.getAllEntries ().get (1);
+      assertEquals ("content1.txt", aEntry.getName ());
+      assertArrayEquals (EMessageDigestAlgorithm.SHA256.createMessageDigest ()
+                                                       .digest ("Content of file 1".getBytes (StandardCharsets.ISO_8859_1)),
+                         aEntry.getDigest (EMessageDigestAlgorithm.SHA256));
+      assertNull (aEntry.getDigest (EMessageDigestAlgorithm.SHA512));
+
+      // Memory mapped and stream based verification must be equal
+      final AsicVerificationReport aStreamReport = AsicVerifierFactory.newFactory ()
+                                                                      .verifyStreaming (Files.newInputStream (aFile.toPath ()));
+      assertTrue (aStreamReport.getErrorMessage (), aStreamReport.isSuccess ());
+      assertEquals (aReport.getTotalSize (), aStreamReport.getTotalSize ());
+      assertArrayEquals (aEntry.getDigest (EMessageDigestAlgorithm.SHA256),
+                         aStreamReport.getAllEntries ().get (1).getDigest (EMessageDigestAlgorithm.SHA256));
+    }
+    finally
+    {
+      Files.delete (aFile.toPath ());
+    }
+  }
+
+  @Test
+  public void testVerifyStreamingInvalid () throws IOException
+  {
+    final AsicVerifierFactory aFactory = AsicVerifierFactory.newFactory ();
+    for (final String sFilename : new String [] { "external/asic/asic-cades-test-invalid-manifest.asice",
+                                                  "external/asic/asic-cades-test-invalid-signature.asice",
+                                                  "external/asic/asic-cades-test-invalid-sigreference.asice" })
+    {
+      final AsicVerificationReport aReport = aFactory.verifyStreaming (ClassPathResource.getInputStream (sFilename));
+      assertFalse (sFilename, aReport.isSuccess ());
+      assertNotNull (sFilename, aReport.getErrorMessage ());
+    }
+  }
+
+  @NonNull
+  private static CompletableFuture <ICommonsList <AsicEntryEvent>> _collect (@NonNull final Publisher <AsicEntryEvent> aPublisher)
+  {
+    final CompletableFuture <ICommonsList <AsicEntryEvent>> ret = new CompletableFuture <> ();
+    aPublisher.subscribe (new Subscriber <AsicEntryEvent> ()
+    {
+      private final ICommonsList <AsicEntryEvent> m_aEvents = new CommonsArrayList <> ();
+      private Subscription m_aSubscription;
+
+      public void onSubscribe (final Subscription aSubscription)
+      {
+        m_aSubscription = aSubscription;
+        // One at a time, to test the backpressure
+        aSubscription.request (1);
+      }
+
+      public void onNext (final AsicEntryEvent aEvent)
+      {
+        m_aEvents.add (aEvent);
+        m_aSubscription.request (1);
+      }
+
+      public void onError (final Throwable t)
+      {
+        ret.completeExceptionally (t);
+      }
+
+      public void onComplete ()
+      {
+        ret.complete (m_aEvents);
+      }
+    });
+    return ret;
+  }
+
+  private static void _publish (@NonNull final SubmissionPublisher <ByteBuffer> aPublisher,
+                                @NonNull final byte [] aBytes) throws InterruptedException
+  {
+    // Items submitted before the subscription would be lost
+    while (aPublisher.getNumberOfSubscribers () == 0)
+      Thread.sleep (1);
+    // Small chunks, so that headers are split
+    for (int i = 0; i < aBytes.length; i += 100)
+      aPublisher.submit (ByteBuffer.wrap (aBytes, i, Math.min (100, aBytes.length - i)));
+  }
+
+  @Test
+  public void testVerifyReactive () throws Exception
+  {
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    final IAsicWriter aWriter = AsicWriterFactory.newFactory (ESignatureMethod.CAdES).newContainer (aBAOS);
+    for (int i = 0; i < 3; ++i)
+      aWriter.add (new StringInputStream ("Content of file " + i, StandardCharsets.ISO_8859_1),
+                   "content" + i + ".txt",
+                   CMimeType.TEXT_PLAIN);
+    aWriter.sign (TestUtil.createSignatureHelper ());
+
+    final ICommonsList <AsicEntryEvent> aEvents;
+    try (final SubmissionPublisher <ByteBuffer> aPublisher = new SubmissionPublisher <> (s_aExecutor, 4))
+    {
+      final CompletableFuture <ICommonsList <AsicEntryEvent>> aResult = _collect (AsicVerifierFactory.newFactory ()
+                                                                                                   .verifyReactive (aPublisher,
+                                                                                                                    s_aExecutor));
+      _publish (aPublisher, aBAOS.toByteArray ());
+      aPublisher.close ();
+      aEvents = aResult.get ();
+    }
+
+    // Start, chunk and end per entry plus the final report
+    assertEquals (3 * 3 + 1, aEvents.size ());
+    for (int i = 0; i < 3; ++i)
+    {
+      final String sFilename = "content" + i + ".txt";
+      final byte [] aContent = ("Content of file " + i).getBytes (StandardCharsets.ISO_8859_1);
+      assertEquals (AsicEntryEvent.EType.ENTRY_START, aEvents.get (i * 3).getType ());
+      assertEquals (sFilename, aEvents.get (i * 3).getName ());
+
+      final AsicEntryEvent aChunk = aEvents.get (i * 3 + 1);
+      assertEquals (AsicEntryEvent.EType.ENTRY_CHUNK, aChunk.getType ());
+      assertEquals (ByteBuffer.wrap (aContent), aChunk.getChunk ());
+
+      final AsicEntryEvent aEnd = aEvents.get (i * 3 + 2);
+      assertEquals (AsicEntryEvent.EType.ENTRY_END, aEnd.getType ());
+      assertEquals (aContent.length, aEnd.getEntry ().getSize ());
+      assertArrayEquals (EMessageDigestAlgorithm.SHA256.createMessageDigest ().digest (aContent),
+                         aEnd.getEntry ().getDigest (EMessageDigestAlgorithm.SHA256));
+    }
+
+    final AsicEntryEvent aComplete = aEvents.getLastOrNull ();
+    assertEquals (AsicEntryEvent.EType.COMPLETE, aComplete.getType ());
+    assertTrue (aComplete.getReport ().getErrorMessage (), aComplete.getReport ().isSuccess ());
+    assertEquals (1, aComplete.getReport ().getAsicManifest ().getCertificate ().size ());
+  }
+
+  @Test
+  public void testVerifyReactiveInvalid () throws Exception
+  {
+    final byte [] aBytes = StreamHelper.getAllBytes (ClassPathResource.getInputStream ("external/asic/asic-cades-test-invalid-signature.asice"));
+    try (final SubmissionPublisher <ByteBuffer> aPublisher = new SubmissionPublisher <> (s_aExecutor, 4))
+    {
+      final CompletableFuture <ICommonsList <AsicEntryEvent>> aResult = _collect (AsicVerifierFactory.newFactory ()
+                                                                                                   .verifyReactive (aPublisher,
+                                                                                                                    s_aExecutor));
+      _publish (aPublisher, aBytes);
+      aPublisher.close ();
+
+      final AsicEntryEvent aComplete = aResult.get ().getLastOrNull ();
+      assertEquals (AsicEntryEvent.EType.COMPLETE, aComplete.getType ());
+      assertFalse (aComplete.getReport ().isSuccess ());
+      assertNotNull (aComplete.getReport ().getErrorMessage ());
+    }
+  }
+
+  @Test
+  public void testVerifyReactiveFailedInput () throws Exception
+  {
+    try (final SubmissionPublisher <ByteBuffer> aPublisher = new SubmissionPublisher <> (s_aExecutor, 4))
+    {
+      final CompletableFuture <ICommonsList <AsicEntryEvent>> aResult = _collect (AsicVerifierFactory.newFactory ()
+                                                                                                   .verifyReactive (aPublisher,
+                                                                                                                    s_aExecutor));
+      _publish (aPublisher, new byte [] { 'P', 'K' });
+      aPublisher.closeExceptionally (new IOException ("Connection lost"));
+      try
+      {
+        aResult.get ();
+        fail ();
+      }
+      catch (final ExecutionException ex)
+      {
+        assertTrue (ex.getCause () instanceof IOException);
+      }
+    }
+  }
+
+  @Test
+  public void testVerifyReactiveCancelStalledInput () throws Exception
+  {
+    try (final SubmissionPublisher <ByteBuffer> aPublisher = new SubmissionPublisher <> (s_aExecutor, 4))
+    {
+      final CompletableFuture <Subscription> aSubscription = new CompletableFuture <> ();
+      final CompletableFuture <String> aTerminal = new CompletableFuture <> ();
+      AsicVerifierFactory.newFactory ().verifyReactive (aPublisher, s_aExecutor).subscribe (new Subscriber <AsicEntryEvent> ()
+      {
+        public void onSubscribe (final Subscription aSubscr)
+        {
+          aSubscr.request (Long.MAX_VALUE);
+          aSubscription.complete (aSubscr);
+        }
+
+        public void onNext (final AsicEntryEvent aEvent)
+        {}
+
+        public void onError (final Throwable t)
+        {
+          aTerminal.complete ("error");
+        }
+
+        public void onComplete ()
+        {
+          aTerminal.complete ("complete");
+        }
+      });
+
+      // The upload stalls after the first bytes
+      _publish (aPublisher, new byte [] { 'P', 'K' });
+      aSubscription.get ().cancel ();
+
+      // The input subscription is cancelled without further input
+      for (int i = 0; i < 500 && aPublisher.getNumberOfSubscribers () > 0; ++i)
+        Thread.sleep (10);
+      assertEquals (0, aPublisher.getNumberOfSubscribers ());
+      assertFalse (aTerminal.isDone ());
+    }
+  }
+}
@@ -20,6 +20,9 @@ import static org.junit.Assert.fail;
 import java.io.File;
 import java.io.InputStream;
 import java.util.Enumeration;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -30,6 +33,7 @@ import org.slf4j.LoggerFactory;
 
 import com.helger.asic.jaxb.asic.AsicManifest;
 import com.helger.asic.jaxb.cades.DataObjectReferenceType;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayInputStream;
 import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
 import com.helger.io.file.FilenameHelper;
 import com.helger.io.resource.ClassPathResource;
@@ -221,6 +225,146 @@ public class AsicWriterTest
     }
   }
 
+  @Test
+  public void compressionPolicy () throws Exception
+  {
+    final File brochurePdfFile = ClassPathResource.getAsFile ("external/asic/e-Delivery_target_architecture.pdf");
+    final File archiveOutputFile = new File (System.getProperty ("java.io.tmpdir"), "asic-sample-compression.zip");
+
+    // Too large to be buffered for STORED
+    final byte [] aLarge = new byte [AbstractAsicWriter.MAX_STORED_ENTRY_SIZE + 1];
+    new Random (4711).nextBytes (aLarge);
+
+    AsicWriterFactory.newFactory (ESignatureMethod.CAdES)
+                     .setCompressionPolicy (new AsicCompressionPolicy ())
+                     .newContainer (archiveOutputFile)
+                     .add (m_aMessageFile, FilenameHelper.getWithoutPath (BII_MESSAGE_XML), CMimeType.APPLICATION_XML)
+                     .add (brochurePdfFile)
+                     .add (new NonBlockingByteArrayInputStream (aLarge),
+                           "large.bin",
+                           CMimeType.APPLICATION_OCTET_STREAM,
+                           IAsicCompressionPolicy.LEVEL_STORED)
+                     .sign (TestUtil.createSignatureHelper ());
+
+    try (final ZipFile zipFile = new ZipFile (archiveOutputFile))
+    {
+      assertEquals (ZipEntry.DEFLATED, zipFile.getEntry (FilenameHelper.getWithoutPath (BII_MESSAGE_XML)).getMethod ());
+      assertEquals (ZipEntry.STORED, zipFile.getEntry (brochurePdfFile.getName ()).getMethod ());
+      assertEquals (ZipEntry.DEFLATED, zipFile.getEntry ("large.bin").getMethod ());
+      // Metadata is still compressed
+      assertEquals (ZipEntry.DEFLATED, zipFile.getEntry ("META-INF/manifest.xml").getMethod ());
+    }
+
+    try (final AsicVerifier asicVerifier = m_aAsicVerifierFactory.verify (archiveOutputFile))
+    {
+      assertEquals (3, asicVerifier.getAsicManifest ().getFile ().size ());
+    }
+  }
+
+  @Test
+  public void parallelCompression () throws Exception
+  {
+    final File brochurePdfFile = ClassPathResource.getAsFile ("external/asic/e-Delivery_target_architecture.pdf");
+
+    final byte [] aLarge = new byte [3 * 1024 * 1024];
+    for (int i = 0; i < aLarge.length; ++i)
+      aLarge[i] = (byte) ('a' + i % 17);
+
+    final ExecutorService aES = Executors.newFixedThreadPool (4);
+    try
+    {
+      for (final ESignatureMethod eSM : ESignatureMethod.values ())
+      {
+        final File archiveOutputFile = new File (System.getProperty ("java.io.tmpdir"),
+                                                 "asic-sample-parallel-" + eSM.name () + ".asice");
+        AsicWriterFactory.newFactory (eSM)
+                         .setCompressionPolicy (new AsicCompressionPolicy ())
+                         .setExecutor (aES)
+                         .newContainer (archiveOutputFile)
+                         .add (m_aMessageFile, FilenameHelper.getWithoutPath (BII_MESSAGE_XML), CMimeType.APPLICATION_XML)
+                         .add (brochurePdfFile)
+                         .add (new NonBlockingByteArrayInputStream (aLarge), "large.txt", CMimeType.TEXT_PLAIN)
+                         .sign (TestUtil.createSignatureHelper ());
+
+        try (final ZipFile zipFile = new ZipFile (archiveOutputFile))
+        {
+          assertEquals (AsicInputStream.ZIPENTRY_NAME_MIMETYPE, zipFile.entries ().nextElement ().getName ());
+          assertEquals (ZipEntry.STORED, zipFile.getEntry (brochurePdfFile.getName ()).getMethod ());
+          assertEquals (ZipEntry.DEFLATED, zipFile.getEntry ("large.txt").getMethod ());
+        }
+
+        try (final AsicVerifier asicVerifier = m_aAsicVerifierFactory.verify (archiveOutputFile))
+        {
+          assertEquals (3, asicVerifier.getAsicManifest ().getFile ().size ());
+        }
+      }
+    }
+    finally
+    {
+      aES.shutdown ();
+    }
+  }
+
+  @Test
+  public void additionalDigestAlgorithm () throws Exception
+  {
+    final File brochurePdfFile = ClassPathResource.getAsFile ("external/asic/e-Delivery_target_architecture.pdf");
+
+    for (final ESignatureMethod eSM : ESignatureMethod.values ())
+    {
+      final File archiveOutputFile = new File (System.getProperty ("java.io.tmpdir"),
+                                               "asic-sample-multi-digest-" + eSM.name () + ".asice");
+      AsicWriterFactory.newFactory (eSM)
+                       .setMDAlgo (EMessageDigestAlgorithm.SHA256)
+                       .addAdditionalMDAlgo (EMessageDigestAlgorithm.SHA512)
+                       .newContainer (archiveOutputFile)
+                       .add (m_aMessageFile, FilenameHelper.getWithoutPath (BII_MESSAGE_XML), CMimeType.APPLICATION_XML)
+                       .add (brochurePdfFile)
+                       .sign (TestUtil.createSignatureHelper ());
+
+      // Verifiable with either algorithm as primary one
+      for (final EMessageDigestAlgorithm eMDAlgo : new EMessageDigestAlgorithm [] { EMessageDigestAlgorithm.SHA256,
+                                                                                    EMessageDigestAlgorithm.SHA512 })
+      {
+        final AsicVerifierFactory aVerifierFactory = AsicVerifierFactory.newFactory (eMDAlgo)
+                                                                        .addAdditionalMDAlgo (EMessageDigestAlgorithm.SHA256)
+                                                                        .addAdditionalMDAlgo (EMessageDigestAlgorithm.SHA512);
+        try (final AsicVerifier asicVerifier = aVerifierFactory.verify (archiveOutputFile))
+        {
+          assertEquals (2, asicVerifier.getAsicManifest ().getFile ().size ());
+        }
+
+        try (final IAsicReader asicReader = AsicReaderFactory.newFactory (eMDAlgo)
+                                                             .addAdditionalMDAlgo (EMessageDigestAlgorithm.SHA256)
+                                                             .addAdditionalMDAlgo (EMessageDigestAlgorithm.SHA512)
+                                                             .open (archiveOutputFile))
+        {
+          int nCount = 0;
+          while (asicReader.getNextFile () != null)
+          {
+            asicReader.writeFile (new NonBlockingByteArrayOutputStream ());
+            nCount++;
+          }
+          assertEquals (2, nCount);
+        }
+      }
+
+      // Verifiable by receivers that only support one of the algorithms
+      for (final EMessageDigestAlgorithm eMDAlgo : new EMessageDigestAlgorithm [] { EMessageDigestAlgorithm.SHA256,
+                                                                                    EMessageDigestAlgorithm.SHA512 })
+      {
+        try (final AsicVerifier asicVerifier = AsicVerifierFactory.newFactory (eMDAlgo).verify (archiveOutputFile))
+        {
+          assertEquals (2, asicVerifier.getAsicManifest ().getFile ().size ());
+        }
+
+        final AsicVerificationReport aReport = AsicVerifierFactory.newFactory (eMDAlgo)
+                                                                  .verifyStreaming (archiveOutputFile.toPath ());
+        assertTrue (aReport.getErrorMessage (), aReport.isSuccess ());
+      }
+    }
+  }
+
   @Test
   public void unknownMimetype () throws Exception
   {
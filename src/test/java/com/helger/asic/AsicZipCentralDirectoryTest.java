@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import org.junit.Test;
+
+import com.helger.base.io.stream.StreamHelper;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.io.resource.ClassPathResource;
+
+/**
+ * Test class for class {@link AsicZipCentralDirectory}.
+ *
+ * @author Philip Helger
+ */
+public final class AsicZipCentralDirectoryTest
+{
+  @Test
+  public void testSameAsZipFile () throws IOException
+  {
+    for (final String sFilename : new String [] { "external/asic/asic-cades-test-valid.asice",
+                                                  "external/asic/asic-xades-external-dss.asice",
+                                                  "external/asic/asic-xades-external-digidoc4j.asice" })
+    {
+      final File aFile = ClassPathResource.getAsFile (sFilename);
+      try (final ZipFile aZipFile = new ZipFile (aFile);
+           final SeekableByteChannel aChannel = Files.newByteChannel (aFile.toPath ()))
+      {
+        final ICommonsList <AsicZipCentralDirectory.Entry> aEntries = AsicZipCentralDirectory.read (aChannel)
+                                                                                             .getAllEntries ();
+        assertEquals (aZipFile.size (), aEntries.size ());
+
+        int nIndex = 0;
+        final Enumeration <? extends ZipEntry> aEnum = aZipFile.entries ();
+        while (aEnum.hasMoreElements ())
+        {
+          final ZipEntry aZipEntry = aEnum.nextElement ();
+          final AsicZipCentralDirectory.Entry aEntry = aEntries.get (nIndex++);
+          assertEquals (aZipEntry.getName (), aEntry.getName ());
+          assertEquals (aZipEntry.getSize (), aEntry.getSize ());
+          assertEquals (aZipEntry.getCompressedSize (), aEntry.getCompressedSize ());
+          assertEquals (aZipEntry.getCrc (), aEntry.getCrc ());
+
+          final byte [] aExpected;
+          try (final InputStream aIS = aZipFile.getInputStream (aZipEntry))
+          {
+            aExpected = StreamHelper.getAllBytes (aIS);
+          }
+          final byte [] aActual;
+          try (final InputStream aIS = AsicZipCentralDirectory.openStream (aChannel, aEntry))
+          {
+            aActual = StreamHelper.getAllBytes (aIS);
+          }
+          assertNotNull (aActual);
+          assertArrayEquals (sFilename + " - " + aEntry.getName (), aExpected, aActual);
+        }
+      }
+    }
+  }
+
+  @Test (expected = IOException.class)
+  public void testNoZip () throws IOException
+  {
+    final File aFile = ClassPathResource.getAsFile ("external/asic/bii-envelope.xml");
+    try (final SeekableByteChannel aChannel = Files.newByteChannel (aFile.toPath ()))
+    {
+      AsicZipCentralDirectory.read (aChannel);
+    }
+  }
+
+  @Test (expected = ZipException.class)
+  public void testInvalidNameLength () throws IOException
+  {
+    final byte [] aBytes = Files.readAllBytes (ClassPathResource.getAsFile ("external/asic/asic-cades-test-valid.asice")
+                                                                .toPath ());
+    final ByteBuffer aBB = ByteBuffer.wrap (aBytes).order (ByteOrder.LITTLE_ENDIAN);
+    // The central directory offset is in the end of central directory record
+    int nEOCDPos = aBytes.length - 22;
+    while (aBB.getInt (nEOCDPos) != 0x06054b50)
+      nEOCDPos--;
+    final int nCDOffset = aBB.getInt (nEOCDPos + 16);
+    assertEquals (0x02014b50, aBB.getInt (nCDOffset));
+    // Name length of the first entry exceeds the central directory
+    aBB.putShort (nCDOffset + 28, (short) 0xffff);
+
+    final Path aFile = Files.createTempFile ("asic-invalid", ".asice");
+    try
+    {
+      Files.write (aFile, aBytes);
+      try (final SeekableByteChannel aChannel = Files.newByteChannel (aFile))
+      {
+        AsicZipCentralDirectory.read (aChannel);
+      }
+    }
+    finally
+    {
+      Files.delete (aFile);
+    }
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SubmissionPublisher;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.mime.CMimeType;
+
+/**
+ * Test class for class {@link AsyncAsicWriter}.
+ *
+ * @author Philip Helger
+ */
+public final class AsyncAsicWriterTest
+{
+  private static ExecutorService s_aExecutor;
+
+  @BeforeClass
+  public static void beforeClass ()
+  {
+    s_aExecutor = Executors.newFixedThreadPool (4);
+  }
+
+  @AfterClass
+  public static void afterClass ()
+  {
+    s_aExecutor.shutdownNow ();
+  }
+
+  private static ByteBuffer _chunk (final String s)
+  {
+    return ByteBuffer.wrap (s.getBytes (StandardCharsets.ISO_8859_1));
+  }
+
+  @Test
+  public void testChunksAndPublisher () throws Exception
+  {
+    final Path aPath = Files.createTempFile ("asic-async", ".asice");
+    try
+    {
+      final AsyncAsicWriter aWriter = AsicWriterFactory.newFactory (ESignatureMethod.CAdES)
+                                                       .newAsyncContainer (FileChannel.open (aPath,
+                                                                                             StandardOpenOption.WRITE,
+                                                                                             StandardOpenOption.TRUNCATE_EXISTING),
+                                                                           s_aExecutor);
+      final CompletableFuture <Void> aAdd1 = aWriter.add (new CommonsArrayList <> (_chunk ("Hello "), _chunk ("world")),
+                                                          "chunks.txt",
+                                                          CMimeType.TEXT_PLAIN);
+
+      final StringBuilder aExpected = new StringBuilder ();
+      final CompletableFuture <Void> aAdd2;
+      try (final SubmissionPublisher <ByteBuffer> aPublisher = new SubmissionPublisher <> (s_aExecutor, 4))
+      {
+        aAdd2 = aWriter.add (aPublisher, "published.txt", CMimeType.TEXT_PLAIN);
+        // Items submitted before the subscription would be lost
+        while (aPublisher.getNumberOfSubscribers () == 0)
+          Thread.sleep (1);
+        for (int i = 0; i < 1000; ++i)
+        {
+          final String sLine = "Line " + i + "\n";
+          aExpected.append (sLine);
+          // Blocks if the subscriber does not request more
+          aPublisher.submit (_chunk (sLine));
+        }
+      }
+      aWriter.sign (TestUtil.createSignatureHelper ()).get ();
+      assertTrue (aAdd1.isDone ());
+      assertTrue (aAdd2.isDone ());
+
+      final AsicVerificationReport aReport = AsicVerifierFactory.newFactory ().verifyStreaming (aPath);
+      assertTrue (aReport.getErrorMessage (), aReport.isSuccess ());
+      assertEquals (2, aReport.getAllEntries ().size ());
+      assertEquals ("chunks.txt", aReport.getAllEntries ().get (0).getName ());
+      assertEquals ("Hello world".length (), aReport.getAllEntries ().get (0).getSize ());
+      assertEquals ("published.txt", aReport.getAllEntries ().get (1).getName ());
+      assertEquals (aExpected.length (), aReport.getAllEntries ().get (1).getSize ());
+    }
+    finally
+    {
+      Files.delete (aPath);
+    }
+  }
+
+  @Test
+  public void testAsynchronousFileChannel () throws Exception
+  {
+    final Path aPath = Files.createTempFile ("asic-async", ".asice");
+    try
+    {
+      final AsyncAsicWriter aWriter = AsicWriterFactory.newFactory (ESignatureMethod.CAdES)
+                                                       .newAsyncContainer (AsynchronousFileChannel.open (aPath,
+                                                                                                         StandardOpenOption.WRITE,
+                                                                                                         StandardOpenOption.TRUNCATE_EXISTING),
+                                                                           s_aExecutor);
+      for (int i = 0; i < 20; ++i)
+        aWriter.add (new CommonsArrayList <> (_chunk ("Content of file " + i)), "content" + i + ".txt", CMimeType.TEXT_PLAIN);
+      aWriter.sign (TestUtil.createSignatureHelper ()).get ();
+
+      final AsicVerificationReport aReport = AsicVerifierFactory.newFactory ().verifyStreaming (aPath);
+      assertTrue (aReport.getErrorMessage (), aReport.isSuccess ());
+      assertEquals (20, aReport.getAllEntries ().size ());
+    }
+    finally
+    {
+      Files.delete (aPath);
+    }
+  }
+
+  @Test
+  public void testFailurePropagation () throws Exception
+  {
+    final Path aPath = Files.createTempFile ("asic-async", ".asice");
+    try
+    {
+      final FileChannel aChannel = FileChannel.open (aPath,
+                                                     StandardOpenOption.WRITE,
+                                                     StandardOpenOption.TRUNCATE_EXISTING);
+      final AsyncAsicWriter aWriter = AsicWriterFactory.newFactory (ESignatureMethod.CAdES)
+                                                       .newAsyncContainer (aChannel, s_aExecutor);
+      // Not allowed
+      final CompletableFuture <Void> aAdd = aWriter.add (new CommonsArrayList <> (_chunk ("x")),
+                                                         "META-INF/test.txt",
+                                                         CMimeType.TEXT_PLAIN);
+      final CompletableFuture <Void> aSign = aWriter.sign (TestUtil.createSignatureHelper ());
+      for (final CompletableFuture <Void> aFuture : new CommonsArrayList <> (aAdd, aSign))
+        try
+        {
+          aFuture.get ();
+          fail ();
+        }
+        catch (final ExecutionException ex)
+        {
+          assertTrue (ex.getCause () instanceof IllegalStateException);
+        }
+      // Closed on the first failure
+      assertFalse (aChannel.isOpen ());
+    }
+    finally
+    {
+      Files.delete (aPath);
+    }
+  }
+
+  @Test
+  public void testPublisherFailsMidStream () throws Exception
+  {
+    final Path aPath = Files.createTempFile ("asic-async", ".asice");
+    try
+    {
+      final FileChannel aChannel = FileChannel.open (aPath,
+                                                     StandardOpenOption.WRITE,
+                                                     StandardOpenOption.TRUNCATE_EXISTING);
+      final AsyncAsicWriter aWriter = AsicWriterFactory.newFactory (ESignatureMethod.CAdES)
+                                                       .newAsyncContainer (aChannel, s_aExecutor);
+      final CompletableFuture <Void> aAdd;
+      try (final SubmissionPublisher <ByteBuffer> aPublisher = new SubmissionPublisher <> (s_aExecutor, 4))
+      {
+        aAdd = aWriter.add (aPublisher, "aborted.txt", CMimeType.TEXT_PLAIN);
+        while (aPublisher.getNumberOfSubscribers () == 0)
+          Thread.sleep (1);
+        // More than the sample read by the compression policy
+        for (int i = 0; i < 1000; ++i)
+          aPublisher.submit (_chunk ("Line " + i + "\n"));
+        aPublisher.closeExceptionally (new IOException ("Upload aborted"));
+      }
+      final CompletableFuture <Void> aSign = aWriter.sign (TestUtil.createSignatureHelper ());
+      for (final CompletableFuture <Void> aFuture : new CommonsArrayList <> (aAdd, aSign))
+        try
+        {
+          aFuture.get ();
+          fail ();
+        }
+        catch (final ExecutionException ex)
+        {
+          // The truncated entry must never be signed
+          assertTrue (ex.getCause () instanceof IOException);
+        }
+      assertFalse (aChannel.isOpen ());
+    }
+    finally
+    {
+      Files.delete (aPath);
+    }
+  }
+}
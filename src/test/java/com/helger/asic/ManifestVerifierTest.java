@@ -11,12 +11,18 @@
  */
 package com.helger.asic;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.helger.collection.commons.CommonsArrayList;
+
 public class ManifestVerifierTest
 {
 
@@ -25,26 +31,29 @@ public class ManifestVerifierTest
   @Test
   public void validateMessageDigestAlgorithm ()
   {
+    final byte [] aDigest = { 'c', 'a', 'f', 'e' };
     final ManifestVerifier manifestVerifier = new ManifestVerifier (EMessageDigestAlgorithm.SHA256);
 
     // Not to fail
-    manifestVerifier.update ("sha256", null, null, EMessageDigestAlgorithm.SHA256.getUri (), null);
+    manifestVerifier.update ("sha256", null, aDigest, EMessageDigestAlgorithm.SHA256.getUri (), null);
 
-    try
-    {
-      // Should fail
-      manifestVerifier.update ("sha384", null, null, EMessageDigestAlgorithm.SHA384.getUri (), null);
-      fail ("Exception expected");
-    }
-    catch (final IllegalArgumentException ex)
-    {
-      log.info (ex.getMessage ());
-    }
+    // Ignored, as not allowed
+    manifestVerifier.update ("sha384", null, aDigest, EMessageDigestAlgorithm.SHA384.getUri (), null);
+    manifestVerifier.update ("sha512", null, aDigest, EMessageDigestAlgorithm.SHA512.getUri (), null);
+    assertTrue (manifestVerifier.containsFile ("sha512"));
+    assertTrue (manifestVerifier.getAllDigestAlgorithms ("sha512").isEmpty ());
+
+    // From the content
+    manifestVerifier.update ("sha256", EMessageDigestAlgorithm.SHA256, aDigest);
+    manifestVerifier.update ("sha384", EMessageDigestAlgorithm.SHA256, aDigest);
+    manifestVerifier.update ("sha512", EMessageDigestAlgorithm.SHA256, aDigest);
+    assertTrue (manifestVerifier.isVerified ("sha256"));
+    assertFalse (manifestVerifier.isVerified ("sha512"));
 
     try
     {
-      // Should fail
-      manifestVerifier.update ("sha512", null, null, EMessageDigestAlgorithm.SHA512.getUri (), null);
+      // Should fail, as not covered by an allowed algorithm
+      manifestVerifier.verifyAllVerified ();
       fail ("Exception expected");
     }
     catch (final IllegalArgumentException ex)
@@ -53,6 +62,25 @@ public class ManifestVerifierTest
     }
   }
 
+  @Test
+  public void testIgnoreAdditionalAlgorithm ()
+  {
+    final byte [] aDigest256 = { 'c', 'a', 'f', 'e' };
+    final byte [] aDigest512 = { 'b', 'a', 'b', 'e' };
+    final ManifestVerifier manifestVerifier = new ManifestVerifier (EMessageDigestAlgorithm.SHA256);
+
+    // From a manifest with an additional algorithm
+    manifestVerifier.update ("file", "text/plain", aDigest512, EMessageDigestAlgorithm.SHA512.getUri (), "sig");
+    manifestVerifier.update ("file", "text/plain", aDigest256, EMessageDigestAlgorithm.SHA256.getUri (), "sig");
+    assertEquals (new CommonsArrayList <> (EMessageDigestAlgorithm.SHA256),
+                  new CommonsArrayList <> (manifestVerifier.getAllDigestAlgorithms ("file")));
+
+    // From the content
+    manifestVerifier.update ("file", EMessageDigestAlgorithm.SHA256, aDigest256);
+    manifestVerifier.verifyAllVerified ();
+    assertArrayEquals (aDigest256, manifestVerifier.getAsicManifest ().getFile ().get (0).getDigest ());
+  }
+
   @Test
   public void testValidDigest ()
   {
@@ -90,4 +118,50 @@ public class ManifestVerifierTest
       log.info (ex.getMessage ());
     }
   }
+
+  @Test
+  public void testMultipleAlgorithms ()
+  {
+    final byte [] aDigest256 = { 'c', 'a', 'f', 'e' };
+    final byte [] aDigest512 = { 'b', 'a', 'b', 'e' };
+    final ManifestVerifier manifestVerifier = new ManifestVerifier (EMessageDigestAlgorithm.SHA256,
+                                                                    new CommonsArrayList <> (EMessageDigestAlgorithm.SHA512));
+
+    // From the manifest
+    manifestVerifier.update ("file", "text/plain", aDigest256, EMessageDigestAlgorithm.SHA256.getUri (), "sig");
+    manifestVerifier.update ("file", "text/plain", aDigest512, EMessageDigestAlgorithm.SHA512.getUri (), "sig");
+    assertFalse (manifestVerifier.isVerified ("file"));
+    assertEquals (new CommonsArrayList <> (EMessageDigestAlgorithm.SHA256, EMessageDigestAlgorithm.SHA512),
+                  new CommonsArrayList <> (manifestVerifier.getAllDigestAlgorithms ("file")));
+    assertTrue (manifestVerifier.getAllDigestAlgorithms ("other").isEmpty ());
+
+    // From the content
+    manifestVerifier.update ("file", EMessageDigestAlgorithm.SHA256, aDigest256);
+    assertTrue (manifestVerifier.isVerified ("file"));
+    manifestVerifier.update ("file", EMessageDigestAlgorithm.SHA512, aDigest512);
+    manifestVerifier.verifyAllVerified ();
+    assertArrayEquals (aDigest256, manifestVerifier.getAsicManifest ().getFile ().get (0).getDigest ());
+
+    // Any mismatch is an error
+    try
+    {
+      manifestVerifier.update ("file", EMessageDigestAlgorithm.SHA512, aDigest256);
+      fail ("Exception expected.");
+    }
+    catch (final IllegalStateException ex)
+    {
+      log.info (ex.getMessage ());
+    }
+
+    // Only the configured algorithms are accepted
+    try
+    {
+      manifestVerifier.update ("file", EMessageDigestAlgorithm.SHA384, aDigest256);
+      fail ("Exception expected.");
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      log.info (ex.getMessage ());
+    }
+  }
 }
@@ -11,14 +11,24 @@
  */
 package com.helger.asic;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
 
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.helger.asic.jaxb.asic.Certificate;
 import com.helger.base.array.ArrayHelper;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
 import com.helger.security.keystore.EKeyStoreType;
 
 public final class SignatureHelperTest
@@ -87,4 +97,32 @@ public final class SignatureHelperTest
       LOGGER.info ("Expected WrongKeyPassword: " + ex.getMessage ());
     }
   }
+
+  @Test
+  public void testConcurrentSigning () throws Exception
+  {
+    final SignatureHelper aSH = TestUtil.createSignatureHelper ();
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (8);
+    try
+    {
+      final ICommonsList <Future <Certificate>> aFutures = new CommonsArrayList <> ();
+      for (int i = 0; i < 200; ++i)
+      {
+        // Use different algorithms concurrently as well
+        final EMessageDigestAlgorithm eMDAlgo = i % 2 == 0 ? EMessageDigestAlgorithm.SHA256
+                                                           : EMessageDigestAlgorithm.SHA512;
+        final byte [] aData = ("Content " + i).getBytes (StandardCharsets.ISO_8859_1);
+        aFutures.add (aExecutor.submit ( () -> SignatureVerifier.validate (aData, aSH.signData (aData, eMDAlgo))));
+      }
+
+      final String sSubject = aFutures.getFirstOrNull ().get ().getSubject ();
+      for (final Future <Certificate> aFuture : aFutures)
+        assertEquals (sSubject, aFuture.get ().getSubject ());
+    }
+    finally
+    {
+      aExecutor.shutdown ();
+      aExecutor.awaitTermination (1, TimeUnit.MINUTES);
+    }
+  }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.helger.asic.jaxb.asic.Certificate;
+
+/**
+ * Test class for class {@link SignatureVerificationCache}.
+ *
+ * @author Philip Helger
+ */
+public final class SignatureVerificationCacheTest
+{
+  @Test
+  public void testLRU ()
+  {
+    final SignatureVerificationCache aCache = new SignatureVerificationCache (2, Duration.ofMinutes (1));
+    final Certificate aCert1 = new Certificate ();
+    final Certificate aCert2 = new Certificate ();
+    final Certificate aCert3 = new Certificate ();
+    aCache.put ("1", aCert1);
+    aCache.put ("2", aCert2);
+    // Access "1" so that "2" is the least recently used one
+    assertSame (aCert1, aCache.get ("1"));
+    aCache.put ("3", aCert3);
+
+    assertEquals (2, aCache.size ());
+    assertSame (aCert1, aCache.get ("1"));
+    assertNull (aCache.get ("2"));
+    assertSame (aCert3, aCache.get ("3"));
+
+    aCache.clear ();
+    assertEquals (0, aCache.size ());
+  }
+
+  @Test
+  public void testTTL ()
+  {
+    final AtomicLong aNow = new AtomicLong (0);
+    final SignatureVerificationCache aCache = new SignatureVerificationCache (10, Duration.ofSeconds (5), aNow::get);
+    final Certificate aCert = new Certificate ();
+    aCache.put ("a", aCert);
+
+    aNow.set (Duration.ofSeconds (4).toNanos ());
+    assertSame (aCert, aCache.get ("a"));
+
+    aNow.set (Duration.ofSeconds (5).toNanos ());
+    assertNull (aCache.get ("a"));
+    assertEquals (0, aCache.size ());
+  }
+
+  @Test
+  public void testInvalidParameters ()
+  {
+    try
+    {
+      new SignatureVerificationCache (0, Duration.ofMinutes (1));
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+    try
+    {
+      new SignatureVerificationCache (1, Duration.ZERO);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testWithSignatureVerifier ()
+  {
+    final SignatureHelper aSH = TestUtil.createSignatureHelper ();
+    final byte [] aData = "Signed content".getBytes (StandardCharsets.ISO_8859_1);
+    final byte [] aSignature = aSH.signData (aData, EMessageDigestAlgorithm.SHA256);
+    final byte [] aOtherData = "Other content".getBytes (StandardCharsets.ISO_8859_1);
+    assertNotEquals (SignatureVerifier.getCacheKey (aData, aSignature),
+                     SignatureVerifier.getCacheKey (aOtherData, aSignature));
+
+    final SignatureVerificationCache aCache = new SignatureVerificationCache ();
+    final Certificate aCert1 = SignatureVerifier.validate (aData, aSignature, aCache);
+    assertEquals (1, aCache.size ());
+    assertNotNull (aCache.get (SignatureVerifier.getCacheKey (aData, aSignature)));
+
+    // Served from the cache as a new object
+    aCert1.setCert ("modified");
+    final Certificate aCert2 = SignatureVerifier.validate (aData, aSignature, aCache);
+    assertNotSame (aCert1, aCert2);
+    assertNull (aCert2.getCert ());
+    assertEquals (aCert1.getSubject (), aCert2.getSubject ());
+    assertArrayEquals (aCert1.getCertificate (), aCert2.getCertificate ());
+
+    // Failures are not cached
+    try
+    {
+      SignatureVerifier.validate (aOtherData, aSignature, aCache);
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+    assertEquals (1, aCache.size ());
+  }
+}
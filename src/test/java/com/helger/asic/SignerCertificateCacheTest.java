@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cms.CMSProcessableByteArray;
+import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.cms.SignerInformation;
+import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoVerifierBuilder;
+import org.junit.Test;
+
+import com.helger.bc.PBCProvider;
+
+/**
+ * Test class for class {@link SignerCertificateCache}.
+ *
+ * @author Philip Helger
+ */
+public final class SignerCertificateCacheTest
+{
+  @Test
+  public void testGetOrCreate () throws Exception
+  {
+    final SignatureHelper aSH = TestUtil.createSignatureHelper ();
+    final byte [] aData = "Signed content".getBytes (StandardCharsets.ISO_8859_1);
+    final CMSSignedData aCMSSignedData = new CMSSignedData (new CMSProcessableByteArray (aData),
+                                                            aSH.signData (aData, EMessageDigestAlgorithm.SHA256));
+    final SignerInformation aSignerInformation = aCMSSignedData.getSignerInfos ().getSigners ().iterator ().next ();
+    final X509CertificateHolder aHolder = (X509CertificateHolder) aCMSSignedData.getCertificates ()
+                                                                                .getMatches (aSignerInformation.getSID ())
+                                                                                .iterator ()
+                                                                                .next ();
+
+    final SignerCertificateCache aCache = new SignerCertificateCache (new JcaSimpleSignerInfoVerifierBuilder ().setProvider (PBCProvider.getProvider ()),
+                                                                      2);
+    final SignerCertificateCache.Entry aEntry = aCache.getOrCreate (aSignerInformation.getSID (), aHolder);
+    assertTrue (aSignerInformation.verify (aEntry.getVerifier ()));
+    assertArrayEquals (aHolder.getEncoded (), aEntry.getEncoded ());
+    assertEquals (aHolder.getSubject ().toString (), aEntry.getSubject ());
+    assertEquals (1, aCache.size ());
+
+    // A newly parsed but identical certificate reuses the entry
+    assertSame (aEntry, aCache.getOrCreate (aSignerInformation.getSID (), new X509CertificateHolder (aHolder.getEncoded ())));
+    assertEquals (1, aCache.size ());
+
+    aCache.clear ();
+    assertEquals (0, aCache.size ());
+    assertNotSame (aEntry, aCache.getOrCreate (aSignerInformation.getSID (), aHolder));
+  }
+}
@@ -14,18 +14,31 @@ package com.helger.asic.extras;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.Random;
 
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
 import org.bouncycastle.cms.CMSAlgorithm;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.jspecify.annotations.NonNull;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -38,7 +51,11 @@ import com.helger.asic.ESignatureMethod;
 import com.helger.asic.IAsicReader;
 import com.helger.asic.IAsicWriter;
 import com.helger.asic.TestUtil;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayInputStream;
 import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
+import com.helger.base.io.stream.StreamHelper;
+import com.helger.bc.PBCProvider;
+import com.helger.collection.commons.CommonsArrayList;
 import com.helger.io.resource.ClassPathResource;
 import com.helger.mime.CMimeType;
 
@@ -139,6 +156,190 @@ public final class CmsEncryptedAsicTest
     }
   }
 
+  @Test
+  public void testLargeContent () throws Exception
+  {
+    final KeyStore keyStore = _loadKeyStore ();
+    final X509Certificate certificate = (X509Certificate) keyStore.getCertificate (TestUtil.keyPairAlias ());
+    final PrivateKey privateKey = (PrivateKey) keyStore.getKey (TestUtil.keyPairAlias (),
+                                                                TestUtil.privateKeyPassword ());
+
+    // Spans multiple encryption chunks
+    final byte [] aContent = new byte [1024 * 1024 + 17];
+    new Random (4711).nextBytes (aContent);
+
+    try (final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ())
+    {
+      final CmsEncryptedAsicWriter writer = new CmsEncryptedAsicWriter (AsicWriterFactory.newFactory (ESignatureMethod.CAdES)
+                                                                                         .newContainer (aBAOS),
+                                                                        certificate);
+      writer.addEncrypted (new NonBlockingByteArrayInputStream (aContent), "large.bin", CMimeType.APPLICATION_OCTET_STREAM);
+      writer.sign (TestUtil.createSignatureHelper ());
+
+      try (final CmsEncryptedAsicReader reader = new CmsEncryptedAsicReader (AsicReaderFactory.newFactory ()
+                                                                                              .open (aBAOS.getAsInputStream ()),
+                                                                             privateKey))
+      {
+        assertEquals ("large.bin", reader.getNextFile ());
+        final NonBlockingByteArrayOutputStream aDecrypted = new NonBlockingByteArrayOutputStream ();
+        reader.writeFile (aDecrypted);
+        assertArrayEquals (aContent, aDecrypted.toByteArray ());
+        assertNull (reader.getNextFile ());
+      }
+
+      // Read via stream, with the digests verified per entry
+      final File aFile = File.createTempFile ("cms-large", ".asice");
+      try
+      {
+        try (final FileOutputStream aFOS = new FileOutputStream (aFile))
+        {
+          aBAOS.writeTo (aFOS);
+        }
+        try (final CmsEncryptedAsicReader reader = new CmsEncryptedAsicReader (AsicReaderFactory.newFactory ()
+                                                                                                .setMetadataFirst (true)
+                                                                                                .open (aFile),
+                                                                               privateKey))
+        {
+          assertEquals ("large.bin", reader.getNextFile ());
+          try (final InputStream aIS = reader.inputStream ())
+          {
+            assertArrayEquals (aContent, StreamHelper.getAllBytes (aIS));
+          }
+          assertNull (reader.getNextFile ());
+        }
+      }
+      finally
+      {
+        Files.delete (aFile.toPath ());
+      }
+    }
+  }
+
+  @Test
+  public void testInputStreamMultipleEntries () throws Exception
+  {
+    final KeyStore keyStore = _loadKeyStore ();
+    final X509Certificate certificate = (X509Certificate) keyStore.getCertificate (TestUtil.keyPairAlias ());
+    final PrivateKey privateKey = (PrivateKey) keyStore.getKey (TestUtil.keyPairAlias (),
+                                                                TestUtil.privateKeyPassword ());
+
+    final byte [] aContent1 = new byte [50_000];
+    new Random (1).nextBytes (aContent1);
+    final byte [] aContent2 = new byte [70_000];
+    new Random (2).nextBytes (aContent2);
+
+    try (final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ())
+    {
+      final CmsEncryptedAsicWriter writer = new CmsEncryptedAsicWriter (AsicWriterFactory.newFactory (ESignatureMethod.CAdES)
+                                                                                         .newContainer (aBAOS),
+                                                                        certificate);
+      writer.addEncrypted (new NonBlockingByteArrayInputStream (aContent1), "first.bin", CMimeType.APPLICATION_OCTET_STREAM);
+      writer.addEncrypted (new NonBlockingByteArrayInputStream (aContent2), "second.bin", CMimeType.APPLICATION_OCTET_STREAM);
+      writer.sign (TestUtil.createSignatureHelper ());
+
+      // Closing the decrypted stream must not close the container
+      try (final CmsEncryptedAsicReader reader = new CmsEncryptedAsicReader (AsicReaderFactory.newFactory ()
+                                                                                              .open (aBAOS.getAsInputStream ()),
+                                                                             privateKey))
+      {
+        assertEquals ("first.bin", reader.getNextFile ());
+        try (final InputStream aIS = reader.inputStream ())
+        {
+          assertArrayEquals (aContent1, StreamHelper.getAllBytes (aIS));
+        }
+        assertEquals ("second.bin", reader.getNextFile ());
+        try (final InputStream aIS = reader.inputStream ())
+        {
+          // Only read partially - the rest is consumed on close
+          assertEquals (aContent2[0] & 0xff, aIS.read ());
+        }
+        assertNull (reader.getNextFile ());
+      }
+    }
+  }
+
+  @NonNull
+  private static X509Certificate _createSelfSignedCertificate (@NonNull final KeyPair aKeyPair) throws Exception
+  {
+    final X500Name aName = new X500Name ("CN=Second recipient");
+    final JcaX509v3CertificateBuilder aBuilder = new JcaX509v3CertificateBuilder (aName,
+                                                                                  BigInteger.valueOf (4711),
+                                                                                  new Date (),
+                                                                                  new Date (System.currentTimeMillis () + 86_400_000L),
+                                                                                  aName,
+                                                                                  aKeyPair.getPublic ());
+    final ContentSigner aSigner = new JcaContentSignerBuilder ("SHA256withRSA").setProvider (PBCProvider.getProvider ())
+                                                                               .build (aKeyPair.getPrivate ());
+    return new JcaX509CertificateConverter ().setProvider (PBCProvider.getProvider ())
+                                             .getCertificate (aBuilder.build (aSigner));
+  }
+
+  @Test
+  public void testMultipleRecipients () throws Exception
+  {
+    final KeyStore keyStore = _loadKeyStore ();
+    final X509Certificate certificate1 = (X509Certificate) keyStore.getCertificate (TestUtil.keyPairAlias ());
+    final PrivateKey privateKey1 = (PrivateKey) keyStore.getKey (TestUtil.keyPairAlias (),
+                                                                 TestUtil.privateKeyPassword ());
+
+    final KeyPairGenerator aKPG = KeyPairGenerator.getInstance ("RSA");
+    aKPG.initialize (2048);
+    final KeyPair aKeyPair2 = aKPG.generateKeyPair ();
+    final X509Certificate certificate2 = _createSelfSignedCertificate (aKeyPair2);
+
+    final byte [] aContent = new byte [100_000];
+    new Random (42).nextBytes (aContent);
+
+    try (final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ())
+    {
+      final CmsEncryptedAsicWriter writer = new CmsEncryptedAsicWriter (AsicWriterFactory.newFactory (ESignatureMethod.CAdES)
+                                                                                         .newContainer (aBAOS),
+                                                                        new CommonsArrayList <> (certificate1,
+                                                                                                 certificate2));
+      writer.addEncrypted (new NonBlockingByteArrayInputStream (aContent), "multi.bin", CMimeType.APPLICATION_OCTET_STREAM);
+      writer.sign (TestUtil.createSignatureHelper ());
+
+      // Select recipient by certificate
+      try (final CmsEncryptedAsicReader reader = new CmsEncryptedAsicReader (AsicReaderFactory.newFactory ()
+                                                                                              .open (aBAOS.getAsInputStream ()),
+                                                                             aKeyPair2.getPrivate (),
+                                                                             certificate2))
+      {
+        assertEquals ("multi.bin", reader.getNextFile ());
+        final NonBlockingByteArrayOutputStream aDecrypted = new NonBlockingByteArrayOutputStream ();
+        reader.writeFile (aDecrypted);
+        assertArrayEquals (aContent, aDecrypted.toByteArray ());
+      }
+
+      // Select recipient by key only
+      try (final CmsEncryptedAsicReader reader = new CmsEncryptedAsicReader (AsicReaderFactory.newFactory ()
+                                                                                              .open (aBAOS.getAsInputStream ()),
+                                                                             privateKey1))
+      {
+        assertEquals ("multi.bin", reader.getNextFile ());
+        final NonBlockingByteArrayOutputStream aDecrypted = new NonBlockingByteArrayOutputStream ();
+        reader.writeFile (aDecrypted);
+        assertArrayEquals (aContent, aDecrypted.toByteArray ());
+      }
+
+      // Certificate that is not a recipient
+      final X509Certificate certificate3 = _createSelfSignedCertificate (aKPG.generateKeyPair ());
+      try (final CmsEncryptedAsicReader reader = new CmsEncryptedAsicReader (AsicReaderFactory.newFactory ()
+                                                                                              .open (aBAOS.getAsInputStream ()),
+                                                                             privateKey1,
+                                                                             certificate3))
+      {
+        assertEquals ("multi.bin", reader.getNextFile ());
+        reader.writeFile (new NonBlockingByteArrayOutputStream ());
+        fail ();
+      }
+      catch (final IllegalArgumentException ex)
+      {
+        // expected
+      }
+    }
+  }
+
   @NonNull
   private static KeyStore _loadKeyStore () throws KeyStoreException,
                                            IOException,
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic.extras;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.helger.asic.AsicMetrics;
+import com.helger.asic.AsicVerifierFactory;
+import com.helger.asic.AsicWriterFactory;
+import com.helger.asic.EAsicOperation;
+import com.helger.asic.ESignatureMethod;
+import com.helger.asic.IAsicWriter;
+import com.helger.asic.TestUtil;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
+import com.helger.base.io.stream.StringInputStream;
+import com.helger.mime.CMimeType;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test class for class {@link MicrometerAsicMetrics}.
+ *
+ * @author Philip Helger
+ */
+public final class MicrometerAsicMetricsTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final SimpleMeterRegistry aRegistry = new SimpleMeterRegistry ();
+    final MicrometerAsicMetrics aMetrics = new MicrometerAsicMetrics (aRegistry);
+    aMetrics.onEntryRead (100, TimeUnit.MILLISECONDS.toNanos (2));
+    aMetrics.onEntryRead (50, TimeUnit.MILLISECONDS.toNanos (2));
+    aMetrics.onContainerFinished (EAsicOperation.READ, true);
+    aMetrics.onContainerFinished (EAsicOperation.READ, false);
+    aMetrics.onContainerFinished (EAsicOperation.READ, false);
+
+    assertEquals (150, aRegistry.get ("asic.entry.bytes").tag (MicrometerAsicMetrics.TAG_DIRECTION, "in").counter ().count (), 0);
+    assertEquals (2, aRegistry.get ("asic.entry.inflate").timer ().count ());
+    assertEquals (4, aRegistry.get ("asic.entry.inflate").timer ().totalTime (TimeUnit.MILLISECONDS), 0.001);
+    assertEquals (2,
+                  aRegistry.get ("asic.containers")
+                           .tag (MicrometerAsicMetrics.TAG_OPERATION, "read")
+                           .tag (MicrometerAsicMetrics.TAG_OUTCOME, MicrometerAsicMetrics.OUTCOME_FAILURE)
+                           .counter ()
+                           .count (),
+                  0);
+  }
+
+  @Test
+  public void testWithContainer () throws IOException
+  {
+    final SimpleMeterRegistry aRegistry = new SimpleMeterRegistry ();
+    AsicMetrics.setMetrics (new MicrometerAsicMetrics (aRegistry));
+    try
+    {
+      final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+      final IAsicWriter aWriter = AsicWriterFactory.newFactory (ESignatureMethod.CAdES).newContainer (aBAOS);
+      aWriter.add (new StringInputStream ("Hello world", StandardCharsets.ISO_8859_1), "a.txt", CMimeType.TEXT_PLAIN);
+      aWriter.sign (TestUtil.createSignatureHelper ());
+      AsicVerifierFactory.newFactory ().verifyStreaming (aBAOS.getAsInputStream ());
+
+      assertEquals (1,
+                    aRegistry.get ("asic.signature.create")
+                             .tag (MicrometerAsicMetrics.TAG_OUTCOME, MicrometerAsicMetrics.OUTCOME_SUCCESS)
+                             .timer ()
+                             .count ());
+      assertEquals (1,
+                    aRegistry.get ("asic.signature.verify")
+                             .tag (MicrometerAsicMetrics.TAG_OUTCOME, MicrometerAsicMetrics.OUTCOME_SUCCESS)
+                             .timer ()
+                             .count ());
+      assertEquals (1, aRegistry.get ("asic.digest").tag (MicrometerAsicMetrics.TAG_OPERATION, "verify").timer ().count ());
+      assertEquals (1,
+                    aRegistry.get ("asic.containers")
+                             .tag (MicrometerAsicMetrics.TAG_OPERATION, "verify")
+                             .tag (MicrometerAsicMetrics.TAG_OUTCOME, MicrometerAsicMetrics.OUTCOME_SUCCESS)
+                             .counter ()
+                             .count (),
+                    0);
+    }
+    finally
+    {
+      AsicMetrics.setMetrics (null);
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2015-2017 difi (www.difi.no)
+ * Copyright (C) 2018-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed
+ * with this file, You can obtain one at
+ * https://mozilla.org/MPL/2.0/
+ */
+package com.helger.asic.jaxb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.helger.asic.jaxb.cades.ASiCManifestType;
+import com.helger.asic.jaxb.cades.DataObjectReferenceType;
+import com.helger.asic.jaxb.cades.SigReferenceType;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.xml.transform.TransformSourceFactory;
+import com.helger.xsds.xmldsig.DigestMethodType;
+
+/**
+ * Test class for class {@link JAXBMarshallerPool}.
+ *
+ * @author Philip Helger
+ */
+public final class JAXBMarshallerPoolTest
+{
+  private static ASiCManifestType _createManifest (final int nIndex)
+  {
+    final ASiCManifestType ret = new ASiCManifestType ();
+    final SigReferenceType aSigReference = new SigReferenceType ();
+    aSigReference.setURI ("META-INF/signature.p7s");
+    aSigReference.setMimeType ("application/x-pkcs7-signature");
+    ret.setSigReference (aSigReference);
+
+    final DataObjectReferenceType aDOR = new DataObjectReferenceType ();
+    aDOR.setURI ("file" + nIndex + ".xml");
+    aDOR.setMimeType ("application/xml");
+    aDOR.setDigestValue (new byte [] { (byte) nIndex, 1, 2, 3 });
+    final DigestMethodType aDigestMethod = new DigestMethodType ();
+    aDigestMethod.setAlgorithm ("http://www.w3.org/2001/04/xmlenc#sha256");
+    aDOR.setDigestMethod (aDigestMethod);
+    ret.addDataObjectReference (aDOR);
+    return ret;
+  }
+
+  @Test
+  public void testRoundtrip ()
+  {
+    final JAXBMarshallerPool <ASiCManifestType> aPool = ASiCManifestMarshaller.POOL;
+    assertNotNull (aPool.getSchema ());
+
+    final byte [] aBytes = aPool.getAsBytes (_createManifest (7));
+    assertNotNull (aBytes);
+
+    final ASiCManifestType aRead = aPool.read (TransformSourceFactory.create (aBytes));
+    assertNotNull (aRead);
+    assertEquals ("file7.xml", aRead.getDataObjectReference ().get (0).getURI ());
+
+    final String sXML = aPool.getAsString (_createManifest (7));
+    assertNotNull (sXML);
+    assertTrue (sXML.contains ("file7.xml"));
+
+    assertTrue (aPool.getIdleMarshallerCount () >= 1);
+    assertTrue (aPool.getIdleUnmarshallerCount () >= 1);
+  }
+
+  @Test
+  public void testInvalid ()
+  {
+    final JAXBMarshallerPool <ASiCManifestType> aPool = ASiCManifestMarshaller.POOL;
+
+    // Not XML
+    assertNull (aPool.read (TransformSourceFactory.create ("invalid data")));
+
+    // Valid XML but invalid according to the schema, because the SigReference is missing
+    assertNull (aPool.read (TransformSourceFactory.create ("<ASiCManifest xmlns='http://uri.etsi.org/02918/v1.2.1#' />")));
+
+    // The pooled unmarshaller is still usable after an error
+    assertNotNull (aPool.read (TransformSourceFactory.create (aPool.getAsBytes (_createManifest (1)))));
+
+    // Writing an object that is invalid according to the schema
+    assertNull (aPool.getAsBytes (new ASiCManifestType ()));
+  }
+
+  @Test
+  public void testConcurrentUsage () throws Exception
+  {
+    final JAXBMarshallerPool <ASiCManifestType> aPool = ASiCManifestMarshaller.POOL;
+    final ExecutorService aES = Executors.newFixedThreadPool (8);
+    try
+    {
+      final ICommonsList <Future <String>> aFutures = new CommonsArrayList <> ();
+      for (int i = 0; i < 200; ++i)
+      {
+        final int nIndex = i;
+        aFutures.add (aES.submit ( () -> {
+          final byte [] aBytes = aPool.getAsBytes (_createManifest (nIndex));
+          return aPool.read (TransformSourceFactory.create (aBytes)).getDataObjectReference ().get (0).getURI ();
+        }));
+      }
+
+      for (int i = 0; i < aFutures.size (); ++i)
+        assertEquals ("file" + i + ".xml", aFutures.get (i).get ());
+    }
+    finally
+    {
+      aES.shutdown ();
+    }
+
+    assertTrue (aPool.getIdleMarshallerCount () <= JAXBMarshallerPool.DEFAULT_MAX_IDLE);
+    assertTrue (aPool.getIdleUnmarshallerCount () <= JAXBMarshallerPool.DEFAULT_MAX_IDLE);
+  }
+}